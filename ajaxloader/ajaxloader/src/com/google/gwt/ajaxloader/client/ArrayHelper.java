@@ -74,8 +74,20 @@ public class ArrayHelper {
     return toJsArrayString(strings);
   }
 
-  // TODO(zundel): Add other methods to convert to Java Arrays
-  
+  /**
+   * Converts a JavaScript boolean array to a Java array of booleans.
+   * 
+   * @param bits a JavaScript array to convert.
+   */
+  public static boolean[] toJavaArrayBoolean(JsArrayBoolean bits) {
+    int length = bits.length();
+    boolean[] ret = new boolean[length];
+    for (int i = 0; i < length; i++) {
+      ret[i] = bits.get(i);
+    }
+    return ret;
+  }
+
   /**
    * Takes an array of Integers to be interpreted as bytes and returns a Java
    * Array of the byte primitive type.
@@ -91,6 +103,48 @@ public class ArrayHelper {
     return ret;
   }
 
+  /**
+   * Converts a JavaScript number array to a Java array of doubles.
+   * 
+   * @param numbers a JavaScript array to convert.
+   */
+  public static double[] toJavaArrayDouble(JsArrayNumber numbers) {
+    int length = numbers.length();
+    double[] ret = new double[length];
+    for (int i = 0; i < length; i++) {
+      ret[i] = numbers.get(i);
+    }
+    return ret;
+  }
+
+  /**
+   * Converts a JavaScript integer array to a Java array of integers.
+   * 
+   * @param integers a JavaScript array to convert.
+   */
+  public static int[] toJavaArrayInteger(JsArrayInteger integers) {
+    int length = integers.length();
+    int[] ret = new int[length];
+    for (int i = 0; i < length; i++) {
+      ret[i] = integers.get(i);
+    }
+    return ret;
+  }
+
+  /**
+   * Converts a JavaScript string array to a Java array of strings.
+   * 
+   * @param strings a JavaScript array to convert.
+   */
+  public static String[] toJavaArrayString(JsArrayString strings) {
+    int length = strings.length();
+    String[] ret = new String[length];
+    for (int i = 0; i < length; i++) {
+      ret[i] = strings.get(i);
+    }
+    return ret;
+  }
+
   public static <J extends JavaScriptObject> JsArray<J> toJsArray(J... objects) {
     JsArray<J> result = JsArray.createArray().cast();
     for (int i = 0; i < objects.length; i++) {
@@ -61,7 +61,9 @@ public final class Database extends JavaScriptObject {
    * 
    * Note that if multiple processes (including Workers) attempt to write to the
    * database at the same time, one can fail. It is up to the application to
-   * retry in these situations.
+   * retry in these situations. {@link DatabaseBatch} executes a statement for
+   * many sets of arguments in one transaction, and retries it in these
+   * situations.
    * 
    * @param sqlStatement SQL statement to execute; may use '?' place holders
    * @param args values for the place holders in the <code>sqlStatement</code>
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gears.client.database;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptException;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.core.client.GWT.UncaughtExceptionHandler;
+import com.google.gwt.gears.client.Factory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Executes one SQL statement with many sets of arguments in a single
+ * transaction. This is much faster than calling {@link Database#execute} for
+ * each set of arguments, which commits each statement on its own.
+ *
+ * <pre>
+ * DatabaseBatch batch = new DatabaseBatch(db,
+ *     "insert into Demo values (?, ?)");
+ * for (Phrase phrase : phrases) {
+ *   batch.add(phrase.getText(), phrase.getTimestamp());
+ * }
+ * batch.execute(callback);
+ * </pre>
+ *
+ * If another process or Worker holds a lock on the database, the whole
+ * transaction is rolled back and tried again after a delay that doubles with
+ * each attempt.
+ */
+public class DatabaseBatch {
+  /**
+   * Called when a batch executed with {@link DatabaseBatch#execute(Callback)}
+   * completes.
+   */
+  public interface Callback {
+    /**
+     * Called when the last attempt failed.
+     *
+     * @param batch the batch that failed
+     * @param cause the error of the last attempt
+     */
+    void onFailure(DatabaseBatch batch, DatabaseException cause);
+
+    /**
+     * Called when the transaction is committed.
+     *
+     * @param batch the batch that was executed
+     */
+    void onSuccess(DatabaseBatch batch);
+  }
+
+  /**
+   * The default number of times a batch is attempted.
+   */
+  public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+  /**
+   * The default delay before the first retry.
+   */
+  public static final int DEFAULT_RETRY_DELAY_MILLIS = 50;
+
+  /**
+   * Returns <code>true</code> if an exception was caused by another process or
+   * Worker locking the database, in which case trying again later may succeed.
+   *
+   * @param e an exception thrown by a {@link Database}
+   * @return <code>true</code> if the database was locked
+   */
+  public static boolean isLockConflict(DatabaseException e) {
+    String message = e.getMessage();
+    return message != null && message.toLowerCase().contains("locked");
+  }
+
+  private static native void executeAndClose(Database database,
+      String sqlStatement, JsArrayString args) /*-{
+    database.execute(sqlStatement, args).close();
+  }-*/;
+
+  // Called from JSNI
+  @SuppressWarnings("unused")
+  private static void fireRetry(DatabaseBatch batch, Callback callback) {
+    UncaughtExceptionHandler ueh = GWT.getUncaughtExceptionHandler();
+    if (ueh != null) {
+      try {
+        batch.attempt(callback);
+      } catch (Throwable e) {
+        ueh.onUncaughtException(e);
+      }
+    } else {
+      batch.attempt(callback);
+    }
+  }
+
+  private static native void rollback(Database database) /*-{
+    try {
+      database.execute('ROLLBACK').close();
+    } catch (e) {
+      // The transaction was not started, or was already rolled back
+    }
+  }-*/;
+
+  private static native void schedule(Factory factory,
+      DatabaseBatch batch, Callback callback, int delayMillis) /*-{
+    var timer = factory.create('beta.timer');
+    timer.setTimeout(function() {
+      @com.google.gwt.gears.client.database.DatabaseBatch::fireRetry(Lcom/google/gwt/gears/client/database/DatabaseBatch;Lcom/google/gwt/gears/client/database/DatabaseBatch$Callback;)(batch, callback);
+    }, delayMillis);
+  }-*/;
+
+  private int attempts;
+  private boolean committed;
+  private final Database database;
+  private double elapsedMillis;
+  private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+  private int retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+  private final List<String[]> rows = new ArrayList<String[]>();
+  private final String sqlStatement;
+
+  /**
+   * Creates an empty batch.
+   *
+   * @param database an open database
+   * @param sqlStatement SQL statement to execute for each set of arguments;
+   *          may use '?' place holders
+   */
+  public DatabaseBatch(Database database, String sqlStatement) {
+    this.database = database;
+    this.sqlStatement = sqlStatement;
+  }
+
+  /**
+   * Adds a set of arguments. The statement is executed once for each set.
+   *
+   * @param args values for the place holders in the SQL statement
+   */
+  public void add(String... args) {
+    rows.add(args);
+  }
+
+  /**
+   * Removes every set of arguments.
+   */
+  public void clear() {
+    rows.clear();
+  }
+
+  /**
+   * Executes the statement for every set of arguments within a single
+   * transaction, without retrying if the database is locked.
+   *
+   * @throws DatabaseException if a statement fails, in which case the
+   *           transaction is rolled back
+   */
+  public void execute() throws DatabaseException {
+    attempts = 1;
+    runTransaction();
+  }
+
+  /**
+   * Executes the statement for every set of arguments within a single
+   * transaction. If the database is locked, the transaction is tried again up
+   * to {@link #getMaxAttempts()} times in total, waiting
+   * {@link #getRetryDelayMillis()} before the first retry and twice as long
+   * before each of the following ones. Other errors are not retried.
+   *
+   * The first attempt is made before this method returns.
+   *
+   * @param callback called when the transaction is committed or the last
+   *          attempt failed
+   */
+  public void execute(Callback callback) {
+    attempts = 0;
+    attempt(callback);
+  }
+
+  /**
+   * Returns the number of times the last execution attempted the transaction.
+   *
+   * @return the number of attempts
+   */
+  public int getAttempts() {
+    return attempts;
+  }
+
+  /**
+   * Returns how long the transaction that was committed took, not counting
+   * failed attempts or delays between them.
+   *
+   * @return the duration of the transaction in milliseconds, or 0 if the last
+   *         execution failed
+   */
+  public double getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public int getRetryDelayMillis() {
+    return retryDelayMillis;
+  }
+
+  /**
+   * Returns the number of sets of arguments.
+   *
+   * @return the number of rows in the batch
+   */
+  public int getRowCount() {
+    return rows.size();
+  }
+
+  /**
+   * Returns the number of sets of arguments executed per second by the
+   * transaction that was committed.
+   *
+   * @return the rows written per second, or 0 if the last execution failed
+   */
+  public double getRowsPerSecond() {
+    if (!committed) {
+      return 0;
+    }
+    return rows.size() * 1000 / Math.max(elapsedMillis, 1);
+  }
+
+  public String getSqlStatement() {
+    return sqlStatement;
+  }
+
+  /**
+   * Sets the number of times {@link #execute(Callback)} attempts the
+   * transaction.
+   *
+   * @param maxAttempts the number of attempts, at least 1
+   */
+  public void setMaxAttempts(int maxAttempts) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts must be at least 1: "
+          + maxAttempts);
+    }
+    this.maxAttempts = maxAttempts;
+  }
+
+  /**
+   * Sets the delay before the first retry of {@link #execute(Callback)}.
+   *
+   * @param retryDelayMillis the delay in milliseconds
+   */
+  public void setRetryDelayMillis(int retryDelayMillis) {
+    if (retryDelayMillis < 0) {
+      throw new IllegalArgumentException(
+          "retryDelayMillis must not be negative: " + retryDelayMillis);
+    }
+    this.retryDelayMillis = retryDelayMillis;
+  }
+
+  private void attempt(Callback callback) {
+    ++attempts;
+    try {
+      runTransaction();
+    } catch (DatabaseException e) {
+      if (attempts < maxAttempts && isLockConflict(e)) {
+        schedule(Factory.getInstance(), this, callback, retryDelayMillis
+            << Math.min(attempts - 1, 16));
+      } else {
+        callback.onFailure(this, e);
+      }
+      return;
+    }
+    callback.onSuccess(this);
+  }
+
+  /**
+   * Executes every row in one transaction, reusing the same argument array.
+   */
+  private void runTransaction() throws DatabaseException {
+    JsArrayString args = JavaScriptObject.createArray().cast();
+    // Do not report the previous run if this one fails
+    committed = false;
+    elapsedMillis = 0;
+    double start = Duration.currentTimeMillis();
+    try {
+      // Take the write lock now rather than on the first row, so that a
+      // conflict fails before any work is done
+      executeAndClose(database, "BEGIN IMMEDIATE", args);
+      for (String[] row : rows) {
+        args.setLength(row.length);
+        for (int i = 0; i < row.length; ++i) {
+          args.set(i, row[i]);
+        }
+        executeAndClose(database, sqlStatement, args);
+      }
+      args.setLength(0);
+      executeAndClose(database, "COMMIT", args);
+    } catch (JavaScriptException ex) {
+      rollback(database);
+      throw new DatabaseException(ex.getDescription(), ex);
+    }
+    elapsedMillis = Duration.currentTimeMillis() - start;
+    committed = true;
+  }
+}
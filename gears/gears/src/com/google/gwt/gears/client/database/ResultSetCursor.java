@@ -0,0 +1,365 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gears.client.database;
+
+import com.google.gwt.core.client.JavaScriptException;
+import com.google.gwt.core.client.JavaScriptObject;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reads the rows of a {@link ResultSet} in blocks. Each block is copied into
+ * one array per field by a single call, and the typed getters then read the
+ * current row from those arrays without calling into Gears or throwing checked
+ * exceptions.
+ *
+ * <pre>
+ * ResultSetCursor cursor = new ResultSetCursor(
+ *     db.execute("select * from Demo"));
+ * try {
+ *   while (cursor.next()) {
+ *     String phrase = cursor.getString(0);
+ *     long timestamp = cursor.getLong(1);
+ *   }
+ * } finally {
+ *   cursor.close();
+ * }
+ * </pre>
+ *
+ * Rows can also be read into objects with a {@link RowMapper}. The cursor
+ * closes the <code>ResultSet</code> once it has fetched the last row, or when
+ * {@link #close()} is called.
+ */
+public class ResultSetCursor {
+  /**
+   * The default number of rows fetched at once.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 500;
+
+  /**
+   * Copies up to <code>blockSize</code> rows into <code>columns</code>,
+   * replacing the previous block, and returns the number of rows copied.
+   */
+  private static native int fetch(ResultSet resultSet,
+      JavaScriptObject columns, int blockSize) /*-{
+    var fieldCount = columns.length;
+    var rows = 0;
+    while (rows < blockSize && resultSet.isValidRow()) {
+      for (var i = 0; i < fieldCount; ++i) {
+        columns[i][rows] = resultSet.field(i);
+      }
+      resultSet.next();
+      ++rows;
+    }
+    for (var i = 0; i < fieldCount; ++i) {
+      columns[i].length = rows;
+    }
+    return rows;
+  }-*/;
+
+  private static native boolean getBoolean(JavaScriptObject columns,
+      int field, int row) /*-{
+    var val = columns[field][row];
+    if (typeof val == 'string') {
+      return val.toLowerCase() == 'true' || (Number(val) || 0) != 0;
+    }
+    return !!val;
+  }-*/;
+
+  private static native double getDate(JavaScriptObject columns, int field,
+      int row) /*-{
+    var val = columns[field][row];
+    return val == null ? NaN : new Date(val).getTime();
+  }-*/;
+
+  private static native double getDouble(JavaScriptObject columns,
+      int field, int row) /*-{
+    var val = columns[field][row];
+    return val == null ? 0 : Number(val);
+  }-*/;
+
+  private static native String getString(JavaScriptObject columns,
+      int field, int row) /*-{
+    var val = columns[field][row];
+    return val == null ? null : String(val);
+  }-*/;
+
+  private static native boolean isNull(JavaScriptObject columns, int field,
+      int row) /*-{
+    return columns[field][row] == null;
+  }-*/;
+
+  private static native JavaScriptObject newColumns(int fieldCount) /*-{
+    var columns = [];
+    for (var i = 0; i < fieldCount; ++i) {
+      columns.push([]);
+    }
+    return columns;
+  }-*/;
+
+  private int blockRow = -1;
+  private int blockRows;
+  private int blockSize = DEFAULT_BLOCK_SIZE;
+  private final JavaScriptObject columns;
+  private final String[] fieldNames;
+  private ResultSet resultSet;
+  private int rowIndex = -1;
+
+  /**
+   * Creates a cursor positioned before the first row of a result set.
+   *
+   * @param resultSet the result set to read, which the cursor closes
+   * @throws DatabaseException if the fields of the result set cannot be read
+   */
+  public ResultSetCursor(ResultSet resultSet) throws DatabaseException {
+    this.resultSet = resultSet;
+    fieldNames = new String[resultSet.getFieldCount()];
+    for (int i = 0; i < fieldNames.length; ++i) {
+      fieldNames[i] = resultSet.getFieldName(i);
+    }
+    columns = newColumns(fieldNames.length);
+  }
+
+  /**
+   * Closes the result set, if the cursor has not already done so. Rows that
+   * were not read are discarded.
+   *
+   * @throws DatabaseException on any error
+   */
+  public void close() throws DatabaseException {
+    blockRow = blockRows;
+    if (resultSet != null) {
+      ResultSet toClose = resultSet;
+      resultSet = null;
+      toClose.close();
+    }
+  }
+
+  /**
+   * Returns the index of a field, ignoring case as SQLite does.
+   *
+   * @param fieldName the name of the field
+   * @return the zero-based index of the field, or -1 if there is no such field
+   */
+  public int findField(String fieldName) {
+    for (int i = 0; i < fieldNames.length; ++i) {
+      if (fieldNames[i].equalsIgnoreCase(fieldName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Returns the value of a field of the current row as a boolean. Numbers other
+   * than 0 and the string "true" are <code>true</code>.
+   *
+   * @param fieldIndex zero-based index of the field
+   * @return the field value as a boolean, or <code>false</code> if it is null
+   */
+  public boolean getBoolean(int fieldIndex) {
+    checkField(fieldIndex);
+    return getBoolean(columns, fieldIndex, blockRow);
+  }
+
+  /**
+   * Returns the value of a field of the current row as a <code>Date</code>.
+   *
+   * @param fieldIndex zero-based index of the field
+   * @return the field value as a Date, or <code>null</code> if it is null
+   */
+  public Date getDate(int fieldIndex) {
+    checkField(fieldIndex);
+    double time = getDate(columns, fieldIndex, blockRow);
+    return Double.isNaN(time) ? null : new Date((long) time);
+  }
+
+  /**
+   * Returns the value of a field of the current row as a double.
+   *
+   * @param fieldIndex zero-based index of the field
+   * @return the field value as a double, or 0 if it is null
+   */
+  public double getDouble(int fieldIndex) {
+    checkField(fieldIndex);
+    return getDouble(columns, fieldIndex, blockRow);
+  }
+
+  public int getFieldCount() {
+    return fieldNames.length;
+  }
+
+  /**
+   * Returns the name of a field.
+   *
+   * @param fieldIndex zero-based index of the field
+   * @return the name of the field
+   */
+  public String getFieldName(int fieldIndex) {
+    return fieldNames[fieldIndex];
+  }
+
+  /**
+   * Returns the value of a field of the current row as an int.
+   *
+   * @param fieldIndex zero-based index of the field
+   * @return the field value as an int, or 0 if it is null
+   */
+  public int getInt(int fieldIndex) {
+    return (int) getDouble(fieldIndex);
+  }
+
+  /**
+   * Returns the value of a field of the current row as a long.
+   *
+   * @param fieldIndex zero-based index of the field
+   * @return the field value as a long, or 0 if it is null
+   */
+  public long getLong(int fieldIndex) {
+    return (long) getDouble(fieldIndex);
+  }
+
+  /**
+   * Returns the index of the current row.
+   *
+   * @return the zero-based index of the current row, or -1 before the first
+   *         call to {@link #next()}
+   */
+  public int getRowIndex() {
+    return rowIndex;
+  }
+
+  /**
+   * Returns the value of a field of the current row as a String.
+   *
+   * @param fieldIndex zero-based index of the field
+   * @return the field value as a String, or <code>null</code> if it is null
+   */
+  public String getString(int fieldIndex) {
+    checkField(fieldIndex);
+    return getString(columns, fieldIndex, blockRow);
+  }
+
+  /**
+   * Returns <code>true</code> once the result set is closed, which happens
+   * when the last block has been fetched or {@link #close()} is called. The
+   * rows of the last block can still be read after the cursor closed the
+   * result set on its own.
+   *
+   * @return <code>true</code> if the result set is closed
+   */
+  public boolean isClosed() {
+    return resultSet == null;
+  }
+
+  /**
+   * Returns <code>true</code> if a field of the current row is null.
+   *
+   * @param fieldIndex zero-based index of the field
+   * @return <code>true</code> if the field value is null
+   */
+  public boolean isNull(int fieldIndex) {
+    checkField(fieldIndex);
+    return isNull(columns, fieldIndex, blockRow);
+  }
+
+  /**
+   * Moves to the next row, fetching the next block of rows if needed.
+   *
+   * @return <code>true</code> if there is a current row, <code>false</code>
+   *         once every row has been read
+   * @throws DatabaseException if the rows cannot be read
+   */
+  public boolean next() throws DatabaseException {
+    if (blockRow + 1 < blockRows) {
+      ++blockRow;
+      ++rowIndex;
+      return true;
+    }
+    if (resultSet == null) {
+      blockRow = blockRows;
+      return false;
+    }
+
+    try {
+      blockRows = fetch(resultSet, columns, blockSize);
+    } catch (JavaScriptException ex) {
+      blockRows = 0;
+      close();
+      throw new DatabaseException(ex.getMessage(), ex);
+    }
+    if (blockRows < blockSize) {
+      // The result set is exhausted, so release it now
+      close();
+    }
+    blockRow = 0;
+    if (blockRows == 0) {
+      return false;
+    }
+    ++rowIndex;
+    return true;
+  }
+
+  /**
+   * Reads the remaining rows into objects, and closes the cursor.
+   *
+   * @param <T> the type of the objects
+   * @param mapper the mapper creating an object from each row
+   * @return the objects, in the order of the rows
+   * @throws DatabaseException if the rows cannot be read
+   */
+  public <T> List<T> readAll(RowMapper<T> mapper) throws DatabaseException {
+    List<T> result = new ArrayList<T>();
+    try {
+      while (next()) {
+        result.add(mapper.map(this));
+      }
+    } finally {
+      close();
+    }
+    return result;
+  }
+
+  /**
+   * Sets the number of rows fetched at once. Larger blocks cross into Gears
+   * less often, but hold more rows in memory.
+   *
+   * @param blockSize the number of rows, at least 1
+   */
+  public void setBlockSize(int blockSize) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("blockSize must be at least 1: "
+          + blockSize);
+    }
+    this.blockSize = blockSize;
+  }
+
+  private void checkField(int fieldIndex) {
+    if (blockRow < 0 || blockRow >= blockRows) {
+      throw new IllegalStateException("The cursor is not on a row");
+    }
+    if (fieldIndex < 0 || fieldIndex >= fieldNames.length) {
+      throw new IndexOutOfBoundsException("Field index " + fieldIndex
+          + " out of range [0, " + fieldNames.length + ")");
+    }
+  }
+}
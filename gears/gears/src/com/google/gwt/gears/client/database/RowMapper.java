@@ -0,0 +1,50 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gears.client.database;
+
+/**
+ * Creates an object from the current row of a {@link ResultSetCursor}.
+ *
+ * An implementation can be generated by declaring an interface that extends
+ * <code>RowMapper</code> for a class with a default constructor, and creating
+ * it with <code>GWT.create()</code>:
+ *
+ * <pre>
+ * interface PhraseMapper extends RowMapper&lt;Phrase&gt; {
+ * }
+ *
+ * List&lt;Phrase&gt; phrases = new ResultSetCursor(
+ *     db.execute("select * from Demo")).readAll(
+ *     GWT.&lt;PhraseMapper&gt; create(PhraseMapper.class));
+ * </pre>
+ *
+ * The generated mapper sets each public field and each public setter of the
+ * class whose name matches a field of the result set, ignoring case. Primitive
+ * types, their wrappers, <code>String</code> and <code>Date</code> are
+ * supported. Wrappers and <code>Date</code> are set to <code>null</code> for
+ * null values. The fields are looked up once per cursor.
+ *
+ * @param <T> the type of the objects
+ */
+public interface RowMapper<T> {
+  /**
+   * Creates an object from the current row of a cursor.
+   *
+   * @param cursor a cursor positioned on a row
+   * @return the object created from the row
+   */
+  T map(ResultSetCursor cursor);
+}
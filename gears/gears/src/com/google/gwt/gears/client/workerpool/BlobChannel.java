@@ -0,0 +1,368 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gears.client.workerpool;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.gears.client.Factory;
+import com.google.gwt.gears.client.blob.Blob;
+import com.google.gwt.gears.client.blobbuilder.BlobBuilder;
+import com.google.gwt.gears.client.workerpool.WorkerPoolMessageHandler.MessageEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends large payloads between the members of a {@link WorkerPool} as
+ * {@link Blob} handles rather than strings.
+ *
+ * Strings sent with {@link WorkerPool#sendMessage(String, int)} are copied by
+ * the sender and the receiver, which doubles peak memory for large payloads.
+ * Blobs are immutable, so Gears passes them by reference. The channel sends
+ * short strings as they are, converts longer ones to a Blob once, and splits
+ * Blobs longer than {@link #getChunkSize()} into slices, which are handles to
+ * parts of the same data, so that the receiver can process them as they
+ * arrive.
+ *
+ * <pre>
+ * final BlobChannel channel = new BlobChannel(pool);
+ * channel.setChunkHandler(new BlobChannel.ChunkHandler() {
+ *   public void onChunkReceived(int sender, Chunk chunk) {
+ *     process(chunk.getBlob());
+ *   }
+ * });
+ * pool.setMessageHandler(new WorkerPoolMessageHandler() {
+ *   public void onMessageReceived(MessageEvent event) {
+ *     if (!channel.onMessageReceived(event)) {
+ *       // A message not sent through a channel
+ *     }
+ *   }
+ * });
+ * channel.send(builder.getAsBlob(), workerId);
+ * </pre>
+ *
+ * Each part is sent as an object of the form
+ * <code>{transfer: id, offset: n, total: n, blob: Blob}</code>, which workers
+ * written in JavaScript can send and receive as well.
+ */
+public class BlobChannel {
+  /**
+   * A part of a payload, or a whole payload.
+   */
+  public static final class Chunk extends JavaScriptObject {
+    private static native Chunk create(int transfer, int offset, int total,
+        Blob blob) /*-{
+      return {transfer: transfer, offset: offset, total: total, blob: blob};
+    }-*/;
+
+    protected Chunk() {
+      // Required for overlay types
+    }
+
+    public native Blob getBlob() /*-{
+      return this.blob;
+    }-*/;
+
+    /**
+     * Returns the position of the part in the payload.
+     *
+     * @return the offset of the first byte of the part
+     */
+    public native int getOffset() /*-{
+      return this.offset;
+    }-*/;
+
+    /**
+     * Returns the length of the payload the part belongs to.
+     *
+     * @return the length of the whole payload, in bytes
+     */
+    public native int getTotalLength() /*-{
+      return this.total;
+    }-*/;
+
+    /**
+     * Returns the identifier shared by the parts of a payload, unique for each
+     * sender.
+     *
+     * @return the identifier of the payload
+     */
+    public native int getTransferId() /*-{
+      return this.transfer;
+    }-*/;
+
+    /**
+     * Returns <code>true</code> if the part ends the payload.
+     *
+     * @return <code>true</code> for the last part
+     */
+    public native boolean isLast() /*-{
+      return this.offset + this.blob.length >= this.total;
+    }-*/;
+  }
+
+  /**
+   * Receives the Blobs sent through a channel.
+   */
+  public interface ChunkHandler {
+    /**
+     * Called for each part of a payload, in order, or once with the whole
+     * payload if the channel reassembles them.
+     *
+     * @param sender the id of the worker that sent the payload
+     * @param chunk the part
+     */
+    void onChunkReceived(int sender, Chunk chunk);
+  }
+
+  /**
+   * The default length of the parts Blobs are split into.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+  /**
+   * The default length of the longest string sent as it is.
+   */
+  public static final int DEFAULT_STRING_THRESHOLD = 64 * 1024;
+
+  /**
+   * Returns <code>true</code> if a message was sent through a channel.
+   *
+   * @param event the message
+   * @return <code>true</code> if the message is a {@link Chunk}
+   */
+  public static native boolean isChunk(MessageEvent event) /*-{
+    var body = event.body;
+    return body != null && typeof body == 'object'
+        && typeof body.transfer == 'number' && body.blob != null;
+  }-*/;
+
+  private final Map<String, BlobBuilder> assembling =
+      new HashMap<String, BlobBuilder>();
+  private double bytesCopied;
+  private double bytesReferenced;
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+  private ChunkHandler handler;
+  private int messagesSent;
+  private int nextTransferId;
+  private final WorkerPool pool;
+  private boolean reassemble;
+  private int stringThreshold = DEFAULT_STRING_THRESHOLD;
+
+  /**
+   * Creates a channel sending messages through a pool.
+   *
+   * @param pool the pool the channel sends to
+   */
+  public BlobChannel(WorkerPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Returns the number of bytes copied to send and reassemble payloads:
+   * strings sent as they are, counted as two bytes per character, strings
+   * converted to Blobs, and reassembled parts.
+   *
+   * @return the number of bytes copied
+   */
+  public double getBytesCopied() {
+    return bytesCopied;
+  }
+
+  /**
+   * Returns the average number of bytes copied for each message sent.
+   *
+   * @return the bytes copied per message, or 0 if none was sent
+   */
+  public double getBytesCopiedPerMessage() {
+    return messagesSent == 0 ? 0 : bytesCopied / messagesSent;
+  }
+
+  /**
+   * Returns the number of bytes sent as Blob handles, without copying.
+   *
+   * @return the number of bytes passed by reference
+   */
+  public double getBytesReferenced() {
+    return bytesReferenced;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Returns the number of messages sent, counting each part of a payload.
+   *
+   * @return the number of messages sent
+   */
+  public int getMessagesSent() {
+    return messagesSent;
+  }
+
+  public int getStringThreshold() {
+    return stringThreshold;
+  }
+
+  /**
+   * Returns <code>true</code> if the parts of a payload are delivered together
+   * as one Blob.
+   *
+   * @return <code>true</code> if parts are reassembled
+   */
+  public boolean isReassembling() {
+    return reassemble;
+  }
+
+  /**
+   * Passes a message to the chunk handler if it was sent through a channel.
+   * Call this from the message handler of the pool.
+   *
+   * @param event the message
+   * @return <code>true</code> if the message was sent through a channel and
+   *         was consumed
+   */
+  public boolean onMessageReceived(MessageEvent event) {
+    if (!isChunk(event)) {
+      return false;
+    }
+    Chunk chunk = event.getBodyObject().cast();
+    int sender = event.getSender();
+    if (reassemble && !(chunk.getOffset() == 0 && chunk.isLast())) {
+      chunk = reassemble(sender, chunk);
+    }
+    if (chunk != null && handler != null) {
+      handler.onChunkReceived(sender, chunk);
+    }
+    return true;
+  }
+
+  /**
+   * Resets the counts of messages and bytes.
+   */
+  public void resetStatistics() {
+    bytesCopied = 0;
+    bytesReferenced = 0;
+    messagesSent = 0;
+  }
+
+  /**
+   * Sends a Blob by reference, split into parts if it is longer than
+   * {@link #getChunkSize()}.
+   *
+   * @param blob the payload
+   * @param destWorkerId id of the worker to send the payload to
+   */
+  public void send(Blob blob, int destWorkerId) {
+    int transfer = nextTransferId++;
+    int total = blob.getLength();
+    int offset = 0;
+    do {
+      int length = Math.min(chunkSize, total - offset);
+      Blob part = offset == 0 && length == total ? blob : blob.slice(offset,
+          length);
+      pool.sendMessage(Chunk.create(transfer, offset, total, part),
+          destWorkerId);
+      bytesReferenced += length;
+      ++messagesSent;
+      offset += length;
+    } while (offset < total);
+  }
+
+  /**
+   * Sends a string as it is if it is not longer than
+   * {@link #getStringThreshold()}, or as a Blob otherwise. The receiver gets
+   * a string message in the first case, and UTF-8 encoded chunks in the
+   * second.
+   *
+   * @param text the payload
+   * @param destWorkerId id of the worker to send the payload to
+   */
+  public void send(String text, int destWorkerId) {
+    if (text.length() <= stringThreshold) {
+      pool.sendMessage(text, destWorkerId);
+      bytesCopied += 2.0 * text.length();
+      ++messagesSent;
+      return;
+    }
+    BlobBuilder builder = Factory.getInstance().createBlobBuilder();
+    builder.append(text);
+    Blob blob = builder.getAsBlob();
+    bytesCopied += blob.getLength();
+    send(blob, destWorkerId);
+  }
+
+  public void setChunkHandler(ChunkHandler handler) {
+    this.handler = handler;
+  }
+
+  /**
+   * Sets the length of the parts Blobs are split into. Smaller parts let the
+   * receiver start sooner, but cost one message each.
+   *
+   * @param chunkSize the length of the parts in bytes, at least 1
+   */
+  public void setChunkSize(int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize must be at least 1: "
+          + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Sets whether the parts of a payload are delivered together as one Blob,
+   * which copies them, or one by one as they arrive.
+   *
+   * @param reassemble <code>true</code> to reassemble parts
+   */
+  public void setReassembling(boolean reassemble) {
+    this.reassemble = reassemble;
+  }
+
+  /**
+   * Sets the length of the longest string sent as it is.
+   *
+   * @param stringThreshold the number of characters
+   */
+  public void setStringThreshold(int stringThreshold) {
+    if (stringThreshold < 0) {
+      throw new IllegalArgumentException(
+          "stringThreshold must not be negative: " + stringThreshold);
+    }
+    this.stringThreshold = stringThreshold;
+  }
+
+  /**
+   * Appends a part to its payload, and returns the whole payload once the last
+   * part arrived, or <code>null</code> before.
+   */
+  private Chunk reassemble(int sender, Chunk chunk) {
+    String key = sender + ":" + chunk.getTransferId();
+    BlobBuilder builder = assembling.get(key);
+    if (builder == null) {
+      builder = Factory.getInstance().createBlobBuilder();
+      assembling.put(key, builder);
+    }
+    builder.append(chunk.getBlob());
+    bytesCopied += chunk.getBlob().getLength();
+    if (!chunk.isLast()) {
+      return null;
+    }
+    assembling.remove(key);
+    return Chunk.create(chunk.getTransferId(), 0, chunk.getTotalLength(),
+        builder.getAsBlob());
+  }
+}
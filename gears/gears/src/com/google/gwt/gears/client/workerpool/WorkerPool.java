@@ -173,7 +173,9 @@ public final class WorkerPool extends JavaScriptObject {
    * WorkerPool.
    * 
    * Messages are copied between workers. Changes to a message received in one
-   * worker will not be reflected in the sending worker.
+   * worker will not be reflected in the sending worker. Blobs within the
+   * message are immutable and are passed by reference; {@link BlobChannel}
+   * uses them to send large payloads without copying.
    * 
    * @param messageObj message to send to the worker.
    * @param destWorkerId id of the worker to send the message to
@@ -0,0 +1,564 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gears.client.workerpool;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.GWT.UncaughtExceptionHandler;
+import com.google.gwt.gears.client.Factory;
+import com.google.gwt.gears.client.GearsException;
+import com.google.gwt.gears.client.workerpool.WorkerPoolMessageHandler.MessageEvent;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Runs tasks on a fixed number of workers created from the same script, and
+ * passes each reply to the callback of the task it answers.
+ *
+ * The script must define a function <code>handleTask(body)</code>, which
+ * receives the body of a task and returns the body of the reply. A task fails
+ * if the function throws an exception.
+ *
+ * <pre>
+ * WorkerPoolExecutor executor = new WorkerPoolExecutor(
+ *     "function handleTask(body) { return body * body; }", 4);
+ * executor.submit(12, new WorkerPoolExecutor.Callback() {
+ *   public void onFailure(Task task, GearsException caught) {
+ *     Window.alert(caught.getMessage());
+ *   }
+ *
+ *   public void onSuccess(Task task, MessageEvent reply) {
+ *     Window.alert("12 * 12 = " + reply.getBodyNumber());
+ *   }
+ * });
+ * </pre>
+ *
+ * Tasks wait in the executor until a worker runs fewer than
+ * {@link #getTasksPerWorker()} tasks, so that they can be given to the worker
+ * chosen by the {@link Policy} and cancelled before they start. A task that a
+ * worker has started cannot be stopped, since Gears cannot terminate a worker:
+ * cancelling it or letting it time out only discards its reply, and the worker
+ * is considered busy until it replies.
+ */
+public class WorkerPoolExecutor {
+  /**
+   * Receives the outcome of a task. Cancelled tasks call neither method.
+   */
+  public interface Callback {
+    /**
+     * Called when the task threw an exception in the worker, or timed out.
+     *
+     * @param task the task that failed
+     * @param caught the error
+     */
+    void onFailure(Task task, GearsException caught);
+
+    /**
+     * Called when the worker replied to the task.
+     *
+     * @param task the task that completed
+     * @param reply the reply, whose body is the value returned by
+     *          <code>handleTask</code>
+     */
+    void onSuccess(Task task, MessageEvent reply);
+  }
+
+  /**
+   * How the executor chooses the worker running a task.
+   */
+  public static enum Policy {
+    /**
+     * The worker running the fewest tasks.
+     */
+    LEAST_LOADED,
+
+    /**
+     * The next worker, in turn, that can run a task.
+     */
+    ROUND_ROBIN
+  }
+
+  /**
+   * A submitted task, which can be cancelled.
+   */
+  public static class Task {
+    private final Callback callback;
+    private boolean cancelled;
+    private boolean done;
+    private final WorkerPoolExecutor executor;
+    private final int id;
+    private final JavaScriptObject request;
+    private int timerId = -1;
+    private boolean timedOut;
+    private int worker = -1;
+
+    private Task(WorkerPoolExecutor executor, int id, JavaScriptObject request,
+        Callback callback) {
+      this.executor = executor;
+      this.id = id;
+      this.request = request;
+      this.callback = callback;
+    }
+
+    /**
+     * Cancels the task, if it is not done. The callback will not be called.
+     *
+     * @return <code>true</code> if the task was cancelled
+     */
+    public boolean cancel() {
+      if (done) {
+        return false;
+      }
+      cancelled = true;
+      executor.finish(this);
+      return true;
+    }
+
+    /**
+     * Returns the identifier correlating the task with its reply.
+     *
+     * @return the identifier of the task
+     */
+    public int getId() {
+      return id;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    /**
+     * Returns <code>true</code> if the task completed, failed, timed out or
+     * was cancelled.
+     *
+     * @return <code>true</code> if the task is done
+     */
+    public boolean isDone() {
+      return done;
+    }
+
+    /**
+     * Returns <code>true</code> if the task was started by a worker and is not
+     * done.
+     *
+     * @return <code>true</code> if the task is running
+     */
+    public boolean isRunning() {
+      return !done && worker >= 0;
+    }
+
+    public boolean isTimedOut() {
+      return timedOut;
+    }
+  }
+
+  /**
+   * The default number of tasks given to a worker at once.
+   */
+  public static final int DEFAULT_TASKS_PER_WORKER = 1;
+
+  /**
+   * Appended to the script of the workers to answer the tasks with
+   * <code>handleTask</code>.
+   */
+  private static final String DISPATCHER = "\n;(function() {"
+      + "  var wp = google.gears.workerPool;"
+      + "  wp.onmessage = function(text, sender, message) {"
+      + "    var request = message.body;"
+      + "    var reply;"
+      + "    try {"
+      + "      reply = {id: request.id, body: handleTask(request.body)};"
+      + "    } catch (e) {"
+      + "      reply = {id: request.id, error: String(e.message || e)};"
+      + "    }"
+      + "    wp.sendMessage(reply, sender);"
+      + "  };"
+      + "})();";
+
+  private static native JavaScriptObject createReply(MessageEvent event) /*-{
+    return {
+      body: event.body.body,
+      origin: event.origin,
+      sender: event.sender
+    };
+  }-*/;
+
+  private static native JavaScriptObject createRequest(int id, double body) /*-{
+    return {id: id, body: body};
+  }-*/;
+
+  private static native JavaScriptObject createRequest(int id,
+      JavaScriptObject body) /*-{
+    return {id: id, body: body};
+  }-*/;
+
+  private static native JavaScriptObject createRequest(int id, String body) /*-{
+    return {id: id, body: body};
+  }-*/;
+
+  private static native JavaScriptObject createTimer(Factory factory) /*-{
+    return factory.create('beta.timer');
+  }-*/;
+
+  // Called from JSNI
+  @SuppressWarnings("unused")
+  private static void fireTimeout(Task task) {
+    UncaughtExceptionHandler ueh = GWT.getUncaughtExceptionHandler();
+    if (ueh != null) {
+      try {
+        task.executor.timeout(task);
+      } catch (Throwable e) {
+        ueh.onUncaughtException(e);
+      }
+    } else {
+      task.executor.timeout(task);
+    }
+  }
+
+  private static native String getError(MessageEvent event) /*-{
+    var error = event.body.error;
+    return error == null ? null : String(error);
+  }-*/;
+
+  private static native int getId(MessageEvent event) /*-{
+    var body = event.body;
+    return body && typeof body.id == 'number' ? body.id : -1;
+  }-*/;
+
+  private int defaultTimeoutMillis;
+  private int nextId;
+  private int nextWorker;
+  private final Policy policy;
+  private final WorkerPool pool;
+  private final LinkedList<Task> queued = new LinkedList<Task>();
+  private final Map<Integer, Task> running = new HashMap<Integer, Task>();
+  private final int[] tasks;
+  private int tasksPerWorker = DEFAULT_TASKS_PER_WORKER;
+  private final JavaScriptObject timer;
+  private final int[] workerIds;
+
+  /**
+   * Creates an executor giving tasks to the least loaded worker.
+   *
+   * @param scriptText the code of the workers, which must define
+   *          <code>handleTask(body)</code>
+   * @param poolSize the number of workers
+   */
+  public WorkerPoolExecutor(String scriptText, int poolSize) {
+    this(scriptText, poolSize, Policy.LEAST_LOADED);
+  }
+
+  /**
+   * Creates an executor.
+   *
+   * @param scriptText the code of the workers, which must define
+   *          <code>handleTask(body)</code>
+   * @param poolSize the number of workers
+   * @param policy how workers are chosen
+   */
+  public WorkerPoolExecutor(String scriptText, int poolSize, Policy policy) {
+    if (poolSize < 1) {
+      throw new IllegalArgumentException("poolSize must be at least 1: "
+          + poolSize);
+    }
+    this.policy = policy;
+    Factory factory = Factory.getInstance();
+    pool = factory.createWorkerPool();
+    pool.setMessageHandler(new WorkerPoolMessageHandler() {
+      public void onMessageReceived(MessageEvent event) {
+        onReply(event);
+      }
+    });
+    timer = createTimer(factory);
+    tasks = new int[poolSize];
+    workerIds = new int[poolSize];
+    for (int i = 0; i < poolSize; ++i) {
+      workerIds[i] = pool.createWorker(scriptText + DISPATCHER);
+    }
+  }
+
+  /**
+   * Cancels every task that is not done.
+   */
+  public void cancelAll() {
+    for (Task task : queued.toArray(new Task[queued.size()])) {
+      task.cancel();
+    }
+    for (Task task : running.values().toArray(new Task[running.size()])) {
+      task.cancel();
+    }
+  }
+
+  /**
+   * Returns the timeout of the tasks submitted without one.
+   *
+   * @return the timeout in milliseconds, or 0 if they never time out
+   */
+  public int getDefaultTimeoutMillis() {
+    return defaultTimeoutMillis;
+  }
+
+  public Policy getPolicy() {
+    return policy;
+  }
+
+  public int getPoolSize() {
+    return workerIds.length;
+  }
+
+  /**
+   * Returns the number of tasks waiting for a worker.
+   *
+   * @return the number of queued tasks
+   */
+  public int getQueuedCount() {
+    return queued.size();
+  }
+
+  /**
+   * Returns the number of tasks given to workers that have not replied yet,
+   * including the tasks that were cancelled or timed out while running.
+   *
+   * @return the number of running tasks
+   */
+  public int getRunningCount() {
+    return running.size();
+  }
+
+  public int getTasksPerWorker() {
+    return tasksPerWorker;
+  }
+
+  /**
+   * Sets the timeout of the tasks submitted without one. The timeout counts
+   * from submission, so it includes the time spent waiting for a worker.
+   *
+   * @param defaultTimeoutMillis the timeout in milliseconds, or 0 for none
+   */
+  public void setDefaultTimeoutMillis(int defaultTimeoutMillis) {
+    if (defaultTimeoutMillis < 0) {
+      throw new IllegalArgumentException(
+          "defaultTimeoutMillis must not be negative: " + defaultTimeoutMillis);
+    }
+    this.defaultTimeoutMillis = defaultTimeoutMillis;
+  }
+
+  /**
+   * Sets the number of tasks given to a worker at once. Giving a worker more
+   * than one task saves a round trip between tasks, but a long task then
+   * delays the tasks behind it even if other workers are idle.
+   *
+   * @param tasksPerWorker the number of tasks, at least 1
+   */
+  public void setTasksPerWorker(int tasksPerWorker) {
+    if (tasksPerWorker < 1) {
+      throw new IllegalArgumentException("tasksPerWorker must be at least 1: "
+          + tasksPerWorker);
+    }
+    this.tasksPerWorker = tasksPerWorker;
+    dispatch();
+  }
+
+  /**
+   * Submits a task with the default timeout.
+   *
+   * @param body the body passed to <code>handleTask</code>
+   * @param callback the callback receiving the outcome of the task
+   * @return the task
+   */
+  public Task submit(double body, Callback callback) {
+    return submit(body, defaultTimeoutMillis, callback);
+  }
+
+  /**
+   * Submits a task.
+   *
+   * @param body the body passed to <code>handleTask</code>
+   * @param timeoutMillis the timeout in milliseconds, or 0 for none
+   * @param callback the callback receiving the outcome of the task
+   * @return the task
+   */
+  public Task submit(double body, int timeoutMillis, Callback callback) {
+    int id = nextId++;
+    return submit(id, createRequest(id, body), timeoutMillis, callback);
+  }
+
+  /**
+   * Submits a task with the default timeout.
+   *
+   * @param body the body passed to <code>handleTask</code>, which is copied
+   * @param callback the callback receiving the outcome of the task
+   * @return the task
+   */
+  public Task submit(JavaScriptObject body, Callback callback) {
+    return submit(body, defaultTimeoutMillis, callback);
+  }
+
+  /**
+   * Submits a task.
+   *
+   * @param body the body passed to <code>handleTask</code>, which is copied
+   * @param timeoutMillis the timeout in milliseconds, or 0 for none
+   * @param callback the callback receiving the outcome of the task
+   * @return the task
+   */
+  public Task submit(JavaScriptObject body, int timeoutMillis,
+      Callback callback) {
+    int id = nextId++;
+    return submit(id, createRequest(id, body), timeoutMillis, callback);
+  }
+
+  /**
+   * Submits a task with the default timeout.
+   *
+   * @param body the body passed to <code>handleTask</code>
+   * @param callback the callback receiving the outcome of the task
+   * @return the task
+   */
+  public Task submit(String body, Callback callback) {
+    return submit(body, defaultTimeoutMillis, callback);
+  }
+
+  /**
+   * Submits a task.
+   *
+   * @param body the body passed to <code>handleTask</code>
+   * @param timeoutMillis the timeout in milliseconds, or 0 for none
+   * @param callback the callback receiving the outcome of the task
+   * @return the task
+   */
+  public Task submit(String body, int timeoutMillis, Callback callback) {
+    int id = nextId++;
+    return submit(id, createRequest(id, body), timeoutMillis, callback);
+  }
+
+  private native void cancelTimer(int timerId) /*-{
+    this.@com.google.gwt.gears.client.workerpool.WorkerPoolExecutor::timer.clearTimeout(timerId);
+  }-*/;
+
+  /**
+   * Returns the index of the worker to give a task to, or -1 if every worker
+   * is full.
+   */
+  private int chooseWorker() {
+    int chosen = -1;
+    for (int i = 0; i < tasks.length; ++i) {
+      int worker = (nextWorker + i) % tasks.length;
+      if (tasks[worker] >= tasksPerWorker) {
+        continue;
+      }
+      if (policy == Policy.ROUND_ROBIN) {
+        chosen = worker;
+        break;
+      }
+      if (chosen < 0 || tasks[worker] < tasks[chosen]) {
+        chosen = worker;
+      }
+    }
+    if (chosen >= 0) {
+      nextWorker = (chosen + 1) % tasks.length;
+    }
+    return chosen;
+  }
+
+  /**
+   * Gives the queued tasks to the workers that can run them.
+   */
+  private void dispatch() {
+    while (!queued.isEmpty()) {
+      int worker = chooseWorker();
+      if (worker < 0) {
+        return;
+      }
+      Task task = queued.removeFirst();
+      task.worker = worker;
+      ++tasks[worker];
+      running.put(task.id, task);
+      pool.sendMessage(task.request, workerIds[worker]);
+    }
+  }
+
+  /**
+   * Marks a task done, and removes it from the queue if it did not start. A
+   * running task stays counted against its worker until the worker replies.
+   */
+  private void finish(Task task) {
+    task.done = true;
+    if (task.timerId >= 0) {
+      cancelTimer(task.timerId);
+      task.timerId = -1;
+    }
+    if (task.worker < 0) {
+      queued.remove(task);
+    }
+  }
+
+  private void onReply(MessageEvent event) {
+    Task task = running.remove(getId(event));
+    if (task == null) {
+      return;
+    }
+    --tasks[task.worker];
+    // Refill the worker before calling back, so that a callback throwing an
+    // exception does not leave the queued tasks waiting
+    dispatch();
+    if (task.done) {
+      return;
+    }
+    finish(task);
+    String error = getError(event);
+    if (error != null) {
+      task.callback.onFailure(task, new GearsException(error));
+    } else {
+      MessageEvent reply = createReply(event).cast();
+      task.callback.onSuccess(task, reply);
+    }
+  }
+
+  private native int startTimer(Task task, int timeoutMillis) /*-{
+    var timer = this.@com.google.gwt.gears.client.workerpool.WorkerPoolExecutor::timer;
+    return timer.setTimeout(function() {
+      @com.google.gwt.gears.client.workerpool.WorkerPoolExecutor::fireTimeout(Lcom/google/gwt/gears/client/workerpool/WorkerPoolExecutor$Task;)(task);
+    }, timeoutMillis);
+  }-*/;
+
+  private Task submit(int id, JavaScriptObject request, int timeoutMillis,
+      Callback callback) {
+    if (timeoutMillis < 0) {
+      throw new IllegalArgumentException(
+          "timeoutMillis must not be negative: " + timeoutMillis);
+    }
+    Task task = new Task(this, id, request, callback);
+    if (timeoutMillis > 0) {
+      task.timerId = startTimer(task, timeoutMillis);
+    }
+    queued.add(task);
+    dispatch();
+    return task;
+  }
+
+  private void timeout(Task task) {
+    task.timerId = -1;
+    if (task.done) {
+      return;
+    }
+    task.timedOut = true;
+    finish(task);
+    task.callback.onFailure(task, new GearsException("The task timed out"));
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gears.client.workerpool;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.gears.client.GearsException;
+import com.google.gwt.gears.client.workerpool.WorkerPoolExecutor.Task;
+import com.google.gwt.gears.client.workerpool.WorkerPoolMessageHandler.MessageEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Aggregates an array in parallel: the array is split into shards, each shard
+ * is mapped to a partial result by a worker, and the partial results are
+ * reduced pairwise, also by the workers, until one remains.
+ *
+ * The script of the workers must define two functions:
+ * <code>map(shard)</code>, which receives a slice of the input array and
+ * returns a partial result, and <code>reduce(left, right)</code>, which
+ * combines two partial results. Since partial results are reduced in the
+ * order they arrive, <code>reduce</code> must be associative and commutative.
+ *
+ * <pre>
+ * WorkerPoolMapReduce sums = new WorkerPoolMapReduce(""
+ *     + "function map(shard) {"
+ *     + "  var sums = {};"
+ *     + "  for (var i = 0; i &lt; shard.length; ++i) {"
+ *     + "    var key = shard[i].key;"
+ *     + "    sums[key] = (sums[key] || 0) + shard[i].value;"
+ *     + "  }"
+ *     + "  return sums;"
+ *     + "}"
+ *     + "function reduce(left, right) {"
+ *     + "  for (var key in right) {"
+ *     + "    left[key] = (left[key] || 0) + right[key];"
+ *     + "  }"
+ *     + "  return left;"
+ *     + "}", 4);
+ * sums.run(records, callback);
+ * </pre>
+ *
+ * The workers are created once and reused by every run.
+ */
+public class WorkerPoolMapReduce {
+  /**
+   * Receives the progress and outcome of a run.
+   */
+  public interface Callback {
+    /**
+     * Called when <code>map</code> or <code>reduce</code> threw an exception.
+     * The remaining tasks of the run are cancelled.
+     *
+     * @param job the run that failed
+     * @param caught the error
+     */
+    void onFailure(Job job, GearsException caught);
+
+    /**
+     * Called each time a worker completes a task of the run.
+     *
+     * @param job the run
+     * @param completed the number of completed tasks
+     * @param total the number of tasks of the run, which is one less than
+     *          twice the number of shards
+     */
+    void onProgress(Job job, int completed, int total);
+
+    /**
+     * Called with the result of the last reduction.
+     *
+     * @param job the run that completed
+     * @param result the message carrying the result as its body
+     */
+    void onSuccess(Job job, MessageEvent result);
+  }
+
+  /**
+   * A run over one input array.
+   */
+  public static class Job {
+    private final Callback callback;
+    private int completed;
+    private boolean done;
+    private double elapsedMillis;
+    private final LinkedList<MessageEvent> partials =
+        new LinkedList<MessageEvent>();
+    private final int shardCount;
+    private final Duration started = new Duration();
+    private final List<Task> tasks = new ArrayList<Task>();
+
+    private Job(int shardCount, Callback callback) {
+      this.shardCount = shardCount;
+      this.callback = callback;
+    }
+
+    /**
+     * Cancels the run, if it is not done. The callback will not be called
+     * again.
+     */
+    public void cancel() {
+      if (!done) {
+        finish();
+        cancelTasks();
+      }
+    }
+
+    /**
+     * Returns the time from the start of the run until it completed, failed or
+     * was cancelled, or until now if it is still running.
+     *
+     * @return the duration of the run in milliseconds
+     */
+    public double getElapsedMillis() {
+      return done ? elapsedMillis : started.elapsedMillis();
+    }
+
+    public int getShardCount() {
+      return shardCount;
+    }
+
+    public boolean isDone() {
+      return done;
+    }
+
+    private void cancelTasks() {
+      for (Task task : tasks) {
+        task.cancel();
+      }
+      tasks.clear();
+    }
+
+    private void finish() {
+      done = true;
+      elapsedMillis = started.elapsedMillis();
+    }
+  }
+
+  /**
+   * The default number of shards given to each worker.
+   */
+  public static final int DEFAULT_SHARDS_PER_WORKER = 4;
+
+  /**
+   * Appended to the script of the workers to map shards and reduce partial
+   * results.
+   */
+  private static final String DISPATCHER = "\nfunction handleTask(body) {"
+      + "  return 'shard' in body ? map(body.shard)"
+      + "      : reduce(body.left, body.right);"
+      + "}";
+
+  private static native JavaScriptObject createMap(JavaScriptObject input,
+      int begin, int end) /*-{
+    return {shard: input.slice(begin, end)};
+  }-*/;
+
+  private static native JavaScriptObject createReduce(MessageEvent left,
+      MessageEvent right) /*-{
+    return {left: left.body, right: right.body};
+  }-*/;
+
+  private static native int getLength(JavaScriptObject input) /*-{
+    return input.length;
+  }-*/;
+
+  private final WorkerPoolExecutor executor;
+  private int shardsPerWorker = DEFAULT_SHARDS_PER_WORKER;
+
+  /**
+   * Creates the workers.
+   *
+   * @param scriptText the code of the workers, which must define
+   *          <code>map(shard)</code> and <code>reduce(left, right)</code>
+   * @param parallelism the number of workers, typically the number of cores
+   */
+  public WorkerPoolMapReduce(String scriptText, int parallelism) {
+    executor = new WorkerPoolExecutor(scriptText + DISPATCHER, parallelism);
+  }
+
+  public int getParallelism() {
+    return executor.getPoolSize();
+  }
+
+  public int getShardsPerWorker() {
+    return shardsPerWorker;
+  }
+
+  /**
+   * Aggregates an array. The array is copied to the workers shard by shard.
+   *
+   * @param input a JavaScript array
+   * @param callback the callback receiving the progress and outcome of the
+   *          run
+   * @return the run
+   */
+  public Job run(JavaScriptObject input, Callback callback) {
+    int length = getLength(input);
+    int shardCount = Math.max(1, Math.min(length, getParallelism()
+        * shardsPerWorker));
+    Job job = new Job(shardCount, callback);
+    for (int i = 0; i < shardCount; ++i) {
+      // Spread the remainder over the first shards
+      int begin = (int) ((long) length * i / shardCount);
+      int end = (int) ((long) length * (i + 1) / shardCount);
+      submit(job, createMap(input, begin, end));
+    }
+    return job;
+  }
+
+  /**
+   * Sets the number of shards given to each worker. More shards report
+   * progress more often and balance uneven shards better, but cost more
+   * messages and reductions.
+   *
+   * @param shardsPerWorker the number of shards per worker, at least 1
+   */
+  public void setShardsPerWorker(int shardsPerWorker) {
+    if (shardsPerWorker < 1) {
+      throw new IllegalArgumentException("shardsPerWorker must be at least 1: "
+          + shardsPerWorker);
+    }
+    this.shardsPerWorker = shardsPerWorker;
+  }
+
+  private void onFailure(Job job, GearsException caught) {
+    if (job.done) {
+      return;
+    }
+    job.finish();
+    job.cancelTasks();
+    job.callback.onFailure(job, caught);
+  }
+
+  /**
+   * Reduces the partial results in pairs as they arrive, and completes the
+   * run once a single one is left.
+   */
+  private void onSuccess(Job job, Task task, MessageEvent reply) {
+    job.tasks.remove(task);
+    ++job.completed;
+    int total = 2 * job.shardCount - 1;
+    job.callback.onProgress(job, job.completed, total);
+    if (job.done) {
+      // Cancelled by the progress callback
+      return;
+    }
+    if (job.completed == total) {
+      job.finish();
+      job.callback.onSuccess(job, reply);
+      return;
+    }
+    job.partials.add(reply);
+    if (job.partials.size() >= 2) {
+      submit(job, createReduce(job.partials.removeFirst(),
+          job.partials.removeFirst()));
+    }
+  }
+
+  private void submit(final Job job, JavaScriptObject body) {
+    job.tasks.add(executor.submit(body, new WorkerPoolExecutor.Callback() {
+      public void onFailure(Task task, GearsException caught) {
+        WorkerPoolMapReduce.this.onFailure(job, caught);
+      }
+
+      public void onSuccess(Task task, MessageEvent reply) {
+        WorkerPoolMapReduce.this.onSuccess(job, task, reply);
+      }
+    }));
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gears.rebind;
+
+import com.google.gwt.core.ext.Generator;
+import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JField;
+import com.google.gwt.core.ext.typeinfo.JMethod;
+import com.google.gwt.core.ext.typeinfo.JParameterizedType;
+import com.google.gwt.core.ext.typeinfo.JPrimitiveType;
+import com.google.gwt.core.ext.typeinfo.JType;
+import com.google.gwt.core.ext.typeinfo.TypeOracle;
+import com.google.gwt.gears.client.database.ResultSetCursor;
+import com.google.gwt.gears.client.database.RowMapper;
+import com.google.gwt.user.rebind.ClassSourceFileComposerFactory;
+import com.google.gwt.user.rebind.SourceWriter;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates implementations of {@link RowMapper} sub-interfaces, which set the
+ * public fields and setters of the row type from the fields of a
+ * {@link ResultSetCursor} with the same names.
+ */
+public class RowMapperGenerator extends Generator {
+
+  /**
+   * A field or setter of the row type.
+   */
+  private static class Property {
+    /**
+     * The name of the field or setter.
+     */
+    final String name;
+
+    /**
+     * The expression reading the value from the cursor, in which
+     * <code>%s</code> stands for the index of the cursor field.
+     */
+    final String read;
+
+    final boolean setter;
+
+    Property(String name, boolean setter, String read) {
+      this.name = name;
+      this.setter = setter;
+      this.read = read;
+    }
+  }
+
+  /**
+   * Maps the qualified names of the supported types to the cursor expression
+   * reading them.
+   */
+  private static final Map<String, String> READERS =
+      new LinkedHashMap<String, String>();
+
+  static {
+    READERS.put("boolean", "cursor.getBoolean(%s)");
+    READERS.put("byte", "(byte) cursor.getInt(%s)");
+    READERS.put("double", "cursor.getDouble(%s)");
+    READERS.put("float", "(float) cursor.getDouble(%s)");
+    READERS.put("int", "cursor.getInt(%s)");
+    READERS.put("long", "cursor.getLong(%s)");
+    READERS.put("short", "(short) cursor.getInt(%s)");
+    READERS.put(Boolean.class.getName(), "cursor.isNull(%1$s) ? null : "
+        + "Boolean.valueOf(cursor.getBoolean(%1$s))");
+    READERS.put(Byte.class.getName(), "cursor.isNull(%1$s) ? null : "
+        + "Byte.valueOf((byte) cursor.getInt(%1$s))");
+    READERS.put(Double.class.getName(),
+        "cursor.isNull(%1$s) ? null : Double.valueOf(cursor.getDouble(%1$s))");
+    READERS.put(Float.class.getName(), "cursor.isNull(%1$s) ? null : "
+        + "Float.valueOf((float) cursor.getDouble(%1$s))");
+    READERS.put(Integer.class.getName(),
+        "cursor.isNull(%1$s) ? null : Integer.valueOf(cursor.getInt(%1$s))");
+    READERS.put(Long.class.getName(),
+        "cursor.isNull(%1$s) ? null : Long.valueOf(cursor.getLong(%1$s))");
+    READERS.put(Short.class.getName(), "cursor.isNull(%1$s) ? null : "
+        + "Short.valueOf((short) cursor.getInt(%1$s))");
+    READERS.put(Date.class.getName(), "cursor.getDate(%s)");
+    READERS.put(String.class.getName(), "cursor.getString(%s)");
+  }
+
+  /**
+   * Returns the public fields and setters of the row type and its
+   * superclasses, keyed by their lower case names. Setters take precedence
+   * over fields of the same name.
+   */
+  private static Map<String, Property> findProperties(TreeLogger logger,
+      JClassType rowType) {
+    Map<String, Property> properties = new LinkedHashMap<String, Property>();
+    List<JClassType> hierarchy = new ArrayList<JClassType>();
+    JClassType type = rowType;
+    while (type != null
+        && !type.getQualifiedSourceName().equals(Object.class.getName())) {
+      hierarchy.add(0, type);
+      type = type.getSuperclass();
+    }
+
+    for (JClassType searchIn : hierarchy) {
+      for (JField field : searchIn.getFields()) {
+        if (!field.isPublic() || field.isStatic() || field.isFinal()) {
+          continue;
+        }
+        String read = findReader(logger, field.getName(), field.getType());
+        if (read != null) {
+          properties.put(field.getName().toLowerCase(), new Property(
+              field.getName(), false, read));
+        }
+      }
+    }
+
+    for (JClassType searchIn : hierarchy) {
+      for (JMethod method : searchIn.getMethods()) {
+        String name = method.getName();
+        if (!method.isPublic() || method.isStatic()
+            || method.getParameters().length != 1 || !name.startsWith("set")
+            || name.length() == 3) {
+          continue;
+        }
+        String read = findReader(logger, name,
+            method.getParameters()[0].getType());
+        if (read != null) {
+          properties.put(name.substring(3).toLowerCase(), new Property(name,
+              true, read));
+        }
+      }
+    }
+    return properties;
+  }
+
+  private static String findReader(TreeLogger logger, String name, JType type) {
+    JPrimitiveType primitive = type.isPrimitive();
+    String typeName = primitive != null ? primitive.getSimpleSourceName()
+        : type.getErasedType().getQualifiedSourceName();
+    String read = READERS.get(typeName);
+    if (read == null) {
+      logger.log(TreeLogger.DEBUG, "Ignoring " + name
+          + " because its type is not supported: " + typeName, null);
+    }
+    return read;
+  }
+
+  /**
+   * Returns the row type of a RowMapper sub-interface.
+   */
+  private static JClassType findRowType(TreeLogger logger,
+      TypeOracle typeOracle, JClassType sourceType)
+      throws UnableToCompleteException {
+    JClassType mapperType = typeOracle.findType(RowMapper.class.getName());
+    for (JClassType supertype : sourceType.getFlattenedSupertypeHierarchy()) {
+      JParameterizedType parameterized = supertype.isParameterized();
+      if (parameterized != null
+          && parameterized.getBaseType().equals(mapperType)) {
+        JClassType rowType = parameterized.getTypeArgs()[0];
+        if (rowType.isClass() == null || !rowType.isDefaultInstantiable()) {
+          logger.log(TreeLogger.ERROR, "The row type "
+              + rowType.getQualifiedSourceName()
+              + " must be a class with a default constructor", null);
+          throw new UnableToCompleteException();
+        }
+        return rowType;
+      }
+    }
+    logger.log(TreeLogger.ERROR, sourceType.getQualifiedSourceName()
+        + " must extend RowMapper with a type argument", null);
+    throw new UnableToCompleteException();
+  }
+
+  /**
+   * Entry point into the Generator.
+   */
+  @Override
+  public String generate(TreeLogger logger, GeneratorContext context,
+      String typeName) throws UnableToCompleteException {
+    TypeOracle typeOracle = context.getTypeOracle();
+    JClassType sourceType = typeOracle.findType(typeName);
+    if (sourceType == null) {
+      logger.log(TreeLogger.ERROR, "Could not find requested typeName", null);
+      throw new UnableToCompleteException();
+    }
+    if (sourceType.isInterface() == null) {
+      // A class implementing RowMapper is instantiated as it is
+      return null;
+    }
+
+    JClassType rowType = findRowType(logger, typeOracle, sourceType);
+    String rowTypeName = rowType.getParameterizedQualifiedSourceName();
+    Map<String, Property> properties = findProperties(logger, rowType);
+
+    String packageName = sourceType.getPackage().getName();
+    String simpleSourceName = "__"
+        + sourceType.getName().replaceAll("\\.", "__") + "Impl";
+    ClassSourceFileComposerFactory f = new ClassSourceFileComposerFactory(
+        packageName, simpleSourceName);
+    f.addImport(ResultSetCursor.class.getName());
+    f.addImplementedInterface(sourceType.getQualifiedSourceName());
+
+    PrintWriter out = context.tryCreate(logger, packageName, simpleSourceName);
+    if (out != null) {
+      SourceWriter sw = f.createSourceWriter(context, out);
+      writeMapper(sw, rowTypeName, properties);
+      sw.commit(logger);
+      logger.log(TreeLogger.DEBUG, "Generated " + simpleSourceName
+          + " mapping " + properties.size() + " properties of "
+          + rowTypeName, null);
+    }
+    return f.getCreatedClassName();
+  }
+
+  /**
+   * Writes the map method, which looks up the index of each property's field
+   * when it is given a new cursor.
+   */
+  private void writeMapper(SourceWriter sw, String rowTypeName,
+      Map<String, Property> properties) {
+    sw.println("private ResultSetCursor cursor;");
+    sw.println("private int[] fields;");
+    sw.println();
+
+    sw.print("public ");
+    sw.print(rowTypeName);
+    sw.println(" map(ResultSetCursor cursor) {");
+    sw.indent();
+
+    sw.println("if (cursor != this.cursor) {");
+    sw.indent();
+    sw.println("this.cursor = cursor;");
+    sw.print("fields = new int[] {");
+    int index = 0;
+    for (String name : properties.keySet()) {
+      if (index++ > 0) {
+        sw.print(", ");
+      }
+      sw.print("cursor.findField(\"");
+      sw.print(name);
+      sw.print("\")");
+    }
+    sw.println("};");
+    sw.outdent();
+    sw.println("}");
+
+    sw.print(rowTypeName);
+    sw.print(" row = new ");
+    sw.print(rowTypeName);
+    sw.println("();");
+
+    index = 0;
+    for (Property property : properties.values()) {
+      String field = "fields[" + index++ + "]";
+      sw.println("if (" + field + " >= 0) {");
+      sw.indent();
+      String value = String.format(property.read, field);
+      if (property.setter) {
+        sw.println("row." + property.name + "(" + value + ");");
+      } else {
+        sw.println("row." + property.name + " = " + value + ";");
+      }
+      sw.outdent();
+      sw.println("}");
+    }
+
+    sw.println("return row;");
+    sw.outdent();
+    sw.println("}");
+  }
+}
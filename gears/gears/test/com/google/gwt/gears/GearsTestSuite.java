@@ -18,10 +18,15 @@ package com.google.gwt.gears;
 import com.google.gwt.gears.client.FactoryTest;
 import com.google.gwt.gears.client.blobbuilder.BlobBuilderTest;
 import com.google.gwt.gears.client.canvas.CanvasTest;
+import com.google.gwt.gears.client.database.DatabaseBatchTest;
 import com.google.gwt.gears.client.database.DatabaseTest;
+import com.google.gwt.gears.client.database.ResultSetCursorTest;
 import com.google.gwt.gears.client.database.ResultSetTest;
 import com.google.gwt.gears.client.localserver.LocalServerTest;
 import com.google.gwt.gears.client.localserver.ManagedResourceStoreTest;
+import com.google.gwt.gears.client.workerpool.BlobChannelTest;
+import com.google.gwt.gears.client.workerpool.WorkerPoolExecutorTest;
+import com.google.gwt.gears.client.workerpool.WorkerPoolMapReduceTest;
 import com.google.gwt.gears.client.workerpool.WorkerPoolTest;
 
 import junit.framework.Test;
@@ -42,11 +47,16 @@ public class GearsTestSuite extends TestCase {
     suite.addTestSuite(FactoryTest.class);
     suite.addTestSuite(BlobBuilderTest.class);
     suite.addTestSuite(CanvasTest.class);
+    suite.addTestSuite(DatabaseBatchTest.class);
     suite.addTestSuite(ResultSetTest.class);
+    suite.addTestSuite(ResultSetCursorTest.class);
     suite.addTestSuite(LocalServerTest.class);
     suite.addTestSuite(ResultSetTest.class);
     suite.addTestSuite(ManagedResourceStoreTest.class);
     suite.addTestSuite(WorkerPoolTest.class);
+    suite.addTestSuite(WorkerPoolExecutorTest.class);
+    suite.addTestSuite(BlobChannelTest.class);
+    suite.addTestSuite(WorkerPoolMapReduceTest.class);
     return suite;
   }
 }
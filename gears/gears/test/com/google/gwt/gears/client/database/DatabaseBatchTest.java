@@ -0,0 +1,154 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gears.client.database;
+
+import com.google.gwt.gears.client.Factory;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests for the {@link DatabaseBatch} class.
+ */
+public class DatabaseBatchTest extends GWTTestCase {
+
+  private static final String DB_NAME = "DatabaseBatchTest";
+
+  private static Database createDatabase() throws DatabaseException {
+    Database db = Factory.getInstance().createDatabase();
+    db.open(DB_NAME);
+    db.execute("drop table if exists test").close();
+    db.execute(
+        "create table test (name varchar(255) unique, value int)").close();
+    return db;
+  }
+
+  private static int countRows(Database db) throws DatabaseException {
+    ResultSet rs = db.execute("select count(*) from test");
+    try {
+      return rs.getFieldAsInt(0);
+    } finally {
+      rs.close();
+    }
+  }
+
+  @Override
+  public String getModuleName() {
+    return "com.google.gwt.gears.Gears";
+  }
+
+  public void testExecute() throws DatabaseException {
+    Database db = createDatabase();
+    DatabaseBatch batch = new DatabaseBatch(db,
+        "insert into test values (?, ?)");
+    for (int i = 0; i < 100; ++i) {
+      batch.add("row " + i, Integer.toString(i));
+    }
+    assertEquals(100, batch.getRowCount());
+    batch.execute();
+
+    assertEquals(100, countRows(db));
+    assertEquals(1, batch.getAttempts());
+    assertTrue(batch.getRowsPerSecond() > 0);
+
+    ResultSet rs = db.execute("select sum(value) from test");
+    try {
+      assertEquals(4950, rs.getFieldAsInt(0));
+    } finally {
+      rs.close();
+    }
+    db.close();
+  }
+
+  public void testExecuteCallback() throws DatabaseException {
+    final Database db = createDatabase();
+    DatabaseBatch batch = new DatabaseBatch(db,
+        "insert into test values (?, ?)");
+    batch.add("a", "1");
+    batch.add("b", "2");
+
+    delayTestFinish(5000);
+    batch.execute(new DatabaseBatch.Callback() {
+      public void onFailure(DatabaseBatch batch, DatabaseException cause) {
+        fail(cause.getMessage());
+      }
+
+      public void onSuccess(DatabaseBatch batch) {
+        try {
+          assertEquals(2, countRows(db));
+          db.close();
+        } catch (DatabaseException e) {
+          fail(e.getMessage());
+        }
+        finishTest();
+      }
+    });
+  }
+
+  /**
+   * A failing row rolls back the rows before it, and is not retried.
+   */
+  public void testRollback() throws DatabaseException {
+    Database db = createDatabase();
+    DatabaseBatch batch = new DatabaseBatch(db,
+        "insert into test values (?, ?)");
+    batch.add("a", "1");
+    batch.add("a", "2");
+
+    try {
+      batch.execute();
+      fail("Expected a DatabaseException");
+    } catch (DatabaseException e) {
+      assertFalse(DatabaseBatch.isLockConflict(e));
+    }
+    assertEquals(0, countRows(db));
+    db.close();
+  }
+
+  /**
+   * A failed execution does not report the timing of the one before it.
+   */
+  public void testRollbackResetsTiming() throws DatabaseException {
+    Database db = createDatabase();
+    DatabaseBatch batch = new DatabaseBatch(db,
+        "insert into test values (?, ?)");
+    batch.add("a", "1");
+    batch.execute();
+    assertTrue(batch.getRowsPerSecond() > 0);
+
+    // Inserts "a" again
+    batch.add("b", "2");
+    try {
+      batch.execute();
+      fail("Expected a DatabaseException");
+    } catch (DatabaseException e) {
+      // Expected to get here
+    }
+    assertEquals(0.0, batch.getElapsedMillis());
+    assertEquals(0.0, batch.getRowsPerSecond());
+    assertEquals(1, countRows(db));
+    db.close();
+  }
+
+  public void testSetMaxAttempts() throws DatabaseException {
+    DatabaseBatch batch = new DatabaseBatch(createDatabase(), "select 1");
+    try {
+      batch.setMaxAttempts(0);
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected to get here
+    }
+    assertEquals(DatabaseBatch.DEFAULT_MAX_ATTEMPTS, batch.getMaxAttempts());
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gears.client.database;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.gears.client.Factory;
+import com.google.gwt.junit.client.GWTTestCase;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Tests for the {@link ResultSetCursor} class.
+ */
+public class ResultSetCursorTest extends GWTTestCase {
+
+  /**
+   * A row type with a field, setters and an unsupported property.
+   */
+  public static class Phrase {
+    public Integer count;
+    public String text;
+    private Date created;
+    private long timestamp;
+
+    public Date getCreated() {
+      return created;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    public void setCreated(Date created) {
+      this.created = created;
+    }
+
+    public void setTimestamp(long timestamp) {
+      this.timestamp = timestamp;
+    }
+
+    public void setUnsupported(Object value) {
+      fail("Unsupported properties must not be set");
+    }
+  }
+
+  interface PhraseMapper extends RowMapper<Phrase> {
+  }
+
+  private static final String DB_NAME = "ResultSetCursorTest";
+
+  private static Database createDatabase(int rows) throws DatabaseException {
+    Database db = Factory.getInstance().createDatabase();
+    db.open(DB_NAME);
+    db.execute("drop table if exists test").close();
+    db.execute("create table test (Text varchar(255), timestamp int, "
+        + "count int, created int, unsupported int)").close();
+    DatabaseBatch batch = new DatabaseBatch(db,
+        "insert into test values (?, ?, ?, ?, ?)");
+    for (int i = 0; i < rows; ++i) {
+      batch.add("row " + i, Integer.toString(i * 1000),
+          i % 2 == 0 ? Integer.toString(i) : null, Integer.toString(i), "1");
+    }
+    batch.execute();
+    return db;
+  }
+
+  @Override
+  public String getModuleName() {
+    return "com.google.gwt.gears.Gears";
+  }
+
+  public void testBlocks() throws DatabaseException {
+    Database db = createDatabase(25);
+    ResultSetCursor cursor = new ResultSetCursor(
+        db.execute("select * from test order by timestamp"));
+    cursor.setBlockSize(10);
+    assertEquals(5, cursor.getFieldCount());
+    assertEquals(0, cursor.findField("text"));
+    assertEquals(-1, cursor.findField("missing"));
+
+    int rows = 0;
+    while (cursor.next()) {
+      assertEquals(rows, cursor.getRowIndex());
+      assertEquals("row " + rows, cursor.getString(0));
+      assertEquals(rows * 1000L, cursor.getLong(1));
+      assertEquals(rows % 2 != 0, cursor.isNull(2));
+      assertEquals(rows >= 20, cursor.isClosed());
+      ++rows;
+    }
+    assertEquals(25, rows);
+    assertTrue(cursor.isClosed());
+    assertFalse(cursor.next());
+    db.close();
+  }
+
+  public void testClose() throws DatabaseException {
+    Database db = createDatabase(25);
+    ResultSetCursor cursor = new ResultSetCursor(
+        db.execute("select * from test"));
+    cursor.setBlockSize(10);
+    assertTrue(cursor.next());
+    cursor.close();
+    assertTrue(cursor.isClosed());
+    assertFalse(cursor.next());
+    try {
+      cursor.getString(0);
+      fail("Expected an IllegalStateException");
+    } catch (IllegalStateException e) {
+      // Expected to get here
+    }
+    cursor.close();
+    db.close();
+  }
+
+  public void testReadAll() throws DatabaseException {
+    Database db = createDatabase(3);
+    ResultSetCursor cursor = new ResultSetCursor(
+        db.execute("select * from test order by timestamp"));
+    PhraseMapper mapper = GWT.create(PhraseMapper.class);
+    List<Phrase> phrases = cursor.readAll(mapper);
+    assertTrue(cursor.isClosed());
+
+    assertEquals(3, phrases.size());
+    assertEquals("row 1", phrases.get(1).text);
+    assertEquals(1000L, phrases.get(1).getTimestamp());
+    assertNull(phrases.get(1).count);
+    assertEquals(Integer.valueOf(2), phrases.get(2).count);
+    assertEquals(new Date(2), phrases.get(2).getCreated());
+    db.close();
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gears.client.workerpool;
+
+import com.google.gwt.gears.client.Factory;
+import com.google.gwt.gears.client.blob.Blob;
+import com.google.gwt.gears.client.blobbuilder.BlobBuilder;
+import com.google.gwt.gears.client.workerpool.BlobChannel.Chunk;
+import com.google.gwt.gears.client.workerpool.WorkerPoolMessageHandler.MessageEvent;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Test the {@link BlobChannel}.
+ */
+public class BlobChannelTest extends GWTTestCase {
+  /**
+   * Sends every message back to its sender.
+   */
+  private static final String ECHO_JS_SRC = "" + "function workerInit() {"
+      + "  google.gears.workerPool.onmessage = function(a, b, message) {"
+      + "    google.gears.workerPool.sendMessage(message.body, message.sender);"
+      + "  };" + "}" + "workerInit();";
+
+  private static Blob createBlob(int length) {
+    BlobBuilder builder = Factory.getInstance().createBlobBuilder();
+    for (int i = 0; i < length; ++i) {
+      builder.append((byte) i);
+    }
+    return builder.getAsBlob();
+  }
+
+  private BlobChannel channel;
+  private WorkerPool pool;
+  private int workerId;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.gwt.gears.Gears";
+  }
+
+  public void testChunks() {
+    final Blob blob = createBlob(10);
+    channel.setChunkSize(4);
+    final int[] received = new int[1];
+    channel.setChunkHandler(new BlobChannel.ChunkHandler() {
+      public void onChunkReceived(int sender, Chunk chunk) {
+        assertEquals(workerId, sender);
+        assertEquals(received[0] * 4, chunk.getOffset());
+        assertEquals(10, chunk.getTotalLength());
+        byte[] bytes = chunk.getBlob().getBytes();
+        assertEquals(chunk.getOffset(), bytes[0]);
+        ++received[0];
+        if (chunk.isLast()) {
+          assertEquals(3, received[0]);
+          assertEquals(2, bytes.length);
+          finishTest();
+        }
+      }
+    });
+    channel.send(blob, workerId);
+    assertEquals(3, channel.getMessagesSent());
+    assertEquals(10.0, channel.getBytesReferenced());
+    assertEquals(0.0, channel.getBytesCopied());
+    delayTestFinish(5000);
+  }
+
+  public void testReassemble() {
+    Blob blob = createBlob(10);
+    channel.setChunkSize(3);
+    channel.setReassembling(true);
+    channel.setChunkHandler(new BlobChannel.ChunkHandler() {
+      public void onChunkReceived(int sender, Chunk chunk) {
+        assertEquals(0, chunk.getOffset());
+        assertTrue(chunk.isLast());
+        byte[] bytes = chunk.getBlob().getBytes();
+        assertEquals(10, bytes.length);
+        for (int i = 0; i < bytes.length; ++i) {
+          assertEquals(i, bytes[i]);
+        }
+        assertEquals(10.0, channel.getBytesCopied());
+        finishTest();
+      }
+    });
+    channel.send(blob, workerId);
+    assertEquals(4, channel.getMessagesSent());
+    delayTestFinish(5000);
+  }
+
+  public void testStrings() {
+    channel.setStringThreshold(4);
+    channel.setChunkHandler(new BlobChannel.ChunkHandler() {
+      public void onChunkReceived(int sender, Chunk chunk) {
+        assertEquals(8, chunk.getBlob().getLength());
+        finishTest();
+      }
+    });
+    channel.send("abc", workerId);
+    assertEquals(6.0, channel.getBytesCopied());
+    channel.send("abcdefgh", workerId);
+    assertEquals(2, channel.getMessagesSent());
+    assertEquals(14.0, channel.getBytesCopied());
+    assertEquals(7.0, channel.getBytesCopiedPerMessage());
+
+    channel.resetStatistics();
+    assertEquals(0, channel.getMessagesSent());
+    assertEquals(0.0, channel.getBytesCopiedPerMessage());
+    delayTestFinish(5000);
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    pool = Factory.getInstance().createWorkerPool();
+    channel = new BlobChannel(pool);
+    pool.setMessageHandler(new WorkerPoolMessageHandler() {
+      public void onMessageReceived(MessageEvent event) {
+        if (!channel.onMessageReceived(event)) {
+          assertEquals("abc", event.getBody());
+        }
+      }
+    });
+    workerId = pool.createWorker(ECHO_JS_SRC);
+  }
+}
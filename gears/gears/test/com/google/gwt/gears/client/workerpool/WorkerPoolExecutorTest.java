@@ -0,0 +1,223 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gears.client.workerpool;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.GWT.UncaughtExceptionHandler;
+import com.google.gwt.gears.client.GearsException;
+import com.google.gwt.gears.client.workerpool.WorkerPoolExecutor.Callback;
+import com.google.gwt.gears.client.workerpool.WorkerPoolExecutor.Policy;
+import com.google.gwt.gears.client.workerpool.WorkerPoolExecutor.Task;
+import com.google.gwt.gears.client.workerpool.WorkerPoolMessageHandler.MessageEvent;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Test the {@link WorkerPoolExecutor}.
+ */
+public class WorkerPoolExecutorTest extends GWTTestCase {
+  /**
+   * Busy-waits for the number of milliseconds in the body, so that tasks
+   * outlive short timeouts.
+   */
+  private static final String SLOW_JS_SRC = ""
+      + "function handleTask(body) {"
+      + "  var end = new Date().getTime() + body;"
+      + "  while (new Date().getTime() < end) {}" + "  return body;" + "}";
+
+  private static final String SQUARE_JS_SRC = ""
+      + "function handleTask(body) {"
+      + "  if (body < 0) { throw new Error('negative'); }"
+      + "  return body * body;" + "}";
+
+  @Override
+  public String getModuleName() {
+    return "com.google.gwt.gears.Gears";
+  }
+
+  public void testCallbackThrows() {
+    final UncaughtExceptionHandler previous =
+        GWT.getUncaughtExceptionHandler();
+    final Throwable[] uncaught = new Throwable[1];
+    GWT.setUncaughtExceptionHandler(new UncaughtExceptionHandler() {
+      public void onUncaughtException(Throwable e) {
+        uncaught[0] = e;
+      }
+    });
+    WorkerPoolExecutor executor = new WorkerPoolExecutor(SQUARE_JS_SRC, 1);
+    executor.submit(2, new Callback() {
+      public void onFailure(Task task, GearsException caught) {
+        fail(caught.getMessage());
+      }
+
+      public void onSuccess(Task task, MessageEvent reply) {
+        throw new RuntimeException("Callback failed");
+      }
+    });
+    executor.submit(3, new Callback() {
+      public void onFailure(Task task, GearsException caught) {
+        fail(caught.getMessage());
+      }
+
+      public void onSuccess(Task task, MessageEvent reply) {
+        // The queued task ran although the callback before it threw
+        GWT.setUncaughtExceptionHandler(previous);
+        assertNotNull(uncaught[0]);
+        assertEquals(9.0, reply.getBodyNumber());
+        finishTest();
+      }
+    });
+    assertEquals(1, executor.getQueuedCount());
+    delayTestFinish(5000);
+  }
+
+  public void testCancelQueued() {
+    WorkerPoolExecutor executor = new WorkerPoolExecutor(SLOW_JS_SRC, 1);
+    final Task[] first = new Task[1];
+    first[0] = executor.submit(200, new Callback() {
+      public void onFailure(Task task, GearsException caught) {
+        fail(caught.getMessage());
+      }
+
+      public void onSuccess(Task task, MessageEvent reply) {
+        assertSame(first[0], task);
+        finishTest();
+      }
+    });
+    Task second = executor.submit(200, new Callback() {
+      public void onFailure(Task task, GearsException caught) {
+        fail("A cancelled task must not report a failure");
+      }
+
+      public void onSuccess(Task task, MessageEvent reply) {
+        fail("A cancelled task must not report its reply");
+      }
+    });
+    assertTrue(first[0].isRunning());
+    assertEquals(1, executor.getQueuedCount());
+
+    assertTrue(second.cancel());
+    assertTrue(second.isCancelled());
+    assertTrue(second.isDone());
+    assertFalse(second.cancel());
+    assertEquals(0, executor.getQueuedCount());
+    delayTestFinish(5000);
+  }
+
+  public void testFailure() {
+    WorkerPoolExecutor executor = new WorkerPoolExecutor(SQUARE_JS_SRC, 1);
+    executor.submit(-1, new Callback() {
+      public void onFailure(Task task, GearsException caught) {
+        assertTrue(caught.getMessage().contains("negative"));
+        assertFalse(task.isTimedOut());
+        finishTest();
+      }
+
+      public void onSuccess(Task task, MessageEvent reply) {
+        fail("Expected the task to fail");
+      }
+    });
+    delayTestFinish(5000);
+  }
+
+  public void testIllegalArguments() {
+    try {
+      new WorkerPoolExecutor(SQUARE_JS_SRC, 0);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    WorkerPoolExecutor executor = new WorkerPoolExecutor(SQUARE_JS_SRC, 1);
+    try {
+      executor.setTasksPerWorker(0);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    try {
+      executor.setDefaultTimeoutMillis(-1);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  public void testRoundRobin() {
+    final WorkerPoolExecutor executor = new WorkerPoolExecutor(SQUARE_JS_SRC,
+        2, Policy.ROUND_ROBIN);
+    final int[] senders = new int[4];
+    final int[] replies = new int[1];
+    for (int i = 0; i < senders.length; ++i) {
+      final int index = i;
+      executor.submit(index, new Callback() {
+        public void onFailure(Task task, GearsException caught) {
+          fail(caught.getMessage());
+        }
+
+        public void onSuccess(Task task, MessageEvent reply) {
+          assertEquals(index * index, (int) reply.getBodyNumber());
+          senders[index] = reply.getSender();
+          if (++replies[0] == senders.length) {
+            assertEquals(0, executor.getRunningCount());
+            // Both workers took part
+            assertTrue(senders[0] != senders[1]);
+            finishTest();
+          }
+        }
+      });
+    }
+    assertEquals(2, executor.getRunningCount());
+    assertEquals(2, executor.getQueuedCount());
+    delayTestFinish(5000);
+  }
+
+  public void testSubmit() {
+    WorkerPoolExecutor executor = new WorkerPoolExecutor(SQUARE_JS_SRC, 2);
+    assertEquals(2, executor.getPoolSize());
+    assertEquals(Policy.LEAST_LOADED, executor.getPolicy());
+    final Task[] submitted = new Task[1];
+    submitted[0] = executor.submit(12, new Callback() {
+      public void onFailure(Task task, GearsException caught) {
+        fail(caught.getMessage());
+      }
+
+      public void onSuccess(Task task, MessageEvent reply) {
+        assertSame(submitted[0], task);
+        assertTrue(task.isDone());
+        assertTrue(reply.isMessageNumber());
+        assertEquals(144.0, reply.getBodyNumber());
+        finishTest();
+      }
+    });
+    assertFalse(submitted[0].isDone());
+    delayTestFinish(5000);
+  }
+
+  public void testTimeout() {
+    WorkerPoolExecutor executor = new WorkerPoolExecutor(SLOW_JS_SRC, 1);
+    executor.submit(1000, 50, new Callback() {
+      public void onFailure(Task task, GearsException caught) {
+        assertTrue(task.isTimedOut());
+        assertTrue(task.isDone());
+        finishTest();
+      }
+
+      public void onSuccess(Task task, MessageEvent reply) {
+        fail("Expected the task to time out");
+      }
+    });
+    delayTestFinish(5000);
+  }
+}
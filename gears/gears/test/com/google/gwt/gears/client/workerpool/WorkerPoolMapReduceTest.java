@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gears.client.workerpool;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayInteger;
+import com.google.gwt.gears.client.GearsException;
+import com.google.gwt.gears.client.workerpool.WorkerPoolMapReduce.Callback;
+import com.google.gwt.gears.client.workerpool.WorkerPoolMapReduce.Job;
+import com.google.gwt.gears.client.workerpool.WorkerPoolMessageHandler.MessageEvent;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Test the {@link WorkerPoolMapReduce}.
+ */
+public class WorkerPoolMapReduceTest extends GWTTestCase {
+  private static final String SUM_JS_SRC = "" + "function map(shard) {"
+      + "  var sum = 0;"
+      + "  for (var i = 0; i < shard.length; ++i) {"
+      + "    if (shard[i] < 0) { throw new Error('negative'); }"
+      + "    sum += shard[i];" + "  }" + "  return sum;" + "}"
+      + "function reduce(left, right) {" + "  return left + right;" + "}";
+
+  private static JsArrayInteger range(int length) {
+    JsArrayInteger result = JavaScriptObject.createArray().cast();
+    for (int i = 0; i < length; ++i) {
+      result.push(i);
+    }
+    return result;
+  }
+
+  @Override
+  public String getModuleName() {
+    return "com.google.gwt.gears.Gears";
+  }
+
+  public void testEmpty() {
+    WorkerPoolMapReduce sum = new WorkerPoolMapReduce(SUM_JS_SRC, 2);
+    Job job = sum.run(range(0), new Callback() {
+      public void onFailure(Job job, GearsException caught) {
+        fail(caught.getMessage());
+      }
+
+      public void onProgress(Job job, int completed, int total) {
+        assertEquals(1, total);
+      }
+
+      public void onSuccess(Job job, MessageEvent result) {
+        assertEquals(0.0, result.getBodyNumber());
+        finishTest();
+      }
+    });
+    assertEquals(1, job.getShardCount());
+    delayTestFinish(5000);
+  }
+
+  public void testFailure() {
+    WorkerPoolMapReduce sum = new WorkerPoolMapReduce(SUM_JS_SRC, 2);
+    JsArrayInteger input = range(100);
+    input.set(50, -1);
+    sum.run(input, new Callback() {
+      public void onFailure(Job job, GearsException caught) {
+        assertTrue(job.isDone());
+        assertTrue(caught.getMessage().contains("negative"));
+        finishTest();
+      }
+
+      public void onProgress(Job job, int completed, int total) {
+        assertFalse(job.isDone());
+      }
+
+      public void onSuccess(Job job, MessageEvent result) {
+        fail("Expected the run to fail");
+      }
+    });
+    delayTestFinish(5000);
+  }
+
+  public void testSum() {
+    WorkerPoolMapReduce sum = new WorkerPoolMapReduce(SUM_JS_SRC, 3);
+    assertEquals(3, sum.getParallelism());
+    sum.setShardsPerWorker(2);
+    final int[] progress = new int[1];
+    Job job = sum.run(range(1000), new Callback() {
+      public void onFailure(Job job, GearsException caught) {
+        fail(caught.getMessage());
+      }
+
+      public void onProgress(Job job, int completed, int total) {
+        assertEquals(++progress[0], completed);
+        assertEquals(11, total);
+      }
+
+      public void onSuccess(Job job, MessageEvent result) {
+        assertEquals(11, progress[0]);
+        assertTrue(job.isDone());
+        assertEquals(499500.0, result.getBodyNumber());
+        finishTest();
+      }
+    });
+    assertEquals(6, job.getShardCount());
+    delayTestFinish(5000);
+  }
+}
@@ -28,6 +28,7 @@ import com.google.gwt.maps.client.control.ControlPosition;
 import com.google.gwt.maps.client.event.EarthInstanceHandler;
 import com.google.gwt.maps.client.event.MapAddMapTypeHandler;
 import com.google.gwt.maps.client.event.MapAddOverlayHandler;
+import com.google.gwt.maps.client.event.MapAddOverlaysHandler;
 import com.google.gwt.maps.client.event.MapClearOverlaysHandler;
 import com.google.gwt.maps.client.event.MapClickHandler;
 import com.google.gwt.maps.client.event.MapDoubleClickHandler;
@@ -45,12 +46,14 @@ import com.google.gwt.maps.client.event.MapMoveHandler;
 import com.google.gwt.maps.client.event.MapMoveStartHandler;
 import com.google.gwt.maps.client.event.MapRemoveMapTypeHandler;
 import com.google.gwt.maps.client.event.MapRemoveOverlayHandler;
+import com.google.gwt.maps.client.event.MapRemoveOverlaysHandler;
 import com.google.gwt.maps.client.event.MapRightClickHandler;
 import com.google.gwt.maps.client.event.MapTypeChangedHandler;
 import com.google.gwt.maps.client.event.MapZoomEndHandler;
 import com.google.gwt.maps.client.event.EarthInstanceHandler.EarthInstanceEvent;
 import com.google.gwt.maps.client.event.MapAddMapTypeHandler.MapAddMapTypeEvent;
 import com.google.gwt.maps.client.event.MapAddOverlayHandler.MapAddOverlayEvent;
+import com.google.gwt.maps.client.event.MapAddOverlaysHandler.MapAddOverlaysEvent;
 import com.google.gwt.maps.client.event.MapClearOverlaysHandler.MapClearOverlaysEvent;
 import com.google.gwt.maps.client.event.MapClickHandler.MapClickEvent;
 import com.google.gwt.maps.client.event.MapDoubleClickHandler.MapDoubleClickEvent;
@@ -68,6 +71,7 @@ import com.google.gwt.maps.client.event.MapMoveHandler.MapMoveEvent;
 import com.google.gwt.maps.client.event.MapMoveStartHandler.MapMoveStartEvent;
 import com.google.gwt.maps.client.event.MapRemoveMapTypeHandler.MapRemoveMapTypeEvent;
 import com.google.gwt.maps.client.event.MapRemoveOverlayHandler.MapRemoveOverlayEvent;
+import com.google.gwt.maps.client.event.MapRemoveOverlaysHandler.MapRemoveOverlaysEvent;
 import com.google.gwt.maps.client.event.MapRightClickHandler.MapRightClickEvent;
 import com.google.gwt.maps.client.event.MapTypeChangedHandler.MapTypeChangedEvent;
 import com.google.gwt.maps.client.event.MapZoomEndHandler.MapZoomEndEvent;
@@ -97,7 +101,11 @@ import com.google.gwt.user.client.ui.FlowPanel;
 import com.google.gwt.user.client.ui.RequiresResize;
 import com.google.gwt.user.client.ui.Widget;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -188,6 +196,11 @@ public final class MapWidget extends Composite implements RequiresResize {
     $wnd.GUnload && $wnd.GUnload();
   }-*/;
 
+  /**
+   * Interval in milliseconds over which high frequency events are coalesced,
+   * or 0 if they are dispatched as they arrive.
+   */
+  private int eventCoalesceInterval;
   private InfoWindow infoWindow;
   private HandlerCollection<MapInfoWindowBeforeCloseHandler> infoWindowBeforeCloseHandlers;
   private HandlerCollection<MapInfoWindowCloseHandler> infoWindowCloseHandlers;
@@ -196,6 +209,7 @@ public final class MapWidget extends Composite implements RequiresResize {
   private final JavaScriptObject jsoPeer;
   private HandlerCollection<MapAddMapTypeHandler> mapAddMapTypeHandlers;
   private HandlerCollection<MapAddOverlayHandler> mapAddOverlayHandlers;
+  private List<MapAddOverlaysHandler> mapAddOverlaysHandlers;
   private HandlerCollection<MapClearOverlaysHandler> mapClearOverlaysHandlers;
   private HandlerCollection<MapClickHandler> mapClickHandlers;
   private final MapPanel mapContainer = new MapPanel();
@@ -211,10 +225,18 @@ public final class MapWidget extends Composite implements RequiresResize {
   private HandlerCollection<MapMoveStartHandler> mapMoveStartHandlers;
   private HandlerCollection<MapRemoveMapTypeHandler> mapRemoveMapTypeHandlers;
   private HandlerCollection<MapRemoveOverlayHandler> mapRemoveOverlayHandlers;
+  private List<MapRemoveOverlaysHandler> mapRemoveOverlaysHandlers;
   private HandlerCollection<MapRightClickHandler> mapRightClickHandlers;
   private HandlerCollection<MapTypeChangedHandler> mapTypeChangedHandlers;
   private HandlerCollection<MapZoomEndHandler> mapZoomEndHandlers;
 
+  /**
+   * Nesting depth of {@link #addOverlays(Collection)} and
+   * {@link #removeOverlays(Collection)}. While positive, per-overlay add and
+   * remove handlers are not invoked.
+   */
+  private int overlayBatchDepth;
+
   /**
    * Cache of the map panes returned for this widget.
    */
@@ -397,7 +419,9 @@ public final class MapWidget extends Composite implements RequiresResize {
   /**
    * This event is fired when a single overlay is added to the map by the method
    * addOverlay(). The new overlay is passed as an argument overlay to the event
-   * handler.
+   * handler. It is not fired for overlays added with
+   * {@link #addOverlays(Collection)}; see
+   * {@link #addMapAddOverlaysHandler(MapAddOverlaysHandler)}.
    * 
    * @param handler the handler to call when this event fires.
    */
@@ -407,12 +431,28 @@ public final class MapWidget extends Composite implements RequiresResize {
     mapAddOverlayHandlers.addHandler(handler, new OverlayCallback() {
       @Override
       public void callback(Overlay overlay) {
+        if (overlayBatchDepth > 0) {
+          return;
+        }
         MapAddOverlayEvent e = new MapAddOverlayEvent(MapWidget.this, overlay);
         handler.onAddOverlay(e);
       }
     });
   }
 
+  /**
+   * This event is fired once after a group of overlays is added to the map by
+   * the method {@link #addOverlays(Collection)}.
+   * 
+   * @param handler the handler to call when this event fires.
+   */
+  public void addMapAddOverlaysHandler(MapAddOverlaysHandler handler) {
+    if (mapAddOverlaysHandlers == null) {
+      mapAddOverlaysHandlers = new ArrayList<MapAddOverlaysHandler>();
+    }
+    mapAddOverlaysHandlers.add(handler);
+  }
+
   /**
    * This event is fired when all overlays are removed at once by the method
    * {@link MapWidget#clearOverlays()}.
@@ -498,7 +538,8 @@ public final class MapWidget extends Composite implements RequiresResize {
     mapDragHandlers.addHandler(handler, new VoidCallback() {
       @Override
       public void callback() {
-        MapDragEvent e = new MapDragEvent(MapWidget.this);
+        MapDragEvent e = new MapDragEvent(MapWidget.this,
+            mapDragHandlers.getDroppedEventCount());
         handler.onDrag(e);
       }
     });
@@ -533,7 +574,8 @@ public final class MapWidget extends Composite implements RequiresResize {
     mapMouseMoveHandlers.addHandler(handler, new LatLngCallback() {
       @Override
       public void callback(LatLng point) {
-        MapMouseMoveEvent e = new MapMouseMoveEvent(MapWidget.this, point);
+        MapMouseMoveEvent e = new MapMouseMoveEvent(MapWidget.this, point,
+            mapMouseMoveHandlers.getDroppedEventCount());
         handler.onMouseMove(e);
       }
     });
@@ -603,7 +645,8 @@ public final class MapWidget extends Composite implements RequiresResize {
     mapMoveHandlers.addHandler(handler, new VoidCallback() {
       @Override
       public void callback() {
-        MapMoveEvent e = new MapMoveEvent(MapWidget.this);
+        MapMoveEvent e = new MapMoveEvent(MapWidget.this,
+            mapMoveHandlers.getDroppedEventCount());
         handler.onMove(e);
       }
     });
@@ -649,7 +692,9 @@ public final class MapWidget extends Composite implements RequiresResize {
   /**
    * This handler is fired when a single overlay is removed by the method
    * {@link MapWidget#removeOverlay(Overlay)}. The overlay that was removed is
-   * passed as an argument overlay to the event handler.
+   * passed as an argument overlay to the event handler. It is not fired for
+   * overlays removed with {@link #removeOverlays(Collection)}; see
+   * {@link #addMapRemoveOverlaysHandler(MapRemoveOverlaysHandler)}.
    * 
    * @param handler the handler to call when this event fires.
    */
@@ -659,6 +704,9 @@ public final class MapWidget extends Composite implements RequiresResize {
     mapRemoveOverlayHandlers.addHandler(handler, new OverlayCallback() {
       @Override
       public void callback(Overlay overlay) {
+        if (overlayBatchDepth > 0) {
+          return;
+        }
         MapRemoveOverlayEvent e = new MapRemoveOverlayEvent(MapWidget.this,
             overlay);
         handler.onRemoveOverlay(e);
@@ -666,6 +714,19 @@ public final class MapWidget extends Composite implements RequiresResize {
     });
   }
 
+  /**
+   * This event is fired once after a group of overlays is removed from the map
+   * by the method {@link #removeOverlays(Collection)}.
+   * 
+   * @param handler the handler to call when this event fires.
+   */
+  public void addMapRemoveOverlaysHandler(MapRemoveOverlaysHandler handler) {
+    if (mapRemoveOverlaysHandlers == null) {
+      mapRemoveOverlaysHandlers = new ArrayList<MapRemoveOverlaysHandler>();
+    }
+    mapRemoveOverlaysHandlers.add(handler);
+  }
+
   /**
    * Add a click handler for mouse right click events.
    * 
@@ -750,6 +811,38 @@ public final class MapWidget extends Composite implements RequiresResize {
     MapImpl.impl.addOverlay(jsoPeer, overlay);
   }
 
+  /**
+   * Adds a group of overlays to the map. Instead of firing a
+   * {@link MapAddOverlayHandler} event per overlay, this fires a single
+   * {@link MapAddOverlaysHandler} event once all overlays have been added.
+   * The overlays are added in one synchronous pass, so the browser lays out
+   * the map once for the whole group.
+   * 
+   * @param overlays the overlays to add
+   */
+  public void addOverlays(Collection<? extends Overlay> overlays) {
+    if (overlays.isEmpty()) {
+      return;
+    }
+    ++overlayBatchDepth;
+    try {
+      for (Overlay overlay : overlays) {
+        MapImpl.impl.addOverlay(jsoPeer, overlay);
+      }
+    } finally {
+      --overlayBatchDepth;
+    }
+    if (mapAddOverlaysHandlers != null) {
+      MapAddOverlaysEvent e = new MapAddOverlaysEvent(this,
+          Collections.unmodifiableList(new ArrayList<Overlay>(overlays)));
+      List<MapAddOverlaysHandler> handlers =
+          new ArrayList<MapAddOverlaysHandler>(mapAddOverlaysHandlers);
+      for (MapAddOverlaysHandler handler : handlers) {
+        handler.onAddOverlays(e);
+      }
+    }
+  }
+
   /**
    * Notifies the map of a change of the size of its container.
    */
@@ -905,6 +998,17 @@ public final class MapWidget extends Composite implements RequiresResize {
     MapImpl.impl.getEarthInstance(jsoPeer, getEarthInstanceCB(handler, this));
   }
 
+  /**
+   * Returns the interval over which drag, move and mouse move events are
+   * coalesced.
+   * 
+   * @return the coalesce interval in milliseconds, or 0 if these events are
+   *         dispatched as they arrive.
+   */
+  public int getEventCoalesceInterval() {
+    return eventCoalesceInterval;
+  }
+
   /**
    * Gets the info window associated with the map.
    * 
@@ -1164,6 +1268,18 @@ public final class MapWidget extends Composite implements RequiresResize {
     }
   }
 
+  /**
+   * Removes a single handler of this map previously added with
+   * {@link MapWidget#addMapAddOverlaysHandler(MapAddOverlaysHandler)}.
+   * 
+   * @param handler the handler to remove
+   */
+  public void removeMapAddOverlaysHandler(MapAddOverlaysHandler handler) {
+    if (mapAddOverlaysHandlers != null) {
+      mapAddOverlaysHandlers.remove(handler);
+    }
+  }
+
   /**
    * Removes a single handler of this map previously added with
    * {@link MapWidget#addMapClearOverlaysHandler(MapClearOverlaysHandler)}.
@@ -1332,6 +1448,18 @@ public final class MapWidget extends Composite implements RequiresResize {
     }
   }
 
+  /**
+   * Removes a single handler of this map previously added with
+   * {@link MapWidget#addMapRemoveOverlaysHandler(MapRemoveOverlaysHandler)}.
+   * 
+   * @param handler the handler to remove
+   */
+  public void removeMapRemoveOverlaysHandler(MapRemoveOverlaysHandler handler) {
+    if (mapRemoveOverlaysHandlers != null) {
+      mapRemoveOverlaysHandlers.remove(handler);
+    }
+  }
+
   /**
    * Removes a single handler of this map previously added with
    * {@link MapWidget#addMapRightClickHandler(MapRightClickHandler)}.
@@ -1391,6 +1519,37 @@ public final class MapWidget extends Composite implements RequiresResize {
     MapImpl.impl.removeOverlay(jsoPeer, overlay);
   }
 
+  /**
+   * Removes a group of overlays from the map. Instead of firing a
+   * {@link MapRemoveOverlayHandler} event per overlay, this fires a single
+   * {@link MapRemoveOverlaysHandler} event once all overlays have been
+   * removed.
+   * 
+   * @param overlays the overlays to remove
+   */
+  public void removeOverlays(Collection<? extends Overlay> overlays) {
+    if (overlays.isEmpty()) {
+      return;
+    }
+    ++overlayBatchDepth;
+    try {
+      for (Overlay overlay : overlays) {
+        MapImpl.impl.removeOverlay(jsoPeer, overlay);
+      }
+    } finally {
+      --overlayBatchDepth;
+    }
+    if (mapRemoveOverlaysHandlers != null) {
+      MapRemoveOverlaysEvent e = new MapRemoveOverlaysEvent(this,
+          Collections.unmodifiableList(new ArrayList<Overlay>(overlays)));
+      List<MapRemoveOverlaysHandler> handlers =
+          new ArrayList<MapRemoveOverlaysHandler>(mapRemoveOverlaysHandlers);
+      for (MapRemoveOverlaysHandler handler : handlers) {
+        handler.onRemoveOverlays(e);
+      }
+    }
+  }
+
   /**
    * Restores the map view that was saved by {@link MapWidget#savePosition()}.
    */
@@ -1499,6 +1658,37 @@ public final class MapWidget extends Composite implements RequiresResize {
     }
   }
 
+  /**
+   * Sets the interval over which {@link MapDragHandler},
+   * {@link MapMouseMoveHandler} and {@link MapMoveHandler} events are
+   * coalesced. These events fire many times per second while the user
+   * interacts with the map. With a positive interval, each handler added
+   * afterwards is invoked at most once per interval with the latest event, and
+   * the event reports how many events were dropped in between. An interval of
+   * about 16 milliseconds delivers roughly one event per animation frame.
+   * 
+   * Handlers added while the interval is 0 always receive every event.
+   * 
+   * @param millis the coalesce interval in milliseconds, or 0 to dispatch
+   *          every event as it arrives.
+   */
+  public void setEventCoalesceInterval(int millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("millis must be non-negative: "
+          + millis);
+    }
+    eventCoalesceInterval = millis;
+    if (mapDragHandlers != null) {
+      mapDragHandlers.setCoalesceInterval(millis);
+    }
+    if (mapMouseMoveHandlers != null) {
+      mapMouseMoveHandlers.setCoalesceInterval(millis);
+    }
+    if (mapMoveHandlers != null) {
+      mapMoveHandlers.setCoalesceInterval(millis);
+    }
+  }
+
   /**
    * Enables or disables the GoogleBar, an integrated search control, to the
    * map. When enabled, this control takes the place of the default Powered By
@@ -2008,6 +2198,7 @@ public final class MapWidget extends Composite implements RequiresResize {
     if (mapDragHandlers == null) {
       mapDragHandlers = new HandlerCollection<MapDragHandler>(jsoPeer,
           MapEvent.DRAG);
+      mapDragHandlers.setCoalesceInterval(eventCoalesceInterval);
     }
   }
 
@@ -2028,6 +2219,7 @@ public final class MapWidget extends Composite implements RequiresResize {
     if (mapMouseMoveHandlers == null) {
       mapMouseMoveHandlers = new HandlerCollection<MapMouseMoveHandler>(
           jsoPeer, MapEvent.MOUSEMOVE);
+      mapMouseMoveHandlers.setCoalesceInterval(eventCoalesceInterval);
     }
   }
 
@@ -2068,6 +2260,7 @@ public final class MapWidget extends Composite implements RequiresResize {
     if (mapMoveHandlers == null) {
       mapMoveHandlers = new HandlerCollection<MapMoveHandler>(jsoPeer,
           MapEvent.MOVE);
+      mapMoveHandlers.setCoalesceInterval(eventCoalesceInterval);
     }
   }
 
@@ -32,8 +32,26 @@ public interface MapDragHandler {
   @SuppressWarnings("serial")
   class MapDragEvent extends EventObject {
 
+    private final int droppedEventCount;
+
     public MapDragEvent(MapWidget source) {
+      this(source, 0);
+    }
+
+    public MapDragEvent(MapWidget source, int droppedEventCount) {
       super(source);
+      this.droppedEventCount = droppedEventCount;
+    }
+
+    /**
+     * Returns the number of events of this type that were dropped in favor of
+     * this one because the map coalesces high frequency events. See
+     * {@link MapWidget#setEventCoalesceInterval(int)}.
+     * 
+     * @return the number of events dropped since the previous event, or 0.
+     */
+    public int getDroppedEventCount() {
+      return droppedEventCount;
     }
 
     /**
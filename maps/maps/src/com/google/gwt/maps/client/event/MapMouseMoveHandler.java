@@ -33,11 +33,29 @@ public interface MapMouseMoveHandler {
   @SuppressWarnings("serial")
   class MapMouseMoveEvent extends EventObject {
 
+    private final int droppedEventCount;
     private final LatLng latlng;
 
     public MapMouseMoveEvent(MapWidget source, LatLng latlng) {
+      this(source, latlng, 0);
+    }
+
+    public MapMouseMoveEvent(MapWidget source, LatLng latlng,
+        int droppedEventCount) {
       super(source);
       this.latlng = latlng;
+      this.droppedEventCount = droppedEventCount;
+    }
+
+    /**
+     * Returns the number of events of this type that were dropped in favor of
+     * this one because the map coalesces high frequency events. See
+     * {@link MapWidget#setEventCoalesceInterval(int)}.
+     * 
+     * @return the number of events dropped since the previous event, or 0.
+     */
+    public int getDroppedEventCount() {
+      return droppedEventCount;
     }
 
     /**
@@ -34,8 +34,26 @@ public interface MapMoveHandler {
     
     private static final MapEvent mapEvent = MapEvent.MOVE;
 
+    private final int droppedEventCount;
+
     public MapMoveEvent(MapWidget m) {
+      this(m, 0);
+    }
+
+    public MapMoveEvent(MapWidget m, int droppedEventCount) {
       super(m);
+      this.droppedEventCount = droppedEventCount;
+    }
+
+    /**
+     * Returns the number of events of this type that were dropped in favor of
+     * this one because the map coalesces high frequency events. See
+     * {@link MapWidget#setEventCoalesceInterval(int)}.
+     * 
+     * @return the number of events dropped since the previous event, or 0.
+     */
+    public int getDroppedEventCount() {
+      return droppedEventCount;
     }
 
     public MapEvent getMapEvent() {
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.event;
+
+import com.google.gwt.maps.client.MapWidget;
+import com.google.gwt.maps.client.overlay.Overlay;
+
+import java.util.EventObject;
+import java.util.List;
+
+/**
+ * Provides an interface to implement in order to receive a single event when a
+ * group of overlays is removed with
+ * {@link MapWidget#removeOverlays(java.util.Collection)}.
+ */
+public interface MapRemoveOverlaysHandler {
+
+  /**
+   * Encapsulates the arguments for a batch of overlays removed on a
+   * {@link MapWidget}.
+   */
+  @SuppressWarnings("serial")
+  class MapRemoveOverlaysEvent extends EventObject {
+    private final List<Overlay> overlays;
+
+    public MapRemoveOverlaysEvent(MapWidget source, List<Overlay> overlays) {
+      super(source);
+      this.overlays = overlays;
+    }
+
+    /**
+     * Returns the overlays removed in the batch.
+     * 
+     * @return the overlays removed in the batch.
+     */
+    public List<Overlay> getOverlays() {
+      return overlays;
+    }
+
+    /**
+     * Returns the instance of the map that generated this event.
+     * 
+     * @return the instance of the map that generated this event.
+     */
+    public MapWidget getSender() {
+      return (MapWidget) getSource();
+    }
+  }
+
+  /**
+   * Method to be invoked once after a batch of overlays has been removed.
+   * 
+   * @param event contains the properties of the event.
+   */
+  void onRemoveOverlays(MapRemoveOverlaysEvent event);
+}
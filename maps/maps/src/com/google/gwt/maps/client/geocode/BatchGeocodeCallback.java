@@ -0,0 +1,48 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.geocode;
+
+import com.google.gwt.core.client.JsArray;
+
+/**
+ * Receives the results of a {@link BatchGeocoder} as they arrive.
+ */
+public interface BatchGeocodeCallback {
+
+  /**
+   * Called once every queued address has been answered or the batch has been
+   * cancelled.
+   */
+  void onComplete();
+
+  /**
+   * Called when an address could not be geocoded. Requests rejected with
+   * {@link StatusCodes#TOO_MANY_QUERIES} are only reported here once their
+   * retries are exhausted.
+   *
+   * @param address the address as it was passed to the batch geocoder.
+   * @param statusCode a value defined in {@link StatusCodes}
+   */
+  void onFailure(String address, int statusCode);
+
+  /**
+   * Called when an address was geocoded successfully.
+   *
+   * @param address the address as it was passed to the batch geocoder.
+   * @param locations an array of Placemarks that match the address.
+   */
+  void onSuccess(String address, JsArray<Placemark> locations);
+}
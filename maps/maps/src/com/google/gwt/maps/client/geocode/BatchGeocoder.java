@@ -0,0 +1,441 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.geocode;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.user.client.Timer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Geocodes a large number of addresses through a {@link Geocoder} without
+ * exceeding the request rate allowed by the geocoding service.
+ *
+ * Addresses are deduplicated by their canonical form, as computed by the
+ * geocoder's {@link GeocodeCache}, so that each distinct address is sent only
+ * once. Addresses with a successful reply in the cache are answered from it
+ * right away, without counting against the limits below. At most
+ * {@link #getMaxConcurrency()} requests are in flight at a time, and requests
+ * are started no faster than {@link #getRequestsPerSecond()}, with bursts of
+ * up to {@link #getMaxBurst()} requests. A request rejected with
+ * {@link StatusCodes#TOO_MANY_QUERIES} is retried after a delay that doubles
+ * with every attempt. Results are passed to the {@link BatchGeocodeCallback}
+ * as they arrive.
+ */
+public class BatchGeocoder {
+
+  /**
+   * A distinct canonical address and the addresses, with their callbacks,
+   * that map to it.
+   */
+  private class Request implements LocationCallback {
+    final List<String> addresses = new ArrayList<String>();
+    int attempts;
+    final List<BatchGeocodeCallback> callbacks =
+        new ArrayList<BatchGeocodeCallback>();
+    final String canonical;
+
+    Request(String canonical) {
+      this.canonical = canonical;
+    }
+
+    public void onFailure(int statusCode) {
+      --inFlight;
+      if (pending.get(canonical) != this) {
+        // The batch was cancelled while the request was in flight. Requests
+        // queued since then may be waiting for the slot it held.
+        pump();
+        return;
+      }
+      if (statusCode == StatusCodes.TOO_MANY_QUERIES
+          && attempts <= maxRetries) {
+        // Everyone is being throttled, so stop starting new requests for a
+        // while as well.
+        tokens = 0;
+        retry(this);
+      } else {
+        pending.remove(canonical);
+        for (int i = 0; i < addresses.size(); ++i) {
+          callbacks.get(i).onFailure(addresses.get(i), statusCode);
+        }
+        answered(this);
+      }
+      pump();
+    }
+
+    public void onSuccess(JsArray<Placemark> locations) {
+      --inFlight;
+      if (pending.get(canonical) != this) {
+        pump();
+        return;
+      }
+      succeed(locations);
+      pump();
+    }
+
+    void succeed(JsArray<Placemark> locations) {
+      pending.remove(canonical);
+      for (int i = 0; i < addresses.size(); ++i) {
+        callbacks.get(i).onSuccess(addresses.get(i), locations);
+      }
+      answered(this);
+    }
+  }
+
+  /**
+   * The default delay before the first retry of a throttled request, in
+   * milliseconds.
+   */
+  public static final int DEFAULT_INITIAL_BACKOFF = 500;
+
+  /**
+   * The default number of requests in flight at the same time.
+   */
+  public static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+  /**
+   * The default number of times a throttled request is retried.
+   */
+  public static final int DEFAULT_MAX_RETRIES = 5;
+
+  /**
+   * The default number of requests started per second.
+   */
+  public static final double DEFAULT_REQUESTS_PER_SECOND = 10;
+
+  /**
+   * Returns the placemarks of a cached reply, or <code>null</code> if the
+   * reply is not a success.
+   */
+  private static native JsArray<Placemark> getCachedLocations(
+      JavaScriptObject reply) /*-{
+    var success = @com.google.gwt.maps.client.geocode.StatusCodes::SUCCESS;
+    return reply.Status && reply.Status.code == success && reply.Placemark
+        ? reply.Placemark : null;
+  }-*/;
+
+  private final Geocoder geocoder;
+  private int inFlight;
+  private int initialBackoff = DEFAULT_INITIAL_BACKOFF;
+  private double lastRefill;
+  private int maxBurst = DEFAULT_MAX_CONCURRENCY;
+  private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+  private int maxRetries = DEFAULT_MAX_RETRIES;
+  private final Map<BatchGeocodeCallback, Integer> outstanding =
+      new HashMap<BatchGeocodeCallback, Integer>();
+  private final Map<String, Request> pending = new HashMap<String, Request>();
+  private final Timer pumpTimer = new Timer() {
+    @Override
+    public void run() {
+      pump();
+    }
+  };
+  private final LinkedList<Request> queue = new LinkedList<Request>();
+  private double requestsPerSecond = DEFAULT_REQUESTS_PER_SECOND;
+  private final List<Timer> retryTimers = new ArrayList<Timer>();
+  private double tokens = DEFAULT_MAX_CONCURRENCY;
+
+  /**
+   * Creates a batch geocoder that sends its requests through the given
+   * geocoder, and so through its cache.
+   *
+   * @param geocoder the geocoder to send requests through.
+   */
+  public BatchGeocoder(Geocoder geocoder) {
+    this.geocoder = geocoder;
+    lastRefill = Duration.currentTimeMillis();
+  }
+
+  /**
+   * Stops the batch. Queued requests and pending retries are discarded,
+   * results of requests already in flight are ignored, and
+   * {@link BatchGeocodeCallback#onComplete()} is called for every callback
+   * with outstanding addresses.
+   */
+  public void cancel() {
+    pumpTimer.cancel();
+    for (Timer timer : retryTimers) {
+      timer.cancel();
+    }
+    retryTimers.clear();
+    queue.clear();
+    pending.clear();
+    List<BatchGeocodeCallback> callbacks = new ArrayList<BatchGeocodeCallback>(
+        outstanding.keySet());
+    outstanding.clear();
+    for (BatchGeocodeCallback callback : callbacks) {
+      callback.onComplete();
+    }
+  }
+
+  /**
+   * Queues addresses to be geocoded. Addresses whose canonical form is
+   * already queued or in flight, in this call or an earlier one, are
+   * answered by the same request. Addresses found in the geocoder's cache are
+   * answered before this method returns.
+   *
+   * @param addresses the addresses to geocode.
+   * @param callback receives a result for every address, and a call to
+   *          {@link BatchGeocodeCallback#onComplete()} once all addresses
+   *          passed with this callback are answered.
+   */
+  public void geocode(Collection<String> addresses,
+      BatchGeocodeCallback callback) {
+    if (addresses.isEmpty()) {
+      if (!outstanding.containsKey(callback)) {
+        callback.onComplete();
+      }
+      return;
+    }
+    GeocodeCache cache = geocoder.getCache();
+    List<Request> hits = new ArrayList<Request>();
+    List<JsArray<Placemark>> hitLocations = new ArrayList<JsArray<Placemark>>();
+    for (String address : addresses) {
+      String canonical = cache == null ? address : cache.toCanonical(address);
+      Request request = pending.get(canonical);
+      if (request == null) {
+        request = new Request(canonical);
+        pending.put(canonical, request);
+        JavaScriptObject reply = cache == null ? null : cache.get(canonical);
+        JsArray<Placemark> locations = reply == null ? null
+            : getCachedLocations(reply);
+        if (locations != null) {
+          // Answered below, once the callback counts are up to date
+          hits.add(request);
+          hitLocations.add(locations);
+        } else {
+          queue.add(request);
+        }
+      }
+      request.addresses.add(address);
+      request.callbacks.add(callback);
+    }
+    Integer count = outstanding.get(callback);
+    outstanding.put(callback, (count == null ? 0 : count) + addresses.size());
+    for (int i = 0; i < hits.size(); ++i) {
+      Request hit = hits.get(i);
+      // A callback may have cancelled the batch
+      if (pending.get(hit.canonical) == hit) {
+        hit.succeed(hitLocations.get(i));
+      }
+    }
+    pump();
+  }
+
+  /**
+   * Returns the geocoder requests are sent through.
+   *
+   * @return the geocoder requests are sent through.
+   */
+  public Geocoder getGeocoder() {
+    return geocoder;
+  }
+
+  /**
+   * Returns the delay before the first retry of a throttled request.
+   *
+   * @return the delay before the first retry in milliseconds.
+   */
+  public int getInitialBackoff() {
+    return initialBackoff;
+  }
+
+  /**
+   * Returns the number of requests that can be started at once after an idle
+   * period.
+   *
+   * @return the maximum burst size.
+   */
+  public int getMaxBurst() {
+    return maxBurst;
+  }
+
+  /**
+   * Returns the maximum number of requests in flight at the same time.
+   *
+   * @return the maximum number of requests in flight.
+   */
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /**
+   * Returns the number of times a throttled request is retried before its
+   * failure is reported.
+   *
+   * @return the maximum number of retries.
+   */
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  /**
+   * Returns the number of distinct addresses that have not been answered yet,
+   * including those in flight or waiting for a retry.
+   *
+   * @return the number of outstanding distinct addresses.
+   */
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Returns the sustained rate at which requests are started.
+   *
+   * @return the number of requests started per second.
+   */
+  public double getRequestsPerSecond() {
+    return requestsPerSecond;
+  }
+
+  /**
+   * Sets the delay before the first retry of a throttled request. Each further
+   * retry waits twice as long as the previous one.
+   *
+   * @param millis the delay before the first retry in milliseconds.
+   */
+  public void setInitialBackoff(int millis) {
+    if (millis < 1) {
+      throw new IllegalArgumentException("millis must be positive: " + millis);
+    }
+    initialBackoff = millis;
+  }
+
+  /**
+   * Sets the number of requests that can be started at once after an idle
+   * period.
+   *
+   * @param maxBurst the maximum burst size.
+   */
+  public void setMaxBurst(int maxBurst) {
+    if (maxBurst < 1) {
+      throw new IllegalArgumentException("maxBurst must be positive: "
+          + maxBurst);
+    }
+    this.maxBurst = maxBurst;
+    tokens = Math.min(tokens, maxBurst);
+  }
+
+  /**
+   * Sets the maximum number of requests in flight at the same time.
+   *
+   * @param maxConcurrency the maximum number of requests in flight.
+   */
+  public void setMaxConcurrency(int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be positive: "
+          + maxConcurrency);
+    }
+    this.maxConcurrency = maxConcurrency;
+    pump();
+  }
+
+  /**
+   * Sets the number of times a throttled request is retried before its
+   * failure is reported.
+   *
+   * @param maxRetries the maximum number of retries.
+   */
+  public void setMaxRetries(int maxRetries) {
+    if (maxRetries < 0) {
+      throw new IllegalArgumentException("maxRetries must be non-negative: "
+          + maxRetries);
+    }
+    this.maxRetries = maxRetries;
+  }
+
+  /**
+   * Sets the sustained rate at which requests are started.
+   *
+   * @param requestsPerSecond the number of requests started per second.
+   */
+  public void setRequestsPerSecond(double requestsPerSecond) {
+    if (!(requestsPerSecond > 0)) {
+      throw new IllegalArgumentException("requestsPerSecond must be positive: "
+          + requestsPerSecond);
+    }
+    refill();
+    this.requestsPerSecond = requestsPerSecond;
+  }
+
+  /**
+   * Counts the addresses of a request as answered, and calls
+   * {@link BatchGeocodeCallback#onComplete()} for every callback that has no
+   * outstanding addresses left.
+   */
+  private void answered(Request request) {
+    for (BatchGeocodeCallback callback : request.callbacks) {
+      Integer count = outstanding.get(callback);
+      if (count == null) {
+        continue;
+      }
+      if (count > 1) {
+        outstanding.put(callback, count - 1);
+      } else {
+        outstanding.remove(callback);
+        callback.onComplete();
+      }
+    }
+  }
+
+  /**
+   * Starts as many queued requests as the concurrency limit and the token
+   * bucket allow, and schedules another attempt when the bucket is empty.
+   */
+  private void pump() {
+    while (inFlight < maxConcurrency && !queue.isEmpty()) {
+      refill();
+      if (tokens < 1) {
+        int wait = (int) Math.ceil((1 - tokens) * 1000 / requestsPerSecond);
+        pumpTimer.schedule(Math.max(1, wait));
+        return;
+      }
+      tokens -= 1;
+      Request request = queue.removeFirst();
+      ++request.attempts;
+      ++inFlight;
+      geocoder.getLocations(request.addresses.get(0), request);
+    }
+  }
+
+  private void refill() {
+    double now = Duration.currentTimeMillis();
+    tokens = Math.min(maxBurst, tokens + (now - lastRefill) * requestsPerSecond
+        / 1000);
+    lastRefill = now;
+  }
+
+  private void retry(final Request request) {
+    int delay = initialBackoff << Math.min(request.attempts - 1, 16);
+    Timer timer = new Timer() {
+      @Override
+      public void run() {
+        retryTimers.remove(this);
+        queue.addFirst(request);
+        pump();
+      }
+    };
+    retryTimers.add(timer);
+    timer.schedule(delay);
+  }
+}
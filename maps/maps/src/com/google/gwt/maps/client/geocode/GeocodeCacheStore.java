@@ -0,0 +1,66 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.geocode;
+
+import java.util.List;
+
+/**
+ * Persistent storage for the replies held by an {@link LruGeocodeCache}, so
+ * that cached replies survive a page reload. Keys are canonical addresses and
+ * values are opaque strings written by the cache.
+ *
+ * Implementations may discard values at any time, for example when a storage
+ * quota is exceeded; the cache treats a missing value as a miss.
+ *
+ * @see LocalStorageGeocodeCacheStore
+ */
+public interface GeocodeCacheStore {
+
+  /**
+   * Removes all values from the store.
+   */
+  void clear();
+
+  /**
+   * Returns the value stored under the given key.
+   *
+   * @param key the key to look up.
+   * @return the stored value, or <code>null</code> if there is none.
+   */
+  String get(String key);
+
+  /**
+   * Returns the keys of all values in the store.
+   *
+   * @return the keys of all values in the store.
+   */
+  List<String> getKeys();
+
+  /**
+   * Stores a value, replacing any value previously stored under the key.
+   *
+   * @param key the key to store the value under.
+   * @param value the value to store.
+   */
+  void put(String key, String value);
+
+  /**
+   * Removes the value stored under the given key, if any.
+   *
+   * @param key the key of the value to remove.
+   */
+  void remove(String key);
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.geocode;
+
+import com.google.gwt.core.client.JsArrayString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link GeocodeCacheStore} backed by the browser's
+ * <code>window.localStorage</code>. Every key is prefixed so that several
+ * caches, or other users of local storage, can share the same origin.
+ *
+ * Writes that exceed the storage quota are silently dropped.
+ */
+public class LocalStorageGeocodeCacheStore implements GeocodeCacheStore {
+
+  /**
+   * The prefix used by {@link #LocalStorageGeocodeCacheStore()}.
+   */
+  public static final String DEFAULT_PREFIX = "gwt-maps-geocode:";
+
+  /**
+   * Returns <code>true</code> if the browser provides local storage.
+   *
+   * @return <code>true</code> if the browser provides local storage.
+   */
+  public static native boolean isSupported() /*-{
+    try {
+      return !!$wnd.localStorage;
+    } catch (e) {
+      // Accessing localStorage throws when storage is disabled.
+      return false;
+    }
+  }-*/;
+
+  private static native String nativeGet(String key) /*-{
+    return $wnd.localStorage.getItem(key);
+  }-*/;
+
+  private static native JsArrayString nativeKeys(String prefix) /*-{
+    var storage = $wnd.localStorage;
+    var keys = [];
+    for (var i = 0; i < storage.length; ++i) {
+      var key = storage.key(i);
+      if (key.indexOf(prefix) == 0) {
+        keys.push(key.substring(prefix.length));
+      }
+    }
+    return keys;
+  }-*/;
+
+  private static native void nativePut(String key, String value) /*-{
+    try {
+      $wnd.localStorage.setItem(key, value);
+    } catch (e) {
+      // Quota exceeded: the value is simply not persisted.
+    }
+  }-*/;
+
+  private static native void nativeRemove(String key) /*-{
+    $wnd.localStorage.removeItem(key);
+  }-*/;
+
+  private final String prefix;
+
+  /**
+   * Creates a store using {@link #DEFAULT_PREFIX}.
+   */
+  public LocalStorageGeocodeCacheStore() {
+    this(DEFAULT_PREFIX);
+  }
+
+  /**
+   * Creates a store whose keys are prefixed with the given string.
+   *
+   * @param prefix the prefix for all keys written by this store.
+   */
+  public LocalStorageGeocodeCacheStore(String prefix) {
+    this.prefix = prefix;
+  }
+
+  public void clear() {
+    for (String key : getKeys()) {
+      remove(key);
+    }
+  }
+
+  public String get(String key) {
+    return nativeGet(prefix + key);
+  }
+
+  public List<String> getKeys() {
+    JsArrayString keys = nativeKeys(prefix);
+    List<String> result = new ArrayList<String>(keys.length());
+    for (int i = 0; i < keys.length(); ++i) {
+      result.add(keys.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the prefix used for all keys written by this store.
+   *
+   * @return the prefix used for all keys written by this store.
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public void put(String key, String value) {
+    nativePut(prefix + key, value);
+  }
+
+  public void remove(String key) {
+    nativeRemove(prefix + key);
+  }
+}
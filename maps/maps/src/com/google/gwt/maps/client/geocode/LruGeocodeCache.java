@@ -0,0 +1,377 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.geocode;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.JavaScriptObject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A geocode cache bounded by both the number of replies and their total size,
+ * evicting the least recently used replies first. Replies may be given a time
+ * to live, and may be written through to a {@link GeocodeCacheStore} so that
+ * they survive a page reload.
+ *
+ * Addresses are normalized with {@link #toCanonical(String)} and replies are
+ * filtered with {@link #isCacheable(JavaScriptObject)}, both inherited from
+ * {@link CustomGeocodeCache}. The size of a reply is estimated from the
+ * length of its JSON serialization. Persistence requires the browser to
+ * provide <code>JSON.stringify</code> and <code>JSON.parse</code>; without
+ * them the cache still works, in memory only.
+ *
+ * The cache counts hits, misses and evictions, which can be used to tune its
+ * bounds.
+ */
+public class LruGeocodeCache extends CustomGeocodeCache {
+
+  /**
+   * A cached reply.
+   */
+  private static class Entry {
+    final int bytes;
+    final double expires;
+    final JavaScriptObject reply;
+
+    Entry(JavaScriptObject reply, int bytes, double expires) {
+      this.reply = reply;
+      this.bytes = bytes;
+      this.expires = expires;
+    }
+  }
+
+  /**
+   * The default limit on the estimated size of all cached replies, in bytes.
+   */
+  public static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+
+  /**
+   * The default limit on the number of cached replies.
+   */
+  public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+  /**
+   * Separates the expiry time from the reply in persisted values.
+   */
+  private static final char EXPIRY_SEPARATOR = ':';
+
+  private static native JavaScriptObject nativeParse(String json) /*-{
+    try {
+      return $wnd.JSON ? $wnd.JSON.parse(json) : null;
+    } catch (e) {
+      return null;
+    }
+  }-*/;
+
+  private static native String nativeStringify(JavaScriptObject reply) /*-{
+    try {
+      return $wnd.JSON ? $wnd.JSON.stringify(reply) : null;
+    } catch (e) {
+      return null;
+    }
+  }-*/;
+
+  private int byteSize;
+  private final LinkedHashMap<String, Entry> entries =
+      new LinkedHashMap<String, Entry>(16, 0.75f, true);
+  private int evictionCount;
+  private int hitCount;
+  private final int maxBytes;
+  private final int maxEntries;
+  private int missCount;
+  private final GeocodeCacheStore store;
+  private final int ttlSeconds;
+
+  /**
+   * Creates an in-memory cache with the default bounds and no expiry.
+   */
+  public LruGeocodeCache() {
+    this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, 0, null);
+  }
+
+  /**
+   * Creates an in-memory cache with no expiry.
+   *
+   * @param maxEntries the maximum number of cached replies.
+   * @param maxBytes the maximum estimated size of all cached replies, in
+   *          bytes.
+   */
+  public LruGeocodeCache(int maxEntries, int maxBytes) {
+    this(maxEntries, maxBytes, 0, null);
+  }
+
+  /**
+   * Creates a cache. If a store is given, the replies it holds from earlier
+   * sessions are loaded immediately, dropping any that have expired.
+   *
+   * @param maxEntries the maximum number of cached replies.
+   * @param maxBytes the maximum estimated size of all cached replies, in
+   *          bytes.
+   * @param ttlSeconds the number of seconds a reply is kept, or 0 to keep
+   *          replies until they are evicted.
+   * @param store the store to write replies through to, or <code>null</code>
+   *          to keep replies in memory only.
+   */
+  public LruGeocodeCache(int maxEntries, int maxBytes, int ttlSeconds,
+      GeocodeCacheStore store) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("maxEntries must be positive: "
+          + maxEntries);
+    }
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("maxBytes must be positive: "
+          + maxBytes);
+    }
+    if (ttlSeconds < 0) {
+      throw new IllegalArgumentException("ttlSeconds must be non-negative: "
+          + ttlSeconds);
+    }
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.ttlSeconds = ttlSeconds;
+    this.store = store;
+    if (store != null) {
+      load();
+    }
+  }
+
+  /**
+   * Returns the cached reply for the address, or <code>null</code> if there is
+   * none or it has expired. A successful lookup marks the reply as the most
+   * recently used.
+   *
+   * @param address the address used as a key to lookup.
+   * @return the previously cached result.
+   */
+  @Override
+  public JavaScriptObject get(String address) {
+    String key = toCanonical(address);
+    Entry entry = entries.get(key);
+    if (entry != null && isExpired(entry, Duration.currentTimeMillis())) {
+      remove(key);
+      entry = null;
+    }
+    if (entry == null) {
+      ++missCount;
+      return null;
+    }
+    ++hitCount;
+    return entry.reply;
+  }
+
+  /**
+   * Returns the estimated size of all cached replies in bytes.
+   *
+   * @return the estimated size of all cached replies in bytes.
+   */
+  public int getByteSize() {
+    return byteSize;
+  }
+
+  /**
+   * Returns the number of replies currently cached.
+   *
+   * @return the number of replies currently cached.
+   */
+  public int getEntryCount() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of replies evicted to stay within the bounds of the
+   * cache.
+   *
+   * @return the number of replies evicted.
+   */
+  public int getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Returns the number of lookups that found a reply.
+   *
+   * @return the number of lookups that found a reply.
+   */
+  public int getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the maximum estimated size of all cached replies in bytes.
+   *
+   * @return the maximum estimated size of all cached replies in bytes.
+   */
+  public int getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Returns the maximum number of cached replies.
+   *
+   * @return the maximum number of cached replies.
+   */
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Returns the number of lookups that found no reply, including lookups of
+   * expired replies.
+   *
+   * @return the number of lookups that found no reply.
+   */
+  public int getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the number of seconds a reply is kept.
+   *
+   * @return the time to live of a reply in seconds, or 0 if replies do not
+   *         expire.
+   */
+  public int getTtlSeconds() {
+    return ttlSeconds;
+  }
+
+  /**
+   * Caches the reply under the canonical form of the address if
+   * {@link #isCacheable(JavaScriptObject)} accepts it, then evicts the least
+   * recently used replies until the cache is within its bounds. A reply
+   * larger than the byte limit is not cached.
+   *
+   * @param address the address used in the query.
+   * @param reply the reply value to cache.
+   */
+  @Override
+  public void put(String address, JavaScriptObject reply) {
+    if (reply == null || !isCacheable(reply)) {
+      return;
+    }
+    String key = toCanonical(address);
+    String json = nativeStringify(reply);
+    int bytes = estimateBytes(key, json);
+    remove(key);
+    if (bytes > maxBytes) {
+      return;
+    }
+    double expires = ttlSeconds > 0 ? Duration.currentTimeMillis()
+        + ttlSeconds * 1000.0 : 0;
+    entries.put(key, new Entry(reply, bytes, expires));
+    byteSize += bytes;
+    if (store != null && json != null) {
+      store.put(key, String.valueOf(expires) + EXPIRY_SEPARATOR + json);
+    }
+    evict();
+  }
+
+  /**
+   * Removes all replies from the cache and its store. The hit, miss and
+   * eviction counts are kept.
+   */
+  @Override
+  public void reset() {
+    entries.clear();
+    byteSize = 0;
+    if (store != null) {
+      store.clear();
+    }
+  }
+
+  /**
+   * Sets the hit, miss and eviction counts to zero.
+   */
+  public void resetStatistics() {
+    evictionCount = 0;
+    hitCount = 0;
+    missCount = 0;
+  }
+
+  /**
+   * Returns the estimated size in bytes of a reply held in memory, counting
+   * two bytes per character of the key and the serialized reply.
+   */
+  private int estimateBytes(String key, String json) {
+    return 2 * (key.length() + (json == null ? 0 : json.length()));
+  }
+
+  /**
+   * Evicts least recently used replies until the cache is within its bounds.
+   */
+  private void evict() {
+    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    while ((entries.size() > maxEntries || byteSize > maxBytes)
+        && it.hasNext()) {
+      Map.Entry<String, Entry> eldest = it.next();
+      it.remove();
+      byteSize -= eldest.getValue().bytes;
+      if (store != null) {
+        store.remove(eldest.getKey());
+      }
+      ++evictionCount;
+    }
+  }
+
+  private boolean isExpired(Entry entry, double now) {
+    return entry.expires != 0 && entry.expires <= now;
+  }
+
+  /**
+   * Reads every reply from the store, discarding expired or unreadable
+   * values. The store does not record recency, so replies loaded together
+   * are evicted in the order the store lists them.
+   */
+  private void load() {
+    double now = Duration.currentTimeMillis();
+    for (String key : store.getKeys()) {
+      String value = store.get(key);
+      int separator = value == null ? -1 : value.indexOf(EXPIRY_SEPARATOR);
+      if (separator < 0) {
+        store.remove(key);
+        continue;
+      }
+      double expires;
+      try {
+        expires = Double.parseDouble(value.substring(0, separator));
+      } catch (NumberFormatException e) {
+        store.remove(key);
+        continue;
+      }
+      String json = value.substring(separator + 1);
+      JavaScriptObject reply = nativeParse(json);
+      if (reply == null || (expires != 0 && expires <= now)) {
+        store.remove(key);
+        continue;
+      }
+      int bytes = estimateBytes(key, json);
+      entries.put(key, new Entry(reply, bytes, expires));
+      byteSize += bytes;
+    }
+    evict();
+  }
+
+  private void remove(String key) {
+    Entry entry = entries.remove(key);
+    if (entry != null) {
+      byteSize -= entry.bytes;
+      if (store != null) {
+        store.remove(key);
+      }
+    }
+  }
+}
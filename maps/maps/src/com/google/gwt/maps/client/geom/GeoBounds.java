@@ -0,0 +1,440 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.geom;
+
+/**
+ * An immutable rectangle in geographical coordinates, including one that
+ * crosses the 180 degrees meridian, implemented entirely in Java.
+ *
+ * This is the counterpart of {@link LatLngBounds} for {@link GeoPoint}: it
+ * does not require the Maps API to be loaded. Operations that would modify a
+ * {@link LatLngBounds} return a new GeoBounds instead. Convert with
+ * {@link #fromLatLngBounds(LatLngBounds)} and {@link #toLatLngBounds()} at
+ * the Maps API boundary.
+ */
+public final class GeoBounds {
+
+  /**
+   * A bounds object that contains no points.
+   */
+  public static final GeoBounds EMPTY = new GeoBounds(1, 180, -1, -180, false);
+
+  /**
+   * Returns the smallest bounds containing all of the given points. The
+   * points are given as parallel arrays of degrees so that large point sets
+   * can be fitted without allocating an object per point.
+   *
+   * @param lats latitudes of the points in degrees
+   * @param lngs longitudes of the points in degrees
+   * @return the bounds of the points, or {@link #EMPTY} if there are none.
+   */
+  public static GeoBounds fromPoints(double[] lats, double[] lngs) {
+    if (lats.length != lngs.length) {
+      throw new IllegalArgumentException("lats and lngs differ in length");
+    }
+    double[] box = {1, 180, -1, -180};
+    for (int i = 0; i < lats.length; ++i) {
+      extend(box, GeoPoint.clampLatitude(lats[i]),
+          GeoPoint.wrapLongitude(lngs[i]));
+    }
+    return new GeoBounds(box[0], box[1], box[2], box[3], false);
+  }
+
+  /**
+   * Returns the smallest bounds containing all of the given points.
+   *
+   * @param points the points to fit
+   * @return the bounds of the points, or {@link #EMPTY} if there are none.
+   */
+  public static GeoBounds fromPoints(GeoPoint[] points) {
+    double[] box = {1, 180, -1, -180};
+    for (GeoPoint point : points) {
+      extend(box, point.getLatitude(), point.getLongitude());
+    }
+    return new GeoBounds(box[0], box[1], box[2], box[3], false);
+  }
+
+  /**
+   * Converts a {@link LatLngBounds} into a GeoBounds.
+   *
+   * @param bounds the bounds to convert
+   * @return a GeoBounds with the same corners.
+   */
+  public static GeoBounds fromLatLngBounds(LatLngBounds bounds) {
+    if (bounds.isEmpty()) {
+      return EMPTY;
+    }
+    LatLng sw = bounds.getSouthWest();
+    LatLng ne = bounds.getNorthEast();
+    double west = bounds.isFullLongitude() ? -180 : sw.getLongitude();
+    double east = bounds.isFullLongitude() ? 180 : ne.getLongitude();
+    return new GeoBounds(sw.getLatitude(), west, ne.getLatitude(), east, true);
+  }
+
+  /**
+   * Extends the box {south, west, north, east} in place to contain the point.
+   * In longitude direction the box grows the shorter way; ties grow east.
+   */
+  private static void extend(double[] box, double lat, double lng) {
+    if (box[0] > box[2]) {
+      box[0] = box[2] = lat;
+      box[1] = box[3] = lng;
+      return;
+    }
+    box[0] = Math.min(box[0], lat);
+    box[2] = Math.max(box[2], lat);
+    if (!containsLongitude(box[1], box[3], lng)) {
+      if (span(lng, box[1]) < span(box[3], lng)) {
+        box[1] = lng;
+      } else {
+        box[3] = lng;
+      }
+    }
+  }
+
+  private static boolean containsLongitude(double west, double east,
+      double lng) {
+    if (west > east) {
+      return lng >= west || lng <= east;
+    }
+    return lng >= west && lng <= east;
+  }
+
+  private static boolean isEmptyLongitude(double west, double east) {
+    return west - east == 360;
+  }
+
+  private static boolean isFullLongitude(double west, double east) {
+    return east - west >= 360;
+  }
+
+  /**
+   * Returns the eastward distance in degrees from <code>from</code> to
+   * <code>to</code>, in [0, 360).
+   */
+  private static double span(double from, double to) {
+    double d = to - from;
+    return d >= 0 ? d : d + 360;
+  }
+
+  private final double east;
+  private final double north;
+  private final double south;
+  private final double west;
+
+  /**
+   * Creates a bounds object from its south-west and north-east corners. If the
+   * longitude of the south-west corner is greater than that of the north-east
+   * corner, the bounds cross the 180 degrees meridian.
+   *
+   * @param southWest the south-west corner
+   * @param northEast the north-east corner
+   */
+  public GeoBounds(GeoPoint southWest, GeoPoint northEast) {
+    this(southWest.getLatitude(), southWest.getLongitude(),
+        northEast.getLatitude(), northEast.getLongitude(), true);
+  }
+
+  private GeoBounds(double south, double west, double north, double east,
+      boolean normalize) {
+    if (normalize) {
+      south = GeoPoint.clampLatitude(south);
+      north = GeoPoint.clampLatitude(north);
+      if (east - west >= 360) {
+        west = -180;
+        east = 180;
+      } else {
+        west = GeoPoint.wrapLongitude(west);
+        east = GeoPoint.wrapLongitude(east);
+        // -180 and 180 denote the same meridian; pick the representation that
+        // does not turn the interval inside out.
+        if (west == 180 && east != 180) {
+          west = -180;
+        }
+        if (east == -180 && west != -180) {
+          east = 180;
+        }
+      }
+    }
+    this.south = south;
+    this.west = west;
+    this.north = north;
+    this.east = east;
+  }
+
+  /**
+   * Returns <code>true</code> if the given bounds are contained within these
+   * bounds.
+   *
+   * @param other bounds to compare
+   * @return <code>true</code> if the other bounds lie within these bounds.
+   */
+  public boolean containsBounds(GeoBounds other) {
+    if (other.isEmpty()) {
+      return true;
+    }
+    if (isEmpty() || other.south < south || other.north > north) {
+      return false;
+    }
+    if (isFullLongitude(west, east)) {
+      return true;
+    }
+    if (isFullLongitude(other.west, other.east)) {
+      return false;
+    }
+    boolean crosses = west > east;
+    boolean otherCrosses = other.west > other.east;
+    if (crosses) {
+      if (otherCrosses) {
+        return other.west >= west && other.east <= east;
+      }
+      return other.west >= west || other.east <= east;
+    }
+    return !otherCrosses && other.west >= west && other.east <= east;
+  }
+
+  /**
+   * Returns <code>true</code> if the given point lies within these bounds.
+   *
+   * @param point point to compare
+   * @return <code>true</code> if the point lies within these bounds.
+   */
+  public boolean containsPoint(GeoPoint point) {
+    return containsPoint(point.getLatitude(), point.getLongitude());
+  }
+
+  /**
+   * Returns <code>true</code> if the given coordinates lie within these
+   * bounds.
+   *
+   * @param lat latitude in degrees
+   * @param lng longitude in degrees
+   * @return <code>true</code> if the coordinates lie within these bounds.
+   */
+  public boolean containsPoint(double lat, double lng) {
+    return lat >= south && lat <= north
+        && containsLongitude(west, east, GeoPoint.wrapLongitude(lng));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof GeoBounds)) {
+      return false;
+    }
+    GeoBounds other = (GeoBounds) obj;
+    if (isEmpty() || other.isEmpty()) {
+      return isEmpty() && other.isEmpty();
+    }
+    return south == other.south && west == other.west && north == other.north
+        && east == other.east;
+  }
+
+  /**
+   * Returns new bounds that contain these bounds and the given point. In
+   * longitude direction, the bounds grow the shorter of the two possible ways.
+   * If both are equal, they grow at the eastern boundary.
+   *
+   * @param point the point to include
+   * @return bounds containing these bounds and the point.
+   */
+  public GeoBounds extend(GeoPoint point) {
+    if (containsPoint(point)) {
+      return this;
+    }
+    double[] box = {south, west, north, east};
+    extend(box, point.getLatitude(), point.getLongitude());
+    return new GeoBounds(box[0], box[1], box[2], box[3], false);
+  }
+
+  /**
+   * Returns the point at the center of these bounds.
+   *
+   * @return the point at the center of these bounds.
+   */
+  public GeoPoint getCenter() {
+    double lng = west + span(west, east) / 2;
+    if (lng > 180) {
+      lng -= 360;
+    }
+    return new GeoPoint((south + north) / 2, lng, true);
+  }
+
+  /**
+   * Returns the north-east corner of these bounds.
+   *
+   * @return the north-east corner of these bounds.
+   */
+  public GeoPoint getNorthEast() {
+    return new GeoPoint(north, east, true);
+  }
+
+  /**
+   * Returns the south-west corner of these bounds.
+   *
+   * @return the south-west corner of these bounds.
+   */
+  public GeoPoint getSouthWest() {
+    return new GeoPoint(south, west, true);
+  }
+
+  @Override
+  public int hashCode() {
+    if (isEmpty()) {
+      return 0;
+    }
+    return (int) (south * 31 + west * 131 + north * 521 + east * 1031);
+  }
+
+  /**
+   * Returns <code>true</code> if the given bounds intersect these bounds.
+   *
+   * @param other the bounds to compare
+   * @return <code>true</code> if the bounds intersect.
+   */
+  public boolean intersects(GeoBounds other) {
+    if (isEmpty() || other.isEmpty() || other.south > north
+        || other.north < south) {
+      return false;
+    }
+    boolean crosses = west > east;
+    boolean otherCrosses = other.west > other.east;
+    if (crosses && otherCrosses) {
+      return true;
+    } else if (crosses) {
+      return other.west <= east || other.east >= west;
+    } else if (otherCrosses) {
+      return west <= other.east || east >= other.west;
+    }
+    return other.west <= east && west <= other.east;
+  }
+
+  /**
+   * Returns <code>true</code> if these bounds contain no points.
+   *
+   * @return <code>true</code> if these bounds contain no points.
+   */
+  public boolean isEmpty() {
+    return south > north || isEmptyLongitude(west, east);
+  }
+
+  /**
+   * Returns <code>true</code> if these bounds extend from the south pole to
+   * the north pole.
+   *
+   * @return <code>true</code> if these bounds extend from pole to pole.
+   */
+  public boolean isFullLatitude() {
+    return south <= -90 && north >= 90;
+  }
+
+  /**
+   * Returns <code>true</code> if these bounds extend fully around the earth in
+   * longitude direction.
+   *
+   * @return <code>true</code> if these bounds extend fully around the earth.
+   */
+  public boolean isFullLongitude() {
+    return isFullLongitude(west, east);
+  }
+
+  /**
+   * Creates a {@link LatLngBounds} with the same corners. The Maps API must be
+   * loaded.
+   *
+   * @return a new LatLngBounds with the same corners.
+   */
+  public LatLngBounds toLatLngBounds() {
+    if (isEmpty()) {
+      return LatLngBounds.newInstance();
+    }
+    return LatLngBounds.newInstance(getSouthWest().toLatLng(),
+        getNorthEast().toLatLng());
+  }
+
+  /**
+   * Returns a point whose coordinates represent the size of these bounds in
+   * degrees.
+   *
+   * @return the size of these bounds.
+   */
+  public GeoPoint toSpan() {
+    if (isEmpty()) {
+      return new GeoPoint(0, 0, true);
+    }
+    double lngSpan = isFullLongitude() ? 360 : span(west, east);
+    return new GeoPoint(north - south, lngSpan, true);
+  }
+
+  @Override
+  public String toString() {
+    return "(" + getSouthWest() + ", " + getNorthEast() + ")";
+  }
+
+  /**
+   * Returns the smallest bounds containing both these bounds and the given
+   * bounds.
+   *
+   * @param other the bounds to include
+   * @return the union of the two bounds.
+   */
+  public GeoBounds union(GeoBounds other) {
+    if (other.isEmpty() || containsBounds(other)) {
+      return this;
+    }
+    if (isEmpty() || other.containsBounds(this)) {
+      return other;
+    }
+    double newSouth = Math.min(south, other.south);
+    double newNorth = Math.max(north, other.north);
+
+    // The longitude union starts at one of the two western edges and ends at
+    // the other interval's eastern edge; take the shorter candidate that
+    // covers both intervals.
+    double best = Double.POSITIVE_INFINITY;
+    double newWest = -180;
+    double newEast = 180;
+    if (!isFullLongitude(west, east)
+        && !isFullLongitude(other.west, other.east)) {
+      double span1 = span(west, other.east);
+      if (covers(west, span1, this) && covers(west, span1, other)) {
+        best = span1;
+        newWest = west;
+        newEast = other.east;
+      }
+      double span2 = span(other.west, east);
+      if (span2 < best && covers(other.west, span2, this)
+          && covers(other.west, span2, other)) {
+        newWest = other.west;
+        newEast = east;
+      }
+    }
+    return new GeoBounds(newSouth, newWest, newNorth, newEast, false);
+  }
+
+  /**
+   * Returns <code>true</code> if the longitude interval starting at
+   * <code>start</code> and extending <code>length</code> degrees east covers
+   * the longitude interval of <code>bounds</code>.
+   */
+  private boolean covers(double start, double length, GeoBounds bounds) {
+    double offset = span(start, bounds.west);
+    return offset <= length
+        && offset + span(bounds.west, bounds.east) <= length;
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.geom;
+
+/**
+ * An immutable point in geographical coordinates, implemented entirely in
+ * Java.
+ *
+ * Unlike {@link LatLng}, which wraps a GLatLng object, a GeoPoint does not
+ * require the Maps API to be loaded, and none of its methods call into
+ * JavaScript. Use it for computations over many points and convert to and from
+ * {@link LatLng} with {@link #fromLatLng(LatLng)} and {@link #toLatLng()} only
+ * when passing values to the Maps API.
+ */
+public final class GeoPoint {
+
+  /**
+   * The default radius of the earth in meters, as used by
+   * {@link LatLng#distanceFrom(LatLng)}.
+   */
+  public static final double EARTH_RADIUS = 6378137;
+
+  /**
+   * Returns the distance between two points given in degrees, in meters on a
+   * sphere of radius {@link #EARTH_RADIUS}, using the haversine formula.
+   *
+   * @param lat1 latitude of the first point in degrees
+   * @param lng1 longitude of the first point in degrees
+   * @param lat2 latitude of the second point in degrees
+   * @param lng2 longitude of the second point in degrees
+   * @return the distance between the points in meters.
+   */
+  public static double distance(double lat1, double lng1, double lat2,
+      double lng2) {
+    return distance(lat1, lng1, lat2, lng2, EARTH_RADIUS);
+  }
+
+  /**
+   * Returns the distance between two points given in degrees on a sphere of
+   * the given radius, using the haversine formula.
+   *
+   * @param lat1 latitude of the first point in degrees
+   * @param lng1 longitude of the first point in degrees
+   * @param lat2 latitude of the second point in degrees
+   * @param lng2 longitude of the second point in degrees
+   * @param radius the radius of the sphere
+   * @return the distance between the points, in the units of
+   *         <code>radius</code>.
+   */
+  public static double distance(double lat1, double lng1, double lat2,
+      double lng2, double radius) {
+    double h = haversine(Math.toRadians(lat1), Math.toRadians(lng1),
+        Math.toRadians(lat2), Math.toRadians(lng2));
+    return 2 * radius * Math.asin(Math.sqrt(h));
+  }
+
+  /**
+   * Converts a {@link LatLng} into a GeoPoint.
+   *
+   * @param latlng the point to convert
+   * @return a GeoPoint with the same coordinates.
+   */
+  public static GeoPoint fromLatLng(LatLng latlng) {
+    return new GeoPoint(latlng.getLatitude(), latlng.getLongitude(), true);
+  }
+
+  /**
+   * Returns the index of the point nearest to the given coordinates. The
+   * candidate points are given as parallel arrays of degrees so that large
+   * point sets can be searched without allocating an object per point.
+   *
+   * @param lat latitude of the reference point in degrees
+   * @param lng longitude of the reference point in degrees
+   * @param lats latitudes of the candidate points in degrees
+   * @param lngs longitudes of the candidate points in degrees
+   * @return the index of the nearest candidate, or -1 if there are none.
+   */
+  public static int indexOfNearest(double lat, double lng, double[] lats,
+      double[] lngs) {
+    if (lats.length != lngs.length) {
+      throw new IllegalArgumentException("lats and lngs differ in length");
+    }
+    double latRad = Math.toRadians(lat);
+    double lngRad = Math.toRadians(lng);
+    int best = -1;
+    double bestH = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < lats.length; ++i) {
+      // The haversine term grows monotonically with distance, so there is no
+      // need to finish the distance computation for each candidate.
+      double h = haversine(latRad, lngRad, Math.toRadians(lats[i]),
+          Math.toRadians(lngs[i]));
+      if (h < bestH) {
+        bestH = h;
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Clamps a latitude to [-90, 90].
+   */
+  static double clampLatitude(double lat) {
+    return Math.max(-90, Math.min(90, lat));
+  }
+
+  /**
+   * Wraps a longitude to [-180, 180]. Values already in range, including both
+   * end points, are returned unchanged.
+   */
+  static double wrapLongitude(double lng) {
+    if (lng >= -180 && lng <= 180) {
+      return lng;
+    }
+    double wrapped = ((lng + 180) % 360 + 360) % 360 - 180;
+    return wrapped;
+  }
+
+  private static double haversine(double lat1, double lng1, double lat2,
+      double lng2) {
+    double sinLat = Math.sin((lat2 - lat1) / 2);
+    double sinLng = Math.sin((lng2 - lng1) / 2);
+    return sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLng
+        * sinLng;
+  }
+
+  private final double lat;
+  private final double lng;
+
+  /**
+   * Creates a new point. The latitude is clamped to lie between -90 and +90
+   * degrees, and the longitude is wrapped to lie between -180 and +180
+   * degrees.
+   *
+   * @param latitude the latitude in degrees
+   * @param longitude the longitude in degrees
+   */
+  public GeoPoint(double latitude, double longitude) {
+    this(latitude, longitude, false);
+  }
+
+  /**
+   * Creates a new point.
+   *
+   * @param latitude the latitude in degrees
+   * @param longitude the longitude in degrees
+   * @param unbounded if <code>true</code>, the values are neither clamped nor
+   *          wrapped.
+   */
+  public GeoPoint(double latitude, double longitude, boolean unbounded) {
+    if (unbounded) {
+      lat = latitude;
+      lng = longitude;
+    } else {
+      lat = clampLatitude(latitude);
+      lng = wrapLongitude(longitude);
+    }
+  }
+
+  /**
+   * Returns the distance from another point in meters, computed on a sphere
+   * of radius {@link #EARTH_RADIUS} like {@link LatLng#distanceFrom(LatLng)}.
+   *
+   * @param other point to measure distance to
+   * @return the distance between the two points in meters.
+   */
+  public double distanceFrom(GeoPoint other) {
+    return distance(lat, lng, other.lat, other.lng, EARTH_RADIUS);
+  }
+
+  /**
+   * Returns the distance from another point on a sphere of the given radius.
+   *
+   * @param other point to measure distance to
+   * @param radius the radius of the sphere
+   * @return the distance between the two points, in the units of
+   *         <code>radius</code>.
+   */
+  public double distanceFrom(GeoPoint other, double radius) {
+    return distance(lat, lng, other.lat, other.lng, radius);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof GeoPoint)) {
+      return false;
+    }
+    GeoPoint other = (GeoPoint) obj;
+    return lat == other.lat && lng == other.lng;
+  }
+
+  /**
+   * Returns the latitude of this point in degrees.
+   *
+   * @return the latitude of this point in degrees.
+   */
+  public double getLatitude() {
+    return lat;
+  }
+
+  /**
+   * Returns the latitude of this point in radians.
+   *
+   * @return the latitude of this point in radians.
+   */
+  public double getLatitudeRadians() {
+    return Math.toRadians(lat);
+  }
+
+  /**
+   * Returns the longitude of this point in degrees.
+   *
+   * @return the longitude of this point in degrees.
+   */
+  public double getLongitude() {
+    return lng;
+  }
+
+  /**
+   * Returns the longitude of this point in radians.
+   *
+   * @return the longitude of this point in radians.
+   */
+  public double getLongitudeRadians() {
+    return Math.toRadians(lng);
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (lat * 31 + lng * 131);
+  }
+
+  /**
+   * Returns the index of the point in <code>points</code> nearest to this
+   * one.
+   *
+   * @param points the candidate points
+   * @return the index of the nearest point, or -1 if there are none.
+   */
+  public int indexOfNearest(GeoPoint[] points) {
+    double latRad = Math.toRadians(lat);
+    double lngRad = Math.toRadians(lng);
+    int best = -1;
+    double bestH = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < points.length; ++i) {
+      double h = haversine(latRad, lngRad, Math.toRadians(points[i].lat),
+          Math.toRadians(points[i].lng));
+      if (h < bestH) {
+        bestH = h;
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Creates a {@link LatLng} with the same coordinates. The Maps API must be
+   * loaded.
+   *
+   * @return a new LatLng with the same coordinates.
+   */
+  public LatLng toLatLng() {
+    return LatLng.newInstance(lat, lng, true);
+  }
+
+  @Override
+  public String toString() {
+    return "(" + lat + ", " + lng + ")";
+  }
+}
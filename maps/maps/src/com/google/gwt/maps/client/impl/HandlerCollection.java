@@ -37,6 +37,7 @@ import com.google.gwt.maps.client.impl.EventImpl.VoidCallback;
 import com.google.gwt.maps.client.overlay.Overlay;
 import com.google.gwt.maps.client.streetview.StreetviewLocation;
 import com.google.gwt.user.client.Element;
+import com.google.gwt.user.client.Timer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -51,6 +52,7 @@ import java.util.List;
  */
 public class HandlerCollection<E> {
   private static class HandleContainer<T> {
+    Timer coalesceTimer;
     JavaScriptObject eventHandlerJso;
     T listener;
 
@@ -60,6 +62,109 @@ public class HandlerCollection<E> {
     }
   }
 
+  /**
+   * Delivers the most recent of a burst of {@link LatLngCallback} events once
+   * the coalesce interval has elapsed.
+   */
+  private class CoalescingLatLngCallback extends LatLngCallback {
+    private final LatLngCallback delegate;
+    private int dropped;
+    private LatLng latest;
+    private final Timer timer = new Timer() {
+      @Override
+      public void run() {
+        flush();
+      }
+    };
+
+    CoalescingLatLngCallback(LatLngCallback delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void callback(LatLng latlng) {
+      if (coalesceInterval <= 0) {
+        timer.cancel();
+        flush();
+        delegate.callbackWrapper(latlng);
+        return;
+      }
+      if (latest == null) {
+        timer.schedule(coalesceInterval);
+      } else {
+        ++dropped;
+      }
+      latest = latlng;
+    }
+
+    private void flush() {
+      if (latest == null) {
+        return;
+      }
+      LatLng latlng = latest;
+      latest = null;
+      droppedEventCount = dropped;
+      dropped = 0;
+      try {
+        delegate.callbackWrapper(latlng);
+      } finally {
+        droppedEventCount = 0;
+      }
+    }
+  }
+
+  /**
+   * Delivers a single {@link VoidCallback} event for a burst of events once the
+   * coalesce interval has elapsed.
+   */
+  private class CoalescingVoidCallback extends VoidCallback {
+    private final VoidCallback delegate;
+    private int dropped;
+    private boolean pending;
+    private final Timer timer = new Timer() {
+      @Override
+      public void run() {
+        flush();
+      }
+    };
+
+    CoalescingVoidCallback(VoidCallback delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void callback() {
+      if (coalesceInterval <= 0) {
+        timer.cancel();
+        flush();
+        delegate.callbackWrapper();
+        return;
+      }
+      if (!pending) {
+        pending = true;
+        timer.schedule(coalesceInterval);
+      } else {
+        ++dropped;
+      }
+    }
+
+    private void flush() {
+      if (!pending) {
+        return;
+      }
+      pending = false;
+      droppedEventCount = dropped;
+      dropped = 0;
+      try {
+        delegate.callbackWrapper();
+      } finally {
+        droppedEventCount = 0;
+      }
+    }
+  }
+
+  private int coalesceInterval;
+  private int droppedEventCount;
   private final List<HandleContainer<E>> handlers = new ArrayList<HandleContainer<E>>();
   private final JavaScriptObject jsoPeer;
   private final MapEvent mapEvent;
@@ -151,6 +256,16 @@ public class HandlerCollection<E> {
    * @param callback The callback to call when the event fires.
    */
   public void addHandler(E listener, LatLngCallback callback) {
+    if (coalesceInterval > 0) {
+      CoalescingLatLngCallback coalescing = new CoalescingLatLngCallback(
+          callback);
+      JavaScriptObject jso = EventImpl.impl.addListener(jsoPeer,
+          mapEvent.value(), coalescing);
+      HandleContainer<E> hc = new HandleContainer<E>(listener, jso);
+      hc.coalesceTimer = coalescing.timer;
+      handlers.add(hc);
+      return;
+    }
     JavaScriptObject jso = EventImpl.impl.addListener(jsoPeer,
         mapEvent.value(), callback);
     handlers.add(new HandleContainer<E>(listener, jso));
@@ -223,11 +338,41 @@ public class HandlerCollection<E> {
    * @param callback The callback to call when the event fires.
    */
   public void addHandler(E listener, VoidCallback callback) {
+    if (coalesceInterval > 0) {
+      CoalescingVoidCallback coalescing = new CoalescingVoidCallback(callback);
+      JavaScriptObject jso = EventImpl.impl.addListener(jsoPeer,
+          mapEvent.value(), coalescing);
+      HandleContainer<E> hc = new HandleContainer<E>(listener, jso);
+      hc.coalesceTimer = coalescing.timer;
+      handlers.add(hc);
+      return;
+    }
     JavaScriptObject jso = EventImpl.impl.addListener(jsoPeer,
         mapEvent.value(), callback);
     handlers.add(new HandleContainer<E>(listener, jso));
   }
 
+  /**
+   * Returns the interval over which events are coalesced.
+   *
+   * @return the coalesce interval in milliseconds, or 0 if events are
+   *         dispatched as they arrive.
+   */
+  public int getCoalesceInterval() {
+    return coalesceInterval;
+  }
+
+  /**
+   * Returns the number of events that were dropped in favor of the one being
+   * dispatched. Only meaningful while a coalesced callback is running.
+   *
+   * @return the number of events dropped since the previous dispatch, or 0
+   *         outside a coalesced dispatch.
+   */
+  public int getDroppedEventCount() {
+    return droppedEventCount;
+  }
+
   /**
    * The type of event this collection represents.
    *
@@ -247,6 +392,9 @@ public class HandlerCollection<E> {
         // We've found the listener, so remove the handle that
         // was originally returned from GEvent.addListener()
         EventImpl.impl.removeListener(hc.eventHandlerJso);
+        if (hc.coalesceTimer != null) {
+          hc.coalesceTimer.cancel();
+        }
 
         handlers.remove(hc);
         break;
@@ -254,6 +402,30 @@ public class HandlerCollection<E> {
     }
   }
 
+  /**
+   * Sets the interval over which high frequency events such as
+   * {@link MapEvent#MOUSEMOVE} or {@link MapEvent#DRAG} are coalesced. When
+   * the interval is positive, {@link LatLngCallback} and {@link VoidCallback}
+   * handlers added afterwards are invoked at most once per interval, with the
+   * latest arguments received, and {@link #getDroppedEventCount()} reports how
+   * many events were skipped. An interval of about 16 milliseconds coalesces
+   * events to roughly one per animation frame.
+   *
+   * Setting the interval to 0 restores immediate dispatch, including for
+   * handlers added while coalescing was on. Handlers added while coalescing
+   * was off are never coalesced.
+   *
+   * @param millis the coalesce interval in milliseconds, or 0 to dispatch
+   *          every event as it arrives.
+   */
+  public void setCoalesceInterval(int millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("millis must be non-negative: "
+          + millis);
+    }
+    coalesceInterval = millis;
+  }
+
   /**
    * Manually trigger an event that takes an overlay and point argument.
    */
@@ -0,0 +1,573 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.overlay;
+
+import com.google.gwt.maps.client.MapType;
+import com.google.gwt.maps.client.MapWidget;
+import com.google.gwt.maps.client.TileLayer;
+import com.google.gwt.maps.client.event.MapMoveEndHandler;
+import com.google.gwt.maps.client.event.MapZoomEndHandler;
+import com.google.gwt.maps.client.geom.LatLng;
+import com.google.gwt.maps.client.geom.LatLngBounds;
+import com.google.gwt.maps.client.geom.Point;
+import com.google.gwt.maps.client.geom.Projection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups {@link Marker} objects into clusters using a pixel grid and shows one
+ * overlay per cluster on a {@link MapWidget}.
+ *
+ * Each marker is projected once with
+ * {@link Projection#fromLatLngToPixel(LatLng, int)} at the highest zoom level
+ * of the tile layer. Because the Mercator projection used by the Maps API
+ * doubles its pixel coordinates with every zoom level, the pixel position at
+ * any lower zoom level is derived by shifting, without calling back into the
+ * Maps API. Clusters are computed for every zoom level from
+ * {@link TileLayer#getMinResolution()} to {@link TileLayer#getMaxResolution()}
+ * in one pass, each level built by merging the cells of the level below it, so
+ * a zoom change only swaps in a precomputed layer.
+ *
+ * Only the clusters near the current viewport are attached to the map.
+ */
+public class MarkerClusterer {
+
+  /**
+   * A group of markers that fall into the same grid cell at a given zoom
+   * level.
+   */
+  public static class Cluster {
+    private final double cellX;
+    private final double cellY;
+    private List<Cluster> children;
+    private int count;
+    private boolean attached;
+    private int generation;
+    private List<Marker> markers;
+    private Overlay overlay;
+    private final MarkerClusterer owner;
+    private double sumX;
+    private double sumY;
+    private final int zoomLevel;
+
+    private Cluster(MarkerClusterer owner, int zoomLevel, double cellX,
+        double cellY) {
+      this.owner = owner;
+      this.zoomLevel = zoomLevel;
+      this.cellX = cellX;
+      this.cellY = cellY;
+    }
+
+    /**
+     * Returns the geographical center of the markers in this cluster.
+     *
+     * @return the geographical center of the markers in this cluster.
+     */
+    public LatLng getCenter() {
+      Point pixel = Point.newInstance((int) (sumX / count),
+          (int) (sumY / count));
+      return owner.projection.fromPixelToLatLng(pixel, owner.maxZoom, false);
+    }
+
+    /**
+     * Returns the markers in this cluster.
+     *
+     * @return the markers in this cluster.
+     */
+    public List<Marker> getMarkers() {
+      List<Marker> result = new ArrayList<Marker>(count);
+      collectMarkers(result);
+      return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns the overlay that represents this cluster on the map, creating it
+     * if necessary. A cluster with a single marker is represented by the
+     * marker itself.
+     *
+     * @return the overlay that represents this cluster on the map.
+     */
+    public Overlay getOverlay() {
+      if (overlay == null) {
+        overlay = (count == 1) ? firstMarker() : owner.renderer.render(this);
+      }
+      return overlay;
+    }
+
+    /**
+     * Returns the number of markers in this cluster.
+     *
+     * @return the number of markers in this cluster.
+     */
+    public int getSize() {
+      return count;
+    }
+
+    /**
+     * Returns the zoom level this cluster was computed for.
+     *
+     * @return the zoom level this cluster was computed for.
+     */
+    public int getZoomLevel() {
+      return zoomLevel;
+    }
+
+    private void add(Cluster child) {
+      if (children == null) {
+        children = new ArrayList<Cluster>(4);
+      }
+      children.add(child);
+      count += child.count;
+      sumX += child.sumX;
+      sumY += child.sumY;
+    }
+
+    private void add(Marker marker, int x, int y) {
+      if (markers == null) {
+        markers = new ArrayList<Marker>();
+      }
+      markers.add(marker);
+      ++count;
+      sumX += x;
+      sumY += y;
+    }
+
+    private void collectMarkers(List<Marker> result) {
+      if (markers != null) {
+        result.addAll(markers);
+      } else {
+        for (Cluster child : children) {
+          child.collectMarkers(result);
+        }
+      }
+    }
+
+    private Marker firstMarker() {
+      Cluster cluster = this;
+      while (cluster.markers == null) {
+        cluster = cluster.children.get(0);
+      }
+      return cluster.markers.get(0);
+    }
+
+    /**
+     * Returns the pixel coordinates of the center of this cluster at its zoom
+     * level.
+     */
+    private double pixelX() {
+      return sumX / count / owner.scale(zoomLevel);
+    }
+
+    private double pixelY() {
+      return sumY / count / owner.scale(zoomLevel);
+    }
+  }
+
+  /**
+   * Creates the overlay displayed for a cluster of two or more markers.
+   */
+  public interface ClusterRenderer {
+    /**
+     * Creates the overlay for a cluster. This method is called at most once
+     * per cluster, the first time the cluster becomes visible.
+     *
+     * @param cluster the cluster to render.
+     * @return an overlay to add to the map for this cluster.
+     */
+    Overlay render(Cluster cluster);
+  }
+
+  /**
+   * The default renderer, which shows a marker at the center of the cluster
+   * titled with the number of markers it contains.
+   */
+  public static final ClusterRenderer DEFAULT_RENDERER = new ClusterRenderer() {
+    public Overlay render(Cluster cluster) {
+      MarkerOptions options = MarkerOptions.newInstance();
+      options.setTitle(cluster.getSize() + " markers");
+      return new Marker(cluster.getCenter(), options);
+    }
+  };
+
+  /**
+   * The default size of a grid cell in pixels.
+   */
+  public static final int DEFAULT_GRID_SIZE = 60;
+
+  private final List<Cluster> attached = new ArrayList<Cluster>();
+  private double cellStride;
+  private int currentZoom = -1;
+  private boolean dirty;
+  private int generation;
+  private int gridSize = DEFAULT_GRID_SIZE;
+  private List<List<Cluster>> levels;
+  private final MapWidget map;
+  private final Map<Marker, int[]> markers = new HashMap<Marker, int[]>();
+  private final int maxZoom;
+  private final int minZoom;
+  private final MapMoveEndHandler moveEndHandler;
+  private final Projection projection;
+  private ClusterRenderer renderer = DEFAULT_RENDERER;
+  private final MapZoomEndHandler zoomEndHandler;
+
+  /**
+   * Creates a clusterer for the given map using the projection and first tile
+   * layer of the map's current map type.
+   *
+   * @param map the map to show clusters on.
+   */
+  public MarkerClusterer(MapWidget map) {
+    this(map, map.getCurrentMapType());
+  }
+
+  /**
+   * Creates a clusterer for the given map.
+   *
+   * @param map the map to show clusters on.
+   * @param projection the projection used to compute pixel coordinates.
+   * @param tileLayer the tile layer whose resolutions bound the zoom levels
+   *          for which clusters are computed.
+   */
+  public MarkerClusterer(MapWidget map, Projection projection,
+      TileLayer tileLayer) {
+    this(map, projection, tileLayer.getMinResolution(),
+        tileLayer.getMaxResolution());
+  }
+
+  private MarkerClusterer(MapWidget map, MapType type) {
+    this(map, type.getProjection(), type.getTileLayers()[0]);
+  }
+
+  private MarkerClusterer(MapWidget map, Projection projection, int minZoom,
+      int maxZoom) {
+    this.map = map;
+    this.projection = projection;
+    this.minZoom = minZoom;
+    this.maxZoom = maxZoom;
+
+    moveEndHandler = new MapMoveEndHandler() {
+      public void onMoveEnd(MapMoveEndEvent event) {
+        refresh();
+      }
+    };
+    zoomEndHandler = new MapZoomEndHandler() {
+      public void onZoomEnd(MapZoomEndEvent event) {
+        refresh();
+      }
+    };
+    map.addMapMoveEndHandler(moveEndHandler);
+    map.addMapZoomEndHandler(zoomEndHandler);
+  }
+
+  /**
+   * Adds a marker to be clustered. The clusters are recomputed on the next
+   * {@link #refresh()}.
+   *
+   * @param marker the marker to add.
+   */
+  public void addMarker(Marker marker) {
+    if (markers.containsKey(marker)) {
+      return;
+    }
+    Point pixel = projection.fromLatLngToPixel(marker.getLatLng(), maxZoom);
+    markers.put(marker, new int[] {pixel.getX(), pixel.getY()});
+    dirty = true;
+  }
+
+  /**
+   * Adds a group of markers and refreshes the map once.
+   *
+   * @param markers the markers to add.
+   */
+  public void addMarkers(Collection<Marker> markers) {
+    for (Marker marker : markers) {
+      addMarker(marker);
+    }
+    refresh();
+  }
+
+  /**
+   * Removes all markers and clusters from the map.
+   */
+  public void clearMarkers() {
+    detachAll();
+    markers.clear();
+    levels = null;
+    currentZoom = -1;
+    dirty = false;
+  }
+
+  /**
+   * Returns the clusters computed for the given zoom level. Zoom levels
+   * outside of the tile layer's resolutions are clamped.
+   *
+   * @param zoomLevel the zoom level.
+   * @return the clusters for the zoom level.
+   */
+  public List<Cluster> getClusters(int zoomLevel) {
+    ensureClusters();
+    return Collections.unmodifiableList(levels.get(clampZoom(zoomLevel)
+        - minZoom));
+  }
+
+  /**
+   * Returns the size of a grid cell in pixels.
+   *
+   * @return the size of a grid cell in pixels.
+   */
+  public int getGridSize() {
+    return gridSize;
+  }
+
+  /**
+   * Returns the number of markers being clustered.
+   *
+   * @return the number of markers being clustered.
+   */
+  public int getMarkerCount() {
+    return markers.size();
+  }
+
+  /**
+   * Returns the highest zoom level for which clusters are computed.
+   *
+   * @return the highest zoom level for which clusters are computed.
+   */
+  public int getMaxZoomLevel() {
+    return maxZoom;
+  }
+
+  /**
+   * Returns the lowest zoom level for which clusters are computed.
+   *
+   * @return the lowest zoom level for which clusters are computed.
+   */
+  public int getMinZoomLevel() {
+    return minZoom;
+  }
+
+  /**
+   * Returns the number of clusters currently attached to the map.
+   *
+   * @return the number of clusters currently attached to the map.
+   */
+  public int getVisibleClusterCount() {
+    return attached.size();
+  }
+
+  /**
+   * Shows the precomputed clusters for the current zoom level that lie near
+   * the viewport, attaching and detaching only the overlays that changed.
+   * This is called automatically when the map stops moving or finishes
+   * zooming.
+   */
+  public void refresh() {
+    boolean rebuilt = dirty;
+    ensureClusters();
+    int zoom = clampZoom(map.getZoomLevel());
+    if (rebuilt || zoom != currentZoom) {
+      detachAll();
+      currentZoom = zoom;
+    }
+
+    LatLngBounds bounds = map.getBounds();
+    Point sw = projection.fromLatLngToPixel(bounds.getSouthWest(), zoom);
+    Point ne = projection.fromLatLngToPixel(bounds.getNorthEast(), zoom);
+    double worldWidth = projection.getWrapWidth(zoom);
+    double left = sw.getX() - gridSize;
+    double right = ne.getX() + gridSize;
+    double top = ne.getY() - gridSize;
+    double bottom = sw.getY() + gridSize;
+    boolean fullWidth = bounds.isFullLongitude()
+        || right - left >= worldWidth;
+    boolean wraps = !fullWidth && sw.getX() > ne.getX();
+
+    int stamp = ++generation;
+    List<Overlay> toAdd = new ArrayList<Overlay>();
+    for (Cluster cluster : levels.get(zoom - minZoom)) {
+      double x = cluster.pixelX();
+      double y = cluster.pixelY();
+      if (y < top || y > bottom) {
+        continue;
+      }
+      if (!fullWidth) {
+        boolean inside = wraps ? (x >= left || x <= right)
+            : (x >= left && x <= right);
+        if (!inside) {
+          continue;
+        }
+      }
+      cluster.generation = stamp;
+      if (!cluster.attached) {
+        toAdd.add(cluster.getOverlay());
+        cluster.attached = true;
+        attached.add(cluster);
+      }
+    }
+
+    List<Overlay> toRemove = new ArrayList<Overlay>();
+    for (int i = attached.size() - 1; i >= 0; --i) {
+      Cluster cluster = attached.get(i);
+      if (cluster.generation != stamp) {
+        toRemove.add(cluster.getOverlay());
+        cluster.attached = false;
+        int last = attached.size() - 1;
+        attached.set(i, attached.get(last));
+        attached.remove(last);
+      }
+    }
+    map.removeOverlays(toRemove);
+    map.addOverlays(toAdd);
+  }
+
+  /**
+   * Stops tracking map events and removes all clusters from the map.
+   */
+  public void removeFromMap() {
+    map.removeMapMoveEndHandler(moveEndHandler);
+    map.removeMapZoomEndHandler(zoomEndHandler);
+    clearMarkers();
+  }
+
+  /**
+   * Removes a marker. The clusters are recomputed on the next
+   * {@link #refresh()}.
+   *
+   * @param marker the marker to remove.
+   */
+  public void removeMarker(Marker marker) {
+    if (markers.remove(marker) != null) {
+      dirty = true;
+    }
+  }
+
+  /**
+   * Sets the size of a grid cell in pixels. Markers closer than roughly this
+   * distance on screen are merged into one cluster.
+   *
+   * @param gridSize the size of a grid cell in pixels.
+   */
+  public void setGridSize(int gridSize) {
+    if (gridSize <= 0) {
+      throw new IllegalArgumentException("gridSize must be positive: "
+          + gridSize);
+    }
+    this.gridSize = gridSize;
+    dirty = true;
+  }
+
+  /**
+   * Sets the renderer used to create overlays for clusters of two or more
+   * markers. Overlays that were already created are kept.
+   *
+   * @param renderer the renderer to use.
+   */
+  public void setRenderer(ClusterRenderer renderer) {
+    this.renderer = renderer;
+  }
+
+  /**
+   * Packs cell coordinates into a single map key. A double holds the product
+   * exactly for any practical grid size and avoids GWT's emulated long
+   * arithmetic.
+   */
+  private Double cellKey(double cellX, double cellY) {
+    return cellX * cellStride + cellY;
+  }
+
+  private int clampZoom(int zoomLevel) {
+    return Math.max(minZoom, Math.min(maxZoom, zoomLevel));
+  }
+
+  /**
+   * Computes the clusters for every zoom level. The highest zoom level buckets
+   * the markers themselves; each lower level merges the cells of the level
+   * above it, since a cell at zoom <i>z</i> covers exactly four cells at zoom
+   * <i>z</i> + 1.
+   */
+  private void computeClusters() {
+    int numLevels = maxZoom - minZoom + 1;
+    List<List<Cluster>> result = new ArrayList<List<Cluster>>(numLevels);
+    for (int i = 0; i < numLevels; ++i) {
+      result.add(null);
+    }
+
+    cellStride = Math.ceil(projection.getWrapWidth(maxZoom) / gridSize) + 1;
+    Map<Double, Cluster> cells = new HashMap<Double, Cluster>();
+    for (Map.Entry<Marker, int[]> entry : markers.entrySet()) {
+      int[] pixel = entry.getValue();
+      double cellX = Math.floor(pixel[0] / (double) gridSize);
+      double cellY = Math.floor(pixel[1] / (double) gridSize);
+      Double key = cellKey(cellX, cellY);
+      Cluster cluster = cells.get(key);
+      if (cluster == null) {
+        cluster = new Cluster(this, maxZoom, cellX, cellY);
+        cells.put(key, cluster);
+      }
+      cluster.add(entry.getKey(), pixel[0], pixel[1]);
+    }
+    List<Cluster> level = new ArrayList<Cluster>(cells.values());
+    result.set(numLevels - 1, level);
+
+    for (int zoom = maxZoom - 1; zoom >= minZoom; --zoom) {
+      cells = new HashMap<Double, Cluster>();
+      for (Cluster child : level) {
+        double cellX = Math.floor(child.cellX / 2);
+        double cellY = Math.floor(child.cellY / 2);
+        Double key = cellKey(cellX, cellY);
+        Cluster parent = cells.get(key);
+        if (parent == null) {
+          parent = new Cluster(this, zoom, cellX, cellY);
+          cells.put(key, parent);
+        }
+        parent.add(child);
+      }
+      level = new ArrayList<Cluster>(cells.values());
+      result.set(zoom - minZoom, level);
+    }
+    levels = result;
+  }
+
+  private void detachAll() {
+    List<Overlay> toRemove = new ArrayList<Overlay>(attached.size());
+    for (Cluster cluster : attached) {
+      toRemove.add(cluster.getOverlay());
+      cluster.attached = false;
+    }
+    attached.clear();
+    map.removeOverlays(toRemove);
+  }
+
+  private void ensureClusters() {
+    if (levels == null || dirty) {
+      computeClusters();
+      dirty = false;
+    }
+  }
+
+  /**
+   * Returns the factor by which pixel coordinates at the highest zoom level
+   * exceed those at the given zoom level.
+   */
+  private double scale(int zoomLevel) {
+    return Math.pow(2, maxZoom - zoomLevel);
+  }
+}
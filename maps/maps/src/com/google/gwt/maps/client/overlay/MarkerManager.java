@@ -0,0 +1,405 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.overlay;
+
+import com.google.gwt.maps.client.MapWidget;
+import com.google.gwt.maps.client.event.MapMoveEndHandler;
+import com.google.gwt.maps.client.event.MapZoomEndHandler;
+import com.google.gwt.maps.client.geom.LatLng;
+import com.google.gwt.maps.client.geom.LatLngBounds;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manages a large number of {@link Marker} objects on a single
+ * {@link MapWidget}, keeping only the markers that fall inside the current
+ * viewport attached to the map.
+ *
+ * Markers are kept in a spatial grid index keyed by their {@link LatLng}. When
+ * the map stops moving or finishes a zoom, the manager computes the set of
+ * markers inside {@link MapWidget#getBounds()} (expanded by a configurable
+ * margin) and adds or removes only the markers whose visibility changed.
+ *
+ * The position of a marker is read once when it is added to the manager. If a
+ * managed marker is moved, remove it from the manager and add it again.
+ */
+public class MarkerManager {
+
+  /**
+   * A managed marker and its cached position.
+   */
+  private static class Entry {
+    final Marker marker;
+    final double lat;
+    final double lng;
+    final int cellKey;
+    boolean attached;
+    int generation;
+
+    Entry(Marker marker, double lat, double lng, int cellKey) {
+      this.marker = marker;
+      this.lat = lat;
+      this.lng = lng;
+      this.cellKey = cellKey;
+    }
+  }
+
+  /**
+   * The default size of a grid cell in degrees.
+   */
+  public static final double DEFAULT_CELL_SIZE = 1.0;
+
+  /**
+   * The default margin around the viewport, as a fraction of the viewport
+   * span.
+   */
+  public static final double DEFAULT_MARGIN = 0.25;
+
+  private final List<Entry> attached = new ArrayList<Entry>();
+  private final double cellSize;
+  private final Map<Marker, Entry> entries = new HashMap<Marker, Entry>();
+  private int generation;
+  private final Map<Integer, List<Entry>> grid =
+      new HashMap<Integer, List<Entry>>();
+  private final MapWidget map;
+  private double margin = DEFAULT_MARGIN;
+  private final MapMoveEndHandler moveEndHandler;
+  private final int numCols;
+  private final int numRows;
+  private final MapZoomEndHandler zoomEndHandler;
+
+  /**
+   * Creates a manager for the given map using the default grid cell size.
+   *
+   * @param map the map to which visible markers will be added.
+   */
+  public MarkerManager(MapWidget map) {
+    this(map, DEFAULT_CELL_SIZE);
+  }
+
+  /**
+   * Creates a manager for the given map.
+   *
+   * @param map the map to which visible markers will be added.
+   * @param cellSize the size of a spatial index cell in degrees. Smaller cells
+   *          make viewport queries at high zoom levels cheaper at the cost of
+   *          more cells to visit when zoomed out.
+   */
+  public MarkerManager(MapWidget map, double cellSize) {
+    if (cellSize <= 0 || cellSize > 180) {
+      throw new IllegalArgumentException("cellSize must be in (0, 180]: "
+          + cellSize);
+    }
+    this.map = map;
+    this.cellSize = cellSize;
+    numRows = (int) Math.ceil(180 / cellSize);
+    numCols = (int) Math.ceil(360 / cellSize);
+
+    moveEndHandler = new MapMoveEndHandler() {
+      public void onMoveEnd(MapMoveEndEvent event) {
+        refresh();
+      }
+    };
+    zoomEndHandler = new MapZoomEndHandler() {
+      public void onZoomEnd(MapZoomEndEvent event) {
+        refresh();
+      }
+    };
+    map.addMapMoveEndHandler(moveEndHandler);
+    map.addMapZoomEndHandler(zoomEndHandler);
+  }
+
+  /**
+   * Adds a marker to the manager. The marker is attached to the map only if
+   * it lies inside the viewport at the time of the next {@link #refresh()}.
+   *
+   * @param marker the marker to manage.
+   */
+  public void addMarker(Marker marker) {
+    if (entries.containsKey(marker)) {
+      return;
+    }
+    LatLng point = marker.getLatLng();
+    double lat = point.getLatitude();
+    double lng = point.getLongitude();
+    Entry entry = new Entry(marker, lat, lng, cellKey(row(lat), col(lng)));
+    entries.put(marker, entry);
+
+    List<Entry> cell = grid.get(entry.cellKey);
+    if (cell == null) {
+      cell = new ArrayList<Entry>();
+      grid.put(entry.cellKey, cell);
+    }
+    cell.add(entry);
+  }
+
+  /**
+   * Adds a group of markers to the manager and refreshes the map once.
+   *
+   * @param markers the markers to manage.
+   */
+  public void addMarkers(Collection<Marker> markers) {
+    for (Marker marker : markers) {
+      addMarker(marker);
+    }
+    refresh();
+  }
+
+  /**
+   * Removes all managed markers, detaching any that are currently on the map.
+   */
+  public void clearMarkers() {
+    List<Marker> toRemove = new ArrayList<Marker>(attached.size());
+    for (Entry entry : attached) {
+      toRemove.add(entry.marker);
+      entry.attached = false;
+    }
+    attached.clear();
+    map.removeOverlays(toRemove);
+    entries.clear();
+    grid.clear();
+  }
+
+  /**
+   * Returns the size of a grid cell in degrees.
+   *
+   * @return the size of a grid cell in degrees.
+   */
+  public double getCellSize() {
+    return cellSize;
+  }
+
+  /**
+   * Returns the map this manager adds markers to.
+   *
+   * @return the map this manager adds markers to.
+   */
+  public MapWidget getMap() {
+    return map;
+  }
+
+  /**
+   * Returns the margin added around the viewport, as a fraction of the
+   * viewport span.
+   *
+   * @return the margin added around the viewport.
+   */
+  public double getMargin() {
+    return margin;
+  }
+
+  /**
+   * Returns the number of markers held by the manager.
+   *
+   * @return the number of markers held by the manager.
+   */
+  public int getMarkerCount() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of managed markers currently attached to the map.
+   *
+   * @return the number of managed markers currently attached to the map.
+   */
+  public int getVisibleMarkerCount() {
+    return attached.size();
+  }
+
+  /**
+   * Returns <code>true</code> if the marker is managed and currently attached
+   * to the map.
+   *
+   * @param marker the marker to test.
+   * @return <code>true</code> if the marker is currently attached to the map.
+   */
+  public boolean isVisible(Marker marker) {
+    Entry entry = entries.get(marker);
+    return entry != null && entry.attached;
+  }
+
+  /**
+   * Recomputes the set of markers inside the viewport and attaches or detaches
+   * only the markers whose visibility changed, using one
+   * {@link MapWidget#addOverlays(Collection)} and one
+   * {@link MapWidget#removeOverlays(Collection)} call. This is called
+   * automatically when the map stops moving or finishes zooming.
+   */
+  public void refresh() {
+    LatLngBounds bounds = map.getBounds();
+    LatLng sw = bounds.getSouthWest();
+    LatLng ne = bounds.getNorthEast();
+    double south = sw.getLatitude();
+    double north = ne.getLatitude();
+    double west = sw.getLongitude();
+    double east = ne.getLongitude();
+
+    double latMargin = (north - south) * margin;
+    south = Math.max(-90, south - latMargin);
+    north = Math.min(90, north + latMargin);
+
+    double lngSpan = east - west;
+    if (lngSpan < 0) {
+      lngSpan += 360;
+    }
+    boolean fullLongitude = bounds.isFullLongitude()
+        || lngSpan * (1 + 2 * margin) >= 360;
+    if (!fullLongitude) {
+      double lngMargin = lngSpan * margin;
+      west = wrapLongitude(west - lngMargin);
+      east = wrapLongitude(east + lngMargin);
+    }
+
+    int stamp = ++generation;
+    List<Marker> toAdd = new ArrayList<Marker>();
+    int firstRow = row(south);
+    int lastRow = row(north);
+    if (fullLongitude) {
+      markCells(firstRow, lastRow, 0, numCols - 1, south, north, -180, 180,
+          stamp, toAdd);
+    } else if (west <= east) {
+      markCells(firstRow, lastRow, col(west), col(east), south, north, west,
+          east, stamp, toAdd);
+    } else {
+      // The visible region crosses the 180 degree meridian.
+      markCells(firstRow, lastRow, col(west), numCols - 1, south, north, west,
+          180, stamp, toAdd);
+      markCells(firstRow, lastRow, 0, col(east), south, north, -180, east,
+          stamp, toAdd);
+    }
+
+    // Detach markers that left the viewport.
+    List<Marker> toRemove = new ArrayList<Marker>();
+    for (int i = attached.size() - 1; i >= 0; --i) {
+      Entry entry = attached.get(i);
+      if (entry.generation != stamp) {
+        toRemove.add(entry.marker);
+        entry.attached = false;
+        int last = attached.size() - 1;
+        attached.set(i, attached.get(last));
+        attached.remove(last);
+      }
+    }
+    map.removeOverlays(toRemove);
+    map.addOverlays(toAdd);
+  }
+
+  /**
+   * Stops tracking map events and detaches all managed markers from the map.
+   */
+  public void removeFromMap() {
+    map.removeMapMoveEndHandler(moveEndHandler);
+    map.removeMapZoomEndHandler(zoomEndHandler);
+    clearMarkers();
+  }
+
+  /**
+   * Removes a marker from the manager, detaching it from the map if necessary.
+   *
+   * @param marker the marker to remove.
+   */
+  public void removeMarker(Marker marker) {
+    Entry entry = entries.remove(marker);
+    if (entry == null) {
+      return;
+    }
+    List<Entry> cell = grid.get(entry.cellKey);
+    cell.remove(entry);
+    if (cell.isEmpty()) {
+      grid.remove(entry.cellKey);
+    }
+    if (entry.attached) {
+      map.removeOverlay(marker);
+      entry.attached = false;
+      attached.remove(entry);
+    }
+  }
+
+  /**
+   * Sets the margin added on every side of the viewport before testing which
+   * markers are visible. Markers in the margin are attached ahead of time so
+   * that short pans do not reveal missing markers.
+   *
+   * @param margin the margin as a fraction of the viewport span, e.g. 0.25 to
+   *          extend the viewport by a quarter of its width and height on each
+   *          side.
+   */
+  public void setMargin(double margin) {
+    if (margin < 0) {
+      throw new IllegalArgumentException("margin must be non-negative: "
+          + margin);
+    }
+    this.margin = margin;
+  }
+
+  private int cellKey(int row, int col) {
+    return row * numCols + col;
+  }
+
+  private int col(double lng) {
+    int col = (int) Math.floor((lng + 180) / cellSize);
+    return Math.max(0, Math.min(numCols - 1, col));
+  }
+
+  /**
+   * Stamps every entry in the given cell range that lies inside the given
+   * rectangle, collecting the ones that are not yet on the map into
+   * <code>toAdd</code>.
+   */
+  private void markCells(int firstRow, int lastRow, int firstCol, int lastCol,
+      double south, double north, double west, double east, int stamp,
+      List<Marker> toAdd) {
+    for (int row = firstRow; row <= lastRow; ++row) {
+      for (int col = firstCol; col <= lastCol; ++col) {
+        List<Entry> cell = grid.get(cellKey(row, col));
+        if (cell == null) {
+          continue;
+        }
+        for (int i = 0, n = cell.size(); i < n; ++i) {
+          Entry entry = cell.get(i);
+          if (entry.lat < south || entry.lat > north || entry.lng < west
+              || entry.lng > east) {
+            continue;
+          }
+          entry.generation = stamp;
+          if (!entry.attached) {
+            toAdd.add(entry.marker);
+            entry.attached = true;
+            attached.add(entry);
+          }
+        }
+      }
+    }
+  }
+
+  private int row(double lat) {
+    int row = (int) Math.floor((lat + 90) / cellSize);
+    return Math.max(0, Math.min(numRows - 1, row));
+  }
+
+  private double wrapLongitude(double lng) {
+    if (lng < -180) {
+      return lng + 360;
+    } else if (lng > 180) {
+      return lng - 360;
+    }
+    return lng;
+  }
+}
@@ -67,11 +67,21 @@ public abstract class Overlay {
    * Used to create a new Overlay by wrapping an existing GOverlay object. This
    * method is invoked by the jsio library.
    * 
+   * Every Overlay binds itself to its GOverlay object when it is constructed.
+   * If <code>jsoPeer</code> is already bound, the existing Java object is
+   * returned without probing the type of the GOverlay, so that event handlers
+   * receive the same instance that was added to the map.
+   * 
    * @param jsoPeer GOverlay object to wrap.
-   * @return a new instance of Overlay.
+   * @return the Overlay bound to <code>jsoPeer</code>, or a new instance of
+   *         Overlay if there is none.
    */
   public static Overlay createPeer(JavaScriptObject jsoPeer) {
-    
+    Overlay peer = nativeGetPeer(jsoPeer);
+    if (peer != null) {
+      return peer;
+    }
+
     if (nativeIsMarker(jsoPeer)) {
       return new Marker(jsoPeer);
     } else if (nativeIsStreetviewOverlay(jsoPeer)) {
@@ -133,6 +143,11 @@ public abstract class Overlay {
     return $wnd.GOverlay.getZIndex(latitude);
   }-*/;
 
+  @SuppressWarnings("unused")
+  private static boolean isOverlay(Object peer) {
+    return peer instanceof Overlay;
+  }
+
   /**
    * Workaround for instanceof test failing in JavaScript for some overlay
    * types. JS Maps API bug: internal ref 1431785
@@ -165,6 +180,19 @@ public abstract class Overlay {
     return tmp instanceof $wnd.GGeoXml;
   }-*/;
 
+  /**
+   * Returns the Overlay bound to the GOverlay object, or <code>null</code> if
+   * it has not been wrapped yet. Objects such as the InfoWindow are bound to
+   * peers that are not Overlays and are left to the type tests.
+   */
+  private static native Overlay nativeGetPeer(JavaScriptObject jsoPeer) /*-{
+    var peer = jsoPeer.__gwtPeer;
+    if (peer && @com.google.gwt.maps.client.overlay.Overlay::isOverlay(Ljava/lang/Object;)(peer)) {
+      return peer;
+    }
+    return null;
+  }-*/;
+
   private static native boolean nativeIsGeoXml(JavaScriptObject jsoPeer) /*-{
     return (jsoPeer instanceof $wnd.GGeoXml);
   }-*/;
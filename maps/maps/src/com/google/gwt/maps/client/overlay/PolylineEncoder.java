@@ -0,0 +1,295 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.overlay;
+
+import com.google.gwt.maps.client.geom.LatLng;
+
+/**
+ * Produces {@link EncodedPolyline} objects from raw coordinates.
+ *
+ * The encoder simplifies the line with the Douglas-Peucker algorithm, dropping
+ * vertices that deviate from the line by less than a threshold, and assigns
+ * each remaining vertex the zoom level at which it becomes significant. The
+ * points and levels strings are then written in a single pass over the
+ * coordinates. Apart from a few arrays sized to the input, no objects are
+ * allocated per vertex. See <a href="http://code.google.com/apis/maps/documentation/overlays.html#Polylines_Overview"
+ * >Encoded Polylines Documentation</a> for details of the format.
+ */
+public class PolylineEncoder {
+
+  /**
+   * The default number of zoom levels encoded in the levels string.
+   */
+  public static final int DEFAULT_NUM_LEVELS = 18;
+
+  /**
+   * The default magnification between adjacent zoom level groups.
+   */
+  public static final int DEFAULT_ZOOM_FACTOR = 2;
+
+  /**
+   * The default distance in degrees below which a vertex is dropped.
+   */
+  public static final double DEFAULT_VERY_SMALL = 0.00001;
+
+  /**
+   * Appends an unsigned value in the polyline encoding format.
+   */
+  private static void encodeNumber(StringBuilder out, int num) {
+    while (num >= 0x20) {
+      out.append((char) ((0x20 | (num & 0x1f)) + 63));
+      num >>= 5;
+    }
+    out.append((char) (num + 63));
+  }
+
+  /**
+   * Appends a signed value in the polyline encoding format.
+   */
+  private static void encodeSignedNumber(StringBuilder out, int num) {
+    int sgnNum = num << 1;
+    if (num < 0) {
+      sgnNum = ~sgnNum;
+    }
+    encodeNumber(out, sgnNum);
+  }
+
+  /**
+   * Returns the distance in degrees from point <code>i</code> to the segment
+   * between points <code>a</code> and <code>b</code>.
+   */
+  private static double segmentDistance(double[] lats, double[] lngs, int i,
+      int a, int b) {
+    double dLat = lats[b] - lats[a];
+    double dLng = lngs[b] - lngs[a];
+    double lat;
+    double lng;
+    double lengthSquared = dLat * dLat + dLng * dLng;
+    if (lengthSquared == 0) {
+      lat = lats[a];
+      lng = lngs[a];
+    } else {
+      double u = ((lats[i] - lats[a]) * dLat + (lngs[i] - lngs[a]) * dLng)
+          / lengthSquared;
+      if (u <= 0) {
+        lat = lats[a];
+        lng = lngs[a];
+      } else if (u >= 1) {
+        lat = lats[b];
+        lng = lngs[b];
+      } else {
+        lat = lats[a] + u * dLat;
+        lng = lngs[a] + u * dLng;
+      }
+    }
+    double x = lats[i] - lat;
+    double y = lngs[i] - lng;
+    return Math.sqrt(x * x + y * y);
+  }
+
+  /**
+   * Rounds a coordinate to the 1e-5 degree grid used by the encoding. An int
+   * holds every such value and avoids GWT's emulated long arithmetic.
+   */
+  private static int toE5(double degrees) {
+    return (int) Math.floor(degrees * 1e5 + 0.5);
+  }
+
+  private final int numLevels;
+  private final double verySmall;
+  private final int zoomFactor;
+  private final double[] zoomLevelBreaks;
+
+  /**
+   * Creates an encoder using the default number of levels, zoom factor and
+   * simplification threshold.
+   */
+  public PolylineEncoder() {
+    this(DEFAULT_NUM_LEVELS, DEFAULT_ZOOM_FACTOR, DEFAULT_VERY_SMALL);
+  }
+
+  /**
+   * Creates an encoder.
+   *
+   * @param numLevels the number of zoom levels to encode.
+   * @param zoomFactor the magnification between adjacent zoom level groups.
+   * @param verySmall the distance in degrees below which a vertex is dropped.
+   *          Larger values produce shorter strings with less detail.
+   */
+  public PolylineEncoder(int numLevels, int zoomFactor, double verySmall) {
+    if (numLevels < 1) {
+      throw new IllegalArgumentException("numLevels must be positive: "
+          + numLevels);
+    }
+    if (zoomFactor < 2) {
+      throw new IllegalArgumentException("zoomFactor must be at least 2: "
+          + zoomFactor);
+    }
+    this.numLevels = numLevels;
+    this.zoomFactor = zoomFactor;
+    this.verySmall = verySmall;
+    zoomLevelBreaks = new double[numLevels];
+    for (int i = 0; i < numLevels; ++i) {
+      zoomLevelBreaks[i] = verySmall * Math.pow(zoomFactor, numLevels - i - 1);
+    }
+  }
+
+  /**
+   * Encodes a line given as parallel arrays of latitudes and longitudes.
+   *
+   * @param lats the latitudes of the vertices in degrees
+   * @param lngs the longitudes of the vertices in degrees
+   * @return a new encoded polyline.
+   */
+  public EncodedPolyline encode(double[] lats, double[] lngs) {
+    StringBuilder points = new StringBuilder();
+    StringBuilder levels = new StringBuilder();
+    encode(lats, lngs, points, levels);
+    return EncodedPolyline.newInstance(points.toString(), zoomFactor,
+        levels.toString(), numLevels);
+  }
+
+  /**
+   * Encodes a line given as parallel arrays of latitudes and longitudes,
+   * appending the encoded points and levels to the given buffers. This method
+   * does not require the Maps API to be loaded.
+   *
+   * @param lats the latitudes of the vertices in degrees
+   * @param lngs the longitudes of the vertices in degrees
+   * @param points receives the encoded points string
+   * @param levels receives the encoded levels string
+   */
+  public void encode(double[] lats, double[] lngs, StringBuilder points,
+      StringBuilder levels) {
+    if (lats.length != lngs.length) {
+      throw new IllegalArgumentException("lats and lngs differ in length");
+    }
+    int n = lats.length;
+    if (n == 0) {
+      return;
+    }
+    double[] dists = simplify(lats, lngs);
+
+    int prevLat = 0;
+    int prevLng = 0;
+    for (int i = 0; i < n; ++i) {
+      boolean endpoint = (i == 0 || i == n - 1);
+      if (!endpoint && dists[i] <= verySmall) {
+        continue;
+      }
+      int lat = toE5(lats[i]);
+      int lng = toE5(lngs[i]);
+      encodeSignedNumber(points, lat - prevLat);
+      encodeSignedNumber(points, lng - prevLng);
+      prevLat = lat;
+      prevLng = lng;
+      encodeNumber(levels, endpoint ? numLevels - 1 : numLevels
+          - computeLevel(dists[i]) - 1);
+    }
+  }
+
+  /**
+   * Encodes a line given as an array of points.
+   *
+   * @param points the vertices of the line
+   * @return a new encoded polyline.
+   */
+  public EncodedPolyline encode(LatLng[] points) {
+    double[] lats = new double[points.length];
+    double[] lngs = new double[points.length];
+    for (int i = 0; i < points.length; ++i) {
+      lats[i] = points[i].getLatitude();
+      lngs[i] = points[i].getLongitude();
+    }
+    return encode(lats, lngs);
+  }
+
+  /**
+   * Returns the number of zoom levels encoded in the levels string.
+   *
+   * @return the number of zoom levels.
+   */
+  public int getNumLevels() {
+    return numLevels;
+  }
+
+  /**
+   * Returns the distance in degrees below which a vertex is dropped.
+   *
+   * @return the simplification threshold.
+   */
+  public double getVerySmall() {
+    return verySmall;
+  }
+
+  /**
+   * Returns the magnification between adjacent zoom level groups.
+   *
+   * @return the zoom factor.
+   */
+  public int getZoomFactor() {
+    return zoomFactor;
+  }
+
+  private int computeLevel(double dist) {
+    int level = 0;
+    if (dist > verySmall) {
+      while (level < numLevels - 1 && dist < zoomLevelBreaks[level]) {
+        ++level;
+      }
+    }
+    return level;
+  }
+
+  /**
+   * Runs Douglas-Peucker over the line and returns, for each vertex, the
+   * distance at which it was selected, or 0 if it was never selected. An
+   * explicit stack of index pairs replaces recursion so that long lines do
+   * not exhaust the call stack.
+   */
+  private double[] simplify(double[] lats, double[] lngs) {
+    int n = lats.length;
+    double[] dists = new double[n];
+    if (n < 3) {
+      return dists;
+    }
+    int[] stack = new int[2 * n];
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = n - 1;
+    while (top > 0) {
+      int last = stack[--top];
+      int first = stack[--top];
+      double maxDist = 0;
+      int maxIndex = -1;
+      for (int i = first + 1; i < last; ++i) {
+        double d = segmentDistance(lats, lngs, i, first, last);
+        if (d > maxDist) {
+          maxDist = d;
+          maxIndex = i;
+        }
+      }
+      if (maxDist > verySmall) {
+        dists[maxIndex] = maxDist;
+        stack[top++] = first;
+        stack[top++] = maxIndex;
+        stack[top++] = maxIndex;
+        stack[top++] = last;
+      }
+    }
+    return dists;
+  }
+}
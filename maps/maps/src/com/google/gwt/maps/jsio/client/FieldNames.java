@@ -0,0 +1,41 @@
+/*
+ * Copyright 2010 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.jsio.client;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a bulk getter, which reads several properties of the backing object
+ * in a single call. The method must return a
+ * {@link com.google.gwt.core.client.JsArrayBoolean},
+ * {@link com.google.gwt.core.client.JsArrayInteger},
+ * {@link com.google.gwt.core.client.JsArrayNumber} or
+ * {@link com.google.gwt.core.client.JsArrayString}, whose elements are the
+ * values of the named properties, in order. The values are read as the
+ * matching primitive type, so they are never boxed.
+ * 
+ * <pre>
+ * &#064;FieldNames({"x", "y", "width", "height"})
+ * JsArrayNumber getBounds();
+ * </pre>
+ */
+@Documented
+@Target(ElementType.METHOD)
+public @interface FieldNames {
+  String[] value();
+}
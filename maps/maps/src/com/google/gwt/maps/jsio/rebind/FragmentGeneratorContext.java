@@ -28,6 +28,12 @@ import java.util.Set;
  * Defines context for the fragment generation code.
  */
 class FragmentGeneratorContext {
+  /**
+   * Indicates that the wrappers and peers created for a JSO should be cached on
+   * the JSO, so that reading the same object again reuses them.
+   */
+  boolean cachePeers;
+
   /**
    * Implementations of FragmentGenerator can add wrapper JClassType objects to
    * this Set to indicate that they require a creator method for the given type.
@@ -121,6 +127,7 @@ class FragmentGeneratorContext {
     qualifiedTypeName = copyFrom.qualifiedTypeName;
     creatorFixups = copyFrom.creatorFixups;
     readOnly = copyFrom.readOnly;
+    cachePeers = copyFrom.cachePeers;
     maintainIdentity = copyFrom.maintainIdentity;
     tasks = copyFrom.tasks;
   }
@@ -236,6 +236,16 @@ public class JSFlyweightWrapperGenerator extends JSWrapperGenerator {
       final FragmentGeneratorContext context) throws UnableToCompleteException {
   }
 
+  @Override
+  protected void writeBulkGetter(FragmentGeneratorContext context,
+      JMethod bulkGetter) throws UnableToCompleteException {
+
+    context = new FragmentGeneratorContext(context);
+    setObjRef(context, bulkGetter);
+
+    super.writeBulkGetter(context, bulkGetter);
+  }
+
   @Override
   protected void writeConstructor(FragmentGeneratorContext context,
       JMethod constructor) throws UnableToCompleteException {
@@ -72,6 +72,9 @@ class JSWrapperFragmentGenerator extends FragmentGenerator {
     SourceWriter sw = context.sw;
 
     // arg == null ? null : (arg.__gwtPeer || <new object>.setJSO(arg));
+    // or, when caching peers:
+    // arg == null ? null : (arg.__gwtPeer || arg.<cache> ||
+    // (arg.<cache> = <new object>.setJSO(arg)));
 
     sw.print(context.parameterName);
     sw.print(" == null ? null : ");
@@ -80,7 +83,24 @@ class JSWrapperFragmentGenerator extends FragmentGenerator {
     sw.print(".");
     sw.print(JSWrapperGenerator.BACKREF);
     sw.print(" || ");
-    writeJSNIObjectCreator(context);
+    if (context.cachePeers) {
+      // The cache is keyed by type, because the same JSO may be read as
+      // several wrapper types
+      String cacheField = JSWrapperGenerator.getPeerCacheField(
+          context.returnType.isClassOrInterface());
+      sw.print(context.parameterName);
+      sw.print(".");
+      sw.print(cacheField);
+      sw.print(" || (");
+      sw.print(context.parameterName);
+      sw.print(".");
+      sw.print(cacheField);
+      sw.print(" = ");
+      writeJSNIObjectCreator(context);
+      sw.print(")");
+    } else {
+      writeJSNIObjectCreator(context);
+    }
     sw.print(")");
   }
 
@@ -17,8 +17,14 @@ package com.google.gwt.maps.jsio.rebind;
 
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayBoolean;
+import com.google.gwt.core.client.JsArrayInteger;
+import com.google.gwt.core.client.JsArrayNumber;
+import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.core.ext.BadPropertyValueException;
 import com.google.gwt.core.ext.Generator;
 import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.PropertyOracle;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.HasAnnotations;
@@ -31,6 +37,7 @@ import com.google.gwt.core.ext.typeinfo.JPrimitiveType;
 import com.google.gwt.core.ext.typeinfo.JType;
 import com.google.gwt.core.ext.typeinfo.TypeOracle;
 import com.google.gwt.maps.jsio.client.Constructor;
+import com.google.gwt.maps.jsio.client.FieldNames;
 import com.google.gwt.maps.jsio.client.Global;
 import com.google.gwt.maps.jsio.client.JSWrapper;
 import com.google.gwt.maps.jsio.client.NoIdentity;
@@ -46,6 +53,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -75,6 +83,36 @@ public class JSWrapperGenerator extends Generator {
    */
   protected static final String OBJ = "jsoPeer";
 
+  /**
+   * The prefix of the fields within the backing object that cache the wrapper
+   * or peer created for it, when peers are cached. The qualified name of the
+   * wrapper type follows, so each type has its own cache.
+   */
+  protected static final String PEER_CACHE = "__gwtPeerCache__";
+
+  /**
+   * Caches the wrappers and peers created when reading a JSO on the JSO, so
+   * that types without a {@value #BACKREF} field, such as
+   * {@link NoIdentity} wrappers and peers built by a <code>createPeer</code>
+   * method, are not created again each time the same object is read. Modules
+   * may also turn caching on with the {@value #CACHE_PEERS_PROPERTY}
+   * configuration property.
+   */
+  private static final boolean CACHE_PEERS =
+      Boolean.getBoolean("JSWrapper.cachePeers");
+
+  /**
+   * The configuration property that turns on caching for a module.
+   */
+  private static final String CACHE_PEERS_PROPERTY = "jsio.cachePeers";
+
+  /**
+   * Logs the number of methods and creators generated for each wrapper at the
+   * INFO level instead of DEBUG.
+   */
+  private static final boolean LOG_STATISTICS =
+      Boolean.getBoolean("JSWrapper.logStatistics");
+
   /**
    * Allows the metadata warning to be turned off to prevent log spam.
    */
@@ -214,6 +252,39 @@ public class JSWrapperGenerator extends Generator {
     return annotation.cast(proxy);
   }
 
+  /**
+   * Returns the type of the values read by a bulk getter that returns
+   * <code>type</code>, or <code>null</code> if a bulk getter cannot return
+   * <code>type</code>.
+   */
+  static JType getBulkElementType(TypeOracle typeOracle, JType type) {
+    JClassType asClass = type.isClass();
+    if (asClass == null) {
+      return null;
+    }
+
+    String name = asClass.getQualifiedSourceName();
+    if (name.equals(JsArrayBoolean.class.getName())) {
+      return JPrimitiveType.BOOLEAN;
+    } else if (name.equals(JsArrayInteger.class.getName())) {
+      return JPrimitiveType.INT;
+    } else if (name.equals(JsArrayNumber.class.getName())) {
+      return JPrimitiveType.DOUBLE;
+    } else if (name.equals(JsArrayString.class.getName())) {
+      return typeOracle.findType(String.class.getName());
+    }
+    return null;
+  }
+
+  /**
+   * Returns the field of a backing object that caches the wrapper or peer of
+   * type <code>type</code> created for it, when peers are cached.
+   */
+  static String getPeerCacheField(JClassType type) {
+    return PEER_CACHE
+        + type.getErasedType().getQualifiedSourceName().replaceAll("\\.", "_");
+  }
+
   /**
    * Get the erased type of the parameterization of the JSWrapper. Returns
    * <code>null</code> if JSWrapper is not in the class's inhertence
@@ -253,6 +324,22 @@ public class JSWrapperGenerator extends Generator {
     return null;
   }
 
+  /**
+   * Returns <code>true</code> if the module sets the
+   * {@value #CACHE_PEERS_PROPERTY} configuration property to
+   * <code>true</code>.
+   */
+  private static boolean isCachingPeers(PropertyOracle propertyOracle) {
+    try {
+      List<String> values = propertyOracle.getConfigurationProperty(
+          CACHE_PEERS_PROPERTY).getValues();
+      return !values.isEmpty() && Boolean.valueOf(values.get(0));
+    } catch (BadPropertyValueException e) {
+      // The module does not inherit the property
+      return false;
+    }
+  }
+
   /**
    * Entry point into the Generator.
    */
@@ -329,6 +416,8 @@ public class JSWrapperGenerator extends Generator {
       fragmentContext.maintainIdentity = !(fragmentContext.readOnly || hasTag(
           logger, sourceType, NoIdentity.class) != null);
       fragmentContext.tasks = propertyAccessors.values();
+      fragmentContext.cachePeers = CACHE_PEERS
+          || isCachingPeers(context.getPropertyOracle());
 
       // Perform sanity checks on the extracted information
       validateType(propertyAccessors, fragmentContext);
@@ -344,6 +433,8 @@ public class JSWrapperGenerator extends Generator {
 
       writeMethods(fragmentContext, propertyAccessors);
       writeFixups(logger, typeOracle, sw, fragmentContext.creatorFixups);
+      logStatistics(logger, generatedSimpleSourceName, propertyAccessors,
+          fragmentContext);
 
       // Write the generated code to disk
       sw.commit(logger);
@@ -508,17 +599,39 @@ public class JSWrapperGenerator extends Generator {
         + " setJavaScriptObjectNative(JavaScriptObject obj) /*-{");
     sw.indent();
 
-    if (context.maintainIdentity) {
-      // Delete the backing object's reference to the current wrapper
+    if (context.maintainIdentity || context.cachePeers) {
+      // Delete the backing object's references to the current wrapper, so that
+      // reading it again does not return a wrapper of another object
       sw.print("if (");
       sw.print(context.objRef);
       sw.println(") {");
       sw.indent();
-      sw.print("delete ");
-      sw.print(context.objRef);
-      sw.print(".");
-      sw.print(BACKREF);
-      sw.println(";");
+      if (context.maintainIdentity) {
+        sw.print("delete ");
+        sw.print(context.objRef);
+        sw.print(".");
+        sw.print(BACKREF);
+        sw.println(";");
+      }
+      if (context.cachePeers) {
+        // Only delete the cache if it holds this wrapper, and not one created
+        // for the object by fromJS
+        String cacheField =
+            getPeerCacheField(context.returnType.isClassOrInterface());
+        sw.print("if (");
+        sw.print(context.objRef);
+        sw.print(".");
+        sw.print(cacheField);
+        sw.println(" === this) {");
+        sw.indent();
+        sw.print("delete ");
+        sw.print(context.objRef);
+        sw.print(".");
+        sw.print(cacheField);
+        sw.println(";");
+        sw.outdent();
+        sw.println("}");
+      }
       sw.outdent();
       sw.println("}");
     }
@@ -617,6 +730,80 @@ public class JSWrapperGenerator extends Generator {
     sw.println("};");
   }
 
+  /**
+   * Writes a method reading several fields of the backing object into a
+   * JavaScript array. The backing object is looked up once, and the values are
+   * read as primitives, without boxing.
+   */
+  protected void writeBulkGetter(FragmentGeneratorContext context,
+      JMethod bulkGetter) throws UnableToCompleteException {
+
+    TreeLogger logger = context.parentLogger.branch(TreeLogger.DEBUG,
+        "Writing bulk getter " + bulkGetter.getName(), null);
+    TypeOracle typeOracle = context.typeOracle;
+    SourceWriter sw = context.sw;
+
+    final JType returnType = bulkGetter.getReturnType();
+    final JType elementType = getBulkElementType(typeOracle, returnType);
+
+    FragmentGenerator fragmentGenerator = FRAGMENT_ORACLE.findFragmentGenerator(
+        logger, typeOracle, elementType);
+    String defaultValue = fragmentGenerator.defaultValue(typeOracle,
+        elementType);
+
+    sw.print("public native ");
+    sw.print(returnType.getQualifiedSourceName());
+    sw.print(" ");
+    sw.print(bulkGetter.getName());
+    sw.print("(");
+
+    // This is only important when working with the flyweight subclass
+    JParameter[] params = bulkGetter.getParameters();
+    for (int i = 0; i < params.length; i++) {
+      sw.print(params[i].getType().getQualifiedSourceName());
+      sw.print(" ");
+      sw.print(params[i].getName());
+
+      if (i < params.length - 1) {
+        sw.print(", ");
+      }
+    }
+    sw.print(")");
+    sw.println(" /*-{");
+    sw.indent();
+
+    sw.print("var __obj = ");
+    sw.print(context.objRef);
+    sw.println(";");
+
+    sw.print("return [");
+    String[] fieldNames = hasTag(logger, bulkGetter, FieldNames.class).value();
+    for (int i = 0; i < fieldNames.length; i++) {
+      String field = "__obj." + fieldNames[i];
+
+      FragmentGeneratorContext subContext = new FragmentGeneratorContext(
+          context);
+      subContext.returnType = elementType;
+      if (elementType.isPrimitive() != null) {
+        // The fields are not covered by the empty field initializers, so a
+        // missing value is replaced here by the same default.
+        subContext.parameterName = "(" + field + " == null ? " + defaultValue
+            + " : " + field + ")";
+      } else {
+        subContext.parameterName = field;
+      }
+      fragmentGenerator.fromJS(subContext);
+
+      if (i < fieldNames.length - 1) {
+        sw.print(", ");
+      }
+    }
+    sw.println("];");
+
+    sw.outdent();
+    sw.println("}-*/;");
+  }
+
   protected void writeConstructor(FragmentGeneratorContext context,
       JMethod constructor) throws UnableToCompleteException {
 
@@ -1069,5 +1256,40 @@ public class JSWrapperGenerator extends Generator {
       context.objRef = "this";
       writeConstructor(context, task.constructor);
     }
+
+    if (task.bulkGetter != null) {
+      context.returnType = task.bulkGetter.getReturnType();
+      writeBulkGetter(context, task.bulkGetter);
+    }
+  }
+
+  /**
+   * Logs the number of methods and creators generated for a wrapper.
+   */
+  private void logStatistics(TreeLogger logger, String className,
+      Map<String, Task> propertyAccessors, FragmentGeneratorContext context) {
+    int getters = 0;
+    int setters = 0;
+    int bulkGetters = 0;
+    int imported = 0;
+    int exported = 0;
+    int other = 0;
+
+    for (Task task : propertyAccessors.values()) {
+      getters += task.getter == null ? 0 : 1;
+      setters += task.setter == null ? 0 : 1;
+      bulkGetters += task.bulkGetter == null ? 0 : 1;
+      imported += task.imported == null ? 0 : 1;
+      exported += task.exported == null ? 0 : 1;
+      other += (task.binding == null ? 0 : 1)
+          + (task.constructor == null ? 0 : 1);
+    }
+
+    logger.log(LOG_STATISTICS ? TreeLogger.INFO : TreeLogger.DEBUG, className
+        + ": " + getters + " getters, " + setters + " setters, " + bulkGetters
+        + " bulk getters, " + imported + " imported functions, " + exported
+        + " exported functions, " + other + " constructors and bindings, "
+        + context.creatorFixups.size() + " wrapper creators"
+        + (context.cachePeers ? " (peers cached)" : ""), null);
   }
-}
\ No newline at end of file
+}
@@ -23,6 +23,7 @@ import com.google.gwt.core.ext.typeinfo.JMethod;
 import com.google.gwt.core.ext.typeinfo.JParameter;
 import com.google.gwt.core.ext.typeinfo.JPrimitiveType;
 import com.google.gwt.maps.jsio.client.FieldName;
+import com.google.gwt.maps.jsio.client.FieldNames;
 import com.google.gwt.maps.jsio.client.Global;
 import com.google.gwt.maps.jsio.client.JSWrapper;
 
@@ -33,12 +34,30 @@ import java.lang.reflect.Field;
  */
 // XXX Refactor into type-specific subtypes
 class Task {
+  /**
+   * Returns <code>true</code> if <code>name</code> can follow a dot in a
+   * JavaScript property access.
+   */
+  private static boolean isJavaScriptIdentifier(String name) {
+    if (name.length() == 0
+        || !Character.isJavaIdentifierStart(name.charAt(0))) {
+      return false;
+    }
+    for (int i = 1; i < name.length(); i++) {
+      if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   JMethod getter;
   JMethod setter;
   JMethod binding;
   JMethod imported;
   JMethod exported;
   JMethod constructor;
+  JMethod bulkGetter;
 
   /**
    * Determines the field name to be used by the methods associated with the
@@ -65,6 +84,9 @@ class Task {
       return extractFieldName(logger, imported, true);
     } else if (constructor != null) {
       return extractFieldName(logger, constructor, true);
+    } else if (bulkGetter != null) {
+      // A bulk getter reads several fields, which its annotation names
+      return bulkGetter.getName();
     } else {
       logger.log(TreeLogger.ERROR, "Unable to determine field name", null);
       throw new UnableToCompleteException();
@@ -88,6 +110,8 @@ class Task {
       return imported.getName();
     } else if (constructor != null) {
       return constructor.getName();
+    } else if (bulkGetter != null) {
+      return bulkGetter.getName();
     }
     return null;
   }
@@ -101,7 +125,8 @@ class Task {
    */
   public boolean hasMethods() {
     return (getter != null) || (setter != null) || (imported != null)
-        || (exported != null) || (constructor != null) || (binding != null);
+        || (exported != null) || (constructor != null) || (binding != null)
+        || (bulkGetter != null);
   }
 
   /**
@@ -180,6 +205,38 @@ class Task {
       }
     }
 
+    if (bulkGetter != null) {
+      if (JSWrapperGenerator.getBulkElementType(context.typeOracle,
+          bulkGetter.getReturnType()) == null) {
+        logger.log(TreeLogger.ERROR, "Bulk getter " + bulkGetter.getName()
+            + " must return a JsArrayBoolean, JsArrayInteger, JsArrayNumber "
+            + "or JsArrayString", null);
+        return true;
+      }
+
+      try {
+        FieldNames fieldNames = JSWrapperGenerator.hasTag(logger, bulkGetter,
+            FieldNames.class);
+        if (fieldNames.value().length == 0) {
+          logger.log(TreeLogger.ERROR, "Bulk getter " + bulkGetter.getName()
+              + " must name at least one field", null);
+          return true;
+        }
+        // The names are emitted as property accesses on the backing object
+        for (String fieldName : fieldNames.value()) {
+          if (!isJavaScriptIdentifier(fieldName)) {
+            logger.log(TreeLogger.ERROR, "Bulk getter " + bulkGetter.getName()
+                + " names a field that is not a JavaScript identifier: "
+                + fieldName, null);
+            return true;
+          }
+        }
+      } catch (UnableToCompleteException e) {
+        // Already logged the error in hasTag, just return here.
+        return true;
+      }
+    }
+
     if (binding != null) {
       if (!JPrimitiveType.VOID.equals(binding.getReturnType().isPrimitive())) {
         logger.log(TreeLogger.ERROR,
@@ -28,6 +28,7 @@ import com.google.gwt.maps.jsio.client.BeanProperties;
 import com.google.gwt.maps.jsio.client.Binding;
 import com.google.gwt.maps.jsio.client.Constructor;
 import com.google.gwt.maps.jsio.client.Exported;
+import com.google.gwt.maps.jsio.client.FieldNames;
 import com.google.gwt.maps.jsio.client.Global;
 import com.google.gwt.maps.jsio.client.Imported;
 import com.google.gwt.maps.jsio.client.JSWrapper;
@@ -321,7 +322,13 @@ public class TaskFactory {
         continue;
       }
 
-      if (policy.shouldConstruct(logger, typeOracle, m)) {
+      if (JSWrapperGenerator.hasTag(logger, m, FieldNames.class) != null) {
+        Task task = getPropertyPair(propertyAccessors,
+            m.getReadableDeclaration());
+        task.bulkGetter = m;
+        logger.log(TreeLogger.DEBUG, "Determined this is a bulk getter", null);
+
+      } else if (policy.shouldConstruct(logger, typeOracle, m)) {
         // getReadableDeclaration is used so that overloaded methods will
         // be stored with distinct keys.
         Task task = getPropertyPair(propertyAccessors,
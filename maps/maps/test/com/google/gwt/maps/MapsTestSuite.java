@@ -28,21 +28,28 @@ import com.google.gwt.maps.client.MapWidgetEventsTest;
 import com.google.gwt.maps.client.MapWidgetTest;
 import com.google.gwt.maps.client.MapsNotInstalledTest;
 import com.google.gwt.maps.client.control.ControlTest;
+import com.google.gwt.maps.client.geocode.BatchGeocoderTest;
 import com.google.gwt.maps.client.geocode.DirectionsTest;
 import com.google.gwt.maps.client.geocode.GeocodeTest;
+import com.google.gwt.maps.client.geocode.LruGeocodeCacheTest;
 import com.google.gwt.maps.client.geocode.StatusCodesTest;
 import com.google.gwt.maps.client.geom.BoundsTest;
+import com.google.gwt.maps.client.geom.GeoBoundsTest;
+import com.google.gwt.maps.client.geom.GeoPointTest;
 import com.google.gwt.maps.client.geom.LatLngBoundsTest;
 import com.google.gwt.maps.client.geom.LatLngTest;
 import com.google.gwt.maps.client.geom.ProjectionTest;
 import com.google.gwt.maps.client.impl.MinimumMapVersionTest;
 import com.google.gwt.maps.client.overlay.GeoXmlOverlayTest;
 import com.google.gwt.maps.client.overlay.IconTest;
+import com.google.gwt.maps.client.overlay.MarkerClustererTest;
+import com.google.gwt.maps.client.overlay.MarkerManagerTest;
 import com.google.gwt.maps.client.overlay.MarkerEventsTest;
 import com.google.gwt.maps.client.overlay.MarkerTest;
 import com.google.gwt.maps.client.overlay.OverlayTest;
 import com.google.gwt.maps.client.overlay.PolygonEventsTest;
 import com.google.gwt.maps.client.overlay.PolygonTest;
+import com.google.gwt.maps.client.overlay.PolylineEncoderTest;
 import com.google.gwt.maps.client.overlay.PolylineEventsTest;
 import com.google.gwt.maps.client.overlay.PolylineTest;
 import com.google.gwt.maps.client.overlay.TrafficOverlayTest;
@@ -58,6 +65,7 @@ import com.google.gwt.maps.client.streetview.StreetviewPanoramaOptionsTest;
 import com.google.gwt.maps.client.streetview.StreetviewPanoramaWidgetTest;
 import com.google.gwt.maps.client.streetview.StreetviewPanoramaWidgetTest2;
 import com.google.gwt.maps.client.streetview.StreetviewUserPhotoOptionsTest;
+import com.google.gwt.maps.jsio.client.JSWrapperGeneratorTest;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -87,12 +95,16 @@ public class MapsTestSuite extends GWTTestSuite {
     suite.addTestSuite(ControlTest.class);
 
     // com.google.gwt.maps.client.geocode tests
+    suite.addTestSuite(BatchGeocoderTest.class);
     suite.addTestSuite(DirectionsTest.class);
     suite.addTestSuite(GeocodeTest.class);
+    suite.addTestSuite(LruGeocodeCacheTest.class);
     suite.addTestSuite(StatusCodesTest.class);
 
     // com.google.gwt.maps.client.geom tests
     suite.addTestSuite(BoundsTest.class);
+    suite.addTestSuite(GeoBoundsTest.class);
+    suite.addTestSuite(GeoPointTest.class);
     suite.addTestSuite(LatLngBoundsTest.class);
     suite.addTestSuite(LatLngTest.class);
     suite.addTestSuite(ProjectionTest.class);
@@ -104,10 +116,13 @@ public class MapsTestSuite extends GWTTestSuite {
     suite.addTestSuite(GeoXmlOverlayTest.class);
     suite.addTestSuite(IconTest.class);
     suite.addTestSuite(MarkerEventsTest.class);
+    suite.addTestSuite(MarkerClustererTest.class);
+    suite.addTestSuite(MarkerManagerTest.class);
     suite.addTestSuite(MarkerTest.class);
     suite.addTestSuite(OverlayTest.class);
     suite.addTestSuite(PolygonEventsTest.class);
     suite.addTestSuite(PolygonTest.class);
+    suite.addTestSuite(PolylineEncoderTest.class);
     suite.addTestSuite(PolylineEventsTest.class);
     suite.addTestSuite(PolylineTest.class);
     suite.addTestSuite(TrafficOverlayTest.class);
@@ -128,6 +143,7 @@ public class MapsTestSuite extends GWTTestSuite {
     suite.addTestSuite(StreetviewPanoramaWidgetTest.class);
     suite.addTestSuite(StreetviewPanoramaWidgetTest2.class);
     suite.addTestSuite(StreetviewEventRemoversTest.class);
+    suite.addTestSuite(JSWrapperGeneratorTest.class);
 
     return suite;
   }
@@ -18,6 +18,7 @@ package com.google.gwt.maps.client;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.maps.client.event.MapAddMapTypeHandler;
 import com.google.gwt.maps.client.event.MapAddOverlayHandler;
+import com.google.gwt.maps.client.event.MapAddOverlaysHandler;
 import com.google.gwt.maps.client.event.MapClearOverlaysHandler;
 import com.google.gwt.maps.client.event.MapClickHandler;
 import com.google.gwt.maps.client.event.MapDoubleClickHandler;
@@ -35,10 +36,12 @@ import com.google.gwt.maps.client.event.MapMoveHandler;
 import com.google.gwt.maps.client.event.MapMoveStartHandler;
 import com.google.gwt.maps.client.event.MapRemoveMapTypeHandler;
 import com.google.gwt.maps.client.event.MapRemoveOverlayHandler;
+import com.google.gwt.maps.client.event.MapRemoveOverlaysHandler;
 import com.google.gwt.maps.client.event.MapRightClickHandler;
 import com.google.gwt.maps.client.event.MapZoomEndHandler;
 import com.google.gwt.maps.client.event.MapAddMapTypeHandler.MapAddMapTypeEvent;
 import com.google.gwt.maps.client.event.MapAddOverlayHandler.MapAddOverlayEvent;
+import com.google.gwt.maps.client.event.MapAddOverlaysHandler.MapAddOverlaysEvent;
 import com.google.gwt.maps.client.event.MapClearOverlaysHandler.MapClearOverlaysEvent;
 import com.google.gwt.maps.client.event.MapClickHandler.MapClickEvent;
 import com.google.gwt.maps.client.event.MapDoubleClickHandler.MapDoubleClickEvent;
@@ -56,6 +59,7 @@ import com.google.gwt.maps.client.event.MapMoveHandler.MapMoveEvent;
 import com.google.gwt.maps.client.event.MapMoveStartHandler.MapMoveStartEvent;
 import com.google.gwt.maps.client.event.MapRemoveMapTypeHandler.MapRemoveMapTypeEvent;
 import com.google.gwt.maps.client.event.MapRemoveOverlayHandler.MapRemoveOverlayEvent;
+import com.google.gwt.maps.client.event.MapRemoveOverlaysHandler.MapRemoveOverlaysEvent;
 import com.google.gwt.maps.client.event.MapRightClickHandler.MapRightClickEvent;
 import com.google.gwt.maps.client.event.MapZoomEndHandler.MapZoomEndEvent;
 import com.google.gwt.maps.client.geom.LatLng;
@@ -65,6 +69,9 @@ import com.google.gwt.maps.client.overlay.Overlay;
 import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.RootPanel;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Tests for the MapWidget events.
  * 
@@ -267,6 +274,31 @@ public class MapWidgetEventsTest extends MapsTestCase {
     }, false);
   }
 
+  public void testMapAddOverlaysEvent() {
+    loadApi(new Runnable() {
+      public void run() {
+        final MapWidget m = new MapWidget();
+        final List<Marker> markers = new ArrayList<Marker>();
+        markers.add(new Marker(LatLng.newInstance(0.0, 0.0)));
+        markers.add(new Marker(LatLng.newInstance(1.0, 1.0)));
+        m.addMapAddOverlayHandler(new MapAddOverlayHandler() {
+          public void onAddOverlay(MapAddOverlayEvent event) {
+            fail("per-overlay handler called during a batch");
+          }
+        });
+        m.addMapAddOverlaysHandler(new MapAddOverlaysHandler() {
+          public void onAddOverlays(MapAddOverlaysEvent event) {
+            assertEquals(event.getSender(), m);
+            assertEquals(markers, event.getOverlays());
+            finishTest();
+          }
+        });
+        RootPanel.get().add(m);
+        m.addOverlays(markers);
+      }
+    }, false);
+  }
+
   public void testMapAddOverlayTrigger() {
     loadApi(new Runnable() {
       public void run() {
@@ -494,6 +526,43 @@ public class MapWidgetEventsTest extends MapsTestCase {
     }, false);
   }
 
+  public void testMapMouseMoveTriggerCoalesced() {
+    loadApi(new Runnable() {
+      public void run() {
+        final MapWidget m = new MapWidget();
+        m.setEventCoalesceInterval(50);
+        assertEquals(50, m.getEventCoalesceInterval());
+
+        final LatLng last = LatLng.newInstance(3.0, 4.0);
+        final List<MapMouseMoveEvent> events =
+            new ArrayList<MapMouseMoveEvent>();
+
+        m.addMapMouseMoveHandler(new MapMouseMoveHandler() {
+          public void onMouseMove(MapMouseMoveEvent event) {
+            events.add(event);
+          }
+        });
+        RootPanel.get().add(m);
+        m.trigger(new MapMouseMoveEvent(m, LatLng.newInstance(1.0, 2.0)));
+        m.trigger(new MapMouseMoveEvent(m, LatLng.newInstance(2.0, 3.0)));
+        m.trigger(new MapMouseMoveEvent(m, last));
+        assertEquals("events delivered synchronously", 0, events.size());
+
+        new Timer() {
+          @Override
+          public void run() {
+            assertEquals(1, events.size());
+            MapMouseMoveEvent event = events.get(0);
+            assertEquals(m, event.getSender());
+            assertEquals(last, event.getLatLng());
+            assertEquals(2, event.getDroppedEventCount());
+            finishTest();
+          }
+        }.schedule(500);
+      }
+    }, false);
+  }
+
   /**
    * Note: testMapMouseOutEvent() can't be implemented as there is no way to
    * create a "mouseout" event by API calls apart from GEvent.trigger().
@@ -772,6 +841,32 @@ public class MapWidgetEventsTest extends MapsTestCase {
     }, false);
   }
 
+  public void testMapRemoveOverlaysEvent() {
+    loadApi(new Runnable() {
+      public void run() {
+        final MapWidget m = new MapWidget();
+        final List<Marker> markers = new ArrayList<Marker>();
+        markers.add(new Marker(LatLng.newInstance(0.0, 0.0)));
+        markers.add(new Marker(LatLng.newInstance(1.0, 1.0)));
+        m.addMapRemoveOverlayHandler(new MapRemoveOverlayHandler() {
+          public void onRemoveOverlay(MapRemoveOverlayEvent event) {
+            fail("per-overlay handler called during a batch");
+          }
+        });
+        m.addMapRemoveOverlaysHandler(new MapRemoveOverlaysHandler() {
+          public void onRemoveOverlays(MapRemoveOverlaysEvent event) {
+            assertEquals(event.getSender(), m);
+            assertEquals(markers, event.getOverlays());
+            finishTest();
+          }
+        });
+        RootPanel.get().add(m);
+        m.addOverlays(markers);
+        m.removeOverlays(markers);
+      }
+    }, false);
+  }
+
   public void testMapRemoveOverlayTrigger() {
     loadApi(new Runnable() {
       public void run() {
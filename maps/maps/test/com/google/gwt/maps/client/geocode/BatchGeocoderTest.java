@@ -0,0 +1,183 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.geocode;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.maps.client.MapsTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the BatchGeocoder class.
+ */
+public class BatchGeocoderTest extends MapsTestCase {
+
+  private static native JavaScriptObject createReply(String address) /*-{
+    return {
+      name: address,
+      Status: {code: 200, request: "geocode"},
+      Placemark: []
+    };
+  }-*/;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.gwt.maps.GoogleMapsTest";
+  }
+
+  public void testAnswersCachedAddresses() {
+    loadApi(new Runnable() {
+      public void run() {
+        Geocoder geocoder = new Geocoder(new CustomGeocodeCache());
+        String cached = "10 10th St NW, Atlanta, GA 30309 USA";
+        geocoder.getCache().put(cached, createReply(cached));
+        BatchGeocoder batch = new BatchGeocoder(geocoder);
+        final List<String> answered = new ArrayList<String>();
+        final boolean[] completed = new boolean[1];
+
+        List<String> addresses = new ArrayList<String>();
+        addresses.add(cached);
+        addresses.add("10 10TH ST NW ATLANTA GA 30309 USA");
+        batch.geocode(addresses, new BatchGeocodeCallback() {
+          public void onComplete() {
+            completed[0] = true;
+          }
+
+          public void onFailure(String address, int statusCode) {
+            fail("Geocode of " + address + " failed with status "
+                + StatusCodes.getName(statusCode));
+          }
+
+          public void onSuccess(String address, JsArray<Placemark> locations) {
+            assertEquals(0, locations.length());
+            answered.add(address);
+          }
+        });
+
+        // Answered from the cache, without sending a request
+        assertTrue(completed[0]);
+        assertEquals(2, answered.size());
+        assertEquals(0, batch.getPendingCount());
+      }
+    });
+  }
+
+  public void testDeduplicatesAddresses() {
+    loadApi(new Runnable() {
+      public void run() {
+        final BatchGeocoder batch = new BatchGeocoder(new Geocoder());
+        final List<String> answered = new ArrayList<String>();
+
+        List<String> addresses = new ArrayList<String>();
+        addresses.add("10 10th St NW, Atlanta, GA 30309 USA");
+        addresses.add("10 10TH ST NW ATLANTA GA 30309 USA");
+        batch.geocode(addresses, new BatchGeocodeCallback() {
+          public void onComplete() {
+            assertEquals(2, answered.size());
+            assertEquals(0, batch.getPendingCount());
+            finishTest();
+          }
+
+          public void onFailure(String address, int statusCode) {
+            fail("Geocode of " + address + " failed with status "
+                + StatusCodes.getName(statusCode));
+          }
+
+          public void onSuccess(String address, JsArray<Placemark> locations) {
+            assertTrue("length of locations expected to be > 0",
+                locations.length() > 0);
+            answered.add(address);
+          }
+        });
+        assertEquals(1, batch.getPendingCount());
+      }
+    }, false);
+  }
+
+  public void testGeocodeAfterCancel() {
+    loadApi(new Runnable() {
+      public void run() {
+        final BatchGeocoder batch = new BatchGeocoder(new Geocoder());
+        batch.setMaxConcurrency(1);
+        List<String> first = new ArrayList<String>();
+        first.add("10 10th St NW, Atlanta, GA 30309 USA");
+        batch.geocode(first, new BatchGeocodeCallback() {
+          public void onComplete() {
+            // Called by cancel()
+          }
+
+          public void onFailure(String address, int statusCode) {
+            fail("Cancelled request for " + address + " was answered");
+          }
+
+          public void onSuccess(String address, JsArray<Placemark> locations) {
+            fail("Cancelled request for " + address + " was answered");
+          }
+        });
+        batch.cancel();
+        assertEquals(0, batch.getPendingCount());
+
+        // The cancelled request still holds the only slot until it returns
+        final List<String> answered = new ArrayList<String>();
+        List<String> second = new ArrayList<String>();
+        second.add("1600 Amphitheatre Pkwy, Mountain View, CA 94043 USA");
+        batch.geocode(second, new BatchGeocodeCallback() {
+          public void onComplete() {
+            assertEquals(1, answered.size());
+            finishTest();
+          }
+
+          public void onFailure(String address, int statusCode) {
+            fail("Geocode of " + address + " failed with status "
+                + StatusCodes.getName(statusCode));
+          }
+
+          public void onSuccess(String address, JsArray<Placemark> locations) {
+            answered.add(address);
+          }
+        });
+      }
+    }, false);
+  }
+
+  public void testSettersRejectInvalidValues() {
+    loadApi(new Runnable() {
+      public void run() {
+        BatchGeocoder batch = new BatchGeocoder(new Geocoder());
+        try {
+          batch.setMaxConcurrency(0);
+          fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+          // Expected
+        }
+        try {
+          batch.setRequestsPerSecond(0);
+          fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+          // Expected
+        }
+        try {
+          batch.setMaxRetries(-1);
+          fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+          // Expected
+        }
+      }
+    });
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.geocode;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.maps.client.MapsTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the LruGeocodeCache class.
+ */
+public class LruGeocodeCacheTest extends MapsTestCase {
+
+  /**
+   * A store that keeps values in a Java map.
+   */
+  private static class MapStore implements GeocodeCacheStore {
+    final Map<String, String> values = new HashMap<String, String>();
+
+    public void clear() {
+      values.clear();
+    }
+
+    public String get(String key) {
+      return values.get(key);
+    }
+
+    public List<String> getKeys() {
+      return new ArrayList<String>(values.keySet());
+    }
+
+    public void put(String key, String value) {
+      values.put(key, value);
+    }
+
+    public void remove(String key) {
+      values.remove(key);
+    }
+  }
+
+  private static native JavaScriptObject createReply(String address) /*-{
+    return {
+      name: address,
+      Status: {code: 200, request: "geocode"},
+      Placemark: []
+    };
+  }-*/;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.gwt.maps.GoogleMapsTest";
+  }
+
+  public void testEvictsLeastRecentlyUsed() {
+    loadApi(new Runnable() {
+      public void run() {
+        LruGeocodeCache cache = new LruGeocodeCache(2,
+            LruGeocodeCache.DEFAULT_MAX_BYTES);
+        JavaScriptObject a = createReply("a");
+        cache.put("a", a);
+        cache.put("b", createReply("b"));
+        assertSame(a, cache.get("A"));
+        cache.put("c", createReply("c"));
+
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.reset();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getByteSize());
+      }
+    });
+  }
+
+  public void testPersistsToStore() {
+    loadApi(new Runnable() {
+      public void run() {
+        MapStore store = new MapStore();
+        LruGeocodeCache cache = new LruGeocodeCache(10,
+            LruGeocodeCache.DEFAULT_MAX_BYTES, 3600, store);
+        cache.put("1600 Amphitheatre Pkwy", createReply("a"));
+        assertEquals(1, store.values.size());
+
+        LruGeocodeCache reloaded = new LruGeocodeCache(10,
+            LruGeocodeCache.DEFAULT_MAX_BYTES, 3600, store);
+        assertEquals(1, reloaded.getEntryCount());
+        assertNotNull(reloaded.get("1600 amphitheatre pkwy"));
+        assertEquals(1, reloaded.getHitCount());
+
+        reloaded.reset();
+        assertTrue(store.values.isEmpty());
+      }
+    });
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.geom;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for GeoBounds.
+ */
+public class GeoBoundsTest extends TestCase {
+
+  public void testContains() {
+    GeoBounds bounds = new GeoBounds(new GeoPoint(0, 0), new GeoPoint(10, 10));
+    assertTrue(bounds.containsPoint(new GeoPoint(5, 5)));
+    assertTrue(bounds.containsPoint(new GeoPoint(0, 10)));
+    assertFalse(bounds.containsPoint(new GeoPoint(5, 11)));
+    assertFalse(bounds.containsPoint(new GeoPoint(-1, 5)));
+
+    assertTrue(bounds.containsBounds(new GeoBounds(new GeoPoint(1, 1),
+        new GeoPoint(9, 9))));
+    assertFalse(bounds.containsBounds(new GeoBounds(new GeoPoint(1, 1),
+        new GeoPoint(9, 11))));
+    assertTrue(bounds.containsBounds(GeoBounds.EMPTY));
+    assertFalse(GeoBounds.EMPTY.containsPoint(new GeoPoint(0, 0)));
+  }
+
+  public void testCrossingMeridian() {
+    GeoBounds bounds = new GeoBounds(new GeoPoint(-10, 170), new GeoPoint(10,
+        -170));
+    assertTrue(bounds.containsPoint(new GeoPoint(0, 180)));
+    assertTrue(bounds.containsPoint(new GeoPoint(0, -175)));
+    assertFalse(bounds.containsPoint(new GeoPoint(0, 0)));
+    assertEquals(20.0, bounds.toSpan().getLongitude(), 1e-9);
+    assertEquals(180.0, Math.abs(bounds.getCenter().getLongitude()), 1e-9);
+    assertTrue(bounds.intersects(new GeoBounds(new GeoPoint(0, 175),
+        new GeoPoint(5, 178))));
+    assertFalse(bounds.intersects(new GeoBounds(new GeoPoint(0, 0),
+        new GeoPoint(5, 10))));
+  }
+
+  public void testExtend() {
+    GeoBounds bounds = GeoBounds.EMPTY.extend(new GeoPoint(5, 5));
+    assertFalse(bounds.isEmpty());
+    assertEquals(new GeoPoint(5, 5), bounds.getSouthWest());
+    assertEquals(new GeoPoint(5, 5), bounds.getNorthEast());
+
+    bounds = bounds.extend(new GeoPoint(-5, 20));
+    assertEquals(new GeoPoint(-5, 5), bounds.getSouthWest());
+    assertEquals(new GeoPoint(5, 20), bounds.getNorthEast());
+
+    // Extending across the meridian takes the shorter way around.
+    bounds = new GeoBounds(new GeoPoint(0, 170), new GeoPoint(0, 175));
+    bounds = bounds.extend(new GeoPoint(0, -175));
+    assertEquals(170.0, bounds.getSouthWest().getLongitude());
+    assertEquals(-175.0, bounds.getNorthEast().getLongitude());
+  }
+
+  public void testFromPoints() {
+    double[] lats = {1, -3, 7};
+    double[] lngs = {179, -178, 175};
+    GeoBounds bounds = GeoBounds.fromPoints(lats, lngs);
+    assertEquals(new GeoPoint(-3, 175), bounds.getSouthWest());
+    assertEquals(new GeoPoint(7, -178), bounds.getNorthEast());
+    assertTrue(GeoBounds.fromPoints(new double[0], new double[0]).isEmpty());
+
+    GeoPoint[] points = {new GeoPoint(1, 2), new GeoPoint(3, 4)};
+    assertEquals(new GeoBounds(points[0], points[1]),
+        GeoBounds.fromPoints(points));
+  }
+
+  public void testFullLongitude() {
+    GeoBounds bounds = new GeoBounds(new GeoPoint(-90, -180), new GeoPoint(90,
+        180));
+    assertTrue(bounds.isFullLongitude());
+    assertTrue(bounds.isFullLatitude());
+    assertTrue(bounds.containsPoint(new GeoPoint(12, 34)));
+    assertEquals(360.0, bounds.toSpan().getLongitude());
+  }
+
+  public void testUnion() {
+    GeoBounds a = new GeoBounds(new GeoPoint(0, 0), new GeoPoint(10, 100));
+    GeoBounds b = new GeoBounds(new GeoPoint(-5, 50), new GeoPoint(5, 150));
+    GeoBounds union = a.union(b);
+    assertEquals(new GeoPoint(-5, 0), union.getSouthWest());
+    assertEquals(new GeoPoint(10, 150), union.getNorthEast());
+    assertTrue(union.containsBounds(a));
+    assertTrue(union.containsBounds(b));
+
+    GeoBounds c = new GeoBounds(new GeoPoint(0, 170), new GeoPoint(1, 175));
+    GeoBounds d = new GeoBounds(new GeoPoint(0, -175), new GeoPoint(1, -170));
+    union = c.union(d);
+    assertEquals(170.0, union.getSouthWest().getLongitude());
+    assertEquals(-170.0, union.getNorthEast().getLongitude());
+
+    assertSame(a, a.union(GeoBounds.EMPTY));
+    assertSame(a, GeoBounds.EMPTY.union(a));
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.geom;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for GeoPoint.
+ */
+public class GeoPointTest extends TestCase {
+
+  public void testClampAndWrap() {
+    GeoPoint p = new GeoPoint(95, 190);
+    assertEquals(90.0, p.getLatitude());
+    assertEquals(-170.0, p.getLongitude(), 1e-9);
+
+    p = new GeoPoint(0, 180);
+    assertEquals(180.0, p.getLongitude());
+
+    p = new GeoPoint(95, 190, true);
+    assertEquals(95.0, p.getLatitude());
+    assertEquals(190.0, p.getLongitude());
+  }
+
+  public void testDistanceFrom() {
+    GeoPoint origin = new GeoPoint(0, 0);
+    GeoPoint east = new GeoPoint(0, 1);
+    double oneDegree = GeoPoint.EARTH_RADIUS * Math.PI / 180;
+    assertEquals(oneDegree, origin.distanceFrom(east), 1e-6);
+    assertEquals(0.0, origin.distanceFrom(origin));
+    assertEquals(Math.PI / 180, origin.distanceFrom(east, 1), 1e-12);
+
+    // Points on either side of the 180 degrees meridian are close.
+    GeoPoint a = new GeoPoint(0, 179.5);
+    GeoPoint b = new GeoPoint(0, -179.5);
+    assertEquals(oneDegree, a.distanceFrom(b), 1e-6);
+  }
+
+  public void testEquals() {
+    assertEquals(new GeoPoint(10, 20), new GeoPoint(10, 20));
+    assertEquals(new GeoPoint(10, 20).hashCode(),
+        new GeoPoint(10, 20).hashCode());
+    assertFalse(new GeoPoint(10, 20).equals(new GeoPoint(20, 10)));
+  }
+
+  public void testIndexOfNearest() {
+    double[] lats = {10, 0.5, -40};
+    double[] lngs = {10, 0.5, 100};
+    assertEquals(1, GeoPoint.indexOfNearest(0, 0, lats, lngs));
+    assertEquals(-1, GeoPoint.indexOfNearest(0, 0, new double[0],
+        new double[0]));
+
+    GeoPoint[] points = {
+        new GeoPoint(10, 10), new GeoPoint(0, 179), new GeoPoint(-40, 100)};
+    assertEquals(1, new GeoPoint(0, -179).indexOfNearest(points));
+  }
+}
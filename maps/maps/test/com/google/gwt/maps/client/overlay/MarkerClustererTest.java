@@ -0,0 +1,83 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.overlay;
+
+import com.google.gwt.maps.client.MapWidget;
+import com.google.gwt.maps.client.MapsTestCase;
+import com.google.gwt.maps.client.TestUtilities;
+import com.google.gwt.maps.client.geom.LatLng;
+import com.google.gwt.maps.client.overlay.MarkerClusterer.Cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the MarkerClusterer class.
+ */
+public class MarkerClustererTest extends MapsTestCase {
+
+  @Override
+  public String getModuleName() {
+    return "com.google.gwt.maps.GoogleMapsTest";
+  }
+
+  /**
+   * Runs before each test method.
+   */
+  @Override
+  public void gwtSetUp() {
+    TestUtilities.cleanDom();
+  }
+
+  public void testClustersPerZoomLevel() {
+    loadApi(new Runnable() {
+      public void run() {
+        MapWidget map = addDefaultMap();
+        MarkerClusterer clusterer = new MarkerClusterer(map);
+
+        List<Marker> markers = new ArrayList<Marker>();
+        markers.add(new Marker(LatLng.newInstance(33.7800, -84.3800)));
+        markers.add(new Marker(LatLng.newInstance(33.7801, -84.3801)));
+        markers.add(new Marker(LatLng.newInstance(-33.8600, 151.2000)));
+        clusterer.addMarkers(markers);
+        assertEquals(3, clusterer.getMarkerCount());
+
+        List<Cluster> lowest = clusterer.getClusters(
+            clusterer.getMinZoomLevel());
+        assertEquals(2, lowest.size());
+        int total = 0;
+        for (Cluster cluster : lowest) {
+          total += cluster.getSize();
+          assertEquals(cluster.getSize(), cluster.getMarkers().size());
+        }
+        assertEquals(3, total);
+
+        List<Cluster> highest = clusterer.getClusters(
+            clusterer.getMaxZoomLevel());
+        assertEquals(3, highest.size());
+        for (Cluster cluster : highest) {
+          assertTrue("single marker cluster",
+              cluster.getOverlay() instanceof Marker);
+        }
+
+        assertTrue("visible clusters", clusterer.getVisibleClusterCount() > 0);
+        clusterer.removeFromMap();
+        assertEquals(0, clusterer.getVisibleClusterCount());
+        assertEquals(0, clusterer.getMarkerCount());
+      }
+    });
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.overlay;
+
+import com.google.gwt.maps.client.MapWidget;
+import com.google.gwt.maps.client.MapsTestCase;
+import com.google.gwt.maps.client.TestUtilities;
+import com.google.gwt.maps.client.geom.LatLng;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the MarkerManager class.
+ */
+public class MarkerManagerTest extends MapsTestCase {
+
+  @Override
+  public String getModuleName() {
+    return "com.google.gwt.maps.GoogleMapsTest";
+  }
+
+  /**
+   * Runs before each test method.
+   */
+  @Override
+  public void gwtSetUp() {
+    TestUtilities.cleanDom();
+  }
+
+  public void testMarkerManagerAttachesVisibleMarkers() {
+    loadApi(new Runnable() {
+      public void run() {
+        MapWidget map = addDefaultMap();
+        LatLng center = map.getCenter();
+        MarkerManager manager = new MarkerManager(map);
+        manager.setMargin(0);
+
+        Marker near = new Marker(center);
+        Marker far = new Marker(LatLng.newInstance(-center.getLatitude(),
+            center.getLongitude() + 90));
+        List<Marker> markers = new ArrayList<Marker>();
+        markers.add(near);
+        markers.add(far);
+        manager.addMarkers(markers);
+
+        assertEquals(2, manager.getMarkerCount());
+        assertEquals(1, manager.getVisibleMarkerCount());
+        assertTrue("near marker visible", manager.isVisible(near));
+        assertFalse("far marker visible", manager.isVisible(far));
+
+        manager.removeMarker(near);
+        assertEquals(1, manager.getMarkerCount());
+        assertEquals(0, manager.getVisibleMarkerCount());
+
+        manager.removeFromMap();
+        assertEquals(0, manager.getMarkerCount());
+      }
+    });
+  }
+
+  public void testMarkerManagerRefreshAfterPan() {
+    loadApi(new Runnable() {
+      public void run() {
+        MapWidget map = addDefaultMap();
+        LatLng center = map.getCenter();
+        LatLng elsewhere = LatLng.newInstance(-center.getLatitude(),
+            center.getLongitude() + 90);
+        MarkerManager manager = new MarkerManager(map, 0.5);
+
+        Marker marker = new Marker(elsewhere);
+        manager.addMarker(marker);
+        manager.refresh();
+        assertFalse("marker visible before pan", manager.isVisible(marker));
+
+        map.setCenter(elsewhere);
+        manager.refresh();
+        assertTrue("marker visible after pan", manager.isVisible(marker));
+      }
+    });
+  }
+}
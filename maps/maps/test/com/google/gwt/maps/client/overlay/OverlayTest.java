@@ -74,6 +74,19 @@ public class OverlayTest extends MapsTestCase {
     TestUtilities.cleanDom();
   }
 
+  public void testCreatePeerReturnsBoundOverlay() {
+    loadApi(new Runnable() {
+      public void run() {
+        Marker marker = new Marker(LatLng.newInstance(0, 0));
+        assertSame(marker, Overlay.createPeer(marker.jsoPeer));
+
+        Overlay o = Overlay.createPeer(nativeCreatePolyline(
+            LatLng.newInstance(0, 0), LatLng.newInstance(1, 1)));
+        assertSame(o, Overlay.createPeer(o.jsoPeer));
+      }
+    });
+  }
+
   public void testIsGeoXmlOverlay() {
     loadApi(new Runnable() {
       public void run() {
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.client.overlay;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PolylineEncoder.
+ */
+public class PolylineEncoderTest extends TestCase {
+
+  public void testEncodePoints() {
+    // The example from the encoded polyline algorithm documentation.
+    double[] lats = {38.5, 40.7, 43.252};
+    double[] lngs = {-120.2, -120.95, -126.453};
+    StringBuilder points = new StringBuilder();
+    StringBuilder levels = new StringBuilder();
+    new PolylineEncoder().encode(lats, lngs, points, levels);
+    assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", points.toString());
+    assertEquals(3, levels.length());
+    // End points are always visible at every zoom level.
+    assertEquals('P', levels.charAt(0));
+    assertEquals('P', levels.charAt(2));
+  }
+
+  public void testEmptyLine() {
+    StringBuilder points = new StringBuilder();
+    StringBuilder levels = new StringBuilder();
+    new PolylineEncoder().encode(new double[0], new double[0], points, levels);
+    assertEquals("", points.toString());
+    assertEquals("", levels.toString());
+  }
+
+  public void testSimplifiesCollinearPoints() {
+    int n = 1000;
+    double[] lats = new double[n];
+    double[] lngs = new double[n];
+    for (int i = 0; i < n; ++i) {
+      lats[i] = i * 0.001;
+      lngs[i] = i * 0.002;
+    }
+    StringBuilder points = new StringBuilder();
+    StringBuilder levels = new StringBuilder();
+    new PolylineEncoder().encode(lats, lngs, points, levels);
+    // Only the end points of a straight line survive simplification.
+    assertEquals(2, levels.length());
+  }
+
+  public void testKeepsSignificantVertex() {
+    double[] lats = {0, 0.5001, 1, 0.5001, 0};
+    double[] lngs = {0, 0.5, 1, 1.5, 2};
+    StringBuilder points = new StringBuilder();
+    StringBuilder levels = new StringBuilder();
+    PolylineEncoder encoder = new PolylineEncoder(4, 2, 0.00001);
+    encoder.encode(lats, lngs, points, levels);
+    assertEquals(5, levels.length());
+    // The peak is significant at a coarser zoom level than the small bumps.
+    assertTrue(levels.charAt(2) > levels.charAt(1));
+  }
+}
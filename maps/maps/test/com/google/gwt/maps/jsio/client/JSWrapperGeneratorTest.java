@@ -0,0 +1,148 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.maps.jsio.client;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayBoolean;
+import com.google.gwt.core.client.JsArrayInteger;
+import com.google.gwt.core.client.JsArrayNumber;
+import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the bulk getters and the peer cache of the classes generated by
+ * JSWrapperGenerator. The test module turns on the peer cache.
+ */
+public class JSWrapperGeneratorTest extends GWTTestCase {
+
+  /**
+   * A wrapper without a back reference, which is only read once per object
+   * when peers are cached.
+   */
+  @BeanProperties
+  @NoIdentity
+  public static interface Label extends JSWrapper<Label> {
+    String getText();
+  }
+
+  /**
+   * A wrapper declaring a bulk getter of each array type.
+   */
+  @BeanProperties
+  public static interface Shape extends JSWrapper<Shape> {
+    @FieldNames({"visible", "filled", "missing"})
+    JsArrayBoolean getFlags();
+
+    Label getLabel();
+
+    @FieldNames({"name", "color"})
+    JsArrayString getNames();
+
+    @FieldNames({"x", "y", "missing"})
+    JsArrayInteger getPosition();
+
+    @FieldNames({"width", "height"})
+    JsArrayNumber getSize();
+  }
+
+  /**
+   * A flyweight declaring a bulk getter.
+   */
+  public static interface ShapeImpl extends JSFlyweightWrapper {
+    ShapeImpl IMPL = GWT.create(ShapeImpl.class);
+
+    @FieldNames({"width", "height", "missing"})
+    JsArrayNumber getSize(JavaScriptObject jsoPeer);
+  }
+
+  private static native JavaScriptObject createLabel(String text) /*-{
+    return {text: text};
+  }-*/;
+
+  private static native JavaScriptObject createShape() /*-{
+    return {
+      visible: true,
+      filled: false,
+      x: 3,
+      y: -4,
+      width: 1.5,
+      height: 2.5,
+      name: "square",
+      color: "red",
+      label: {text: "a"}
+    };
+  }-*/;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.gwt.maps.GoogleMapsCachePeersTest";
+  }
+
+  public void testBulkGetters() {
+    Shape shape = GWT.create(Shape.class);
+    shape.setJavaScriptObject(createShape());
+
+    JsArrayBoolean flags = shape.getFlags();
+    assertEquals(3, flags.length());
+    assertTrue(flags.get(0));
+    assertFalse(flags.get(1));
+    assertFalse(flags.get(2));
+
+    JsArrayInteger position = shape.getPosition();
+    assertEquals(3, position.length());
+    assertEquals(3, position.get(0));
+    assertEquals(-4, position.get(1));
+    assertEquals(0, position.get(2));
+
+    JsArrayNumber size = shape.getSize();
+    assertEquals(2, size.length());
+    assertEquals(1.5, size.get(0));
+    assertEquals(2.5, size.get(1));
+
+    JsArrayString names = shape.getNames();
+    assertEquals(2, names.length());
+    assertEquals("square", names.get(0));
+    assertEquals("red", names.get(1));
+  }
+
+  public void testFlyweightBulkGetter() {
+    JsArrayNumber size = ShapeImpl.IMPL.getSize(createShape());
+    assertEquals(3, size.length());
+    assertEquals(1.5, size.get(0));
+    assertEquals(2.5, size.get(1));
+    assertEquals(0.0, size.get(2));
+  }
+
+  public void testPeerCache() {
+    Shape shape = GWT.create(Shape.class);
+    shape.setJavaScriptObject(createShape());
+
+    Label label = shape.getLabel();
+    assertEquals("a", label.getText());
+    assertSame(label, shape.getLabel());
+
+    // Rebinding the cached wrapper must not change what the object reads as
+    JavaScriptObject original = label.getJavaScriptObject();
+    label.setJavaScriptObject(createLabel("b"));
+    assertEquals("b", label.getText());
+    Label reread = shape.getLabel();
+    assertNotSame(label, reread);
+    assertSame(original, reread.getJavaScriptObject());
+    assertEquals("a", reread.getText());
+    assertSame(reread, shape.getLabel());
+  }
+}
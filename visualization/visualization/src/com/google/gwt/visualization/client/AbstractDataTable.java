@@ -15,9 +15,12 @@
  */
 package com.google.gwt.visualization.client;
 
+import com.google.gwt.ajaxloader.client.ArrayHelper;
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayBoolean;
 import com.google.gwt.core.client.JsArrayInteger;
 import com.google.gwt.core.client.JsArrayNumber;
+import com.google.gwt.core.client.JsArrayString;
 import com.google.gwt.visualization.client.TimeOfDay.BadTimeException;
 
 import java.util.Date;
@@ -99,6 +102,62 @@ public class AbstractDataTable extends JavaScriptObject {
     return ColumnType.getColumnTypeFromString(getColumnTypeAsString(columnIndex));
   }
 
+  /**
+   * Reads every value of a boolean column in a single call.
+   * 
+   * @param columnIndex The index of the column.
+   * @return the values of the column, with <code>false</code> for null
+   *         values.
+   */
+  public final boolean[] getColumnValuesBoolean(int columnIndex) {
+    return ArrayHelper.toJavaArrayBoolean(
+        getColumnValuesBooleanJs(columnIndex));
+  }
+
+  /**
+   * Reads every value of a date or datetime column in a single call, as
+   * milliseconds since the epoch.
+   * 
+   * @param columnIndex The index of the column.
+   * @return the values of the column in epoch milliseconds, with
+   *         <code>NaN</code> for null values.
+   */
+  public final double[] getColumnValuesDate(int columnIndex) {
+    return ArrayHelper.toJavaArrayDouble(getColumnValuesDateJs(columnIndex));
+  }
+
+  /**
+   * Reads every value of a number column in a single call, instead of calling
+   * {@link #getValueDouble(int, int)} for each row.
+   * 
+   * @param columnIndex The index of the column.
+   * @return the values of the column, with <code>NaN</code> for null values.
+   */
+  public final double[] getColumnValuesDouble(int columnIndex) {
+    return ArrayHelper.toJavaArrayDouble(getColumnValuesDoubleJs(columnIndex));
+  }
+
+  /**
+   * Reads every value of a number column in a single call, truncating the
+   * values to integers.
+   * 
+   * @param columnIndex The index of the column.
+   * @return the values of the column, with 0 for null values.
+   */
+  public final int[] getColumnValuesInt(int columnIndex) {
+    return ArrayHelper.toJavaArrayInteger(getColumnValuesIntJs(columnIndex));
+  }
+
+  /**
+   * Reads every value of a string column in a single call.
+   * 
+   * @param columnIndex The index of the column.
+   * @return the values of the column, with <code>null</code> for null values.
+   */
+  public final String[] getColumnValuesString(int columnIndex) {
+    return ArrayHelper.toJavaArrayString(getColumnValuesStringJs(columnIndex));
+  }
+
   public final native String getFormattedValue(int rowIndex, int columnIndex) /*-{
     return this.getFormattedValue(rowIndex, columnIndex);
   }-*/;
@@ -177,6 +236,50 @@ public class AbstractDataTable extends JavaScriptObject {
     return this.getColumnType(columnIndex);
   }-*/;
 
+  private native JsArrayBoolean getColumnValuesBooleanJs(int columnIndex) /*-{
+    var result = [];
+    for (var i = 0, n = this.getNumberOfRows(); i < n; ++i) {
+      result[i] = !!this.getValue(i, columnIndex);
+    }
+    return result;
+  }-*/;
+
+  private native JsArrayNumber getColumnValuesDateJs(int columnIndex) /*-{
+    var result = [];
+    for (var i = 0, n = this.getNumberOfRows(); i < n; ++i) {
+      var value = this.getValue(i, columnIndex);
+      result[i] = value == null ? NaN : value.getTime();
+    }
+    return result;
+  }-*/;
+
+  private native JsArrayNumber getColumnValuesDoubleJs(int columnIndex) /*-{
+    var result = [];
+    for (var i = 0, n = this.getNumberOfRows(); i < n; ++i) {
+      var value = this.getValue(i, columnIndex);
+      result[i] = value == null ? NaN : value;
+    }
+    return result;
+  }-*/;
+
+  private native JsArrayInteger getColumnValuesIntJs(int columnIndex) /*-{
+    var result = [];
+    for (var i = 0, n = this.getNumberOfRows(); i < n; ++i) {
+      // Truncate towards zero like a Java cast, mapping null to 0.
+      result[i] = ~~this.getValue(i, columnIndex);
+    }
+    return result;
+  }-*/;
+
+  private native JsArrayString getColumnValuesStringJs(int columnIndex) /*-{
+    var result = [];
+    for (var i = 0, n = this.getNumberOfRows(); i < n; ++i) {
+      var value = this.getValue(i, columnIndex);
+      result[i] = value == null ? null : value;
+    }
+    return result;
+  }-*/;
+
   private native JsArrayInteger getValueArrayInteger(int rowIndex,
       int columnIndex) /*-{
     return this.getValue(rowIndex, columnIndex);
@@ -53,7 +53,7 @@ public abstract class AbstractVisualization<E extends AbstractDrawOptions>
     }
     // setup the required draw method
     $wnd[name].prototype.draw = function(data, options) {
-      this.gwt_vis.@com.google.gwt.visualization.client.AbstractVisualization::draw(Lcom/google/gwt/visualization/client/AbstractDataTable;Lcom/google/gwt/visualization/client/AbstractDrawOptions;)(data, options);
+      @com.google.gwt.visualization.client.AbstractVisualization::drawFromJavaScript(Lcom/google/gwt/visualization/client/AbstractVisualization;Lcom/google/gwt/visualization/client/AbstractDataTable;Lcom/google/gwt/visualization/client/AbstractDrawOptions;)(this.gwt_vis, data, options);
     }
   }-*/;
 
@@ -75,6 +75,27 @@ public abstract class AbstractVisualization<E extends AbstractDrawOptions>
     return visualization;
   }
 
+  /**
+   * Draws with options passed from JavaScript, whose type cannot be checked.
+   */
+  @SuppressWarnings("unchecked")
+  private static <E extends AbstractDrawOptions> void drawCaptured(
+      AbstractVisualization<E> visualization, AbstractDataTable data,
+      AbstractDrawOptions options) {
+    visualization.draw(data, (E) options);
+  }
+
+  @SuppressWarnings("unused")
+  private static void drawFromJavaScript(
+      AbstractVisualization<?> visualization, AbstractDataTable data,
+      AbstractDrawOptions options) {
+    String name = visualization.getClass().getName();
+    RenderTimings.Measurement measurement = RenderTimings.begin(
+        RenderTimings.Phase.DRAW, name.substring(name.lastIndexOf('.') + 1));
+    drawCaptured(visualization, data, options);
+    measurement.end(data);
+  }
+
   private static native void fireSelectionEvent(JavaScriptObject jso) /*-{
     $wnd.google.visualization.events.trigger(jso, 'select', null);
   }-*/;
@@ -19,12 +19,19 @@ import com.google.gwt.ajaxloader.client.ArrayHelper;
 import com.google.gwt.ajaxloader.client.Properties;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArrayInteger;
+import com.google.gwt.core.client.JsArrayNumber;
 
 import java.util.Date;
 
 /**
  * This class represents the DataTable.
  * 
+ * Large tables are filled fastest a column at a time: add the rows with
+ * {@link #addRows(int)}, then pass each column as a Java array to one of the
+ * <code>setColumnValues</code> methods, or pass row-major numeric data to
+ * {@link #setRowValues(int, int, int, double[])}. Each of these methods
+ * crosses from Java into JavaScript once, however many cells it sets.
+ * 
  * @see <a
  *      href="http://code.google.com/apis/visualization/documentation/reference.html#DataTable">
  *      DataTable API Reference</a>
@@ -160,6 +167,81 @@ public class DataTable extends AbstractDataTable {
     this.setColumnLabel(columnIndex, label);
   }-*/;
 
+  /**
+   * Sets consecutive values of a boolean column in a single call.
+   * 
+   * @param columnIndex The index of the column.
+   * @param firstRow The index of the row receiving the first value. The rows
+   *          must already exist.
+   * @param values The values to set.
+   */
+  public final void setColumnValues(int columnIndex, int firstRow,
+      boolean[] values) {
+    setColumnValues(columnIndex, firstRow,
+        ArrayHelper.toJsArrayBoolean(values));
+  }
+
+  /**
+   * Sets consecutive values of a number column in a single call, instead of
+   * calling {@link #setValue(int, int, double)} for each row.
+   * 
+   * @param columnIndex The index of the column.
+   * @param firstRow The index of the row receiving the first value. The rows
+   *          must already exist.
+   * @param values The values to set. <code>NaN</code> values are stored as
+   *          null.
+   */
+  public final void setColumnValues(int columnIndex, int firstRow,
+      double[] values) {
+    setColumnValuesNumber(columnIndex, firstRow,
+        ArrayHelper.toJsArrayNumber(values));
+  }
+
+  /**
+   * Sets consecutive values of a number column in a single call.
+   * 
+   * @param columnIndex The index of the column.
+   * @param firstRow The index of the row receiving the first value. The rows
+   *          must already exist.
+   * @param values The values to set.
+   */
+  public final void setColumnValues(int columnIndex, int firstRow,
+      int[] values) {
+    setColumnValues(columnIndex, firstRow,
+        ArrayHelper.toJsArrayInteger(values));
+  }
+
+  /**
+   * Sets consecutive values of a string column in a single call.
+   * 
+   * @param columnIndex The index of the column.
+   * @param firstRow The index of the row receiving the first value. The rows
+   *          must already exist.
+   * @param values The values to set. <code>null</code> elements are stored
+   *          as null.
+   */
+  public final void setColumnValues(int columnIndex, int firstRow,
+      String[] values) {
+    setColumnValues(columnIndex, firstRow, ArrayHelper.toJsArrayString(values));
+  }
+
+  /**
+   * Sets consecutive values of a date or datetime column in a single call.
+   * The values are given as milliseconds since the epoch, as returned by
+   * {@link Date#getTime()}, so that no Date object is needed per cell.
+   * 
+   * @param columnIndex The index of the column.
+   * @param firstRow The index of the row receiving the first value. The rows
+   *          must already exist.
+   * @param epochMillis The values to set. <code>NaN</code> values are stored
+   *          as null.
+   */
+  public final void setColumnValuesDate(int columnIndex, int firstRow,
+      double[] epochMillis) {
+    setColumnValuesDate(columnIndex, firstRow,
+        ArrayHelper.toJsArrayNumber(epochMillis));
+  }
+
   public final native void setFormattedValue(int rowIndex, int columnIndex,
       String value) /*-{
     this.setFormattedValue(rowIndex, columnIndex, value);
@@ -175,6 +257,27 @@ public class DataTable extends AbstractDataTable {
     this.setProperty(rowIndex, columnIndex, name, value);
   }-*/;
 
+  /**
+   * Sets a block of number cells from row-major data in a single call.
+   * 
+   * @param firstRow The index of the first row of the block. The rows must
+   *          already exist.
+   * @param firstColumn The index of the first column of the block.
+   * @param numberOfColumns The number of columns in the block.
+   * @param values The values of the block, row after row. Its length must be
+   *          a multiple of <code>numberOfColumns</code>. <code>NaN</code>
+   *          values are stored as null.
+   */
+  public final void setRowValues(int firstRow, int firstColumn,
+      int numberOfColumns, double[] values) {
+    if (numberOfColumns < 1 || values.length % numberOfColumns != 0) {
+      throw new IllegalArgumentException("values.length " + values.length
+          + " is not a multiple of numberOfColumns " + numberOfColumns);
+    }
+    setRowValues(firstRow, firstColumn, numberOfColumns,
+        ArrayHelper.toJsArrayNumber(values));
+  }
+
   public final native void setValue(int rowIndex, int columnIndex, boolean value) /*-{
     this.setValue(rowIndex, columnIndex, value);
   }-*/;
@@ -258,6 +361,45 @@ public class DataTable extends AbstractDataTable {
     this.setCell(rowIndex, columnIndex, newDate, formattedValue, properties);
   }-*/;
 
+  private native void setColumnValues(int columnIndex, int firstRow,
+      JavaScriptObject values) /*-{
+    for (var i = 0, n = values.length; i < n; ++i) {
+      this.setValue(firstRow + i, columnIndex, values[i]);
+    }
+  }-*/;
+
+  private native void setColumnValuesDate(int columnIndex, int firstRow,
+      JsArrayNumber values) /*-{
+    for (var i = 0, n = values.length; i < n; ++i) {
+      var value = null;
+      if (!isNaN(values[i])) {
+        value = new $wnd.Date(values[i]);
+        // Safari bug: see issue 219
+        value.constructor = $wnd.Date;
+      }
+      this.setValue(firstRow + i, columnIndex, value);
+    }
+  }-*/;
+
+  private native void setColumnValuesNumber(int columnIndex, int firstRow,
+      JsArrayNumber values) /*-{
+    for (var i = 0, n = values.length; i < n; ++i) {
+      var value = values[i];
+      this.setValue(firstRow + i, columnIndex, isNaN(value) ? null : value);
+    }
+  }-*/;
+
+  private native void setRowValues(int firstRow, int firstColumn,
+      int numberOfColumns, JsArrayNumber values) /*-{
+    var row = firstRow;
+    for (var i = 0, n = values.length; i < n; i += numberOfColumns, ++row) {
+      for (var j = 0; j < numberOfColumns; ++j) {
+        var value = values[i + j];
+        this.setValue(row, firstColumn + j, isNaN(value) ? null : value);
+      }
+    }
+  }-*/;
+
   private native void setValue(int rowIndex, int columnIndex, int hour,
       int minute, int second, int millis) /*-{
     var newArray = new $wnd.Array(hour, minute, second, millis);
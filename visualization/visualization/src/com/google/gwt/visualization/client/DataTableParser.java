@@ -0,0 +1,688 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+import com.google.gwt.visualization.client.AbstractDataTable.ColumnType;
+
+import java.util.Date;
+
+/**
+ * Fills a {@link DataTable} from CSV or JSON text a chunk at a time, so that
+ * large inputs do not block the browser.
+ *
+ * The columns of the table must be added before parsing, and their types
+ * decide how the text of each cell is converted:
+ * <ul>
+ * <li>Number columns take numbers.</li>
+ * <li>Boolean columns take <code>true</code> or <code>false</code>.</li>
+ * <li>Date and datetime columns take milliseconds since the epoch, dates
+ * such as <code>2010-06-30</code> or <code>2010-06-30 14:05:00</code>, or the
+ * <code>Date(2010, 5, 30)</code> form of data source responses, where months
+ * start at 0.</li>
+ * <li>String columns take any text.</li>
+ * </ul>
+ * Timeofday columns are not supported.
+ *
+ * CSV input follows RFC 4180: fields are separated by commas, and double
+ * quotes enclose fields holding commas, quotes or line breaks. Empty unquoted
+ * fields are null. JSON input is an array of rows, each row an array of
+ * values, such as <code>[[1, "a", true], [2, null, false]]</code>.
+ *
+ * {@link #start(Callback)} parses with
+ * {@link Scheduler#scheduleIncremental(RepeatingCommand)}. Each chunk parses
+ * rows for at most {@link #getTimeBudgetMillis()} milliseconds and adds them
+ * to the table in a few bulk calls. The callback is told of the progress after
+ * each chunk, and the table may be drawn at that point to show the rows
+ * parsed so far. {@link #setFirstChunkRows(int)} makes the first chunk end
+ * after a given number of rows, so that they can be shown as early as
+ * possible.
+ */
+public class DataTableParser {
+
+  /**
+   * Receives the progress and the outcome of parsing.
+   */
+  public interface Callback {
+    /**
+     * Called once every row has been added to the table.
+     *
+     * @param data the table.
+     */
+    void onComplete(DataTable data);
+
+    /**
+     * Called if the input is invalid. The rows of the chunks added before the
+     * error remain in the table.
+     *
+     * @param caught the error.
+     */
+    void onFailure(Throwable caught);
+
+    /**
+     * Called after each chunk of rows is added to the table, except the last.
+     *
+     * @param data the table.
+     * @param fraction the fraction of the input parsed so far.
+     */
+    void onProgress(DataTable data, double fraction);
+  }
+
+  /**
+   * The format of the input.
+   */
+  public static enum Format {
+    CSV, JSON
+  }
+
+  /**
+   * The default number of milliseconds a chunk may take.
+   */
+  public static final int DEFAULT_TIME_BUDGET_MILLIS = 20;
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int ROWS_PER_CLOCK_CHECK = 32;
+
+  @SuppressWarnings("deprecation")
+  private static double toMillis(int[] fields) {
+    return new Date(fields[0] - 1900, fields[1], fields[2], fields[3],
+        fields[4], fields[5]).getTime() + fields[6];
+  }
+
+  private boolean cancelled;
+  private int capacity;
+  private final String[] cells;
+  private final DataTable data;
+  private int firstChunkRows;
+  private final Format format;
+  private boolean hasHeaderRow;
+  private boolean headerSkipped;
+  private boolean jsonEnded;
+  private boolean jsonStarted;
+  private double[][] numbers;
+  private int position;
+  private boolean started;
+  private String[][] strings;
+  private final String text;
+  private int timeBudgetMillis = DEFAULT_TIME_BUDGET_MILLIS;
+  private final ColumnType[] types;
+
+  /**
+   * Creates a parser adding rows to a table.
+   *
+   * @param data the table receiving the rows, with its columns added.
+   * @param format the format of the input.
+   * @param text the input.
+   */
+  public DataTableParser(DataTable data, Format format, String text) {
+    this.data = data;
+    this.format = format;
+    this.text = text;
+    int numberOfColumns = data.getNumberOfColumns();
+    cells = new String[numberOfColumns];
+    types = new ColumnType[numberOfColumns];
+    numbers = new double[numberOfColumns][];
+    strings = new String[numberOfColumns][];
+    for (int i = 0; i < numberOfColumns; ++i) {
+      types[i] = data.getColumnType(i);
+      if (types[i] == ColumnType.TIMEOFDAY) {
+        throw new IllegalArgumentException("Column " + i
+            + " is a timeofday column, which is not supported");
+      }
+    }
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Stops parsing started by {@link #start(Callback)}. The callback is not
+   * called anymore.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Returns the fraction of the input parsed so far.
+   *
+   * @return a number from 0 to 1.
+   */
+  public double getProgress() {
+    return text.length() == 0 ? 1 : (double) position / text.length();
+  }
+
+  public int getTimeBudgetMillis() {
+    return timeBudgetMillis;
+  }
+
+  /**
+   * Parses the whole input at once.
+   *
+   * @return the table.
+   * @throws IllegalArgumentException if the input is invalid.
+   */
+  public DataTable parse() {
+    markStarted();
+    while (parseChunk(false)) {
+      // Keep parsing.
+    }
+    return data;
+  }
+
+  /**
+   * Makes the first chunk end after a number of rows, even if its time budget
+   * is not used up.
+   *
+   * @param rows the number of rows of the first chunk, or 0 for no limit.
+   */
+  public void setFirstChunkRows(int rows) {
+    if (rows < 0) {
+      throw new IllegalArgumentException("rows must not be negative: " + rows);
+    }
+    firstChunkRows = rows;
+  }
+
+  /**
+   * Sets whether the first CSV row holds column labels, in which case it is
+   * skipped.
+   *
+   * @param hasHeaderRow <code>true</code> to skip the first row.
+   */
+  public void setHeaderRow(boolean hasHeaderRow) {
+    this.hasHeaderRow = hasHeaderRow;
+  }
+
+  /**
+   * Sets the number of milliseconds a chunk may take.
+   *
+   * @param millis the time budget of a chunk.
+   */
+  public void setTimeBudgetMillis(int millis) {
+    if (millis < 1) {
+      throw new IllegalArgumentException("millis must be positive: " + millis);
+    }
+    timeBudgetMillis = millis;
+  }
+
+  /**
+   * Starts parsing the input a chunk at a time.
+   *
+   * @param callback the callback receiving the progress and the outcome.
+   */
+  public void start(final Callback callback) {
+    markStarted();
+    Scheduler.get().scheduleIncremental(new RepeatingCommand() {
+      public boolean execute() {
+        if (cancelled) {
+          return false;
+        }
+        boolean more;
+        try {
+          more = parseChunk(true);
+        } catch (IllegalArgumentException e) {
+          callback.onFailure(e);
+          return false;
+        }
+        if (more) {
+          callback.onProgress(data, getProgress());
+        } else {
+          callback.onComplete(data);
+        }
+        return more;
+      }
+    });
+  }
+
+  private void allocate(int capacity) {
+    this.capacity = capacity;
+    for (int i = 0; i < types.length; ++i) {
+      if (types[i] == ColumnType.STRING) {
+        String[] values = new String[capacity];
+        if (strings[i] != null) {
+          System.arraycopy(strings[i], 0, values, 0, strings[i].length);
+        }
+        strings[i] = values;
+      } else {
+        double[] values = new double[capacity];
+        if (numbers[i] != null) {
+          System.arraycopy(numbers[i], 0, values, 0, numbers[i].length);
+        }
+        numbers[i] = values;
+      }
+    }
+  }
+
+  private void checkCellCount(int count) {
+    if (count != cells.length) {
+      throw error("Row has " + count + " cells instead of " + cells.length);
+    }
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(message + " at character "
+        + position);
+  }
+
+  private void expect(char expected) {
+    if (next() != expected) {
+      --position;
+      throw error("Expected '" + expected + "'");
+    }
+  }
+
+  /**
+   * Adds the buffered rows to the table.
+   */
+  private void flush(int count) {
+    if (count == 0) {
+      return;
+    }
+    int firstRow = data.getNumberOfRows();
+    data.addRows(count);
+    for (int i = 0; i < types.length; ++i) {
+      switch (types[i]) {
+        case BOOLEAN:
+          for (int j = 0; j < count; ++j) {
+            if (Double.isNaN(numbers[i][j])) {
+              data.setValueNull(firstRow + j, i);
+            } else {
+              data.setValue(firstRow + j, i, numbers[i][j] != 0);
+            }
+          }
+          break;
+        case DATE:
+        case DATETIME:
+          data.setColumnValuesDate(i, firstRow, slice(numbers[i], count));
+          break;
+        case NUMBER:
+          data.setColumnValues(i, firstRow, slice(numbers[i], count));
+          break;
+        default:
+          String[] values = strings[i];
+          if (count < values.length) {
+            values = new String[count];
+            System.arraycopy(strings[i], 0, values, 0, count);
+          }
+          data.setColumnValues(i, firstRow, values);
+          break;
+      }
+    }
+  }
+
+  private boolean isLineEnd(char c) {
+    return c == '\n' || c == '\r';
+  }
+
+  private void markStarted() {
+    if (started) {
+      throw new IllegalStateException("Parsing has already started");
+    }
+    started = true;
+  }
+
+  private char next() {
+    char c = peek();
+    ++position;
+    return c;
+  }
+
+  private String nextCsvField() {
+    int length = text.length();
+    if (position < length && text.charAt(position) == '"') {
+      StringBuilder value = new StringBuilder();
+      ++position;
+      while (true) {
+        int quote = text.indexOf('"', position);
+        if (quote < 0) {
+          throw error("Unterminated quoted field");
+        }
+        value.append(text.substring(position, quote));
+        position = quote + 1;
+        if (position < length && text.charAt(position) == '"') {
+          value.append('"');
+          ++position;
+        } else {
+          break;
+        }
+      }
+      if (position < length && text.charAt(position) != ','
+          && !isLineEnd(text.charAt(position))) {
+        throw error("Expected ',' after quoted field");
+      }
+      return value.toString();
+    }
+    int start = position;
+    while (position < length) {
+      char c = text.charAt(position);
+      if (c == ',' || isLineEnd(c)) {
+        break;
+      }
+      ++position;
+    }
+    return start == position ? null : text.substring(start, position);
+  }
+
+  /**
+   * Reads the cells of the next CSV row, skipping blank lines.
+   */
+  private boolean nextCsvRow() {
+    int length = text.length();
+    while (position < length && isLineEnd(text.charAt(position))) {
+      ++position;
+    }
+    if (position == length) {
+      return false;
+    }
+    int count = 0;
+    while (true) {
+      String value = nextCsvField();
+      if (count < cells.length) {
+        cells[count] = value;
+      }
+      ++count;
+      if (position == length) {
+        break;
+      }
+      char c = text.charAt(position++);
+      if (c != ',') {
+        if (c == '\r' && position < length && text.charAt(position) == '\n') {
+          ++position;
+        }
+        break;
+      }
+    }
+    checkCellCount(count);
+    return true;
+  }
+
+  /**
+   * Reads the cells of the next JSON row.
+   */
+  private boolean nextJsonRow() {
+    if (jsonEnded) {
+      return false;
+    }
+    skipWhitespace();
+    if (!jsonStarted) {
+      expect('[');
+      jsonStarted = true;
+      skipWhitespace();
+      if (peek() == ']') {
+        ++position;
+        jsonEnded = true;
+        return false;
+      }
+    }
+    expect('[');
+    skipWhitespace();
+    int count = 0;
+    if (peek() == ']') {
+      ++position;
+    } else {
+      while (true) {
+        skipWhitespace();
+        String value = nextJsonValue();
+        if (count < cells.length) {
+          cells[count] = value;
+        }
+        ++count;
+        skipWhitespace();
+        char c = next();
+        if (c == ']') {
+          break;
+        }
+        if (c != ',') {
+          --position;
+          throw error("Expected ',' or ']'");
+        }
+      }
+    }
+    checkCellCount(count);
+    skipWhitespace();
+    char c = next();
+    if (c == ']') {
+      jsonEnded = true;
+    } else if (c != ',') {
+      --position;
+      throw error("Expected ',' or ']'");
+    }
+    return true;
+  }
+
+  private String nextJsonString() {
+    expect('"');
+    StringBuilder value = null;
+    int start = position;
+    while (true) {
+      char c = next();
+      if (c == '"') {
+        break;
+      }
+      if (c != '\\') {
+        if (value != null) {
+          value.append(c);
+        }
+        continue;
+      }
+      if (value == null) {
+        value = new StringBuilder(text.substring(start, position - 1));
+      }
+      c = next();
+      switch (c) {
+        case 'b':
+          value.append('\b');
+          break;
+        case 'f':
+          value.append('\f');
+          break;
+        case 'n':
+          value.append('\n');
+          break;
+        case 'r':
+          value.append('\r');
+          break;
+        case 't':
+          value.append('\t');
+          break;
+        case 'u':
+          if (position + 4 > text.length()) {
+            throw error("Invalid unicode escape");
+          }
+          try {
+            value.append((char) Integer.parseInt(text.substring(position,
+                position + 4), 16));
+          } catch (NumberFormatException e) {
+            throw error("Invalid unicode escape");
+          }
+          position += 4;
+          break;
+        default:
+          value.append(c);
+          break;
+      }
+    }
+    return value == null ? text.substring(start, position - 1)
+        : value.toString();
+  }
+
+  /**
+   * Reads a JSON value, returning <code>null</code> for null and the text of
+   * numbers and booleans.
+   */
+  private String nextJsonValue() {
+    char c = peek();
+    if (c == '"') {
+      return nextJsonString();
+    }
+    int start = position;
+    while (position < text.length()) {
+      c = text.charAt(position);
+      if (c == ',' || c == ']' || c == ' ' || c == '\t' || isLineEnd(c)) {
+        break;
+      }
+      ++position;
+    }
+    String value = text.substring(start, position);
+    if (value.length() == 0) {
+      throw error("Expected a value");
+    }
+    return value.equals("null") ? null : value;
+  }
+
+  private boolean nextRow() {
+    return format == Format.CSV ? nextCsvRow() : nextJsonRow();
+  }
+
+  /**
+   * Parses rows until the input ends, or until the chunk is over if
+   * <code>budgeted</code> is set, and adds them to the table.
+   *
+   * @return <code>true</code> if input remains.
+   */
+  private boolean parseChunk(boolean budgeted) {
+    if (hasHeaderRow && format == Format.CSV && !headerSkipped) {
+      headerSkipped = true;
+      nextCsvRow();
+    }
+    Duration duration = new Duration();
+    int count = 0;
+    boolean more = true;
+    while (true) {
+      if (!nextRow()) {
+        more = false;
+        break;
+      }
+      if (count == capacity) {
+        allocate(count * 2);
+      }
+      store(count++);
+      if (!budgeted) {
+        continue;
+      }
+      if (firstChunkRows > 0 && count == firstChunkRows) {
+        firstChunkRows = 0;
+        break;
+      }
+      if (count % ROWS_PER_CLOCK_CHECK == 0
+          && duration.elapsedMillis() >= timeBudgetMillis) {
+        break;
+      }
+    }
+    flush(count);
+    return more;
+  }
+
+  private boolean parseBoolean(String value) {
+    if ("true".equals(value)) {
+      return true;
+    }
+    if ("false".equals(value)) {
+      return false;
+    }
+    throw error("Invalid boolean " + value);
+  }
+
+  private double parseDate(String value) {
+    int[] fields = new int[] {0, 0, 1, 0, 0, 0, 0};
+    try {
+      if (value.startsWith("Date(") && value.endsWith(")")) {
+        String[] parts = value.substring(5, value.length() - 1).split(",");
+        if (parts.length < 3 || parts.length > fields.length) {
+          throw error("Invalid date " + value);
+        }
+        for (int i = 0; i < parts.length; ++i) {
+          fields[i] = Integer.parseInt(parts[i].trim());
+        }
+        return toMillis(fields);
+      }
+      if (value.length() >= 10 && value.charAt(4) == '-'
+          && value.charAt(7) == '-') {
+        String[] parts = value.split("[-T: ]");
+        if (parts.length != 3 && parts.length != 5 && parts.length != 6) {
+          throw error("Invalid date " + value);
+        }
+        for (int i = 0; i < parts.length; ++i) {
+          fields[i] = Integer.parseInt(parts[i]);
+        }
+        --fields[1];
+        return toMillis(fields);
+      }
+    } catch (NumberFormatException e) {
+      throw error("Invalid date " + value);
+    }
+    return parseNumber(value);
+  }
+
+  private double parseNumber(String value) {
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw error("Invalid number " + value);
+    }
+  }
+
+  private char peek() {
+    if (position >= text.length()) {
+      throw error("Unexpected end of input");
+    }
+    return text.charAt(position);
+  }
+
+  private void skipWhitespace() {
+    while (position < text.length()) {
+      char c = text.charAt(position);
+      if (c != ' ' && c != '\t' && !isLineEnd(c)) {
+        break;
+      }
+      ++position;
+    }
+  }
+
+  private double[] slice(double[] values, int count) {
+    if (count == values.length) {
+      return values;
+    }
+    double[] result = new double[count];
+    System.arraycopy(values, 0, result, 0, count);
+    return result;
+  }
+
+  /**
+   * Converts the cells of the current row into the buffers.
+   */
+  private void store(int row) {
+    for (int i = 0; i < types.length; ++i) {
+      String value = cells[i];
+      switch (types[i]) {
+        case BOOLEAN:
+          numbers[i][row] = value == null ? Double.NaN
+              : parseBoolean(value) ? 1 : 0;
+          break;
+        case DATE:
+        case DATETIME:
+          numbers[i][row] = value == null ? Double.NaN : parseDate(value);
+          break;
+        case NUMBER:
+          numbers[i][row] = value == null ? Double.NaN : parseNumber(value);
+          break;
+        default:
+          strings[i][row] = value;
+          break;
+      }
+    }
+  }
+}
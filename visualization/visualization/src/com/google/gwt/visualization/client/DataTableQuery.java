@@ -0,0 +1,786 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.visualization.client.AbstractDataTable.ColumnType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filters, sorts, groups and aggregates the rows of a table in Java, over a
+ * {@link TableSnapshot} of its values.
+ *
+ * {@link #selectRows(TableSnapshot)} returns the indices of the rows accepted
+ * by every filter, ordered by the sort keys and cut to the limit, and
+ * {@link #createView(TableSnapshot)} returns a {@link DataView} showing those
+ * rows. {@link #aggregate(TableSnapshot)} groups the accepted rows by the
+ * group-by columns and returns a new {@link DataTable} with one row per group:
+ * the group-by columns come first, followed by one column per aggregation.
+ * Groups are ordered by the group-by columns, unless sort keys are given, in
+ * which case the sort keys refer to columns of the aggregated table.
+ *
+ * Null values are sorted before all other values, only match the
+ * {@link #isNull(int)} filter, and are ignored by aggregations. An aggregation
+ * over a group with no values is null, except {@link Aggregation#COUNT},
+ * which is 0.
+ *
+ * A snapshot can be reused by several queries over the same table, so that
+ * each column is read from the table only once.
+ */
+public class DataTableQuery {
+
+  /**
+   * Functions that combine the values of a column within a group.
+   */
+  public static enum Aggregation {
+    /**
+     * The average of the values of a number column.
+     */
+    AVG,
+    /**
+     * The number of non-null values of a column of any type.
+     */
+    COUNT,
+    /**
+     * The largest value of a number, date, datetime or boolean column.
+     */
+    MAX,
+    /**
+     * The smallest value of a number, date, datetime or boolean column.
+     */
+    MIN,
+    /**
+     * The sum of the values of a number column.
+     */
+    SUM
+  }
+
+  /**
+   * Decides which rows a query accepts.
+   */
+  public interface Filter {
+    /**
+     * @param snapshot the values of the table being queried.
+     * @param rowIndex the index of the row in the table.
+     * @return <code>true</code> to accept the row.
+     */
+    boolean accept(TableSnapshot snapshot, int rowIndex);
+  }
+
+  /**
+   * An aggregated column of the result of {@link #aggregate(TableSnapshot)}.
+   */
+  private static class AggregationColumn {
+    final Aggregation aggregation;
+    final int columnIndex;
+    final String label;
+
+    AggregationColumn(int columnIndex, Aggregation aggregation, String label) {
+      this.columnIndex = columnIndex;
+      this.aggregation = aggregation;
+      this.label = label;
+    }
+  }
+
+  /**
+   * The values of one column, held either as doubles or as strings.
+   */
+  private static class Column {
+    final double[] numbers;
+    final String[] strings;
+
+    Column(double[] numbers, String[] strings) {
+      this.numbers = numbers;
+      this.strings = strings;
+    }
+
+    int compare(int a, int b) {
+      if (strings != null) {
+        String x = strings[a];
+        String y = strings[b];
+        if (x == null || y == null) {
+          return x == null ? (y == null ? 0 : -1) : 1;
+        }
+        return x.compareTo(y);
+      }
+      double x = numbers[a];
+      double y = numbers[b];
+      if (Double.isNaN(x) || Double.isNaN(y)) {
+        return Double.isNaN(x) ? (Double.isNaN(y) ? 0 : -1) : 1;
+      }
+      return x < y ? -1 : (x > y ? 1 : 0);
+    }
+  }
+
+  /**
+   * Orders rows by a list of columns, then by index, so that no two rows are
+   * equal.
+   */
+  private static class RowOrder {
+    final boolean[] ascending;
+    final Column[] columns;
+
+    RowOrder(Column[] columns, boolean[] ascending) {
+      this.columns = columns;
+      this.ascending = ascending;
+    }
+
+    int compare(int a, int b) {
+      for (int i = 0; i < columns.length; ++i) {
+        int result = columns[i].compare(a, b);
+        if (result != 0) {
+          return ascending[i] ? result : -result;
+        }
+      }
+      return a < b ? -1 : (a > b ? 1 : 0);
+    }
+  }
+
+  /**
+   * A column to sort by and its direction.
+   */
+  private static class SortKey {
+    final boolean ascending;
+    final int columnIndex;
+
+    SortKey(int columnIndex, boolean ascending) {
+      this.columnIndex = columnIndex;
+      this.ascending = ascending;
+    }
+  }
+
+  /**
+   * Returns a filter accepting the rows accepted by all the given filters.
+   *
+   * @param filters the filters to combine.
+   * @return the combined filter.
+   */
+  public static Filter and(final Filter... filters) {
+    return new Filter() {
+      public boolean accept(TableSnapshot snapshot, int rowIndex) {
+        for (Filter filter : filters) {
+          if (!filter.accept(snapshot, rowIndex)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Returns a filter accepting the rows whose value in a number, date,
+   * datetime or boolean column equals the given value.
+   *
+   * @param columnIndex the index of the column.
+   * @param value the value to match, with dates in epoch milliseconds and
+   *          booleans as 1 or 0.
+   * @return the filter.
+   */
+  public static Filter equalTo(final int columnIndex, final double value) {
+    return new Filter() {
+      public boolean accept(TableSnapshot snapshot, int rowIndex) {
+        return snapshot.getDouble(rowIndex, columnIndex) == value;
+      }
+    };
+  }
+
+  /**
+   * Returns a filter accepting the rows whose value in a string column equals
+   * the given value.
+   *
+   * @param columnIndex the index of the column.
+   * @param value the value to match.
+   * @return the filter.
+   */
+  public static Filter equalTo(final int columnIndex, final String value) {
+    return new Filter() {
+      public boolean accept(TableSnapshot snapshot, int rowIndex) {
+        return value.equals(snapshot.getString(rowIndex, columnIndex));
+      }
+    };
+  }
+
+  /**
+   * Returns a filter accepting the rows whose value in a column is null.
+   *
+   * @param columnIndex the index of the column.
+   * @return the filter.
+   */
+  public static Filter isNull(final int columnIndex) {
+    return new Filter() {
+      public boolean accept(TableSnapshot snapshot, int rowIndex) {
+        return snapshot.isValueNull(rowIndex, columnIndex);
+      }
+    };
+  }
+
+  /**
+   * Returns a filter accepting the rows the given filter rejects.
+   *
+   * @param filter the filter to negate.
+   * @return the negated filter.
+   */
+  public static Filter not(final Filter filter) {
+    return new Filter() {
+      public boolean accept(TableSnapshot snapshot, int rowIndex) {
+        return !filter.accept(snapshot, rowIndex);
+      }
+    };
+  }
+
+  /**
+   * Returns a filter accepting the rows accepted by any of the given filters.
+   *
+   * @param filters the filters to combine.
+   * @return the combined filter.
+   */
+  public static Filter or(final Filter... filters) {
+    return new Filter() {
+      public boolean accept(TableSnapshot snapshot, int rowIndex) {
+        for (Filter filter : filters) {
+          if (filter.accept(snapshot, rowIndex)) {
+            return true;
+          }
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns a filter accepting the rows whose value in a number, date,
+   * datetime or boolean column lies within a closed range. Use infinite
+   * bounds for open ranges.
+   *
+   * @param columnIndex the index of the column.
+   * @param min the smallest value accepted.
+   * @param max the largest value accepted.
+   * @return the filter.
+   */
+  public static Filter range(final int columnIndex, final double min,
+      final double max) {
+    return new Filter() {
+      public boolean accept(TableSnapshot snapshot, int rowIndex) {
+        double value = snapshot.getDouble(rowIndex, columnIndex);
+        return value >= min && value <= max;
+      }
+    };
+  }
+
+  /**
+   * Merges sorted runs of doubling width, from the bottom up.
+   */
+  private static void sort(int[] rows, int count, RowOrder order) {
+    int[] buffer = new int[count];
+    for (int width = 1; width < count; width *= 2) {
+      for (int lo = 0; lo < count - width; lo += 2 * width) {
+        int mid = lo + width;
+        int hi = Math.min(lo + 2 * width, count);
+        System.arraycopy(rows, lo, buffer, lo, hi - lo);
+        int i = lo;
+        int j = mid;
+        int k = lo;
+        while (i < mid && j < hi) {
+          rows[k++] = order.compare(buffer[j], buffer[i]) < 0 ? buffer[j++]
+              : buffer[i++];
+        }
+        while (i < mid) {
+          rows[k++] = buffer[i++];
+        }
+        while (j < hi) {
+          rows[k++] = buffer[j++];
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the first <code>limit</code> rows in order, keeping only that many
+   * rows sorted while scanning.
+   */
+  private static int[] top(int[] rows, int count, RowOrder order, int limit) {
+    int[] top = new int[limit];
+    int size = 0;
+    for (int i = 0; i < count; ++i) {
+      int row = rows[i];
+      if (size == limit && order.compare(row, top[size - 1]) > 0) {
+        continue;
+      }
+      int lo = 0;
+      int hi = size;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (order.compare(row, top[mid]) < 0) {
+          hi = mid;
+        } else {
+          lo = mid + 1;
+        }
+      }
+      int end = size == limit ? size - 1 : size++;
+      System.arraycopy(top, lo, top, lo + 1, end - lo);
+      top[lo] = row;
+    }
+    return top;
+  }
+
+  private final List<AggregationColumn> aggregations =
+      new ArrayList<AggregationColumn>();
+  private final List<Filter> filters = new ArrayList<Filter>();
+  private int[] groupBy = new int[0];
+  private int limit;
+  private final List<SortKey> sortKeys = new ArrayList<SortKey>();
+
+  /**
+   * Adds an aggregated column to the result of
+   * {@link #aggregate(TableSnapshot)}, labelled after the source column and
+   * the aggregation.
+   *
+   * @param columnIndex the index of the column to aggregate.
+   * @param aggregation the function combining the values of each group.
+   */
+  public void addAggregation(int columnIndex, Aggregation aggregation) {
+    addAggregation(columnIndex, aggregation, null);
+  }
+
+  /**
+   * Adds an aggregated column to the result of
+   * {@link #aggregate(TableSnapshot)}.
+   *
+   * @param columnIndex the index of the column to aggregate.
+   * @param aggregation the function combining the values of each group.
+   * @param label the label of the aggregated column.
+   */
+  public void addAggregation(int columnIndex, Aggregation aggregation,
+      String label) {
+    aggregations.add(new AggregationColumn(columnIndex, aggregation, label));
+  }
+
+  /**
+   * Adds a filter. Rows must be accepted by every filter.
+   *
+   * @param filter the filter to add.
+   */
+  public void addFilter(Filter filter) {
+    filters.add(filter);
+  }
+
+  /**
+   * Adds a sort key. Rows are ordered by the first sort key, then by the
+   * second, and so on, and finally by their index.
+   *
+   * @param columnIndex the index of the column to sort by.
+   * @param ascending <code>true</code> to sort in ascending order.
+   */
+  public void addSortKey(int columnIndex, boolean ascending) {
+    sortKeys.add(new SortKey(columnIndex, ascending));
+  }
+
+  /**
+   * Groups and aggregates the accepted rows of a table.
+   *
+   * @param table the table to query.
+   * @return a new table with one row per group.
+   * @see #aggregate(TableSnapshot)
+   */
+  public DataTable aggregate(AbstractDataTable table) {
+    return aggregate(new TableSnapshot(table));
+  }
+
+  /**
+   * Groups the accepted rows by the group-by columns and aggregates each
+   * group. Without group-by columns, all accepted rows form a single group.
+   *
+   * @param snapshot the values of the table to query.
+   * @return a new table with one row per group.
+   */
+  public DataTable aggregate(TableSnapshot snapshot) {
+    int[] rows = filter(snapshot);
+    int count = rows.length;
+
+    int[] groupOf = new int[count];
+    int[] firstRows = new int[Math.max(count, 1)];
+    int groupCount = 0;
+    if (groupBy.length == 0) {
+      groupCount = 1;
+    } else {
+      Map<String, Integer> groups = new HashMap<String, Integer>();
+      for (int i = 0; i < count; ++i) {
+        String key = groupKey(snapshot, rows[i]);
+        Integer group = groups.get(key);
+        if (group == null) {
+          group = groupCount++;
+          groups.put(key, group);
+          firstRows[group] = rows[i];
+        }
+        groupOf[i] = group;
+      }
+    }
+
+    int numberOfColumns = groupBy.length + aggregations.size();
+    Column[] columns = new Column[numberOfColumns];
+    ColumnType[] types = new ColumnType[numberOfColumns];
+    String[] labels = new String[numberOfColumns];
+    AbstractDataTable table = snapshot.getDataTable();
+    for (int c = 0; c < groupBy.length; ++c) {
+      int source = groupBy[c];
+      types[c] = snapshot.getColumnType(source);
+      labels[c] = table.getColumnLabel(source);
+      if (snapshot.isStringColumn(source)) {
+        String[] values = new String[groupCount];
+        for (int g = 0; g < groupCount; ++g) {
+          values[g] = snapshot.getString(firstRows[g], source);
+        }
+        columns[c] = new Column(null, values);
+      } else {
+        double[] values = new double[groupCount];
+        for (int g = 0; g < groupCount; ++g) {
+          values[g] = snapshot.getDouble(firstRows[g], source);
+        }
+        columns[c] = new Column(values, null);
+      }
+    }
+    for (int a = 0; a < aggregations.size(); ++a) {
+      AggregationColumn aggregation = aggregations.get(a);
+      int c = groupBy.length + a;
+      types[c] = getAggregatedType(snapshot, aggregation);
+      labels[c] = aggregation.label != null ? aggregation.label
+          : table.getColumnLabel(aggregation.columnIndex) + " ("
+              + aggregation.aggregation.name().toLowerCase() + ")";
+      columns[c] = new Column(aggregate(snapshot, aggregation, rows, groupOf,
+          groupCount), null);
+    }
+
+    int[] groups = new int[groupCount];
+    for (int g = 0; g < groupCount; ++g) {
+      groups[g] = g;
+    }
+    RowOrder order;
+    if (sortKeys.isEmpty()) {
+      Column[] keys = new Column[groupBy.length];
+      boolean[] ascending = new boolean[groupBy.length];
+      for (int c = 0; c < groupBy.length; ++c) {
+        keys[c] = columns[c];
+        ascending[c] = true;
+      }
+      order = new RowOrder(keys, ascending);
+    } else {
+      order = createOrder(columns);
+    }
+    groups = order(groups, groupCount, order);
+
+    DataTable result = DataTable.create();
+    for (int c = 0; c < numberOfColumns; ++c) {
+      result.addColumn(types[c], labels[c]);
+    }
+    if (groups.length == 0) {
+      return result;
+    }
+    result.addRows(groups.length);
+    for (int c = 0; c < numberOfColumns; ++c) {
+      writeColumn(result, c, types[c], columns[c], groups);
+    }
+    return result;
+  }
+
+  /**
+   * Creates a view of the accepted rows of a table, in order.
+   *
+   * @param table the table to query.
+   * @return a view of the table showing the selected rows.
+   */
+  public DataView createView(AbstractDataTable table) {
+    return createView(new TableSnapshot(table));
+  }
+
+  /**
+   * Creates a view of the accepted rows of a table, in order.
+   *
+   * @param snapshot the values of the table to query.
+   * @return a view of the table showing the selected rows.
+   */
+  public DataView createView(TableSnapshot snapshot) {
+    DataView view = DataView.create(snapshot.getDataTable());
+    view.setRows(selectRows(snapshot));
+    return view;
+  }
+
+  /**
+   * Returns the maximum number of rows returned.
+   *
+   * @return the maximum number of rows, or 0 for no limit.
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Returns the indices of the accepted rows of a table, in order.
+   *
+   * @param table the table to query.
+   * @return the indices of the selected rows.
+   */
+  public int[] selectRows(AbstractDataTable table) {
+    return selectRows(new TableSnapshot(table));
+  }
+
+  /**
+   * Returns the indices of the rows accepted by every filter, ordered by the
+   * sort keys and cut to the limit. When a limit is set, only that many rows
+   * are kept sorted while scanning, so that the top rows of a large table are
+   * found without sorting all of it.
+   *
+   * @param snapshot the values of the table to query.
+   * @return the indices of the selected rows.
+   */
+  public int[] selectRows(TableSnapshot snapshot) {
+    int[] rows = filter(snapshot);
+    Column[] columns = new Column[snapshot.getNumberOfColumns()];
+    for (SortKey key : sortKeys) {
+      int c = key.columnIndex;
+      if (columns[c] == null) {
+        columns[c] = snapshot.isStringColumn(c) ? new Column(null,
+            snapshot.getStrings(c)) : new Column(snapshot.getNumbers(c), null);
+      }
+    }
+    return order(rows, rows.length, createOrder(columns));
+  }
+
+  /**
+   * Sets the columns to group by in {@link #aggregate(TableSnapshot)}.
+   *
+   * @param columnIndices the indices of the columns to group by.
+   */
+  public void setGroupBy(int... columnIndices) {
+    groupBy = columnIndices.clone();
+  }
+
+  /**
+   * Sets the maximum number of rows returned.
+   *
+   * @param limit the maximum number of rows, or 0 for no limit.
+   */
+  public void setLimit(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit must be non-negative: "
+          + limit);
+    }
+    this.limit = limit;
+  }
+
+  /**
+   * Computes one aggregation for every group.
+   */
+  private double[] aggregate(TableSnapshot snapshot,
+      AggregationColumn aggregation, int[] rows, int[] groupOf,
+      int groupCount) {
+    int source = aggregation.columnIndex;
+    double[] counts = new double[groupCount];
+    if (snapshot.isStringColumn(source)) {
+      // Only COUNT is allowed on string columns.
+      String[] values = snapshot.getStrings(source);
+      for (int i = 0; i < rows.length; ++i) {
+        if (values[rows[i]] != null) {
+          ++counts[groupOf[i]];
+        }
+      }
+      return counts;
+    }
+    double[] values = snapshot.getNumbers(source);
+    double[] result = new double[groupCount];
+    Aggregation function = aggregation.aggregation;
+    for (int i = 0; i < rows.length; ++i) {
+      double value = values[rows[i]];
+      if (Double.isNaN(value)) {
+        continue;
+      }
+      int g = groupOf[i];
+      if (++counts[g] == 1) {
+        result[g] = value;
+      } else if (function == Aggregation.MAX) {
+        result[g] = Math.max(result[g], value);
+      } else if (function == Aggregation.MIN) {
+        result[g] = Math.min(result[g], value);
+      } else {
+        result[g] += value;
+      }
+    }
+    if (function == Aggregation.COUNT) {
+      return counts;
+    }
+    for (int g = 0; g < groupCount; ++g) {
+      if (counts[g] == 0) {
+        result[g] = Double.NaN;
+      } else if (function == Aggregation.AVG) {
+        result[g] /= counts[g];
+      }
+    }
+    return result;
+  }
+
+  private RowOrder createOrder(Column[] columns) {
+    Column[] keys = new Column[sortKeys.size()];
+    boolean[] ascending = new boolean[keys.length];
+    for (int i = 0; i < keys.length; ++i) {
+      SortKey key = sortKeys.get(i);
+      if (key.columnIndex < 0 || key.columnIndex >= columns.length) {
+        throw new IllegalArgumentException("Invalid sort column: "
+            + key.columnIndex);
+      }
+      keys[i] = columns[key.columnIndex];
+      ascending[i] = key.ascending;
+    }
+    return new RowOrder(keys, ascending);
+  }
+
+  /**
+   * Returns the indices of the rows accepted by every filter.
+   */
+  private int[] filter(TableSnapshot snapshot) {
+    int numberOfRows = snapshot.getNumberOfRows();
+    int[] rows = new int[numberOfRows];
+    int count = 0;
+    rowLoop: for (int row = 0; row < numberOfRows; ++row) {
+      for (Filter filter : filters) {
+        if (!filter.accept(snapshot, row)) {
+          continue rowLoop;
+        }
+      }
+      rows[count++] = row;
+    }
+    if (count == numberOfRows) {
+      return rows;
+    }
+    int[] result = new int[count];
+    System.arraycopy(rows, 0, result, 0, count);
+    return result;
+  }
+
+  /**
+   * Returns the type of an aggregated column, checking that the aggregation
+   * applies to the source column.
+   */
+  private ColumnType getAggregatedType(TableSnapshot snapshot,
+      AggregationColumn aggregation) {
+    ColumnType type = snapshot.getColumnType(aggregation.columnIndex);
+    switch (aggregation.aggregation) {
+      case COUNT:
+        return ColumnType.NUMBER;
+      case MAX:
+      case MIN:
+        if (type != ColumnType.STRING && type != ColumnType.TIMEOFDAY) {
+          return type;
+        }
+        break;
+      default:
+        if (type == ColumnType.NUMBER) {
+          return type;
+        }
+        break;
+    }
+    throw new IllegalArgumentException(aggregation.aggregation
+        + " cannot be applied to " + type + " column "
+        + aggregation.columnIndex);
+  }
+
+  /**
+   * Returns a string identifying the values of the group-by columns in a row.
+   * Every value is tagged with its kind, and strings with their length, so
+   * that different values never produce the same key.
+   */
+  private String groupKey(TableSnapshot snapshot, int row) {
+    StringBuilder key = new StringBuilder();
+    for (int column : groupBy) {
+      if (snapshot.isStringColumn(column)) {
+        String value = snapshot.getString(row, column);
+        if (value == null) {
+          key.append('n');
+        } else {
+          key.append('s').append(value.length()).append(':').append(value);
+        }
+      } else {
+        double value = snapshot.getDouble(row, column);
+        if (Double.isNaN(value)) {
+          key.append('n');
+        } else {
+          key.append('d').append(value).append(';');
+        }
+      }
+    }
+    return key.toString();
+  }
+
+  /**
+   * Sorts rows and cuts them to the limit.
+   */
+  private int[] order(int[] rows, int count, RowOrder order) {
+    int size = limit > 0 ? Math.min(limit, count) : count;
+    if (order.columns.length > 0) {
+      if (size < count) {
+        return top(rows, count, order, size);
+      }
+      sort(rows, count, order);
+    }
+    if (size == rows.length) {
+      return rows;
+    }
+    int[] result = new int[size];
+    System.arraycopy(rows, 0, result, 0, size);
+    return result;
+  }
+
+  /**
+   * Writes the values of one column of the aggregated table, in group order.
+   */
+  private void writeColumn(DataTable result, int columnIndex, ColumnType type,
+      Column column, int[] groups) {
+    int n = groups.length;
+    if (column.strings != null) {
+      String[] values = new String[n];
+      for (int i = 0; i < n; ++i) {
+        values[i] = column.strings[groups[i]];
+      }
+      result.setColumnValues(columnIndex, 0, values);
+      return;
+    }
+    double[] values = new double[n];
+    for (int i = 0; i < n; ++i) {
+      values[i] = column.numbers[groups[i]];
+    }
+    switch (type) {
+      case BOOLEAN:
+        // The bulk boolean setter cannot write nulls
+        for (int i = 0; i < n; ++i) {
+          if (Double.isNaN(values[i])) {
+            result.setValueNull(i, columnIndex);
+          } else {
+            result.setValue(i, columnIndex, values[i] != 0);
+          }
+        }
+        break;
+      case DATE:
+      case DATETIME:
+        result.setColumnValuesDate(columnIndex, 0, values);
+        break;
+      default:
+        result.setColumnValues(columnIndex, 0, values);
+        break;
+    }
+  }
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.visualization.client.events.RangeChangeHandler;
+import com.google.gwt.visualization.client.visualizations.AnnotatedTimeLine;
+
+import java.util.Date;
+
+/**
+ * Reduces a time series to a budget of points before it is charted, so that a
+ * chart a thousand pixels wide is not asked to draw a million points.
+ *
+ * The series is given by an x column, a number, date or datetime column whose
+ * values must be in ascending order, and one or more number y columns. Each y
+ * column is downsampled separately to {@link #getTargetPoints()} points, and
+ * the result holds the union of the rows picked for every column, so it has at
+ * most {@link #getTargetPoints()} rows per y column. Rows where the x value or
+ * the y value is null are not picked for that column.
+ *
+ * Two methods are available. {@link Method#LARGEST_TRIANGLE_THREE_BUCKETS}
+ * keeps the points that best preserve the visual shape of the line.
+ * {@link Method#MIN_MAX} keeps the smallest and largest value of each bucket,
+ * so that no peak is lost.
+ *
+ * {@link #drawOn} draws an {@link AnnotatedTimeLine} with a downsampled view of
+ * a table and samples it again whenever the user zooms, so that more detail
+ * appears as the visible range shrinks.
+ */
+public class Downsampler {
+
+  /**
+   * The downsampling algorithms.
+   */
+  public static enum Method {
+    /**
+     * Largest-Triangle-Three-Buckets: splits the series into buckets and keeps
+     * the point of each bucket that forms the largest triangle with the point
+     * kept from the previous bucket and the average of the next bucket.
+     */
+    LARGEST_TRIANGLE_THREE_BUCKETS,
+    /**
+     * Splits the series into buckets and keeps the points with the smallest
+     * and largest value of each bucket.
+     */
+    MIN_MAX
+  }
+
+  /**
+   * Redraws a chart with a new sample of the zoomed range.
+   */
+  private class ZoomHandler extends RangeChangeHandler {
+    final AnnotatedTimeLine chart;
+    double end = Double.NaN;
+    final AnnotatedTimeLine.Options options;
+    final int[] overview;
+    final TableSnapshot snapshot;
+    double start = Double.NaN;
+    final int xColumn;
+    final int[] yColumns;
+
+    ZoomHandler(AnnotatedTimeLine chart, TableSnapshot snapshot,
+        AnnotatedTimeLine.Options options, int[] overview, int xColumn,
+        int[] yColumns) {
+      this.chart = chart;
+      this.snapshot = snapshot;
+      this.options = options;
+      this.overview = overview;
+      this.xColumn = xColumn;
+      this.yColumns = yColumns;
+    }
+
+    @Override
+    public void onRangeChange(RangeChangeEvent event) {
+      if (event.getStart() == null || event.getEnd() == null) {
+        return;
+      }
+      double newStart = event.getStart().getTime();
+      double newEnd = event.getEnd().getTime();
+      if (newStart == start && newEnd == end) {
+        // Redrawing the chart can report the range it was just drawn with.
+        return;
+      }
+      start = newStart;
+      end = newEnd;
+      // Keep the overview, so that the chart still spans the whole series
+      // and the user can zoom out again.
+      int[] rows = union(snapshot.getNumberOfRows(), overview, selectRows(
+          snapshot, start, end, xColumn, yColumns));
+      options.setZoomStartTime(new Date((long) start));
+      options.setZoomEndTime(new Date((long) end));
+      chart.draw(createView(snapshot, rows), options);
+    }
+  }
+
+  /**
+   * The default number of points kept per y column.
+   */
+  public static final int DEFAULT_TARGET_POINTS = 1000;
+
+  /**
+   * Returns the indices of the points of a series picked with
+   * {@link Method#LARGEST_TRIANGLE_THREE_BUCKETS}. Points with a
+   * <code>NaN</code> coordinate are skipped.
+   *
+   * @param x the x coordinates, in ascending order.
+   * @param y the y coordinates.
+   * @param targetPoints the number of points to keep.
+   * @return the indices of the kept points, in ascending order.
+   */
+  public static int[] largestTriangleThreeBuckets(double[] x, double[] y,
+      int targetPoints) {
+    return largestTriangleThreeBuckets(x, y, validPoints(x, y, 0, x.length),
+        targetPoints);
+  }
+
+  /**
+   * Returns the indices of the points of a series picked with
+   * {@link Method#MIN_MAX}. Points with a <code>NaN</code> coordinate are
+   * skipped.
+   *
+   * @param x the x coordinates, in ascending order.
+   * @param y the y coordinates.
+   * @param targetPoints the number of points to keep.
+   * @return the indices of the kept points, in ascending order.
+   */
+  public static int[] minMax(double[] x, double[] y, int targetPoints) {
+    return minMax(y, validPoints(x, y, 0, x.length), targetPoints);
+  }
+
+  private static DataView createView(TableSnapshot snapshot, int[] rows) {
+    DataView view = DataView.create(snapshot.getDataTable());
+    view.setRows(rows);
+    return view;
+  }
+
+  /**
+   * Returns the position of the first point whose x value is greater than the
+   * key, or not less than the key if <code>inclusive</code> is set. The x
+   * values of the points must be ascending and not <code>NaN</code>.
+   */
+  private static int bound(double[] x, int[] points, double key,
+      boolean inclusive) {
+    int lo = 0;
+    int hi = points.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      double value = x[points[mid]];
+      if (value < key || (!inclusive && value == key)) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private static int[] largestTriangleThreeBuckets(double[] x, double[] y,
+      int[] points, int targetPoints) {
+    int n = points.length;
+    if (targetPoints >= n || targetPoints < 3) {
+      return points;
+    }
+    int[] result = new int[targetPoints];
+    result[0] = points[0];
+    // The first and last points are always kept; the others are split into
+    // targetPoints - 2 buckets.
+    double bucketSize = (double) (n - 2) / (targetPoints - 2);
+    int a = 0;
+    for (int i = 0; i < targetPoints - 2; ++i) {
+      int nextFrom = (int) ((i + 1) * bucketSize) + 1;
+      int nextTo = Math.min((int) ((i + 2) * bucketSize) + 1, n);
+      double averageX = 0;
+      double averageY = 0;
+      for (int j = nextFrom; j < nextTo; ++j) {
+        averageX += x[points[j]];
+        averageY += y[points[j]];
+      }
+      averageX /= nextTo - nextFrom;
+      averageY /= nextTo - nextFrom;
+
+      double ax = x[points[a]];
+      double ay = y[points[a]];
+      int from = (int) (i * bucketSize) + 1;
+      int to = nextFrom;
+      double maxArea = -1;
+      int picked = from;
+      for (int j = from; j < to; ++j) {
+        // Twice the triangle area; the factor does not change the maximum.
+        double area = Math.abs((ax - averageX) * (y[points[j]] - ay)
+            - (ax - x[points[j]]) * (averageY - ay));
+        if (area > maxArea) {
+          maxArea = area;
+          picked = j;
+        }
+      }
+      result[i + 1] = points[picked];
+      a = picked;
+    }
+    result[targetPoints - 1] = points[n - 1];
+    return result;
+  }
+
+  private static int[] minMax(double[] y, int[] points, int targetPoints) {
+    int n = points.length;
+    if (targetPoints >= n || targetPoints < 2) {
+      return points;
+    }
+    int buckets = targetPoints / 2;
+    int[] result = new int[2 * buckets];
+    int count = 0;
+    for (int b = 0; b < buckets; ++b) {
+      int from = (int) ((double) b * n / buckets);
+      int to = (int) ((double) (b + 1) * n / buckets);
+      int min = from;
+      int max = from;
+      for (int j = from + 1; j < to; ++j) {
+        if (y[points[j]] < y[points[min]]) {
+          min = j;
+        } else if (y[points[j]] > y[points[max]]) {
+          max = j;
+        }
+      }
+      result[count++] = points[Math.min(min, max)];
+      if (min != max) {
+        result[count++] = points[Math.max(min, max)];
+      }
+    }
+    if (count == result.length) {
+      return result;
+    }
+    int[] trimmed = new int[count];
+    System.arraycopy(result, 0, trimmed, 0, count);
+    return trimmed;
+  }
+
+  /**
+   * Merges sets of row indices into one ascending list without duplicates.
+   */
+  private static int[] union(int numberOfRows, int[]... sets) {
+    boolean[] picked = new boolean[numberOfRows];
+    int count = 0;
+    for (int[] set : sets) {
+      for (int row : set) {
+        if (!picked[row]) {
+          picked[row] = true;
+          ++count;
+        }
+      }
+    }
+    int[] result = new int[count];
+    int i = 0;
+    for (int row = 0; row < numberOfRows; ++row) {
+      if (picked[row]) {
+        result[i++] = row;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the indices within a range where neither coordinate is
+   * <code>NaN</code>.
+   */
+  private static int[] validPoints(double[] x, double[] y, int from, int to) {
+    int[] points = new int[to - from];
+    int count = 0;
+    for (int i = from; i < to; ++i) {
+      if (!Double.isNaN(x[i]) && !Double.isNaN(y[i])) {
+        points[count++] = i;
+      }
+    }
+    if (count == points.length) {
+      return points;
+    }
+    int[] result = new int[count];
+    System.arraycopy(points, 0, result, 0, count);
+    return result;
+  }
+
+  private final Method method;
+  private final int targetPoints;
+
+  /**
+   * Creates a downsampler using {@link Method#LARGEST_TRIANGLE_THREE_BUCKETS}
+   * and {@link #DEFAULT_TARGET_POINTS}.
+   */
+  public Downsampler() {
+    this(Method.LARGEST_TRIANGLE_THREE_BUCKETS, DEFAULT_TARGET_POINTS);
+  }
+
+  /**
+   * Creates a downsampler.
+   *
+   * @param method the algorithm picking the points to keep.
+   * @param targetPoints the number of points kept per y column; at least 3.
+   */
+  public Downsampler(Method method, int targetPoints) {
+    if (targetPoints < 3) {
+      throw new IllegalArgumentException("targetPoints must be at least 3: "
+          + targetPoints);
+    }
+    this.method = method;
+    this.targetPoints = targetPoints;
+  }
+
+  /**
+   * Creates a view of a table showing only the rows picked for the y columns.
+   *
+   * @param table the table holding the series.
+   * @param xColumn the index of the x column.
+   * @param yColumns the indices of the y columns.
+   * @return a view of the table showing the picked rows.
+   */
+  public DataView createView(AbstractDataTable table, int xColumn,
+      int... yColumns) {
+    TableSnapshot snapshot = new TableSnapshot(table);
+    return createView(snapshot, selectRows(snapshot, Double.NEGATIVE_INFINITY,
+        Double.POSITIVE_INFINITY, xColumn, yColumns));
+  }
+
+  /**
+   * Draws a downsampled view of a table on an annotated time line, and draws
+   * a new sample whenever the user changes the visible range. The new sample
+   * keeps the points of the whole series and adds
+   * {@link #getTargetPoints()} points per y column within the visible range.
+   *
+   * @param chart the chart to draw on.
+   * @param table the table holding the series.
+   * @param options the options to draw with. The zoom start and end times are
+   *          updated as the user zooms.
+   * @param xColumn the index of the x column, a date or datetime column.
+   * @param yColumns the indices of the y columns.
+   */
+  public void drawOn(AnnotatedTimeLine chart, AbstractDataTable table,
+      AnnotatedTimeLine.Options options, int xColumn, int... yColumns) {
+    TableSnapshot snapshot = new TableSnapshot(table);
+    int[] overview = selectRows(snapshot, Double.NEGATIVE_INFINITY,
+        Double.POSITIVE_INFINITY, xColumn, yColumns);
+    chart.draw(createView(snapshot, overview), options);
+    chart.addRangeChangeHandler(new ZoomHandler(chart, snapshot, options,
+        overview, xColumn, yColumns));
+  }
+
+  /**
+   * Returns the algorithm picking the points to keep.
+   *
+   * @return the downsampling method.
+   */
+  public Method getMethod() {
+    return method;
+  }
+
+  /**
+   * Returns the number of points kept per y column.
+   *
+   * @return the number of points kept per y column.
+   */
+  public int getTargetPoints() {
+    return targetPoints;
+  }
+
+  /**
+   * Returns the rows picked for the y columns among the rows whose x value
+   * lies within a range. The rows just outside the range are included, so
+   * that lines reach the edges of the range.
+   *
+   * @param snapshot the values of the table holding the series.
+   * @param start the smallest x value of the range.
+   * @param end the largest x value of the range.
+   * @param xColumn the index of the x column.
+   * @param yColumns the indices of the y columns.
+   * @return the indices of the picked rows, in ascending order.
+   */
+  public int[] selectRows(TableSnapshot snapshot, double start, double end,
+      int xColumn, int... yColumns) {
+    if (yColumns.length == 0) {
+      throw new IllegalArgumentException("At least one y column is required");
+    }
+    double[] x = snapshot.getNumbers(xColumn);
+    // Rows with a null x value would break the ordering the search relies on
+    int[] rowsWithX = validPoints(x, x, 0, x.length);
+    int first = Math.max(0, bound(x, rowsWithX, start, true) - 1);
+    int last = Math.min(rowsWithX.length, bound(x, rowsWithX, end, false) + 1);
+    if (first >= last) {
+      return new int[0];
+    }
+    int from = rowsWithX[first];
+    int to = rowsWithX[last - 1] + 1;
+    int[][] picked = new int[yColumns.length][];
+    for (int i = 0; i < yColumns.length; ++i) {
+      double[] y = snapshot.getNumbers(yColumns[i]);
+      int[] points = validPoints(x, y, from, to);
+      picked[i] = method == Method.MIN_MAX ? minMax(y, points, targetPoints)
+          : largestTriangleThreeBuckets(x, y, points, targetPoints);
+    }
+    return picked.length == 1 ? picked[0] : union(x.length, picked);
+  }
+}
@@ -98,7 +98,12 @@ public class Query extends JavaScriptObject {
 
   @SuppressWarnings("unused")
   private static void onResponseCallback(Callback callback,
-      QueryResponse response) {
+      QueryResponse response, RenderTimings.Measurement measurement) {
+    if (response.isError()) {
+      measurement.end();
+    } else {
+      measurement.end(response.getDataTable());
+    }
     UncaughtExceptionHandler handler = GWT.getUncaughtExceptionHandler();
     if (handler != null) {
       fireAndCatch(handler, callback, response);
@@ -110,12 +115,18 @@ public class Query extends JavaScriptObject {
   protected Query() {
   }
 
-  public final native void send(Callback callback) /*-{
-    this.send(function(c) {
-      @com.google.gwt.visualization.client.Query::onResponseCallback(Lcom/google/gwt/visualization/client/Query$Callback;Lcom/google/gwt/visualization/client/QueryResponse;)(callback, c);
-    });
+  /**
+   * Stops the automated query sending started by
+   * {@link #setRefreshInterval(int)}.
+   */
+  public final native void abort() /*-{
+    this.abort();
   }-*/;
 
+  public final void send(Callback callback) {
+    send(callback, RenderTimings.begin(RenderTimings.Phase.FETCH, "Query"));
+  }
+
   public final native void setQuery(String query) /*-{
     this.setQuery(query);
   }-*/;
@@ -127,4 +138,11 @@ public class Query extends JavaScriptObject {
   public final native void setTimeout(int seconds) /*-{
     this.setTimeout(seconds);
   }-*/;
+
+  private native void send(Callback callback,
+      RenderTimings.Measurement measurement) /*-{
+    this.send(function(c) {
+      @com.google.gwt.visualization.client.Query::onResponseCallback(Lcom/google/gwt/visualization/client/Query$Callback;Lcom/google/gwt/visualization/client/QueryResponse;Lcom/google/gwt/visualization/client/RenderTimings$Measurement;)(callback, c, measurement);
+    });
+  }-*/;
 }
\ No newline at end of file
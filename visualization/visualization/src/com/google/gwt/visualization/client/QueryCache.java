@@ -0,0 +1,436 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.core.client.GWT.UncaughtExceptionHandler;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.DeferredCommand;
+import com.google.gwt.visualization.client.Query.Callback;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends {@link Query queries} through a cache, so that widgets showing the same
+ * data share a single request.
+ *
+ * Queries are identified by their data source URL, query string and
+ * {@link Query.Options}. A successful response is kept for
+ * {@link #getTtlSeconds()} seconds, and the least recently used responses are
+ * evicted once more than {@link #getMaxEntries()} are cached. Errors are not
+ * cached. A query sent while an identical one is in flight does not go out
+ * again; its callback waits for the response of the first one.
+ *
+ * {@link #poll} shares one refreshing query between all callbacks polling the
+ * same data. The query sends the signature of the last response with each
+ * refresh, and data sources implementing that part of the protocol answer
+ * <code>not_modified</code> when the data has not changed. Such responses
+ * are dropped, so callbacks are only called when there is new data.
+ *
+ * Every callback of a query receives the same {@link QueryResponse} and
+ * {@link DataTable}, which must therefore be treated as read-only.
+ */
+public class QueryCache {
+
+  /**
+   * A cached response.
+   */
+  private static class Entry {
+    final double expires;
+    final QueryResponse response;
+
+    Entry(QueryResponse response, double expires) {
+      this.response = response;
+      this.expires = expires;
+    }
+  }
+
+  /**
+   * A refreshing query and the callbacks polling it.
+   */
+  private class Poll implements Callback {
+    final List<Callback> callbacks = new ArrayList<Callback>();
+    final String key;
+    QueryResponse lastResponse;
+    Query query;
+
+    Poll(String key) {
+      this.key = key;
+    }
+
+    public void onResponse(QueryResponse response) {
+      if (isNotModified(response)) {
+        return;
+      }
+      lastResponse = response;
+      if (!response.isError()) {
+        put(key, response);
+      }
+      fireAll(new ArrayList<Callback>(callbacks), response);
+    }
+  }
+
+  /**
+   * A query in flight and the callbacks waiting for its response.
+   */
+  private class Request implements Callback {
+    final List<Callback> callbacks = new ArrayList<Callback>();
+    final String key;
+
+    Request(String key) {
+      this.key = key;
+    }
+
+    public void onResponse(QueryResponse response) {
+      inFlight.remove(key);
+      if (!response.isError()) {
+        put(key, response);
+      }
+      fireAll(callbacks, response);
+    }
+  }
+
+  /**
+   * The default limit on the number of cached responses.
+   */
+  public static final int DEFAULT_MAX_ENTRIES = 50;
+
+  /**
+   * The default number of seconds a response is kept.
+   */
+  public static final int DEFAULT_TTL_SECONDS = 60;
+
+  private static final String NOT_MODIFIED = "not_modified";
+
+  /**
+   * Returns the cache key of a query, or <code>null</code> if the options
+   * cannot be serialized.
+   */
+  private static String createKey(String dataSource, String query,
+      Query.Options options) {
+    String serializedOptions = "";
+    if (options != null) {
+      serializedOptions = nativeStringify(options);
+      if (serializedOptions == null) {
+        return null;
+      }
+    }
+    return dataSource + '\n' + (query == null ? "" : query) + '\n'
+        + serializedOptions;
+  }
+
+  private static Query createQuery(String dataSource, String queryString,
+      Query.Options options) {
+    Query query = options == null ? Query.create(dataSource) : Query.create(
+        dataSource, options);
+    if (queryString != null) {
+      query.setQuery(queryString);
+    }
+    return query;
+  }
+
+  /**
+   * Calls every callback, reporting an exception thrown by one of them to the
+   * uncaught exception handler so that the others are still called.
+   */
+  private static void fireAll(List<Callback> callbacks,
+      QueryResponse response) {
+    UncaughtExceptionHandler handler = GWT.getUncaughtExceptionHandler();
+    for (Callback callback : callbacks) {
+      if (handler == null) {
+        callback.onResponse(response);
+        continue;
+      }
+      try {
+        callback.onResponse(response);
+      } catch (Throwable e) {
+        handler.onUncaughtException(e);
+      }
+    }
+  }
+
+  private static boolean isNotModified(QueryResponse response) {
+    if (!response.isError()) {
+      return false;
+    }
+    JsArrayString reasons = response.getReasons();
+    for (int i = 0; i < reasons.length(); ++i) {
+      if (NOT_MODIFIED.equals(reasons.get(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static native String nativeStringify(JavaScriptObject options) /*-{
+    try {
+      return $wnd.JSON ? $wnd.JSON.stringify(options) : null;
+    } catch (e) {
+      return null;
+    }
+  }-*/;
+
+  private int coalescedCount;
+  private final LinkedHashMap<String, Entry> entries =
+      new LinkedHashMap<String, Entry>(16, 0.75f, true);
+  private int hitCount;
+  private final Map<String, Request> inFlight = new HashMap<String, Request>();
+  private final int maxEntries;
+  private int missCount;
+  private int nextPollId;
+  private final Map<String, Poll> polls = new HashMap<String, Poll>();
+  private final int ttlSeconds;
+
+  /**
+   * Creates a cache with the default bounds.
+   */
+  public QueryCache() {
+    this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_SECONDS);
+  }
+
+  /**
+   * Creates a cache.
+   *
+   * @param maxEntries the maximum number of cached responses.
+   * @param ttlSeconds the number of seconds a response is kept.
+   */
+  public QueryCache(int maxEntries, int ttlSeconds) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("maxEntries must be positive: "
+          + maxEntries);
+    }
+    if (ttlSeconds < 1) {
+      throw new IllegalArgumentException("ttlSeconds must be positive: "
+          + ttlSeconds);
+    }
+    this.maxEntries = maxEntries;
+    this.ttlSeconds = ttlSeconds;
+  }
+
+  /**
+   * Removes all cached responses. Queries in flight and polls are not
+   * affected.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Returns the number of queries that waited for an identical query in
+   * flight instead of being sent.
+   *
+   * @return the number of coalesced queries.
+   */
+  public int getCoalescedCount() {
+    return coalescedCount;
+  }
+
+  /**
+   * Returns the number of responses currently cached, including expired
+   * responses not yet looked up.
+   *
+   * @return the number of cached responses.
+   */
+  public int getEntryCount() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of queries answered from the cache.
+   *
+   * @return the number of cache hits.
+   */
+  public int getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the maximum number of cached responses.
+   *
+   * @return the maximum number of cached responses.
+   */
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Returns the number of queries sent to their data source.
+   *
+   * @return the number of cache misses.
+   */
+  public int getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the number of seconds a response is kept.
+   *
+   * @return the time to live of a response in seconds.
+   */
+  public int getTtlSeconds() {
+    return ttlSeconds;
+  }
+
+  /**
+   * Removes the cached response of a query, so that it is sent again the next
+   * time.
+   *
+   * @param dataSource the URL of the data source.
+   * @param query the query string, or <code>null</code> for none.
+   * @param options the query options, or <code>null</code> for none.
+   */
+  public void invalidate(String dataSource, String query,
+      Query.Options options) {
+    String key = createKey(dataSource, query, options);
+    if (key != null) {
+      entries.remove(key);
+    }
+  }
+
+  /**
+   * Polls a query, calling the callback with every new response. All
+   * callbacks polling the same query at the same interval share one
+   * refreshing query; a callback joining an existing poll is first called
+   * with the last response received.
+   *
+   * @param dataSource the URL of the data source.
+   * @param query the query string, or <code>null</code> for none.
+   * @param options the query options, or <code>null</code> for none.
+   * @param refreshSeconds the number of seconds between two refreshes.
+   * @param callback the callback receiving the responses.
+   */
+  public void poll(String dataSource, String query, Query.Options options,
+      int refreshSeconds, final Callback callback) {
+    if (refreshSeconds < 1) {
+      throw new IllegalArgumentException("refreshSeconds must be positive: "
+          + refreshSeconds);
+    }
+    String key = createKey(dataSource, query, options);
+    String pollKey = (key == null ? "" : key) + '\n' + refreshSeconds;
+    final Poll poll = key == null ? null : polls.get(pollKey);
+    if (poll != null) {
+      poll.callbacks.add(callback);
+      if (poll.lastResponse != null) {
+        final QueryResponse response = poll.lastResponse;
+        DeferredCommand.addCommand(new Command() {
+          public void execute() {
+            if (poll.callbacks.contains(callback)) {
+              callback.onResponse(response);
+            }
+          }
+        });
+      }
+      return;
+    }
+    Poll newPoll = new Poll(key);
+    newPoll.callbacks.add(callback);
+    newPoll.query = createQuery(dataSource, query, options);
+    newPoll.query.setRefreshInterval(refreshSeconds);
+    if (key != null) {
+      polls.put(pollKey, newPoll);
+    } else {
+      // Options that cannot be serialized cannot be shared either.
+      polls.put(pollKey + '\n' + nextPollId++, newPoll);
+    }
+    ++missCount;
+    newPoll.query.send(newPoll);
+  }
+
+  /**
+   * Sends a query, or answers it from the cache. The callback is always
+   * called asynchronously.
+   *
+   * @param dataSource the URL of the data source.
+   * @param query the query string, or <code>null</code> for none.
+   * @param options the query options, or <code>null</code> for none.
+   * @param callback the callback receiving the response.
+   */
+  public void send(String dataSource, String query, Query.Options options,
+      final Callback callback) {
+    final String key = createKey(dataSource, query, options);
+    if (key == null) {
+      ++missCount;
+      createQuery(dataSource, query, options).send(callback);
+      return;
+    }
+    Entry entry = entries.get(key);
+    if (entry != null && entry.expires <= Duration.currentTimeMillis()) {
+      entries.remove(key);
+      entry = null;
+    }
+    if (entry != null) {
+      ++hitCount;
+      final QueryResponse response = entry.response;
+      DeferredCommand.addCommand(new Command() {
+        public void execute() {
+          callback.onResponse(response);
+        }
+      });
+      return;
+    }
+    Request request = inFlight.get(key);
+    if (request != null) {
+      ++coalescedCount;
+      request.callbacks.add(callback);
+      return;
+    }
+    ++missCount;
+    request = new Request(key);
+    request.callbacks.add(callback);
+    inFlight.put(key, request);
+    createQuery(dataSource, query, options).send(request);
+  }
+
+  /**
+   * Stops calling a callback with the responses of the polls it joined. A
+   * refreshing query is aborted once no callback polls it.
+   *
+   * @param callback the callback passed to
+   *          {@link #poll(String, String, Query.Options, int, Callback)}.
+   */
+  public void stopPolling(Callback callback) {
+    Iterator<Poll> it = polls.values().iterator();
+    while (it.hasNext()) {
+      Poll poll = it.next();
+      poll.callbacks.remove(callback);
+      if (poll.callbacks.isEmpty()) {
+        poll.query.abort();
+        it.remove();
+      }
+    }
+  }
+
+  private void put(String key, QueryResponse response) {
+    if (key == null) {
+      return;
+    }
+    entries.put(key, new Entry(response, Duration.currentTimeMillis()
+        + ttlSeconds * 1000.0));
+    Iterator<String> it = entries.keySet().iterator();
+    while (entries.size() > maxEntries && it.hasNext()) {
+      it.next();
+      it.remove();
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package com.google.gwt.visualization.client;
 
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
 
 /**
  * Represents a response of a query execution as received from the data source.
@@ -41,6 +42,16 @@ public class QueryResponse extends JavaScriptObject {
     return this.getMessage();
   }-*/;
 
+  /**
+   * Returns the reason codes of an error or warning, such as
+   * <code>not_modified</code> or <code>timeout</code>.
+   * 
+   * @return the reason codes, empty if the query succeeded without warnings.
+   */
+  public final native JsArrayString getReasons() /*-{
+    return this.getReasons() || [];
+  }-*/;
+
   public final native boolean hasWarning() /*-{
     return this.hasWarning();
   }-*/;
@@ -48,6 +59,4 @@ public class QueryResponse extends JavaScriptObject {
   public final native boolean isError() /*-{
     return this.isError();
   }-*/;
-
-  // TODO : add getReasons()
 }
\ No newline at end of file
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.GWT.UncaughtExceptionHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records how long the phases of showing a visualization take, so that a slow
+ * page can be traced to loading the API, fetching data, preparing the table,
+ * drawing or waiting for the visualization to be ready.
+ *
+ * The following are recorded automatically:
+ * <ul>
+ * <li>{@link Phase#LOAD}: from
+ * {@link VisualizationUtils#loadVisualizationApi} to its callback.</li>
+ * <li>{@link Phase#FETCH}: from {@link Query#send} to the first response.</li>
+ * <li>{@link Phase#DRAW}: the draw call of a
+ * {@link com.google.gwt.visualization.client.visualizations.Visualization
+ * Visualization}, or of an {@link AbstractVisualization} drawn from
+ * JavaScript.</li>
+ * <li>{@link Phase#READY}: from the draw call of a <code>Visualization</code>
+ * to its ready event, for visualizations that fire one.</li>
+ * </ul>
+ * The time spent building tables is only known to the application, which
+ * measures it with {@link #begin}:
+ *
+ * <pre>
+ * RenderTimings.Measurement measurement = RenderTimings.begin(
+ *     RenderTimings.Phase.PREPARE, "sales");
+ * DataTable data = createSalesTable();
+ * measurement.end(data);
+ * </pre>
+ *
+ * Samples are kept in a ring buffer holding the last {@link #getCapacity()}
+ * samples, and passed to every {@link Listener} as they are recorded.
+ */
+public class RenderTimings {
+
+  /**
+   * Receives samples as they are recorded.
+   */
+  public interface Listener {
+    void onSample(Sample sample);
+  }
+
+  /**
+   * Measures a phase started by {@link RenderTimings#begin}.
+   */
+  public static class Measurement {
+    private boolean ended;
+    private final String name;
+    private final Phase phase;
+    private final double start = Duration.currentTimeMillis();
+
+    private Measurement(Phase phase, String name) {
+      this.phase = phase;
+      this.name = name;
+    }
+
+    /**
+     * Records the time elapsed since the measurement began. Only the first
+     * call records a sample.
+     */
+    public void end() {
+      end(-1, -1);
+    }
+
+    /**
+     * Records the time elapsed since the measurement began, along with the
+     * size of a table. Only the first call records a sample.
+     *
+     * @param data the table the phase produced or used.
+     */
+    public void end(AbstractDataTable data) {
+      end(data.getNumberOfRows(), data.getNumberOfColumns());
+    }
+
+    private void end(int numberOfRows, int numberOfColumns) {
+      if (!ended) {
+        ended = true;
+        record(phase, name, start, numberOfRows, numberOfColumns);
+      }
+    }
+  }
+
+  /**
+   * A phase of showing a visualization.
+   */
+  public static enum Phase {
+    /**
+     * Drawing a visualization.
+     */
+    DRAW,
+
+    /**
+     * Waiting for the response to a query.
+     */
+    FETCH,
+
+    /**
+     * Loading the Visualization API.
+     */
+    LOAD,
+
+    /**
+     * Preparing the table to draw.
+     */
+    PREPARE,
+
+    /**
+     * Waiting for a visualization to fire its ready event after a draw call.
+     */
+    READY
+  }
+
+  /**
+   * The recorded duration of a phase.
+   */
+  public static class Sample {
+    private final double durationMillis;
+    private final String name;
+    private final int numberOfColumns;
+    private final int numberOfRows;
+    private final Phase phase;
+    private final double startMillis;
+
+    Sample(Phase phase, String name, double startMillis,
+        double durationMillis, int numberOfRows, int numberOfColumns) {
+      this.phase = phase;
+      this.name = name;
+      this.startMillis = startMillis;
+      this.durationMillis = durationMillis;
+      this.numberOfRows = numberOfRows;
+      this.numberOfColumns = numberOfColumns;
+    }
+
+    public double getDurationMillis() {
+      return durationMillis;
+    }
+
+    /**
+     * Returns what was measured: the packages loaded, the class of the
+     * visualization drawn, or the name given to {@link RenderTimings#begin}.
+     *
+     * @return the name of the sample.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Returns the number of columns of the table, or -1 if the phase has no
+     * table.
+     *
+     * @return the number of columns of the table.
+     */
+    public int getNumberOfColumns() {
+      return numberOfColumns;
+    }
+
+    /**
+     * Returns the number of rows of the table, or -1 if the phase has no
+     * table.
+     *
+     * @return the number of rows of the table.
+     */
+    public int getNumberOfRows() {
+      return numberOfRows;
+    }
+
+    public Phase getPhase() {
+      return phase;
+    }
+
+    /**
+     * Returns when the phase began, in milliseconds since the epoch.
+     *
+     * @return when the phase began.
+     */
+    public double getStartMillis() {
+      return startMillis;
+    }
+
+    @Override
+    public String toString() {
+      return phase + " " + name + ": " + durationMillis + " ms";
+    }
+  }
+
+  /**
+   * The default number of samples kept.
+   */
+  public static final int DEFAULT_CAPACITY = 100;
+
+  private static Sample[] buffer = new Sample[DEFAULT_CAPACITY];
+  private static int count;
+  private static final List<Listener> listeners = new ArrayList<Listener>();
+  private static int next;
+
+  public static void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Begins measuring a phase.
+   *
+   * @param phase the phase to measure.
+   * @param name what is measured.
+   * @return the measurement, to be ended when the phase is over.
+   */
+  public static Measurement begin(Phase phase, String name) {
+    return new Measurement(phase, name);
+  }
+
+  /**
+   * Removes every sample from the buffer.
+   */
+  public static void clear() {
+    for (int i = 0; i < buffer.length; ++i) {
+      buffer[i] = null;
+    }
+    count = 0;
+    next = 0;
+  }
+
+  /**
+   * Returns the number of samples the buffer holds.
+   *
+   * @return the capacity of the buffer.
+   */
+  public static int getCapacity() {
+    return buffer.length;
+  }
+
+  /**
+   * Returns the samples in the buffer.
+   *
+   * @return the samples in the buffer, oldest first.
+   */
+  public static List<Sample> getSamples() {
+    List<Sample> result = new ArrayList<Sample>(count);
+    int first = next - count + buffer.length;
+    for (int i = 0; i < count; ++i) {
+      result.add(buffer[(first + i) % buffer.length]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns <code>true</code> if samples are kept or passed to a listener.
+   * Measurements that cost more than reading the clock are skipped otherwise.
+   *
+   * @return <code>true</code> if samples are recorded.
+   */
+  public static boolean isRecording() {
+    return buffer.length > 0 || !listeners.isEmpty();
+  }
+
+  public static void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Sets the number of samples the buffer holds, removing the samples it
+   * holds. With a capacity of 0, samples are only passed to the listeners,
+   * and nothing is measured when there is no listener either.
+   *
+   * @param capacity the capacity of the buffer.
+   */
+  public static void setCapacity(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity must not be negative: "
+          + capacity);
+    }
+    buffer = new Sample[capacity];
+    count = 0;
+    next = 0;
+  }
+
+  /**
+   * Records a phase that began at <code>start</code> and ends now.
+   */
+  private static void record(Phase phase, String name, double start,
+      int numberOfRows, int numberOfColumns) {
+    if (!isRecording()) {
+      return;
+    }
+    Sample sample = new Sample(phase, name, start,
+        Duration.currentTimeMillis() - start, numberOfRows, numberOfColumns);
+    if (buffer.length > 0) {
+      buffer[next] = sample;
+      next = (next + 1) % buffer.length;
+      count = Math.min(count + 1, buffer.length);
+    }
+    UncaughtExceptionHandler handler = GWT.getUncaughtExceptionHandler();
+    for (Listener listener : new ArrayList<Listener>(listeners)) {
+      if (handler == null) {
+        listener.onSample(sample);
+        continue;
+      }
+      try {
+        listener.onSample(sample);
+      } catch (Throwable e) {
+        handler.onUncaughtException(e);
+      }
+    }
+  }
+
+  private RenderTimings() {
+    // Do not allow this class to be instantiated.
+  }
+}
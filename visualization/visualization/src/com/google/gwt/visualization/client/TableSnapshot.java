@@ -0,0 +1,198 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.ajaxloader.client.ArrayHelper;
+import com.google.gwt.core.client.JsArrayNumber;
+import com.google.gwt.visualization.client.AbstractDataTable.ColumnType;
+
+/**
+ * A read-only, column by column copy of the values of a table, for code that
+ * scans many cells, such as {@link DataTableQuery}.
+ *
+ * Each column is read from the table in a single call the first time it is
+ * used, after which its values are plain Java array lookups. Number, date,
+ * datetime and boolean columns are held as doubles: dates as milliseconds
+ * since the epoch, booleans as 1 or 0, and null values as <code>NaN</code>.
+ * String columns are held as strings, with <code>null</code> for null values.
+ * Timeofday columns are not supported.
+ *
+ * The snapshot does not follow later changes to the table; create a new one
+ * after the table changes.
+ */
+public class TableSnapshot {
+
+  /**
+   * Reads every value of a boolean column as 1 or 0, keeping null values as
+   * <code>NaN</code>, which {@link AbstractDataTable#getColumnValuesBoolean}
+   * turns into <code>false</code>.
+   */
+  private static native JsArrayNumber getColumnValuesBoolean(
+      AbstractDataTable table, int columnIndex) /*-{
+    var result = [];
+    for (var i = 0, n = table.getNumberOfRows(); i < n; ++i) {
+      var value = table.getValue(i, columnIndex);
+      result[i] = value == null ? NaN : (value ? 1 : 0);
+    }
+    return result;
+  }-*/;
+
+  private final int numberOfRows;
+  private final double[][] numbers;
+  private final String[][] strings;
+  private final AbstractDataTable table;
+  private final ColumnType[] types;
+
+  /**
+   * Creates a snapshot of a table. No values are read until they are used.
+   *
+   * @param table the table to copy values from.
+   */
+  public TableSnapshot(AbstractDataTable table) {
+    this.table = table;
+    int numberOfColumns = table.getNumberOfColumns();
+    numberOfRows = table.getNumberOfRows();
+    types = new ColumnType[numberOfColumns];
+    numbers = new double[numberOfColumns][];
+    strings = new String[numberOfColumns][];
+  }
+
+  /**
+   * Returns the type of a column.
+   *
+   * @param columnIndex the index of the column.
+   * @return the type of the column.
+   */
+  public ColumnType getColumnType(int columnIndex) {
+    if (types[columnIndex] == null) {
+      types[columnIndex] = table.getColumnType(columnIndex);
+    }
+    return types[columnIndex];
+  }
+
+  /**
+   * Returns the table this snapshot was taken of.
+   *
+   * @return the table this snapshot was taken of.
+   */
+  public AbstractDataTable getDataTable() {
+    return table;
+  }
+
+  /**
+   * Returns a value of a number, date, datetime or boolean column.
+   *
+   * @param rowIndex the index of the row.
+   * @param columnIndex the index of the column.
+   * @return the value, with dates in epoch milliseconds, booleans as 1 or 0
+   *         and <code>NaN</code> for null values.
+   */
+  public double getDouble(int rowIndex, int columnIndex) {
+    return getNumbers(columnIndex)[rowIndex];
+  }
+
+  public int getNumberOfColumns() {
+    return types.length;
+  }
+
+  public int getNumberOfRows() {
+    return numberOfRows;
+  }
+
+  /**
+   * Returns a value of a string column.
+   *
+   * @param rowIndex the index of the row.
+   * @param columnIndex the index of the column.
+   * @return the value, or <code>null</code> for null values.
+   */
+  public String getString(int rowIndex, int columnIndex) {
+    return getStrings(columnIndex)[rowIndex];
+  }
+
+  /**
+   * Returns <code>true</code> if the column holds strings, and
+   * <code>false</code> if it holds doubles.
+   *
+   * @param columnIndex the index of the column.
+   * @return <code>true</code> if the column is a string column.
+   */
+  public boolean isStringColumn(int columnIndex) {
+    return checkType(columnIndex) == ColumnType.STRING;
+  }
+
+  /**
+   * Returns <code>true</code> if a value is null.
+   *
+   * @param rowIndex the index of the row.
+   * @param columnIndex the index of the column.
+   * @return <code>true</code> if the value is null.
+   */
+  public boolean isValueNull(int rowIndex, int columnIndex) {
+    if (isStringColumn(columnIndex)) {
+      return getStrings(columnIndex)[rowIndex] == null;
+    }
+    return Double.isNaN(getNumbers(columnIndex)[rowIndex]);
+  }
+
+  /**
+   * Returns every value of a column that is held as doubles.
+   */
+  double[] getNumbers(int columnIndex) {
+    if (numbers[columnIndex] == null) {
+      switch (checkType(columnIndex)) {
+        case BOOLEAN:
+          numbers[columnIndex] = ArrayHelper.toJavaArrayDouble(
+              getColumnValuesBoolean(table, columnIndex));
+          break;
+        case DATE:
+        case DATETIME:
+          numbers[columnIndex] = table.getColumnValuesDate(columnIndex);
+          break;
+        case NUMBER:
+          numbers[columnIndex] = table.getColumnValuesDouble(columnIndex);
+          break;
+        default:
+          throw new IllegalArgumentException("Column " + columnIndex
+              + " is a string column");
+      }
+    }
+    return numbers[columnIndex];
+  }
+
+  /**
+   * Returns every value of a string column.
+   */
+  String[] getStrings(int columnIndex) {
+    if (strings[columnIndex] == null) {
+      if (checkType(columnIndex) != ColumnType.STRING) {
+        throw new IllegalArgumentException("Column " + columnIndex
+            + " is not a string column");
+      }
+      strings[columnIndex] = table.getColumnValuesString(columnIndex);
+    }
+    return strings[columnIndex];
+  }
+
+  private ColumnType checkType(int columnIndex) {
+    ColumnType type = getColumnType(columnIndex);
+    if (type == ColumnType.TIMEOFDAY) {
+      throw new IllegalArgumentException("Column " + columnIndex
+          + " is a timeofday column, which is not supported");
+    }
+    return type;
+  }
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.visualization.client.visualizations.Visualization;
+
+import java.util.Date;
+
+/**
+ * Wraps a {@link DataTable} that has been drawn by a visualization, so that it
+ * can be updated in place instead of being rebuilt on every refresh.
+ *
+ * Every change made through the wrapper is applied to the wrapped table
+ * immediately and recorded: the number of rows appended, the number of
+ * previously drawn rows removed, the number of cell writes to previously drawn
+ * rows, and the first row that changed. Once the table is bound to a
+ * visualization with {@link #draw(Visualization, AbstractDrawOptions)}, any
+ * change schedules a redraw of that visualization, and all changes made before
+ * the redraw runs are drawn together. Redraws are at least
+ * {@link #getRedrawInterval()} milliseconds apart, which by default is about
+ * one animation frame.
+ *
+ * The recorded changes describe what happened since the last draw and are
+ * cleared by every draw. Changes made directly on the wrapped table are
+ * drawn with the next redraw but are not recorded.
+ */
+public class TrackedDataTable {
+
+  /**
+   * Draws the wrapped table with the options it was bound with.
+   */
+  private interface DrawCommand {
+    void draw();
+  }
+
+  /**
+   * The default minimum delay between two redraws, in milliseconds.
+   */
+  public static final int DEFAULT_REDRAW_INTERVAL = 16;
+
+  /**
+   * The number of rows, at the start of the table, that were drawn and have
+   * not been removed since. Rows after them were appended or inserted.
+   */
+  private int baseRowCount;
+  private DrawCommand drawCommand;
+  private int drawCount;
+  private int firstChangedRow = -1;
+  private double lastDraw;
+  private int redrawInterval = DEFAULT_REDRAW_INTERVAL;
+  private final Timer redrawTimer = new Timer() {
+    @Override
+    public void run() {
+      redraw();
+    }
+  };
+  private boolean redrawScheduled;
+  private int removedRowCount;
+  private final DataTable table;
+  private int updatedCellCount;
+
+  /**
+   * Wraps a table. Its current rows are treated as already drawn.
+   *
+   * @param table the table to track changes to.
+   */
+  public TrackedDataTable(DataTable table) {
+    this.table = table;
+    baseRowCount = table.getNumberOfRows();
+  }
+
+  /**
+   * Appends an empty row.
+   *
+   * @return the index of the new row.
+   */
+  public int addRow() {
+    return addRows(1);
+  }
+
+  /**
+   * Appends empty rows.
+   *
+   * @param numberOfRows the number of rows to append.
+   * @return the index of the first new row.
+   */
+  public int addRows(int numberOfRows) {
+    int first = table.getNumberOfRows();
+    table.addRows(numberOfRows);
+    changed(first);
+    return first;
+  }
+
+  /**
+   * Binds the table to a visualization and draws it immediately. Later changes
+   * redraw the same visualization with the same options. Binding to another
+   * visualization replaces the previous binding.
+   *
+   * @param <OptionsType> the options type of the visualization.
+   * @param visualization the visualization to draw the table with.
+   * @param options the options to draw with.
+   */
+  public <OptionsType extends AbstractDrawOptions> void draw(
+      final Visualization<OptionsType> visualization,
+      final OptionsType options) {
+    drawCommand = new DrawCommand() {
+      public void draw() {
+        visualization.draw(table, options);
+      }
+    };
+    redraw();
+  }
+
+  /**
+   * Returns the number of rows appended or inserted since the last draw and
+   * still in the table.
+   *
+   * @return the number of new rows.
+   */
+  public int getAppendedRowCount() {
+    return table.getNumberOfRows() - baseRowCount;
+  }
+
+  /**
+   * Returns the wrapped table.
+   *
+   * @return the wrapped table.
+   */
+  public DataTable getDataTable() {
+    return table;
+  }
+
+  /**
+   * Returns the number of times the table has been drawn through this wrapper.
+   *
+   * @return the number of draws.
+   */
+  public int getDrawCount() {
+    return drawCount;
+  }
+
+  /**
+   * Returns the index of the first row that changed since the last draw.
+   *
+   * @return the index of the first changed row, or -1 if nothing changed.
+   */
+  public int getFirstChangedRow() {
+    return firstChangedRow;
+  }
+
+  /**
+   * Returns the minimum delay between two redraws.
+   *
+   * @return the minimum delay between two redraws in milliseconds.
+   */
+  public int getRedrawInterval() {
+    return redrawInterval;
+  }
+
+  /**
+   * Returns the number of previously drawn rows removed since the last draw.
+   *
+   * @return the number of removed rows.
+   */
+  public int getRemovedRowCount() {
+    return removedRowCount;
+  }
+
+  /**
+   * Returns the number of cell writes to previously drawn rows since the last
+   * draw. Writes to new rows are not counted.
+   *
+   * @return the number of cell updates.
+   */
+  public int getUpdatedCellCount() {
+    return updatedCellCount;
+  }
+
+  /**
+   * Returns <code>true</code> if anything changed since the last draw.
+   *
+   * @return <code>true</code> if anything changed since the last draw.
+   */
+  public boolean hasChanges() {
+    return firstChangedRow >= 0;
+  }
+
+  /**
+   * Returns <code>true</code> if a redraw is scheduled.
+   *
+   * @return <code>true</code> if a redraw is scheduled.
+   */
+  public boolean isRedrawScheduled() {
+    return redrawScheduled;
+  }
+
+  /**
+   * Inserts empty rows. Drawn rows after the insertion point move, so they
+   * are counted as removed and then appended along with the new rows.
+   *
+   * @param rowIndex the index the first new row will have.
+   * @param numberOfRows the number of rows to insert.
+   */
+  public void insertRows(int rowIndex, int numberOfRows) {
+    table.insertRows(rowIndex, numberOfRows);
+    if (rowIndex < baseRowCount) {
+      removedRowCount += baseRowCount - rowIndex;
+      baseRowCount = rowIndex;
+    }
+    changed(rowIndex);
+  }
+
+  /**
+   * Draws the table now if it is bound to a visualization, cancelling any
+   * scheduled redraw, and clears the recorded changes.
+   */
+  public void redraw() {
+    redrawTimer.cancel();
+    redrawScheduled = false;
+    if (drawCommand == null) {
+      return;
+    }
+    drawCommand.draw();
+    lastDraw = Duration.currentTimeMillis();
+    ++drawCount;
+    reset();
+  }
+
+  /**
+   * Removes a row.
+   *
+   * @param rowIndex the index of the row to remove.
+   */
+  public void removeRow(int rowIndex) {
+    removeRows(rowIndex, 1);
+  }
+
+  /**
+   * Removes rows.
+   *
+   * @param rowIndex the index of the first row to remove.
+   * @param numberOfRows the number of rows to remove.
+   */
+  public void removeRows(int rowIndex, int numberOfRows) {
+    table.removeRows(rowIndex, numberOfRows);
+    int removedBase = Math.min(rowIndex + numberOfRows, baseRowCount)
+        - rowIndex;
+    if (removedBase > 0) {
+      removedRowCount += removedBase;
+      baseRowCount -= removedBase;
+    }
+    changed(rowIndex);
+  }
+
+  /**
+   * Forgets the recorded changes without drawing, treating the current rows
+   * as drawn.
+   */
+  public void reset() {
+    baseRowCount = table.getNumberOfRows();
+    firstChangedRow = -1;
+    removedRowCount = 0;
+    updatedCellCount = 0;
+  }
+
+  /**
+   * Sets consecutive values of a column from the given row on.
+   *
+   * @param columnIndex the index of the column.
+   * @param firstRow the index of the row of the first value.
+   * @param values the values, with <code>Double.NaN</code> for null.
+   * @see DataTable#setColumnValues(int, int, double[])
+   */
+  public void setColumnValues(int columnIndex, int firstRow, double[] values) {
+    table.setColumnValues(columnIndex, firstRow, values);
+    updated(firstRow, values.length, 1);
+  }
+
+  /**
+   * Sets consecutive values of a column from the given row on.
+   *
+   * @param columnIndex the index of the column.
+   * @param firstRow the index of the row of the first value.
+   * @param values the values, with <code>null</code> for null.
+   * @see DataTable#setColumnValues(int, int, String[])
+   */
+  public void setColumnValues(int columnIndex, int firstRow, String[] values) {
+    table.setColumnValues(columnIndex, firstRow, values);
+    updated(firstRow, values.length, 1);
+  }
+
+  /**
+   * Sets the minimum delay between two redraws. Changes made within the delay
+   * are drawn together.
+   *
+   * @param millis the minimum delay between two redraws in milliseconds.
+   */
+  public void setRedrawInterval(int millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("millis must be non-negative: "
+          + millis);
+    }
+    redrawInterval = millis;
+  }
+
+  /**
+   * Sets the numeric values of consecutive rows.
+   *
+   * @param firstRow the index of the first row to set.
+   * @param firstColumn the index of the first column to set in each row.
+   * @param numberOfColumns the number of values per row.
+   * @param values the values, row after row, with <code>Double.NaN</code> for
+   *          null.
+   * @see DataTable#setRowValues(int, int, int, double[])
+   */
+  public void setRowValues(int firstRow, int firstColumn, int numberOfColumns,
+      double[] values) {
+    table.setRowValues(firstRow, firstColumn, numberOfColumns, values);
+    updated(firstRow, values.length / numberOfColumns, numberOfColumns);
+  }
+
+  public void setValue(int rowIndex, int columnIndex, boolean value) {
+    table.setValue(rowIndex, columnIndex, value);
+    updated(rowIndex, 1, 1);
+  }
+
+  public void setValue(int rowIndex, int columnIndex, Date value) {
+    table.setValue(rowIndex, columnIndex, value);
+    updated(rowIndex, 1, 1);
+  }
+
+  public void setValue(int rowIndex, int columnIndex, double value) {
+    table.setValue(rowIndex, columnIndex, value);
+    updated(rowIndex, 1, 1);
+  }
+
+  public void setValue(int rowIndex, int columnIndex, int value) {
+    table.setValue(rowIndex, columnIndex, value);
+    updated(rowIndex, 1, 1);
+  }
+
+  public void setValue(int rowIndex, int columnIndex, String value) {
+    table.setValue(rowIndex, columnIndex, value);
+    updated(rowIndex, 1, 1);
+  }
+
+  public void setValueNull(int rowIndex, int columnIndex) {
+    table.setValueNull(rowIndex, columnIndex);
+    updated(rowIndex, 1, 1);
+  }
+
+  /**
+   * Records a change from the given row on and schedules a redraw.
+   */
+  private void changed(int rowIndex) {
+    if (firstChangedRow < 0 || rowIndex < firstChangedRow) {
+      firstChangedRow = rowIndex;
+    }
+    if (drawCommand == null || redrawScheduled) {
+      return;
+    }
+    redrawScheduled = true;
+    double wait = lastDraw + redrawInterval - Duration.currentTimeMillis();
+    redrawTimer.schedule(Math.max(1, (int) Math.ceil(wait)));
+  }
+
+  /**
+   * Records writes to the given number of cells in each of the given rows.
+   */
+  private void updated(int firstRow, int numberOfRows, int cellsPerRow) {
+    if (numberOfRows <= 0) {
+      return;
+    }
+    int drawnRows = Math.min(firstRow + numberOfRows, baseRowCount) - firstRow;
+    if (drawnRows > 0) {
+      updatedCellCount += drawnRows * cellsPerRow;
+    }
+    changed(firstRow);
+  }
+}
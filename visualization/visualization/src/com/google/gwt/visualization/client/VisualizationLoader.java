@@ -0,0 +1,232 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.ajaxloader.client.AjaxLoader;
+import com.google.gwt.ajaxloader.client.AjaxLoader.AjaxLoaderOptions;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.GWT.UncaughtExceptionHandler;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.DeferredCommand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads packages of one version of the Visualization API, sharing the loads
+ * between every widget of the page.
+ *
+ * Packages are loaded once: a request for packages that are already loaded
+ * only waits for the current event to finish, and a request for packages
+ * being loaded waits for that load. The packages missing from all requests
+ * made during the same event are loaded together by a single loader call, so
+ * widgets requesting packages independently at startup do not load them one
+ * after the other.
+ *
+ * The time each request waited is recorded as a
+ * {@link RenderTimings.Phase#LOAD} sample named after the requested packages.
+ * {@link VisualizationUtils#loadVisualizationApi} goes through this class.
+ */
+public class VisualizationLoader {
+
+  /**
+   * A callback waiting for packages.
+   */
+  private static class Request {
+    final RenderTimings.Measurement measurement;
+    final Runnable onLoad;
+    final String[] packages;
+
+    Request(Runnable onLoad, String[] packages) {
+      this.onLoad = onLoad;
+      this.packages = packages;
+      measurement = RenderTimings.begin(RenderTimings.Phase.LOAD, join(
+          packages));
+    }
+  }
+
+  private static final Map<String, VisualizationLoader> loaders =
+      new HashMap<String, VisualizationLoader>();
+
+  /**
+   * Returns the loader of a version of the API.
+   *
+   * @param version the version of the API, such as "1".
+   * @return the loader of that version.
+   */
+  public static VisualizationLoader get(String version) {
+    VisualizationLoader loader = loaders.get(version);
+    if (loader == null) {
+      loader = new VisualizationLoader(version);
+      loaders.put(version, loader);
+    }
+    return loader;
+  }
+
+  private static String join(String[] packages) {
+    StringBuilder result = new StringBuilder();
+    for (String name : packages) {
+      if (result.length() > 0) {
+        result.append(',');
+      }
+      result.append(name);
+    }
+    return result.toString();
+  }
+
+  private boolean coreLoaded;
+  private boolean coreQueued;
+  private boolean flushScheduled;
+  private final Set<String> inFlight = new HashSet<String>();
+  private int loadCount;
+  private final Set<String> loaded = new HashSet<String>();
+  private final Set<String> queued = new LinkedHashSet<String>();
+  private int requestCount;
+  private final String version;
+  private final List<Request> waiting = new ArrayList<Request>();
+
+  private VisualizationLoader(String version) {
+    this.version = version;
+  }
+
+  /**
+   * Returns the number of times the loader was called to load packages.
+   *
+   * @return the number of loads.
+   */
+  public int getLoadCount() {
+    return loadCount;
+  }
+
+  /**
+   * Returns the number of calls to {@link #load(Runnable, String...)}.
+   *
+   * @return the number of requests.
+   */
+  public int getRequestCount() {
+    return requestCount;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns <code>true</code> if a package has finished loading.
+   *
+   * @param packageName the name of the package.
+   * @return <code>true</code> if the package is loaded.
+   */
+  public boolean isLoaded(String packageName) {
+    return loaded.contains(packageName);
+  }
+
+  /**
+   * Loads packages, calling <code>onLoad</code> once they are all loaded.
+   * The callback is always called asynchronously.
+   *
+   * @param onLoad the callback.
+   * @param packages the packages to load. With none, only the core of the
+   *          API, such as {@link DataTable} and {@link Query}, is waited for.
+   */
+  public void load(Runnable onLoad, String... packages) {
+    ++requestCount;
+    waiting.add(new Request(onLoad, packages));
+    for (String name : packages) {
+      if (!loaded.contains(name) && !inFlight.contains(name)) {
+        queued.add(name);
+      }
+    }
+    if (!coreLoaded && inFlight.isEmpty() && queued.isEmpty()) {
+      coreQueued = true;
+    }
+    if (!flushScheduled) {
+      flushScheduled = true;
+      DeferredCommand.addCommand(new Command() {
+        public void execute() {
+          flushScheduled = false;
+          flush();
+        }
+      });
+    }
+  }
+
+  /**
+   * Loads the queued packages with a single loader call, and calls the
+   * requests that are not waiting for anything.
+   */
+  private void flush() {
+    if (!queued.isEmpty() || coreQueued) {
+      final List<String> packages = new ArrayList<String>(queued);
+      queued.clear();
+      coreQueued = false;
+      inFlight.addAll(packages);
+      ++loadCount;
+      AjaxLoaderOptions options = AjaxLoaderOptions.newInstance();
+      options.setPackages(packages.toArray(new String[packages.size()]));
+      AjaxLoader.loadApi("visualization", version, new Runnable() {
+        public void run() {
+          inFlight.removeAll(packages);
+          loaded.addAll(packages);
+          coreLoaded = true;
+          runReadyRequests();
+        }
+      }, options);
+    }
+    runReadyRequests();
+  }
+
+  private boolean isReady(Request request) {
+    return coreLoaded && loaded.containsAll(Arrays.asList(request.packages));
+  }
+
+  /**
+   * Calls the requests whose packages are all loaded, reporting an exception
+   * thrown by one of them to the uncaught exception handler so that the
+   * others are still called.
+   */
+  private void runReadyRequests() {
+    List<Request> ready = new ArrayList<Request>();
+    Iterator<Request> it = waiting.iterator();
+    while (it.hasNext()) {
+      Request request = it.next();
+      if (isReady(request)) {
+        ready.add(request);
+        it.remove();
+      }
+    }
+    UncaughtExceptionHandler handler = GWT.getUncaughtExceptionHandler();
+    for (Request request : ready) {
+      request.measurement.end();
+      if (handler == null) {
+        request.onLoad.run();
+        continue;
+      }
+      try {
+        request.onLoad.run();
+      } catch (Throwable e) {
+        handler.onUncaughtException(e);
+      }
+    }
+  }
+}
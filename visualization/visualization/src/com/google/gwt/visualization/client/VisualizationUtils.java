@@ -15,9 +15,6 @@
  */
 package com.google.gwt.visualization.client;
 
-import com.google.gwt.ajaxloader.client.AjaxLoader;
-import com.google.gwt.ajaxloader.client.ArrayHelper;
-import com.google.gwt.ajaxloader.client.AjaxLoader.AjaxLoaderOptions;
 import com.google.gwt.core.client.JsArrayString;
 
 /**
@@ -27,21 +24,30 @@ import com.google.gwt.core.client.JsArrayString;
 public class VisualizationUtils {
    
   public static void loadVisualizationApi(Runnable onLoad, String... packages) {
-    loadVisualizationApi("1", onLoad, ArrayHelper.toJsArrayString(packages));
+    loadVisualizationApi("1", onLoad, packages);
   }
 
   public static void loadVisualizationApi(String version, Runnable onLoad,
       JsArrayString packages) {
-    // TODO: map which packages have already been loaded, so that we can
-    // call the loader only when necessary
-    AjaxLoaderOptions options = AjaxLoaderOptions.newInstance();
-    options.setPackages(packages);
-    AjaxLoader.loadApi("visualization", version, onLoad, options); 
+    String[] names = new String[packages.length()];
+    for (int i = 0; i < names.length; ++i) {
+      names[i] = packages.get(i);
+    }
+    loadVisualizationApi(version, onLoad, names);
   }
 
+  /**
+   * Loads packages of the Visualization API through the
+   * {@link VisualizationLoader} of the version, so that packages requested
+   * by several widgets are only loaded once.
+   *
+   * @param version the version of the API, such as "1".
+   * @param onLoad the callback called once the packages are loaded.
+   * @param packages the packages to load.
+   */
   public static void loadVisualizationApi(String version, Runnable onLoad,
       String... packages) {
-    loadVisualizationApi(version, onLoad, ArrayHelper.toJsArrayString(packages));
+    VisualizationLoader.get(version).load(onLoad, packages);
   }
   
   private VisualizationUtils() {
@@ -18,6 +18,8 @@ package com.google.gwt.visualization.client.formatters;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.visualization.client.DataTable;
 
+import java.util.Date;
+
 /**
  * Formats a JavaScript Date value.
  * 
@@ -88,4 +90,18 @@ public class DateFormat extends JavaScriptObject {
   public final native void format(DataTable data, int columnIndex) /*-{
     this.format(data, columnIndex);
   }-*/;
+
+  /**
+   * Formats a single value.
+   *
+   * @param date the date to format.
+   * @return the formatted date.
+   */
+  public final String formatValue(Date date) {
+    return formatValue(date.getTime());
+  }
+
+  private native String formatValue(double date) /*-{
+    return this.formatValue(new $wnd.Date(date));
+  }-*/;
 }
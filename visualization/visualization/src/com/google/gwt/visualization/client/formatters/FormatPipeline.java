@@ -0,0 +1,286 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client.formatters;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayInteger;
+import com.google.gwt.visualization.client.DataTable;
+
+/**
+ * Applies several formatters to a table in a single pass.
+ *
+ * Calling <code>format</code> on each formatter walks the whole table once per
+ * formatter. A pipeline instead visits each row once and runs every formatter
+ * added to it on that row, in the order they were added, so a pattern can use
+ * the values formatted by the number and date formatters before it.
+ *
+ * Number and date formatters remember the text of every distinct value they
+ * format, up to {@link #getMaxCachedValues()} values each, so columns whose
+ * values repeat, such as dates or categories, call the formatter once per
+ * value. The cache is kept between calls to {@link #format(DataTable, int,
+ * int)}, which lets a view format only the rows it is about to show.
+ *
+ * Only the formatted values are set: the negative color of a
+ * {@link NumberFormat} is a cell style and is not applied. {@link ColorFormat},
+ * {@link ArrowFormat} and {@link BarFormat} only format whole columns and
+ * cannot be part of a pipeline.
+ */
+public class FormatPipeline {
+
+  /**
+   * The default limit on the number of values cached per formatter.
+   */
+  public static final int DEFAULT_MAX_CACHED_VALUES = 10000;
+
+  private static native JavaScriptObject createPatternStep(
+      JavaScriptObject parts, JsArrayInteger srcColumnIndices,
+      int dstColumnIndex) /*-{
+    return {
+      column: dstColumnIndex,
+      parts: parts,
+      sources: srcColumnIndices
+    };
+  }-*/;
+
+  private static native JavaScriptObject createValueStep(
+      JavaScriptObject formatter, int columnIndex) /*-{
+    return {
+      cache: {},
+      column: columnIndex,
+      formatter: formatter,
+      size: 0
+    };
+  }-*/;
+
+  private static native void nativeClearCache(JavaScriptObject steps) /*-{
+    for (var i = 0; i < steps.length; ++i) {
+      if (steps[i].cache) {
+        steps[i].cache = {};
+        steps[i].size = 0;
+      }
+    }
+  }-*/;
+
+  private static native void nativeFormat(JavaScriptObject steps,
+      DataTable data, int firstRow, int endRow, int maxCachedValues) /*-{
+    var stepCount = steps.length;
+    for (var row = firstRow; row < endRow; ++row) {
+      for (var i = 0; i < stepCount; ++i) {
+        var step = steps[i];
+        var parts = step.parts;
+        if (parts) {
+          var text = '';
+          for (var j = 0; j < parts.length; ++j) {
+            var part = parts[j];
+            text += typeof part == 'number'
+                ? data.getFormattedValue(row, step.sources[part]) : part;
+          }
+          data.setFormattedValue(row, step.column, text);
+          continue;
+        }
+        var value = data.getValue(row, step.column);
+        if (value == null) {
+          continue;
+        }
+        // Dates may come from another frame, so instanceof cannot be used.
+        var key = ':' + (typeof value.getTime == 'function'
+            ? value.getTime() : value);
+        var formatted = step.cache[key];
+        if (formatted === undefined) {
+          formatted = step.formatter.formatValue(value);
+          if (step.size < maxCachedValues) {
+            step.cache[key] = formatted;
+            ++step.size;
+          }
+        }
+        data.setFormattedValue(row, step.column, formatted);
+      }
+    }
+  }-*/;
+
+  /**
+   * Splits a pattern into literal strings and source indices, resolving
+   * escaped characters.
+   */
+  private static JavaScriptObject parsePattern(String pattern,
+      int sourceCount) {
+    JavaScriptObject parts = JavaScriptObject.createArray();
+    StringBuilder literal = new StringBuilder();
+    int i = 0;
+    while (i < pattern.length()) {
+      char c = pattern.charAt(i);
+      if (c == '\\' && i + 1 < pattern.length()) {
+        literal.append(pattern.charAt(i + 1));
+        i += 2;
+        continue;
+      }
+      int close = c == '{' ? pattern.indexOf('}', i) : -1;
+      int index = close > i + 1 ? parseIndex(pattern.substring(i + 1, close))
+          : -1;
+      if (index < 0) {
+        literal.append(c);
+        ++i;
+        continue;
+      }
+      if (index >= sourceCount) {
+        throw new IllegalArgumentException("Pattern refers to source {"
+            + index + "} but only " + sourceCount + " are given");
+      }
+      if (literal.length() > 0) {
+        pushString(parts, literal.toString());
+        literal.setLength(0);
+      }
+      pushIndex(parts, index);
+      i = close + 1;
+    }
+    if (literal.length() > 0) {
+      pushString(parts, literal.toString());
+    }
+    return parts;
+  }
+
+  private static int parseIndex(String digits) {
+    for (int i = 0; i < digits.length(); ++i) {
+      if (!Character.isDigit(digits.charAt(i))) {
+        return -1;
+      }
+    }
+    return Integer.parseInt(digits);
+  }
+
+  private static native void pushIndex(JavaScriptObject parts, int index) /*-{
+    parts.push(index);
+  }-*/;
+
+  private static native void pushString(JavaScriptObject parts,
+      String literal) /*-{
+    parts.push(literal);
+  }-*/;
+
+  private final int maxCachedValues;
+  private final JavaScriptObject steps = JavaScriptObject.createArray();
+
+  /**
+   * Creates an empty pipeline with the default cache limit.
+   */
+  public FormatPipeline() {
+    this(DEFAULT_MAX_CACHED_VALUES);
+  }
+
+  /**
+   * Creates an empty pipeline.
+   *
+   * @param maxCachedValues the maximum number of values cached per formatter,
+   *          or 0 to disable caching.
+   */
+  public FormatPipeline(int maxCachedValues) {
+    if (maxCachedValues < 0) {
+      throw new IllegalArgumentException("maxCachedValues must not be "
+          + "negative: " + maxCachedValues);
+    }
+    this.maxCachedValues = maxCachedValues;
+  }
+
+  /**
+   * Adds a date formatter for a date or datetime column.
+   *
+   * @param formatter the formatter.
+   * @param columnIndex the index of the column to format.
+   * @return this pipeline.
+   */
+  public FormatPipeline addDateFormat(DateFormat formatter, int columnIndex) {
+    push(createValueStep(formatter, columnIndex));
+    return this;
+  }
+
+  /**
+   * Adds a number formatter for a number column.
+   *
+   * @param formatter the formatter.
+   * @param columnIndex the index of the column to format.
+   * @return this pipeline.
+   */
+  public FormatPipeline addNumberFormat(NumberFormat formatter,
+      int columnIndex) {
+    push(createValueStep(formatter, columnIndex));
+    return this;
+  }
+
+  /**
+   * Adds a pattern, with the same syntax as {@link PatternFormat}. Every
+   * <code>{n}</code> in the pattern is replaced by the formatted value of the
+   * n-th source column, and a backslash escapes the character following it.
+   *
+   * @param pattern the pattern.
+   * @param srcColumnIndices the indices of the source columns.
+   * @param dstColumnIndex the index of the column whose formatted values are
+   *          set.
+   * @return this pipeline.
+   */
+  public FormatPipeline addPattern(String pattern,
+      JsArrayInteger srcColumnIndices, int dstColumnIndex) {
+    JavaScriptObject parts = parsePattern(pattern, srcColumnIndices.length());
+    push(createPatternStep(parts, srcColumnIndices, dstColumnIndex));
+    return this;
+  }
+
+  /**
+   * Forgets every cached formatted value.
+   */
+  public void clearCache() {
+    nativeClearCache(steps);
+  }
+
+  /**
+   * Formats every row of a table.
+   *
+   * @param data the table to format.
+   */
+  public void format(DataTable data) {
+    format(data, 0, data.getNumberOfRows());
+  }
+
+  /**
+   * Formats a range of rows of a table.
+   *
+   * @param data the table to format.
+   * @param firstRow the index of the first row to format.
+   * @param numberOfRows the number of rows to format.
+   */
+  public void format(DataTable data, int firstRow, int numberOfRows) {
+    if (firstRow < 0 || numberOfRows < 0
+        || firstRow + numberOfRows > data.getNumberOfRows()) {
+      throw new IllegalArgumentException("Rows " + firstRow + " to "
+          + (firstRow + numberOfRows) + " are out of range");
+    }
+    nativeFormat(steps, data, firstRow, firstRow + numberOfRows,
+        maxCachedValues);
+  }
+
+  /**
+   * Returns the maximum number of values cached per formatter.
+   *
+   * @return the maximum number of values cached per formatter.
+   */
+  public int getMaxCachedValues() {
+    return maxCachedValues;
+  }
+
+  private native void push(JavaScriptObject step) /*-{
+    this.@com.google.gwt.visualization.client.formatters.FormatPipeline::steps
+        .push(step);
+  }-*/;
+}
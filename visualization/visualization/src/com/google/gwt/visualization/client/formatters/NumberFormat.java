@@ -71,4 +71,14 @@ public class NumberFormat extends JavaScriptObject {
   public final native void format(DataTable data, int columnIndex) /*-{
     this.format(data, columnIndex);
   }-*/;
+
+  /**
+   * Formats a single value, without setting any cell style.
+   *
+   * @param value the value to format.
+   * @return the formatted value.
+   */
+  public final native String formatValue(double value) /*-{
+    return this.formatValue(value);
+  }-*/;
 }
@@ -0,0 +1,495 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client.visualizations;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.EventTarget;
+import com.google.gwt.dom.client.NativeEvent;
+import com.google.gwt.dom.client.Style.Position;
+import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
+import com.google.gwt.user.client.DOM;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.ScrollPanel;
+import com.google.gwt.visualization.client.AbstractDataTable;
+import com.google.gwt.visualization.client.AbstractDrawOptions;
+import com.google.gwt.visualization.client.AbstractVisualization;
+import com.google.gwt.visualization.client.DataTableQuery;
+import com.google.gwt.visualization.client.Selectable;
+import com.google.gwt.visualization.client.Selection;
+import com.google.gwt.visualization.client.TableSnapshot;
+import com.google.gwt.visualization.client.events.SelectHandler;
+import com.google.gwt.visualization.client.events.SortHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A table that renders only the rows in view, so that it can scroll through
+ * very large tables without paging.
+ *
+ * The table keeps a fixed pool of row elements, enough to fill the visible
+ * area plus {@link Options#setOverscan(int) overscan} rows above and below it.
+ * Each row of the data is shown by the pool element at its index modulo the
+ * pool size, so scrolling by a few rows only refills those few elements.
+ * Every row has the same height. The scrolling area is as tall as all rows
+ * together, so the number of rows is bounded by the largest element height
+ * the browser supports.
+ *
+ * Clicking a column header sorts by that column. Sorting computes a
+ * permutation of the row indices, so the table itself is never reordered.
+ * Clicking a row selects it, and clicking with the control or meta key down
+ * adds it to or removes it from the selection. As with {@link Table},
+ * selections and events refer to rows of the underlying table, regardless of
+ * the sort order.
+ */
+public class VirtualTable extends AbstractVisualization<VirtualTable.Options>
+    implements Selectable {
+
+  /**
+   * Options for drawing the virtual table.
+   */
+  public static class Options extends AbstractDrawOptions {
+    public static Options create() {
+      return JavaScriptObject.createObject().cast();
+    }
+
+    protected Options() {
+    }
+
+    /**
+     * @param height the height of the scrolling area in pixels.
+     */
+    public final native void setHeight(int height) /*-{
+      this.height = height;
+    }-*/;
+
+    /**
+     * @param overscan the number of rows rendered above and below the visible
+     *          ones, so that short scrolls show rows immediately.
+     */
+    public final native void setOverscan(int overscan) /*-{
+      this.overscan = overscan;
+    }-*/;
+
+    /**
+     * @param rowHeight the height of every row in pixels.
+     */
+    public final native void setRowHeight(int rowHeight) /*-{
+      this.rowHeight = rowHeight;
+    }-*/;
+
+    public final native void setSortAscending(boolean sortAscending) /*-{
+      this.sortAscending = sortAscending;
+    }-*/;
+
+    public final native void setSortColumn(int sortColumn) /*-{
+      this.sortColumn = sortColumn;
+    }-*/;
+
+    private native int getInt(String name, int defaultValue) /*-{
+      var value = this[name];
+      return typeof value == 'number' ? value : defaultValue;
+    }-*/;
+
+    private native boolean getSortAscending() /*-{
+      return this.sortAscending !== false;
+    }-*/;
+  }
+
+  public static final int DEFAULT_HEIGHT = 400;
+  public static final int DEFAULT_OVERSCAN = 10;
+  public static final int DEFAULT_ROW_HEIGHT = 24;
+
+  private static final String COLUMN_PROPERTY = "__gwtColumn";
+  private static final String ROW_PROPERTY = "__gwtViewRow";
+  private static final String STYLE_NAME = "gwt-VirtualTable";
+
+  private final FlowPanel canvas = new FlowPanel();
+  private AbstractDataTable data;
+  private final Element header = DOM.createDiv();
+  private int numberOfColumns;
+  private int numberOfRows;
+  private int[] order;
+  private int overscan = DEFAULT_OVERSCAN;
+  private Element[] pool = new Element[0];
+  private int rowHeight = DEFAULT_ROW_HEIGHT;
+  private final List<SelectHandler> selectHandlers =
+      new ArrayList<SelectHandler>();
+  private boolean[] selected = new boolean[0];
+  private int[] slotRows = new int[0];
+  private TableSnapshot snapshot;
+  private boolean sortAscending = true;
+  private int sortColumn = -1;
+  private final List<SortHandler> sortHandlers = new ArrayList<SortHandler>();
+  private final ScrollPanel viewport = new ScrollPanel();
+
+  public VirtualTable() {
+    FlowPanel panel = new FlowPanel();
+    panel.getElement().appendChild(header);
+    panel.add(viewport);
+    viewport.setWidget(canvas);
+    initWidget(panel);
+    setStyleName(STYLE_NAME);
+    header.setClassName(STYLE_NAME + "-header");
+    canvas.getElement().getStyle().setPosition(Position.RELATIVE);
+
+    viewport.addScrollHandler(new ScrollHandler() {
+      public void onScroll(ScrollEvent event) {
+        render(false);
+      }
+    });
+    addDomHandler(new ClickHandler() {
+      public void onClick(ClickEvent event) {
+        onClickEvent(event);
+      }
+    }, ClickEvent.getType());
+  }
+
+  public VirtualTable(AbstractDataTable data, Options options) {
+    this();
+    draw(data, options);
+  }
+
+  public void addSelectHandler(SelectHandler handler) {
+    selectHandlers.add(handler);
+  }
+
+  /**
+   * Adds a handler called when the user sorts the table by clicking a column
+   * header.
+   *
+   * @param handler the handler to add.
+   */
+  public void addSortHandler(SortHandler handler) {
+    sortHandlers.add(handler);
+  }
+
+  /**
+   * Draws a table. The selection is cleared and the table is scrolled to the
+   * top.
+   *
+   * @param data the table to draw.
+   * @param options the options to draw with, or <code>null</code> for the
+   *          defaults.
+   */
+  @Override
+  public void draw(AbstractDataTable data, Options options) {
+    this.data = data;
+    snapshot = null;
+    numberOfRows = data.getNumberOfRows();
+    numberOfColumns = data.getNumberOfColumns();
+    selected = new boolean[numberOfRows];
+    int height = DEFAULT_HEIGHT;
+    sortColumn = -1;
+    sortAscending = true;
+    if (options != null) {
+      height = Math.max(1, options.getInt("height", DEFAULT_HEIGHT));
+      overscan = Math.max(0, options.getInt("overscan", DEFAULT_OVERSCAN));
+      rowHeight = Math.max(1, options.getInt("rowHeight", DEFAULT_ROW_HEIGHT));
+      sortColumn = options.getInt("sortColumn", -1);
+      sortAscending = options.getSortAscending();
+    }
+    viewport.setHeight(height + "px");
+    canvas.setHeight((numberOfRows * rowHeight) + "px");
+
+    buildHeader();
+    int visibleRows = (height + rowHeight - 1) / rowHeight;
+    buildPool(Math.min(numberOfRows, visibleRows + 2 * overscan + 1));
+    order = null;
+    if (sortColumn >= 0) {
+      order = computeOrder(sortColumn, sortAscending);
+    }
+    viewport.setScrollPosition(0);
+    render(true);
+  }
+
+  /**
+   * Returns the indices of the rows that are currently rendered, in view
+   * order. The rendered rows include the overscan rows around the visible
+   * ones.
+   *
+   * @return the indices of the rendered rows in the underlying table.
+   */
+  public int[] getRenderedRows() {
+    int[] result = new int[pool.length];
+    int first = getFirstRenderedRow();
+    for (int i = 0; i < pool.length; ++i) {
+      result[i] = getTableRowIndex(first + i);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of row elements in the pool.
+   *
+   * @return the number of row elements, which does not depend on the number
+   *         of rows of the table.
+   */
+  public int getRowElementCount() {
+    return pool.length;
+  }
+
+  public JsArray<Selection> getSelections() {
+    JsArray<Selection> selections = JavaScriptObject.createArray().cast();
+    for (int row = 0; row < selected.length; ++row) {
+      if (selected[row]) {
+        selections.push(Selection.createRowSelection(row));
+      }
+    }
+    return selections;
+  }
+
+  /**
+   * Returns the column the table is sorted by.
+   *
+   * @return the index of the sort column, or -1 if the table is not sorted.
+   */
+  public int getSortColumn() {
+    return sortColumn;
+  }
+
+  /**
+   * Returns the index in the underlying table of the row shown at a position.
+   *
+   * @param viewRowIndex the position of the row in the sorted table.
+   * @return the index of the row in the underlying table.
+   */
+  public int getTableRowIndex(int viewRowIndex) {
+    return order == null ? viewRowIndex : order[viewRowIndex];
+  }
+
+  /**
+   * Returns <code>true</code> if the table is sorted in ascending order.
+   *
+   * @return <code>true</code> if the table is sorted in ascending order.
+   */
+  public boolean isSortAscending() {
+    return sortAscending;
+  }
+
+  /**
+   * Scrolls the table so that a row is at the top of the visible area.
+   *
+   * @param viewRowIndex the position of the row in the sorted table.
+   */
+  public void scrollToRow(int viewRowIndex) {
+    viewport.setScrollPosition(viewRowIndex * rowHeight);
+    render(false);
+  }
+
+  public void setSelections(JsArray<Selection> selections) {
+    selected = new boolean[numberOfRows];
+    if (selections != null) {
+      for (int i = 0; i < selections.length(); ++i) {
+        Selection selection = selections.get(i);
+        if (selection.isRow() || selection.isCell()) {
+          int row = selection.getRow();
+          if (row >= 0 && row < numberOfRows) {
+            selected[row] = true;
+          }
+        }
+      }
+    }
+    render(true);
+  }
+
+  /**
+   * Sorts the table by a column without firing sort events.
+   *
+   * @param column the index of the column to sort by.
+   * @param ascending <code>true</code> to sort in ascending order.
+   * @throws IllegalArgumentException if the column cannot be sorted, such as
+   *           a timeofday column.
+   */
+  public void sort(int column, boolean ascending) {
+    order = computeOrder(column, ascending);
+    sortColumn = column;
+    sortAscending = ascending;
+    updateHeader();
+    render(true);
+  }
+
+  private void buildHeader() {
+    header.setInnerHTML("");
+    for (int column = 0; column < numberOfColumns; ++column) {
+      Element cell = createCell(STYLE_NAME + "-headerCell");
+      cell.setPropertyInt(COLUMN_PROPERTY, column);
+      cell.setInnerText(data.getColumnLabel(column));
+      header.appendChild(cell);
+    }
+    updateHeader();
+  }
+
+  private void buildPool(int size) {
+    Element container = canvas.getElement();
+    container.setInnerHTML("");
+    pool = new Element[size];
+    slotRows = new int[size];
+    for (int slot = 0; slot < size; ++slot) {
+      Element row = DOM.createDiv();
+      row.getStyle().setPosition(Position.ABSOLUTE);
+      row.getStyle().setLeft(0, Unit.PX);
+      row.getStyle().setRight(0, Unit.PX);
+      row.getStyle().setHeight(rowHeight, Unit.PX);
+      for (int column = 0; column < numberOfColumns; ++column) {
+        row.appendChild(createCell(STYLE_NAME + "-cell"));
+      }
+      container.appendChild(row);
+      pool[slot] = row;
+      slotRows[slot] = -1;
+    }
+  }
+
+  private int[] computeOrder(int column, boolean ascending) {
+    if (snapshot == null) {
+      snapshot = new TableSnapshot(data);
+    }
+    DataTableQuery query = new DataTableQuery();
+    query.addSortKey(column, ascending);
+    return query.selectRows(snapshot);
+  }
+
+  private Element createCell(String className) {
+    Element cell = DOM.createDiv();
+    cell.setClassName(className);
+    cell.getStyle().setProperty("display", "inline-block");
+    cell.getStyle().setProperty("overflow", "hidden");
+    cell.getStyle().setProperty("whiteSpace", "nowrap");
+    cell.getStyle().setWidth(100.0 / numberOfColumns, Unit.PCT);
+    return cell;
+  }
+
+  /**
+   * Fills a pool element with a row and positions it.
+   */
+  private void fillRow(int slot, int viewRow) {
+    Element element = pool[slot];
+    int row = getTableRowIndex(viewRow);
+    element.getStyle().setTop(viewRow * rowHeight, Unit.PX);
+    element.setPropertyInt(ROW_PROPERTY, viewRow);
+    String className = STYLE_NAME + "-row";
+    if (viewRow % 2 == 1) {
+      className += " " + STYLE_NAME + "-odd";
+    }
+    if (selected[row]) {
+      className += " " + STYLE_NAME + "-selected";
+    }
+    element.setClassName(className);
+    Element cell = element.getFirstChildElement();
+    for (int column = 0; column < numberOfColumns; ++column) {
+      cell.setInnerText(data.getFormattedValue(row, column));
+      cell = cell.getNextSiblingElement();
+    }
+    slotRows[slot] = viewRow;
+  }
+
+  private int getFirstRenderedRow() {
+    int first = viewport.getScrollPosition() / rowHeight - overscan;
+    return Math.max(0, Math.min(first, numberOfRows - pool.length));
+  }
+
+  private void onClickEvent(ClickEvent event) {
+    NativeEvent nativeEvent = event.getNativeEvent();
+    EventTarget target = nativeEvent.getEventTarget();
+    if (!Element.is(target)) {
+      return;
+    }
+    Element element = Element.as(target);
+    Element root = getElement();
+    while (element != null && element != root) {
+      if (element.getParentElement() == header) {
+        onHeaderClick(element.getPropertyInt(COLUMN_PROPERTY));
+        return;
+      }
+      if (element.getParentElement() == canvas.getElement()) {
+        onRowClick(element.getPropertyInt(ROW_PROPERTY),
+            nativeEvent.getCtrlKey() || nativeEvent.getMetaKey());
+        return;
+      }
+      element = element.getParentElement();
+    }
+  }
+
+  private void onHeaderClick(int column) {
+    boolean ascending = column != sortColumn || !sortAscending;
+    try {
+      sort(column, ascending);
+    } catch (IllegalArgumentException e) {
+      // The column type cannot be sorted.
+      return;
+    }
+    for (SortHandler handler : new ArrayList<SortHandler>(sortHandlers)) {
+      handler.onSort(handler.new SortEvent(ascending, column));
+    }
+  }
+
+  private void onRowClick(int viewRow, boolean toggle) {
+    int row = getTableRowIndex(viewRow);
+    if (toggle) {
+      selected[row] = !selected[row];
+    } else {
+      selected = new boolean[numberOfRows];
+      selected[row] = true;
+    }
+    render(true);
+    for (SelectHandler handler : new ArrayList<SelectHandler>(selectHandlers)) {
+      handler.onSelect(new SelectHandler.SelectEvent());
+    }
+    if (getJso() != null) {
+      // Also notify listeners registered from JavaScript.
+      fireSelectionEvent();
+    }
+  }
+
+  /**
+   * Fills the pool elements for the rows in and around the visible area. The
+   * pool is never larger than the table, so every element shows a row.
+   * Elements already showing their row are left alone unless
+   * <code>refill</code> is set.
+   */
+  private void render(boolean refill) {
+    int size = pool.length;
+    if (size == 0) {
+      return;
+    }
+    int first = getFirstRenderedRow();
+    for (int slot = 0; slot < size; ++slot) {
+      int viewRow = first + ((slot - first % size) + size) % size;
+      if (refill || slotRows[slot] != viewRow) {
+        fillRow(slot, viewRow);
+      }
+    }
+  }
+
+  private void updateHeader() {
+    Element cell = header.getFirstChildElement();
+    for (int column = 0; column < numberOfColumns; ++column) {
+      String className = STYLE_NAME + "-headerCell";
+      if (column == sortColumn) {
+        className += " " + STYLE_NAME
+            + (sortAscending ? "-sortAscending" : "-sortDescending");
+      }
+      cell.setClassName(className);
+      cell = cell.getNextSiblingElement();
+    }
+  }
+}
@@ -21,6 +21,8 @@ import com.google.gwt.user.client.DOM;
 import com.google.gwt.user.client.ui.Widget;
 import com.google.gwt.visualization.client.AbstractDataTable;
 import com.google.gwt.visualization.client.AbstractDrawOptions;
+import com.google.gwt.visualization.client.RenderTimings;
+import com.google.gwt.visualization.client.RenderTimings.Phase;
 import com.google.gwt.visualization.client.events.ErrorHandler;
 import com.google.gwt.visualization.client.events.Handler;
 
@@ -59,6 +61,7 @@ public abstract class Visualization<OptionsType extends AbstractDrawOptions> ext
   private AbstractDataTable dataTable;
   private OptionsType options;
   private JavaScriptObject jso;
+  private JavaScriptObject readyListener;
 
   public Visualization() {
     Element div = DOM.createDiv();
@@ -82,9 +85,9 @@ public abstract class Visualization<OptionsType extends AbstractDrawOptions> ext
    * 
    * @param data The DataTable with the data.
    */
-  public final native void draw(AbstractDataTable data) /*-{
-    this.@com.google.gwt.visualization.client.visualizations.Visualization::jso.draw(data, {});
-  }-*/;
+  public final void draw(AbstractDataTable data) {
+    drawAndMeasure(data, JavaScriptObject.createObject());
+  }
 
   /**
    * Draws the visualization.
@@ -92,9 +95,9 @@ public abstract class Visualization<OptionsType extends AbstractDrawOptions> ext
    * @param data The DataTable with the data.
    * @param options The options for drawing this visualization.
    */
-  public final native void draw(AbstractDataTable data, OptionsType options) /*-{
-    this.@com.google.gwt.visualization.client.visualizations.Visualization::jso.draw(data, options);
-  }-*/;
+  public final void draw(AbstractDataTable data, OptionsType options) {
+    drawAndMeasure(data, options);
+  }
 
   /**
    * Note: calling this method should not usually be necessary except by
@@ -117,6 +120,49 @@ public abstract class Visualization<OptionsType extends AbstractDrawOptions> ext
    */
   protected abstract JavaScriptObject createJso(Element div);
 
+  /**
+   * Draws the visualization, recording the draw and ready phases in
+   * {@link RenderTimings}.
+   */
+  private void drawAndMeasure(AbstractDataTable data,
+      JavaScriptObject options) {
+    String name = getClass().getName();
+    name = name.substring(name.lastIndexOf('.') + 1);
+    if (RenderTimings.isRecording()) {
+      listenForReady(RenderTimings.begin(Phase.READY, name), data);
+    }
+    RenderTimings.Measurement measurement = RenderTimings.begin(Phase.DRAW,
+        name);
+    nativeDraw(data, options);
+    measurement.end(data);
+  }
+
+  /**
+   * Ends a measurement when the visualization fires its next ready event.
+   * The listener of a previous draw that never became ready is removed.
+   */
+  private native void listenForReady(RenderTimings.Measurement measurement,
+      AbstractDataTable data) /*-{
+    var events = $wnd.google.visualization.events;
+    var self = this;
+    var previous = this.@com.google.gwt.visualization.client.visualizations.Visualization::readyListener;
+    if (previous) {
+      events.removeListener(previous);
+    }
+    var listener = events.addListener(this.@com.google.gwt.visualization.client.visualizations.Visualization::jso,
+        'ready', function() {
+      events.removeListener(listener);
+      self.@com.google.gwt.visualization.client.visualizations.Visualization::readyListener = null;
+      measurement.@com.google.gwt.visualization.client.RenderTimings$Measurement::end(Lcom/google/gwt/visualization/client/AbstractDataTable;)(data);
+    });
+    this.@com.google.gwt.visualization.client.visualizations.Visualization::readyListener = listener;
+  }-*/;
+
+  private native void nativeDraw(AbstractDataTable data,
+      JavaScriptObject options) /*-{
+    this.@com.google.gwt.visualization.client.visualizations.Visualization::jso.draw(data, options);
+  }-*/;
+
   @Override
   protected void onLoad() {
     if (dataTable != null && options != null) {
@@ -36,9 +36,13 @@ import com.google.gwt.visualization.client.CoreLineChartTest;
 import com.google.gwt.visualization.client.CorePieChartTest;
 import com.google.gwt.visualization.client.CoreScatterChartTest;
 import com.google.gwt.visualization.client.DataColumnTest;
+import com.google.gwt.visualization.client.DataTableParserTest;
+import com.google.gwt.visualization.client.DataTableQueryTest;
 import com.google.gwt.visualization.client.DataTableTest;
 import com.google.gwt.visualization.client.DataViewTest;
 import com.google.gwt.visualization.client.DateFormatTest;
+import com.google.gwt.visualization.client.DownsamplerTest;
+import com.google.gwt.visualization.client.FormatPipelineTest;
 import com.google.gwt.visualization.client.GaugeTest;
 import com.google.gwt.visualization.client.GeoMapTest;
 import com.google.gwt.visualization.client.ImageAreaChartTest;
@@ -56,12 +60,17 @@ import com.google.gwt.visualization.client.OrgChartTest;
 import com.google.gwt.visualization.client.PatternFormatTest;
 import com.google.gwt.visualization.client.PieChartTest;
 import com.google.gwt.visualization.client.PropertiesTest;
+import com.google.gwt.visualization.client.QueryCacheTest;
 import com.google.gwt.visualization.client.QueryTest;
+import com.google.gwt.visualization.client.RenderTimingsTest;
 import com.google.gwt.visualization.client.ScatterChartTest;
 import com.google.gwt.visualization.client.SelectionTest;
 import com.google.gwt.visualization.client.TableTest;
 import com.google.gwt.visualization.client.TimeOfDayTest;
 import com.google.gwt.visualization.client.ToolbarTest;
+import com.google.gwt.visualization.client.TrackedDataTableTest;
+import com.google.gwt.visualization.client.VirtualTableTest;
+import com.google.gwt.visualization.client.VisualizationLoaderTest;
 import com.google.gwt.visualization.client.visualizations.corechart.OptionsTest;
 
 import junit.framework.Test;
@@ -99,9 +108,13 @@ public class VisualizationTestSuite extends GWTTestSuite {
     suite.addTestSuite(CorePieChartTest.class);
     suite.addTestSuite(CoreScatterChartTest.class);
     suite.addTestSuite(DataColumnTest.class);
+    suite.addTestSuite(DataTableParserTest.class);
+    suite.addTestSuite(DataTableQueryTest.class);
     suite.addTestSuite(DataTableTest.class);
     suite.addTestSuite(DataViewTest.class);
     suite.addTestSuite(DateFormatTest.class);
+    suite.addTestSuite(DownsamplerTest.class);
+    suite.addTestSuite(FormatPipelineTest.class);
     suite.addTestSuite(GaugeTest.class);
     suite.addTestSuite(GeoMapTest.class);
     suite.addTestSuite(ImageAreaChartTest.class);
@@ -119,12 +132,17 @@ public class VisualizationTestSuite extends GWTTestSuite {
     suite.addTestSuite(PatternFormatTest.class);
     suite.addTestSuite(PieChartTest.class);
     suite.addTestSuite(PropertiesTest.class);
+    suite.addTestSuite(QueryCacheTest.class);
     suite.addTestSuite(QueryTest.class);
+    suite.addTestSuite(RenderTimingsTest.class);
     suite.addTestSuite(SelectionTest.class);
     suite.addTestSuite(ScatterChartTest.class);
     suite.addTestSuite(TableTest.class);
     suite.addTestSuite(TimeOfDayTest.class);
     suite.addTestSuite(ToolbarTest.class);
+    suite.addTestSuite(TrackedDataTableTest.class);
+    suite.addTestSuite(VirtualTableTest.class);
+    suite.addTestSuite(VisualizationLoaderTest.class);
 
     // Corechart tests.
     suite.addTestSuite(OptionsTest.class);
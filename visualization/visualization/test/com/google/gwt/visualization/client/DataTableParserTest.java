@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.visualization.client.AbstractDataTable.ColumnType;
+import com.google.gwt.visualization.client.DataTableParser.Format;
+import com.google.gwt.visualization.client.visualizations.Table;
+
+import java.util.Date;
+
+/**
+ * Tests for the DataTableParser class.
+ */
+public class DataTableParserTest extends VisualizationTest {
+
+  public void testCsv() {
+    loadApi(new Runnable() {
+      @SuppressWarnings("deprecation")
+      public void run() {
+        DataTable data = createTable(ColumnType.DATE);
+        DataTableParser parser = new DataTableParser(data, Format.CSV,
+            "name,amount,paid,day\r\n"
+                + "\"Smith, \"\"Jo\"\"\nJr\",1.5,true,2010-06-30\r\n"
+                + ",,,\n"
+                + "\"\",-2,false,\"Date(2010, 5, 30)\"\n\n");
+        parser.setHeaderRow(true);
+        assertSame(data, parser.parse());
+        assertEquals(1.0, parser.getProgress());
+
+        assertEquals(3, data.getNumberOfRows());
+        assertEquals("Smith, \"Jo\"\nJr", data.getValueString(0, 0));
+        assertEquals(1.5, data.getValueDouble(0, 1));
+        assertTrue(data.getValueBoolean(0, 2));
+        assertEquals(new Date(110, 5, 30), data.getValueDate(0, 3));
+        for (int column = 0; column < 4; ++column) {
+          assertTrue(data.isValueNull(1, column));
+        }
+        assertEquals("", data.getValueString(2, 0));
+        assertEquals(-2.0, data.getValueDouble(2, 1));
+        assertFalse(data.getValueBoolean(2, 2));
+        assertEquals(new Date(110, 5, 30), data.getValueDate(2, 3));
+      }
+    });
+  }
+
+  public void testInvalid() {
+    loadApi(new Runnable() {
+      public void run() {
+        String[] inputs = new String[] {
+            "[[\"a\", 1, true, 0, 5]]", "[[\"a\", 1, true, 0]",
+            "[[\"a\", x, true, 0]]", "[[\"a\", 1, yes, 0]]"};
+        for (String input : inputs) {
+          try {
+            new DataTableParser(createTable(ColumnType.DATETIME), Format.JSON,
+                input).parse();
+            fail("Expected IllegalArgumentException for " + input);
+          } catch (IllegalArgumentException e) {
+            // Expected
+          }
+        }
+      }
+    });
+  }
+
+  public void testJson() {
+    loadApi(new Runnable() {
+      public void run() {
+        DataTable data = createTable(ColumnType.DATETIME);
+        new DataTableParser(data, Format.JSON, " [\n"
+            + "  [\"a\\\"b\\u0041\\n\", 1e3, true, 86400000],\n"
+            + "  [null, null, null, null],\n"
+            + "  [\"\", -1, false, \"Date(2010, 0, 1, 12, 30, 0)\"]\n"
+            + "] ").parse();
+
+        assertEquals(3, data.getNumberOfRows());
+        assertEquals("a\"bA\n", data.getValueString(0, 0));
+        assertEquals(1000.0, data.getValueDouble(0, 1));
+        assertTrue(data.getValueBoolean(0, 2));
+        assertEquals(86400000L, data.getValueDate(0, 3).getTime());
+        for (int column = 0; column < 4; ++column) {
+          assertTrue(data.isValueNull(1, column));
+        }
+        assertEquals(-1.0, data.getValueDouble(2, 1));
+        assertEquals(12, getHours(data.getValueDate(2, 3)));
+      }
+    });
+  }
+
+  public void testStart() {
+    loadApi(new Runnable() {
+      public void run() {
+        delayTestFinish(ASYNC_DELAY_MS);
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 5000; ++i) {
+          csv.append("row ").append(i).append(',').append(i).append(
+              ",true,0\n");
+        }
+        final DataTableParser parser = new DataTableParser(
+            createTable(ColumnType.DATE), Format.CSV, csv.toString());
+        parser.setFirstChunkRows(10);
+        parser.setTimeBudgetMillis(1);
+        parser.start(new DataTableParser.Callback() {
+          int progressCalls;
+
+          public void onComplete(DataTable data) {
+            assertEquals(5000, data.getNumberOfRows());
+            assertEquals(4999.0, data.getValueDouble(4999, 1));
+            assertEquals(1.0, parser.getProgress());
+            assertTrue(progressCalls > 0);
+            finishTest();
+          }
+
+          public void onFailure(Throwable caught) {
+            fail(caught.getMessage());
+          }
+
+          public void onProgress(DataTable data, double fraction) {
+            if (progressCalls++ == 0) {
+              assertEquals(10, data.getNumberOfRows());
+              assertEquals("row 9", data.getValueString(9, 0));
+            }
+            assertTrue(fraction > 0 && fraction < 1);
+          }
+        });
+      }
+    }, false);
+  }
+
+  @Override
+  protected String getVisualizationPackage() {
+    return Table.PACKAGE;
+  }
+
+  private DataTable createTable(ColumnType dateType) {
+    DataTable data = DataTable.create();
+    data.addColumn(ColumnType.STRING, "name");
+    data.addColumn(ColumnType.NUMBER, "amount");
+    data.addColumn(ColumnType.BOOLEAN, "paid");
+    data.addColumn(dateType, "day");
+    return data;
+  }
+
+  @SuppressWarnings("deprecation")
+  private int getHours(Date date) {
+    return date.getHours();
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.visualization.client.AbstractDataTable.ColumnType;
+import com.google.gwt.visualization.client.DataTableQuery.Aggregation;
+import com.google.gwt.visualization.client.visualizations.PieChart;
+
+/**
+ * Tests for the DataTableQuery class.
+ */
+public class DataTableQueryTest extends VisualizationTest {
+
+  private static void assertArrayEquals(int[] actual, int... expected) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i]);
+    }
+  }
+
+  public void testAggregate() {
+    loadApi(new Runnable() {
+      public void run() {
+        DataTableQuery query = new DataTableQuery();
+        query.setGroupBy(0);
+        query.addAggregation(1, Aggregation.SUM);
+        query.addAggregation(1, Aggregation.AVG, "Average");
+        query.addAggregation(1, Aggregation.COUNT);
+        query.addAggregation(1, Aggregation.MAX);
+        DataTable result = query.aggregate(createSales());
+
+        assertEquals(5, result.getNumberOfColumns());
+        assertEquals(ColumnType.STRING, result.getColumnType(0));
+        assertEquals("Sales (sum)", result.getColumnLabel(1));
+        assertEquals("Average", result.getColumnLabel(2));
+        assertEquals(3, result.getNumberOfRows());
+        assertNull(result.getValueString(0, 0));
+        assertEquals("East", result.getValueString(1, 0));
+        assertEquals(40, result.getValueInt(1, 1));
+        assertEquals(20.0, result.getValueDouble(1, 2));
+        assertEquals(2, result.getValueInt(1, 3));
+        assertEquals(30, result.getValueInt(1, 4));
+        assertEquals("West", result.getValueString(2, 0));
+        assertEquals(30, result.getValueInt(2, 1));
+        assertEquals(2, result.getValueInt(2, 3));
+        assertEquals(20, result.getValueInt(0, 1));
+
+        query.addSortKey(1, false);
+        query.setLimit(1);
+        result = query.aggregate(createSales());
+        assertEquals(1, result.getNumberOfRows());
+        assertEquals("East", result.getValueString(0, 0));
+
+        try {
+          query.addAggregation(0, Aggregation.SUM);
+          query.aggregate(createSales());
+          fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+          // Expected
+        }
+      }
+    });
+  }
+
+  public void testFilters() {
+    loadApi(new Runnable() {
+      public void run() {
+        TableSnapshot snapshot = new TableSnapshot(createSales());
+        DataTableQuery query = new DataTableQuery();
+        query.addFilter(DataTableQuery.equalTo(0, "East"));
+        assertArrayEquals(query.selectRows(snapshot), 0, 2);
+
+        query = new DataTableQuery();
+        query.addFilter(DataTableQuery.or(DataTableQuery.range(1, 20, 30),
+            DataTableQuery.isNull(0)));
+        assertArrayEquals(query.selectRows(snapshot), 2, 3, 4);
+
+        query = new DataTableQuery();
+        query.addFilter(DataTableQuery.not(DataTableQuery.isNull(1)));
+        query.addFilter(DataTableQuery.range(1, 15, Double.POSITIVE_INFINITY));
+        DataView view = query.createView(snapshot);
+        assertEquals(3, view.getNumberOfRows());
+        assertEquals(2, view.getTableRowIndex(0));
+      }
+    });
+  }
+
+  public void testNullBooleans() {
+    loadApi(new Runnable() {
+      public void run() {
+        DataTable data = DataTable.create();
+        data.addColumn(ColumnType.STRING, "Region");
+        data.addColumn(ColumnType.BOOLEAN, "Shipped");
+        data.addRows(5);
+        data.setColumnValues(0, 0, new String[] {
+            "East", "East", "North", "West", "West"});
+        data.setValue(0, 1, true);
+        data.setValueNull(1, 1);
+        data.setValueNull(2, 1);
+        data.setValue(3, 1, false);
+        data.setValueNull(4, 1);
+
+        TableSnapshot snapshot = new TableSnapshot(data);
+        assertFalse(snapshot.isValueNull(0, 1));
+        assertTrue(snapshot.isValueNull(1, 1));
+        assertEquals(0.0, snapshot.getDouble(3, 1));
+
+        DataTableQuery query = new DataTableQuery();
+        query.addFilter(DataTableQuery.isNull(1));
+        assertArrayEquals(query.selectRows(snapshot), 1, 2, 4);
+
+        query = new DataTableQuery();
+        query.setGroupBy(0);
+        query.addAggregation(1, Aggregation.COUNT);
+        query.addAggregation(1, Aggregation.MAX);
+        DataTable result = query.aggregate(snapshot);
+        assertEquals(3, result.getNumberOfRows());
+        assertEquals("East", result.getValueString(0, 0));
+        assertEquals(1, result.getValueInt(0, 1));
+        assertTrue(result.getValueBoolean(0, 2));
+        assertEquals("North", result.getValueString(1, 0));
+        assertEquals(0, result.getValueInt(1, 1));
+        assertTrue(result.isValueNull(1, 2));
+        assertEquals("West", result.getValueString(2, 0));
+        assertEquals(1, result.getValueInt(2, 1));
+        assertFalse(result.isValueNull(2, 2));
+        assertFalse(result.getValueBoolean(2, 2));
+      }
+    });
+  }
+
+  public void testSort() {
+    loadApi(new Runnable() {
+      public void run() {
+        TableSnapshot snapshot = new TableSnapshot(createSales());
+        DataTableQuery query = new DataTableQuery();
+        query.addSortKey(0, true);
+        query.addSortKey(1, false);
+        assertArrayEquals(query.selectRows(snapshot), 4, 2, 0, 3, 1, 5);
+
+        query.setLimit(3);
+        assertArrayEquals(query.selectRows(snapshot), 4, 2, 0);
+
+        query = new DataTableQuery();
+        query.addSortKey(1, false);
+        query.setLimit(2);
+        assertArrayEquals(query.selectRows(snapshot), 2, 3);
+      }
+    });
+  }
+
+  @Override
+  protected String getVisualizationPackage() {
+    return PieChart.PACKAGE;
+  }
+
+  /**
+   * Regions and sales, with a null region and a null sale.
+   */
+  private DataTable createSales() {
+    DataTable data = DataTable.create();
+    data.addColumn(ColumnType.STRING, "Region");
+    data.addColumn(ColumnType.NUMBER, "Sales");
+    data.addRows(6);
+    data.setColumnValues(0, 0, new String[] {
+        "East", "West", "East", "West", null, "West"});
+    data.setColumnValues(1, 0, new double[] {10, 5, 30, 25, 20, Double.NaN});
+    return data;
+  }
+}
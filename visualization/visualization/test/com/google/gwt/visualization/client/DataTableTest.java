@@ -52,6 +52,41 @@ public class DataTableTest extends VisualizationTest {
     });
   }
 
+  public void testColumnValues() {
+    loadApi(new Runnable() {
+      public void run() {
+        DataTable data = DataTable.create();
+        data.addColumn(ColumnType.DATETIME);
+        data.addColumn(ColumnType.NUMBER);
+        data.addColumn(ColumnType.STRING);
+        data.addRows(3);
+        data.setColumnValuesDate(0, 0, new double[] {0, 1000, Double.NaN});
+        data.setColumnValues(1, 0, new double[] {1.5, Double.NaN, -2});
+        data.setColumnValues(2, 1, new String[] {"b", null});
+
+        double[] dates = data.getColumnValuesDate(0);
+        assertEquals(3, dates.length);
+        assertEquals(1000.0, dates[1]);
+        assertTrue(Double.isNaN(dates[2]));
+        assertEquals(new Date(1000), data.getValueDate(1, 0));
+
+        double[] numbers = data.getColumnValuesDouble(1);
+        assertEquals(1.5, numbers[0]);
+        assertTrue(data.isValueNull(1, 1));
+        assertTrue(Double.isNaN(numbers[1]));
+        int[] integers = data.getColumnValuesInt(1);
+        assertEquals(1, integers[0]);
+        assertEquals(0, integers[1]);
+        assertEquals(-2, integers[2]);
+
+        String[] strings = data.getColumnValuesString(2);
+        assertNull(strings[0]);
+        assertEquals("b", strings[1]);
+        assertNull(strings[2]);
+      }
+    });
+  }
+
   public void testDataTableFromJso() {
     DataTable table = DataTable.create(nativeData(), 0.6);
     assertNotNull(table);
@@ -105,6 +140,26 @@ public class DataTableTest extends VisualizationTest {
     });
   }
 
+  public void testRowValues() {
+    loadApi(new Runnable() {
+      public void run() {
+        DataTable data = DataTable.create();
+        data.addColumn(ColumnType.NUMBER);
+        data.addColumn(ColumnType.NUMBER);
+        data.addRows(2);
+        data.setRowValues(0, 0, 2, new double[] {1, 2, 3, 4});
+        assertEquals(2.0, data.getValueDouble(0, 1));
+        assertEquals(3.0, data.getValueDouble(1, 0));
+        try {
+          data.setRowValues(0, 0, 2, new double[] {1, 2, 3});
+          fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+          // Expected
+        }
+      }
+    });
+  }
+
   public void testString() {
     loadApi(new Runnable() {
       public void run() {
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.visualization.client.AbstractDataTable.ColumnType;
+import com.google.gwt.visualization.client.Downsampler.Method;
+import com.google.gwt.visualization.client.visualizations.AnnotatedTimeLine;
+
+/**
+ * Tests for the Downsampler class.
+ */
+public class DownsamplerTest extends VisualizationTest {
+
+  private static void assertArrayEquals(int[] actual, int... expected) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i]);
+    }
+  }
+
+  public void testCreateView() {
+    loadApi(new Runnable() {
+      public void run() {
+        int n = 10000;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; ++i) {
+          x[i] = i * 60000.0;
+          y[i] = i % 100;
+        }
+        DataTable data = DataTable.create();
+        data.addColumn(ColumnType.DATETIME, "Time");
+        data.addColumn(ColumnType.NUMBER, "Value");
+        data.addRows(n);
+        data.setColumnValuesDate(0, 0, x);
+        data.setColumnValues(1, 0, y);
+
+        Downsampler downsampler = new Downsampler(Method.MIN_MAX, 200);
+        DataView view = downsampler.createView(data, 0, 1);
+        assertEquals(200, view.getNumberOfRows());
+        assertEquals(0, view.getTableRowIndex(0));
+
+        int[] rows = downsampler.selectRows(new TableSnapshot(data),
+            x[5000], x[5009], 0, 1);
+        assertArrayEquals(rows, 4999, 5000, 5001, 5002, 5003, 5004, 5005,
+            5006, 5007, 5008, 5009, 5010);
+      }
+    });
+  }
+
+  public void testLargestTriangleThreeBuckets() {
+    double[] x = {0, 1, 2, 3, 4, 5, 6, 7};
+    double[] y = {0, 0, 9, 0, 0, 0, 0, Double.NaN};
+    int[] rows = Downsampler.largestTriangleThreeBuckets(x, y, 4);
+    assertArrayEquals(rows, 0, 2, 3, 6);
+    assertEquals(7, Downsampler.largestTriangleThreeBuckets(x, y, 10).length);
+  }
+
+  public void testMinMax() {
+    double[] x = {0, 1, 2, 3, 4, 5};
+    double[] y = {1, 5, 2, 0, 3, 3};
+    assertArrayEquals(Downsampler.minMax(x, y, 4), 0, 1, 3, 4);
+  }
+
+  public void testSelectRowsWithNullX() {
+    loadApi(new Runnable() {
+      public void run() {
+        DataTable data = DataTable.create();
+        data.addColumn(ColumnType.NUMBER, "x");
+        data.addColumn(ColumnType.NUMBER, "y");
+        data.addRows(7);
+        data.setColumnValues(0, 0, new double[] {0, 1, 2, 0, 4, 5, 6});
+        data.setColumnValues(1, 0, new double[] {0, 0, 0, 0, 0, 0, 0});
+        data.setValueNull(3, 0);
+
+        Downsampler downsampler = new Downsampler();
+        TableSnapshot snapshot = new TableSnapshot(data);
+        assertArrayEquals(downsampler.selectRows(snapshot, 1, 1, 0, 1), 0, 1,
+            2);
+        assertArrayEquals(downsampler.selectRows(snapshot, 2, 4, 0, 1), 1, 2,
+            4, 5);
+      }
+    });
+  }
+
+  public void testTargetPoints() {
+    try {
+      new Downsampler(Method.MIN_MAX, 2);
+      fail("expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  @Override
+  protected String getVisualizationPackage() {
+    return AnnotatedTimeLine.PACKAGE;
+  }
+}
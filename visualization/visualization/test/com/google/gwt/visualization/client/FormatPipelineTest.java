@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.ajaxloader.client.ArrayHelper;
+import com.google.gwt.visualization.client.AbstractDataTable.ColumnType;
+import com.google.gwt.visualization.client.formatters.DateFormat;
+import com.google.gwt.visualization.client.formatters.FormatPipeline;
+import com.google.gwt.visualization.client.formatters.NumberFormat;
+import com.google.gwt.visualization.client.formatters.PatternFormat;
+import com.google.gwt.visualization.client.visualizations.PieChart;
+
+import java.util.Date;
+
+/**
+ * Tests for the FormatPipeline class.
+ */
+public class FormatPipelineTest extends VisualizationTest {
+
+  private static native NumberFormat createCountingFormat() /*-{
+    return {
+      calls: 0,
+      formatValue: function(value) {
+        ++this.calls;
+        return 'v' + value;
+      }
+    };
+  }-*/;
+
+  private static native int getCalls(NumberFormat format) /*-{
+    return format.calls;
+  }-*/;
+
+  public void testCache() {
+    loadApi(new Runnable() {
+      public void run() {
+        DataTable data = DataTable.create();
+        data.addColumn(ColumnType.NUMBER);
+        data.addRows(100);
+        for (int i = 0; i < 100; ++i) {
+          data.setValue(i, 0, i % 3);
+        }
+        NumberFormat format = createCountingFormat();
+        FormatPipeline pipeline = new FormatPipeline().addNumberFormat(format,
+            0);
+
+        pipeline.format(data, 10, 5);
+        assertEquals(3, getCalls(format));
+        assertEquals("v1", data.getFormattedValue(10, 0));
+        assertEquals("v2", data.getFormattedValue(14, 0));
+        assertFalse("v0".equals(data.getFormattedValue(15, 0)));
+
+        pipeline.format(data);
+        assertEquals(3, getCalls(format));
+        assertEquals("v0", data.getFormattedValue(99, 0));
+
+        pipeline.clearCache();
+        pipeline.format(data);
+        assertEquals(6, getCalls(format));
+
+        NumberFormat uncached = createCountingFormat();
+        new FormatPipeline(0).addNumberFormat(uncached, 0).format(data);
+        assertEquals(100, getCalls(uncached));
+      }
+    });
+  }
+
+  public void testFormat() {
+    loadApi(new Runnable() {
+      public void run() {
+        DataTable expected = createTable();
+        DataTable actual = createTable();
+        NumberFormat.Options numberOptions = NumberFormat.Options.create();
+        numberOptions.setFractionDigits(1);
+        numberOptions.setPrefix("$");
+        NumberFormat numberFormat = NumberFormat.create(numberOptions);
+        DateFormat.Options dateOptions = DateFormat.Options.create();
+        dateOptions.setPattern(DateFormat.FormatType.LONG);
+        DateFormat dateFormat = DateFormat.create(dateOptions);
+        String pattern = "{0} paid {1} on {2} \\{3\\}";
+        int[] sources = new int[] {0, 1, 2};
+
+        numberFormat.format(expected, 1);
+        dateFormat.format(expected, 2);
+        PatternFormat.create(pattern).format(expected,
+            ArrayHelper.toJsArrayInteger(sources), 3);
+
+        new FormatPipeline().addNumberFormat(numberFormat, 1).addDateFormat(
+            dateFormat, 2).addPattern(pattern,
+            ArrayHelper.toJsArrayInteger(sources), 3).format(actual);
+
+        for (int row = 0; row < expected.getNumberOfRows(); ++row) {
+          for (int column = 0; column < 4; ++column) {
+            assertEquals(expected.getFormattedValue(row, column),
+                actual.getFormattedValue(row, column));
+          }
+        }
+        assertTrue(actual.getFormattedValue(0, 3).startsWith("ann paid $"));
+        assertTrue(actual.getFormattedValue(0, 3).endsWith(" {3}"));
+      }
+    });
+  }
+
+  public void testPatternOutOfRange() {
+    loadApi(new Runnable() {
+      public void run() {
+        try {
+          new FormatPipeline().addPattern("{0} {2}",
+              ArrayHelper.toJsArrayInteger(new int[] {0, 1}), 1);
+          fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+          // Expected
+        }
+      }
+    });
+  }
+
+  @Override
+  protected String getVisualizationPackage() {
+    return PieChart.PACKAGE;
+  }
+
+  @SuppressWarnings("deprecation")
+  private DataTable createTable() {
+    DataTable data = DataTable.create();
+    data.addColumn(ColumnType.STRING, "name");
+    data.addColumn(ColumnType.NUMBER, "amount");
+    data.addColumn(ColumnType.DATE, "day");
+    data.addColumn(ColumnType.STRING, "summary");
+    String[] names = new String[] {"ann", "bob", "cy"};
+    data.addRows(30);
+    for (int i = 0; i < 30; ++i) {
+      data.setValue(i, 0, names[i % names.length]);
+      data.setValue(i, 1, 1234.5 + i % 4);
+      data.setValue(i, 2, new Date(110, 0, 1 + i % 5));
+      data.setValue(i, 3, "");
+    }
+    return data;
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.visualization.client.Query.Callback;
+import com.google.gwt.visualization.client.visualizations.BarChart;
+
+/**
+ * Tests for the QueryCache class.
+ */
+public class QueryCacheTest extends VisualizationTest {
+  // This URL is used in the visualization API online samples.
+  private static final String DATA_SOURCE =
+      "http://spreadsheets.google.com/tq?key=pCQbetd-CptHnwJEfo8tALA&pub=1";
+
+  public void testBounds() {
+    try {
+      new QueryCache(0, 60);
+      fail("expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    try {
+      new QueryCache(10, 0);
+      fail("expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  public void testCoalesceAndCache() {
+    loadApi(new Runnable() {
+      public void run() {
+        delayTestFinish(ASYNC_DELAY_MS);
+        final Query.Options options = Query.Options.create();
+        options.setSendMethod(Query.SendMethod.SCRIPT_INJECTION);
+        final QueryCache cache = new QueryCache();
+        final QueryResponse[] first = new QueryResponse[1];
+        cache.send(DATA_SOURCE, null, options, new Callback() {
+          public void onResponse(QueryResponse response) {
+            assertFalse("Response was an Error", response.isError());
+            first[0] = response;
+          }
+        });
+        cache.send(DATA_SOURCE, null, options, new Callback() {
+          public void onResponse(QueryResponse response) {
+            assertSame(first[0], response);
+            assertEquals(1, cache.getMissCount());
+            assertEquals(1, cache.getCoalescedCount());
+            assertEquals(1, cache.getEntryCount());
+            cache.send(DATA_SOURCE, null, options, new Callback() {
+              public void onResponse(QueryResponse cached) {
+                assertSame(first[0], cached);
+                assertEquals(1, cache.getHitCount());
+                assertEquals(1, cache.getMissCount());
+                finishTest();
+              }
+            });
+          }
+        });
+      }
+    }, false);
+  }
+
+  @Override
+  protected String getVisualizationPackage() {
+    return BarChart.PACKAGE;
+  }
+}
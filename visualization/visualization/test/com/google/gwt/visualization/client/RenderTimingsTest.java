@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.user.client.ui.RootPanel;
+import com.google.gwt.visualization.client.RenderTimings.Measurement;
+import com.google.gwt.visualization.client.RenderTimings.Phase;
+import com.google.gwt.visualization.client.RenderTimings.Sample;
+import com.google.gwt.visualization.client.visualizations.PieChart;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the RenderTimings class.
+ */
+public class RenderTimingsTest extends VisualizationTest {
+
+  public void testDraw() {
+    loadApi(new Runnable() {
+      public void run() {
+        RenderTimings.clear();
+        DataTable data = createDailyActivities();
+        PieChart chart = new PieChart(data, PieChart.Options.create());
+        RootPanel.get().add(chart);
+
+        Sample draw = findSample(Phase.DRAW);
+        assertEquals("PieChart", draw.getName());
+        assertEquals(data.getNumberOfRows(), draw.getNumberOfRows());
+        assertEquals(data.getNumberOfColumns(), draw.getNumberOfColumns());
+        assertTrue(draw.getDurationMillis() >= 0);
+
+        // The ready listener removes itself, whether the chart fired the
+        // event during the draw or not.
+        triggerReady(chart.getJso());
+        triggerReady(chart.getJso());
+        assertEquals(2, RenderTimings.getSamples().size());
+        Sample ready = findSample(Phase.READY);
+        assertEquals("PieChart", ready.getName());
+        assertEquals(data.getNumberOfRows(), ready.getNumberOfRows());
+      }
+    });
+  }
+
+  public void testLoad() {
+    loadApi(new Runnable() {
+      public void run() {
+        delayTestFinish(ASYNC_DELAY_MS);
+        RenderTimings.clear();
+        VisualizationUtils.loadVisualizationApi(new Runnable() {
+          public void run() {
+            List<Sample> samples = RenderTimings.getSamples();
+            assertEquals(1, samples.size());
+            assertEquals(Phase.LOAD, samples.get(0).getPhase());
+            assertEquals(PieChart.PACKAGE, samples.get(0).getName());
+            assertEquals(-1, samples.get(0).getNumberOfRows());
+            finishTest();
+          }
+        }, PieChart.PACKAGE);
+      }
+    }, false);
+  }
+
+  public void testRingBuffer() {
+    final List<Sample> received = new ArrayList<Sample>();
+    RenderTimings.Listener listener = new RenderTimings.Listener() {
+      public void onSample(Sample sample) {
+        received.add(sample);
+      }
+    };
+    RenderTimings.addListener(listener);
+    RenderTimings.setCapacity(3);
+    try {
+      for (int i = 0; i < 5; ++i) {
+        Measurement measurement = RenderTimings.begin(Phase.PREPARE, "" + i);
+        measurement.end();
+        measurement.end();
+      }
+      assertEquals(5, received.size());
+      List<Sample> samples = RenderTimings.getSamples();
+      assertEquals(3, samples.size());
+      assertEquals("2", samples.get(0).getName());
+      assertEquals("4", samples.get(2).getName());
+      assertEquals(Phase.PREPARE, samples.get(2).getPhase());
+      assertEquals(-1, samples.get(2).getNumberOfColumns());
+
+      RenderTimings.clear();
+      assertTrue(RenderTimings.getSamples().isEmpty());
+
+      RenderTimings.setCapacity(0);
+      assertTrue(RenderTimings.isRecording());
+      RenderTimings.begin(Phase.PREPARE, "5").end();
+      assertEquals(6, received.size());
+      assertTrue(RenderTimings.getSamples().isEmpty());
+
+      RenderTimings.removeListener(listener);
+      assertFalse(RenderTimings.isRecording());
+    } finally {
+      RenderTimings.removeListener(listener);
+      RenderTimings.setCapacity(RenderTimings.DEFAULT_CAPACITY);
+    }
+  }
+
+  @Override
+  protected String getVisualizationPackage() {
+    return PieChart.PACKAGE;
+  }
+
+  private Sample findSample(Phase phase) {
+    for (Sample sample : RenderTimings.getSamples()) {
+      if (sample.getPhase() == phase) {
+        return sample;
+      }
+    }
+    fail("No " + phase + " sample");
+    return null;
+  }
+
+  private native void triggerReady(JavaScriptObject jso) /*-{
+    $wnd.google.visualization.events.trigger(jso, 'ready', null);
+  }-*/;
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.RootPanel;
+import com.google.gwt.visualization.client.visualizations.LineChart;
+import com.google.gwt.visualization.client.visualizations.LineChart.Options;
+
+/**
+ * Tests for the TrackedDataTable class.
+ */
+public class TrackedDataTableTest extends VisualizationTest {
+
+  public void testChanges() {
+    loadApi(new Runnable() {
+      public void run() {
+        TrackedDataTable tracked = new TrackedDataTable(
+            (DataTable) createCompanyPerformance());
+        assertFalse(tracked.hasChanges());
+
+        tracked.setValue(1, 1, 1200);
+        assertEquals(1200, tracked.getDataTable().getValueInt(1, 1));
+        int row = tracked.addRow();
+        assertEquals(4, row);
+        tracked.setValue(row, 0, "2008");
+        tracked.setRowValues(row, 1, 2, new double[] {1300, 600});
+        tracked.removeRow(0);
+
+        assertTrue(tracked.hasChanges());
+        assertEquals(0, tracked.getFirstChangedRow());
+        assertEquals(1, tracked.getAppendedRowCount());
+        assertEquals(1, tracked.getRemovedRowCount());
+        assertEquals(1, tracked.getUpdatedCellCount());
+        assertEquals(4, tracked.getDataTable().getNumberOfRows());
+        assertFalse(tracked.isRedrawScheduled());
+
+        tracked.redraw();
+        assertEquals(0, tracked.getDrawCount());
+        assertFalse(tracked.hasChanges());
+        assertEquals(0, tracked.getAppendedRowCount());
+      }
+    });
+  }
+
+  public void testCoalescedRedraw() {
+    loadApi(new Runnable() {
+      public void run() {
+        LineChart chart = new LineChart();
+        RootPanel.get().add(chart);
+        final TrackedDataTable tracked = new TrackedDataTable(
+            (DataTable) createCompanyPerformance());
+        tracked.draw(chart, Options.create());
+        assertEquals(1, tracked.getDrawCount());
+
+        for (int i = 0; i < 10; ++i) {
+          int row = tracked.addRow();
+          tracked.setValue(row, 0, String.valueOf(2008 + i));
+          tracked.setValue(row, 1, 1000 + i);
+          tracked.setValue(row, 2, 500 + i);
+        }
+        assertTrue(tracked.isRedrawScheduled());
+        assertEquals(10, tracked.getAppendedRowCount());
+        assertEquals(0, tracked.getUpdatedCellCount());
+
+        delayTestFinish(ASYNC_DELAY_MS);
+        new Timer() {
+          @Override
+          public void run() {
+            assertEquals(2, tracked.getDrawCount());
+            assertFalse(tracked.isRedrawScheduled());
+            assertFalse(tracked.hasChanges());
+            finishTest();
+          }
+        }.schedule(200);
+      }
+    }, false);
+  }
+
+  public void testRedrawInterval() {
+    loadApi(new Runnable() {
+      public void run() {
+        TrackedDataTable tracked = new TrackedDataTable(DataTable.create());
+        assertEquals(TrackedDataTable.DEFAULT_REDRAW_INTERVAL,
+            tracked.getRedrawInterval());
+        tracked.setRedrawInterval(0);
+        assertEquals(0, tracked.getRedrawInterval());
+        try {
+          tracked.setRedrawInterval(-1);
+          fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+          // Expected
+        }
+      }
+    });
+  }
+
+  @Override
+  protected String getVisualizationPackage() {
+    return LineChart.PACKAGE;
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.NodeList;
+import com.google.gwt.user.client.ui.RootPanel;
+import com.google.gwt.visualization.client.AbstractDataTable.ColumnType;
+import com.google.gwt.visualization.client.events.SelectHandler;
+import com.google.gwt.visualization.client.events.SortHandler;
+import com.google.gwt.visualization.client.visualizations.Table;
+import com.google.gwt.visualization.client.visualizations.VirtualTable;
+import com.google.gwt.visualization.client.visualizations.VirtualTable.Options;
+
+/**
+ * Tests for the VirtualTable class.
+ */
+public class VirtualTableTest extends VisualizationTest {
+
+  private static void click(Element element) {
+    element.dispatchEvent(Document.get().createClickEvent(1, 0, 0, 0, 0,
+        false, false, false, false));
+  }
+
+  public void testRecycling() {
+    loadApi(new Runnable() {
+      public void run() {
+        VirtualTable table = createTable(100000);
+        assertEquals(10 + 2 * 5 + 1, table.getRowElementCount());
+        int[] rows = table.getRenderedRows();
+        assertEquals(0, rows[0]);
+
+        table.scrollToRow(50000);
+        rows = table.getRenderedRows();
+        assertEquals(table.getRowElementCount(), rows.length);
+        for (int i = 1; i < rows.length; ++i) {
+          assertEquals(rows[i - 1] + 1, rows[i]);
+        }
+      }
+    });
+  }
+
+  public void testSelection() {
+    loadApi(new Runnable() {
+      public void run() {
+        VirtualTable table = createTable(100);
+        final int[] selectCount = new int[1];
+        table.addSelectHandler(new SelectHandler() {
+          @Override
+          public void onSelect(SelectEvent event) {
+            ++selectCount[0];
+          }
+        });
+        table.sort(0, false);
+        Element rowElement = findRenderedRow(table, 0);
+        click(rowElement.getFirstChildElement());
+        assertEquals(1, selectCount[0]);
+        JsArray<Selection> selections = table.getSelections();
+        assertEquals(1, selections.length());
+        assertEquals(99, selections.get(0).getRow());
+
+        JsArray<Selection> newSelections =
+            JavaScriptObject.createArray().cast();
+        newSelections.push(Selection.createRowSelection(3));
+        table.setSelections(newSelections);
+        assertEquals(3, table.getSelections().get(0).getRow());
+      }
+    });
+  }
+
+  public void testSort() {
+    loadApi(new Runnable() {
+      public void run() {
+        VirtualTable table = createTable(1000);
+        final int[] sortColumn = {-1};
+        final boolean[] sortAscending = new boolean[1];
+        table.addSortHandler(new SortHandler() {
+          @Override
+          public void onSort(SortEvent event) {
+            sortColumn[0] = event.getColumn();
+            sortAscending[0] = event.isAscending();
+          }
+        });
+        Element header = table.getElement().getFirstChildElement();
+        click(header.getFirstChildElement());
+        assertEquals(0, sortColumn[0]);
+        assertTrue(sortAscending[0]);
+        click(header.getFirstChildElement());
+        assertFalse(sortAscending[0]);
+        assertEquals(999, table.getTableRowIndex(0));
+        assertEquals(999, table.getRenderedRows()[0]);
+
+        table.sort(1, true);
+        assertEquals(1, table.getSortColumn());
+        // Values are i % 7, so the first rows with value 0 keep their order.
+        assertEquals(0, table.getTableRowIndex(0));
+        assertEquals(7, table.getTableRowIndex(1));
+      }
+    });
+  }
+
+  @Override
+  protected String getVisualizationPackage() {
+    return Table.PACKAGE;
+  }
+
+  private VirtualTable createTable(int numberOfRows) {
+    DataTable data = DataTable.create();
+    data.addColumn(ColumnType.NUMBER, "Index");
+    data.addColumn(ColumnType.NUMBER, "Remainder");
+    data.addRows(numberOfRows);
+    double[] index = new double[numberOfRows];
+    double[] remainder = new double[numberOfRows];
+    for (int i = 0; i < numberOfRows; ++i) {
+      index[i] = i;
+      remainder[i] = i % 7;
+    }
+    data.setColumnValues(0, 0, index);
+    data.setColumnValues(1, 0, remainder);
+
+    Options options = Options.create();
+    options.setHeight(200);
+    options.setRowHeight(20);
+    options.setOverscan(5);
+    VirtualTable table = new VirtualTable();
+    RootPanel.get().add(table);
+    table.draw(data, options);
+    return table;
+  }
+
+  /**
+   * Returns the element showing the row at a position in the sorted table.
+   */
+  private Element findRenderedRow(VirtualTable table, int viewRow) {
+    NodeList<Element> divs = table.getElement().getElementsByTagName("div");
+    for (int i = 0; i < divs.getLength(); ++i) {
+      Element row = divs.getItem(i);
+      if (row.getClassName().startsWith("gwt-VirtualTable-row")
+          && row.getPropertyInt("__gwtViewRow") == viewRow) {
+        return row;
+      }
+    }
+    fail("row " + viewRow + " is not rendered");
+    return null;
+  }
+}
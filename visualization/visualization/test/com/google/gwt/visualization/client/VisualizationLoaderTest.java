@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.visualization.client;
+
+import com.google.gwt.visualization.client.visualizations.OrgChart;
+import com.google.gwt.visualization.client.visualizations.PieChart;
+import com.google.gwt.visualization.client.visualizations.Table;
+
+/**
+ * Tests for the VisualizationLoader class.
+ */
+public class VisualizationLoaderTest extends VisualizationTest {
+
+  public void testLoaded() {
+    loadApi(new Runnable() {
+      public void run() {
+        delayTestFinish(ASYNC_DELAY_MS);
+        final VisualizationLoader loader = VisualizationLoader.get("1");
+        assertSame(loader, VisualizationLoader.get("1"));
+        assertTrue(loader.isLoaded(PieChart.PACKAGE));
+        final int loadCount = loader.getLoadCount();
+        final boolean[] called = new boolean[1];
+        loader.load(new Runnable() {
+          public void run() {
+            called[0] = true;
+          }
+        }, PieChart.PACKAGE);
+        assertFalse(called[0]);
+        VisualizationUtils.loadVisualizationApi(new Runnable() {
+          public void run() {
+            assertTrue(called[0]);
+            assertEquals(loadCount, loader.getLoadCount());
+            finishTest();
+          }
+        });
+      }
+    }, false);
+  }
+
+  public void testMerge() {
+    loadApi(new Runnable() {
+      public void run() {
+        delayTestFinish(ASYNC_DELAY_MS);
+        final VisualizationLoader loader = VisualizationLoader.get("1");
+        boolean missing = !loader.isLoaded(Table.PACKAGE)
+            || !loader.isLoaded(OrgChart.PACKAGE);
+        final int expectedLoadCount = loader.getLoadCount()
+            + (missing ? 1 : 0);
+        final int requestCount = loader.getRequestCount();
+        final int[] calls = new int[1];
+        loader.load(new Runnable() {
+          public void run() {
+            ++calls[0];
+          }
+        }, Table.PACKAGE);
+        loader.load(new Runnable() {
+          public void run() {
+            assertEquals(1, calls[0]);
+            assertTrue(loader.isLoaded(Table.PACKAGE));
+            assertTrue(loader.isLoaded(OrgChart.PACKAGE));
+            assertEquals(expectedLoadCount, loader.getLoadCount());
+            assertEquals(requestCount + 2, loader.getRequestCount());
+            finishTest();
+          }
+        }, OrgChart.PACKAGE, Table.PACKAGE);
+      }
+    }, false);
+  }
+
+  @Override
+  protected String getVisualizationPackage() {
+    return PieChart.PACKAGE;
+  }
+}